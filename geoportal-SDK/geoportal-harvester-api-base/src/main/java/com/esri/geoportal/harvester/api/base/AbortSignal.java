@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Abort signal.
+ * <p>
+ * Signals abort of a single process. Interrupting the harvesting thread does 
+ * not unblock socket reads, thus brokers register hooks cancelling their 
+ * active requests, typically closing their HTTP clients, which also releases
+ * all the pooled connections. Hooks registered after the abort are run 
+ * immediately.
+ * <p>
+ * Brokers obtain the signal of the process through {@link #of(java.lang.Object)}
+ * called with the init context.
+ */
+public final class AbortSignal {
+  private static final Logger LOG = LoggerFactory.getLogger(AbortSignal.class);
+  
+  /** signal never being raised; used outside of any process */
+  public static final AbortSignal NONE = new AbortSignal(false);
+  
+  private final boolean enabled;
+  private final List<Runnable> hooks = new ArrayList<>();
+  private boolean aborted;
+
+  /**
+   * Creates instance of the signal.
+   */
+  public AbortSignal() {
+    this(true);
+  }
+  
+  private AbortSignal(boolean enabled) {
+    this.enabled = enabled;
+  }
+  
+  /**
+   * Gets abort signal of the owner.
+   * @param owner owner (i.e. init context, process)
+   * @return abort signal of the owner or {@link #NONE} if owner has no abort signal
+   */
+  public static AbortSignal of(Object owner) {
+    AbortSignal signal = owner instanceof Owner? ((Owner) owner).getAbortSignal(): null;
+    return signal!=null? signal: NONE;
+  }
+  
+  /**
+   * Registers hook run upon abort.
+   * @param hook hook
+   */
+  public void onAbort(Runnable hook) {
+    if (!enabled) {
+      return;
+    }
+    synchronized (this) {
+      if (!aborted) {
+        hooks.add(hook);
+        return;
+      }
+    }
+    run(hook);
+  }
+  
+  /**
+   * Registers resource to close upon abort.
+   * @param closeable closeable resource
+   */
+  public void closeOnAbort(Closeable closeable) {
+    onAbort(() -> {
+      try {
+        closeable.close();
+      } catch (IOException ex) {
+        LOG.debug(String.format("Error closing %s upon abort", closeable), ex);
+      }
+    });
+  }
+  
+  /**
+   * Raises the signal; runs all the registered hooks.
+   */
+  public void abort() {
+    List<Runnable> toRun;
+    synchronized (this) {
+      if (!enabled || aborted) {
+        return;
+      }
+      aborted = true;
+      toRun = new ArrayList<>(hooks);
+      hooks.clear();
+    }
+    toRun.forEach(this::run);
+  }
+  
+  /**
+   * Checks if the signal has been raised.
+   * @return <code>true</code> if aborted
+   */
+  public synchronized boolean isAborted() {
+    return aborted;
+  }
+  
+  private void run(Runnable hook) {
+    try {
+      hook.run();
+    } catch (RuntimeException ex) {
+      LOG.warn("Error running abort hook", ex);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ABORT SIGNAL :: %s", !enabled? "none": isAborted()? "aborted": "armed");
+  }
+  
+  /**
+   * Owner of an abort signal.
+   */
+  public interface Owner {
+    /**
+     * Gets abort signal.
+     * @return abort signal or <code>null</code> if no abort signal
+     */
+    AbortSignal getAbortSignal();
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+/**
+ * Batch policy.
+ * <p>
+ * Tells how many records may be grouped before publishing them to a single
+ * destination, and how long the first record of the group may wait for the
+ * others. Once the process has been aborted, records still waiting are given
+ * up after the abort grace period.
+ */
+public final class BatchPolicy {
+  /** default abort grace period */
+  public static final long DEFAULT_ABORT_GRACE = 5000;
+  /** no batching; each record is published immediately */
+  public static final BatchPolicy NONE = new BatchPolicy(1, 0);
+  
+  private final int maxSize;
+  private final long maxAge;
+  private final long abortGrace;
+
+  /**
+   * Creates instance of the policy.
+   * @param maxSize maximum number of records in a batch; value less than 2 disables batching
+   * @param maxAge maximum time in milliseconds the batch is kept open
+   */
+  public BatchPolicy(int maxSize, long maxAge) {
+    this(maxSize, maxAge, DEFAULT_ABORT_GRACE);
+  }
+
+  /**
+   * Creates instance of the policy.
+   * @param maxSize maximum number of records in a batch; value less than 2 disables batching
+   * @param maxAge maximum time in milliseconds the batch is kept open
+   * @param abortGrace maximum time in milliseconds to wait for the batch being published once aborted
+   */
+  public BatchPolicy(int maxSize, long maxAge, long abortGrace) {
+    this.maxSize = Math.max(1, maxSize);
+    this.maxAge = Math.max(0, maxAge);
+    this.abortGrace = Math.max(0, abortGrace);
+  }
+
+  /**
+   * Gets maximum batch size.
+   * @return maximum number of records in a batch
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Gets maximum batch age.
+   * @return maximum time in milliseconds the batch is kept open
+   */
+  public long getMaxAge() {
+    return maxAge;
+  }
+  
+  /**
+   * Gets abort grace period.
+   * @return maximum time in milliseconds to wait for the batch being published once aborted
+   */
+  public long getAbortGrace() {
+    return abortGrace;
+  }
+  
+  /**
+   * Checks if batching is enabled.
+   * @return <code>true</code> if batching is enabled
+   */
+  public boolean isEnabled() {
+    return maxSize > 1;
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("BATCH :: size: %d, age: %dms, abort grace: %dms", maxSize, maxAge, abortGrace);
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import com.esri.geoportal.commons.utils.SimpleCredentials;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingResult;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.specs.OutputBroker;
+import com.esri.geoportal.harvester.api.specs.OutputConnector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Batching output broker.
+ * <p>
+ * Groups records published by concurrent threads into batches and sends each
+ * batch through {@link OutputBroker#publishBatch(java.util.List)}. A batch is
+ * flushed as soon as it reaches the maximum size, or when the first record in
+ * it has been waiting for the maximum age. Each caller is blocked until its
+ * own record is published and receives its own status or error.
+ * <p>
+ * Once the process has been aborted, records of the open batch fail at once
+ * and no new records are accepted. Callers waiting for a batch being published
+ * by another thread, as well as {@link #terminate()}, wait no longer than the 
+ * abort grace period of the policy.
+ */
+public final class BatchingOutputBroker implements OutputBroker {
+  private final OutputBroker broker;
+  private final BatchPolicy policy;
+  private final Object lock = new Object();
+  private Batch batch;
+  private int flushing;
+  private boolean aborted;
+  private long abortDeadline;
+
+  /**
+   * Creates instance of the broker.
+   * @param broker underlying broker
+   * @param policy batch policy
+   */
+  public BatchingOutputBroker(OutputBroker broker, BatchPolicy policy) {
+    this.broker = broker;
+    this.policy = policy;
+  }
+
+  @Override
+  public void initialize(InitContext context) throws DataProcessorException {
+    broker.initialize(context);
+    AbortSignal.of(context).onAbort(this::abort);
+  }
+
+  @Override
+  public void terminate() {
+    awaitFlushed();
+    broker.terminate();
+  }
+
+  @Override
+  public EntityDefinition getEntityDefinition() {
+    return broker.getEntityDefinition();
+  }
+
+  @Override
+  public OutputConnector getConnector() {
+    return broker.getConnector();
+  }
+
+  @Override
+  public boolean hasAccess(SimpleCredentials creds) {
+    return broker.hasAccess(creds);
+  }
+
+  @Override
+  public PublishingStatus publish(DataReference ref) throws DataOutputException {
+    Pending pending = new Pending(ref);
+    Batch current;
+    boolean full = false;
+    synchronized (lock) {
+      if (aborted) {
+        throw new DataOutputException(broker, ref.getId(), "Publishing aborted.");
+      }
+      if (batch == null) {
+        batch = new Batch(System.currentTimeMillis() + policy.getMaxAge());
+      }
+      current = batch;
+      current.items.add(pending);
+      if (current.items.size() >= policy.getMaxSize()) {
+        batch = null;
+        full = true;
+      }
+    }
+    if (full || await(current, pending)) {
+      flush(current);
+    }
+    return pending.get();
+  }
+
+  @Override
+  public PublishingStatus delete(DataReference ref) throws DataOutputException {
+    return broker.delete(ref);
+  }
+
+  @Override
+  public List<PublishingResult> publishBatch(List<DataReference> refs) {
+    return broker.publishBatch(refs);
+  }
+
+  @Override
+  public boolean isBatchNative() {
+    return broker.isBatchNative();
+  }
+
+  /**
+   * Waits until record gets published by another thread or the batch expires.
+   * @param current batch of the record
+   * @param pending pending record
+   * @return <code>true</code> if the batch has expired and the caller has to flush it
+   * @throws DataOutputException if interrupted before the batch has been taken for publishing
+   */
+  private boolean await(Batch current, Pending pending) throws DataOutputException {
+    boolean interrupted = false;
+    try {
+      synchronized (lock) {
+        while (pending.result == null) {
+          long remaining = current.deadline - System.currentTimeMillis();
+          if (batch == current && remaining <= 0) {
+            batch = null;
+            return true;
+          }
+          try {
+            if (batch == current) {
+              lock.wait(remaining);
+            } else if (aborted) {
+              long left = abortDeadline - System.currentTimeMillis();
+              if (left <= 0) {
+                throw new DataOutputException(broker, pending.ref.getId(), "Batch publishing not completed after abort.");
+              }
+              lock.wait(left);
+            } else {
+              lock.wait();
+            }
+          } catch (InterruptedException ex) {
+            if (batch == current) {
+              current.items.remove(pending);
+              if (current.items.isEmpty()) {
+                batch = null;
+              }
+              Thread.currentThread().interrupt();
+              throw new DataOutputException(broker, pending.ref.getId(), "Interrupted waiting for batch publishing.", ex);
+            }
+            interrupted = true;
+          }
+        }
+        return false;
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Publishes the batch and releases all the waiting callers.
+   * @param current batch to publish
+   */
+  private void flush(Batch current) {
+    List<DataReference> refs;
+    synchronized (lock) {
+      refs = current.items.stream().map(p -> p.ref).collect(Collectors.toList());
+      flushing++;
+    }
+    List<PublishingResult> results;
+    try {
+      results = broker.publishBatch(refs);
+    } catch (RuntimeException ex) {
+      results = refs.stream()
+              .map(ref -> PublishingResult.failure(ref, new DataOutputException(broker, ref.getId(), "Error publishing batch.", ex)))
+              .collect(Collectors.toList());
+    }
+    synchronized (lock) {
+      flushing--;
+      for (int i = 0; i < current.items.size(); i++) {
+        Pending p = current.items.get(i);
+        p.result = i < results.size()
+                ? results.get(i)
+                : PublishingResult.failure(p.ref, new DataOutputException(broker, p.ref.getId(), "Missing batch publishing result."));
+      }
+      lock.notifyAll();
+    }
+  }
+  
+  /**
+   * Fails all the records of the open batch and starts the abort grace period.
+   */
+  private void abort() {
+    synchronized (lock) {
+      aborted = true;
+      abortDeadline = System.currentTimeMillis() + policy.getAbortGrace();
+      if (batch != null) {
+        for (Pending p: batch.items) {
+          p.result = PublishingResult.failure(p.ref, new DataOutputException(broker, p.ref.getId(), "Publishing aborted."));
+        }
+        batch = null;
+      }
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Waits until all the batches being published are done. Once aborted, waits
+   * no longer than the abort grace period.
+   */
+  private void awaitFlushed() {
+    boolean interrupted = false;
+    synchronized (lock) {
+      while (flushing > 0) {
+        long left = aborted? abortDeadline - System.currentTimeMillis(): 0;
+        if (aborted && left <= 0) {
+          break;
+        }
+        try {
+          lock.wait(left);
+        } catch (InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("%s [%s]", broker, policy);
+  }
+
+  /**
+   * Batch of records.
+   */
+  private static final class Batch {
+    private final long deadline;
+    private final List<Pending> items = new ArrayList<>();
+
+    public Batch(long deadline) {
+      this.deadline = deadline;
+    }
+  }
+
+  /**
+   * Record waiting for publishing.
+   */
+  private static final class Pending {
+    private final DataReference ref;
+    private PublishingResult result;
+
+    public Pending(DataReference ref) {
+      this.ref = ref;
+    }
+    
+    public PublishingStatus get() throws DataOutputException {
+      return result.getStatus();
+    }
+  }
+}
@@ -22,11 +22,15 @@ import com.esri.geoportal.harvester.api.ex.DataOutputException;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.general.LinkAction;
 import com.esri.geoportal.harvester.api.specs.OutputBroker;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
 /**
  * Broker link action adaptor.
+ * <p>
+ * Lazy data reference found to have no content is skipped rather than 
+ * published. Tombstone is turned into a deletion from the destination.
  */
 public final class BrokerLinkActionAdaptor implements LinkAction {
   private final OutputBroker broker;
@@ -61,6 +65,16 @@ public final class BrokerLinkActionAdaptor implements LinkAction {
 
   @Override
   public PublishingStatus push(DataReference dataRef) throws DataProcessorException, DataOutputException {
+    if (dataRef.isTombstone()) {
+      return broker.delete(dataRef);
+    }
+    try {
+      if (LazyDataReference.isAbsent(dataRef)) {
+        return PublishingStatus.SKIPPED;
+      }
+    } catch (IOException ex) {
+      throw new DataOutputException(broker, dataRef.getId(), String.format("Error loading content of: %s", dataRef), ex);
+    }
     return broker.publish(dataRef);
   }
   
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content budget.
+ * <p>
+ * Limits memory used to keep content of the data references of all the 
+ * running processes. Payloads larger than the threshold, or payloads which 
+ * would exceed the limit, are spilled into temporary files.
+ * 
+ * @see ContentStore
+ */
+public final class ContentBudget {
+  /** unlimited budget; all the content is kept in memory */
+  public static final ContentBudget UNLIMITED = new ContentBudget(Long.MAX_VALUE, Long.MAX_VALUE, null);
+  
+  private static final String TEMP_PREFIX = "hrv-content-";
+  
+  private final long threshold;
+  private final long limit;
+  private final File tempFolder;
+  private final AtomicLong used = new AtomicLong();
+
+  /**
+   * Creates instance of the budget.
+   * @param threshold maximum size in bytes of a single payload kept in memory
+   * @param limit maximum number of bytes kept in memory by all the processes
+   * @param tempFolder folder for spilled content or <code>null</code>/empty 
+   * to use default temporary folder
+   */
+  public ContentBudget(long threshold, long limit, String tempFolder) {
+    this.threshold = Math.max(0, threshold);
+    this.limit = Math.max(0, limit);
+    this.tempFolder = tempFolder!=null && !tempFolder.trim().isEmpty()? new File(tempFolder.trim()): null;
+  }
+
+  /**
+   * Gets threshold.
+   * @return maximum size in bytes of a single payload kept in memory
+   */
+  public long getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * Gets limit.
+   * @return maximum number of bytes kept in memory by all the processes
+   */
+  public long getLimit() {
+    return limit;
+  }
+  
+  /**
+   * Gets number of bytes currently kept in memory by all the processes.
+   * @return number of bytes
+   */
+  public long getUsed() {
+    return used.get();
+  }
+  
+  /**
+   * Reserves memory for a payload.
+   * @param bytes number of bytes
+   * @return <code>true</code> if payload can be kept in memory
+   */
+  /*package*/ boolean reserve(long bytes) {
+    if (bytes > threshold) {
+      return false;
+    }
+    while (true) {
+      long current = used.get();
+      if (current + bytes > limit || current + bytes < 0) {
+        return false;
+      }
+      if (used.compareAndSet(current, current + bytes)) {
+        return true;
+      }
+    }
+  }
+  
+  /**
+   * Frees memory reserved for a payload.
+   * @param bytes number of bytes
+   */
+  /*package*/ void free(long bytes) {
+    used.addAndGet(-bytes);
+  }
+  
+  /**
+   * Creates temporary file for spilled content.
+   * @return temporary file
+   * @throws IOException if creating file fails
+   */
+  /*package*/ File createTempFile() throws IOException {
+    if (tempFolder != null) {
+      tempFolder.mkdirs();
+    }
+    return File.createTempFile(TEMP_PREFIX, ".tmp", tempFolder);
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("CONTENT BUDGET :: threshold: %d, limit: %d, used: %d, temp folder: %s", threshold, limit, used.get(), tempFolder);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+
+/**
+ * Content source.
+ * <p>
+ * Source of a single content variant of the data reference. Content might be
+ * kept on the heap or read directly from the disk each time a stream is
+ * opened, thus large files never have to be loaded entirely into memory.
+ */
+public interface ContentSource extends Serializable {
+  
+  /**
+   * Opens stream to read content. Caller is responsible for closing the stream.
+   * @return input stream
+   * @throws IOException if opening stream fails
+   */
+  InputStream openStream() throws IOException;
+  
+  /**
+   * Gets content length.
+   * @return content length in bytes or <code>-1</code> if unknown
+   */
+  long getLength();
+  
+  /**
+   * Gets content as bytes.
+   * @return content
+   * @throws IOException if reading content fails
+   */
+  default byte[] getBytes() throws IOException {
+    try (InputStream input = openStream()) {
+      ByteArrayOutputStream output = new ByteArrayOutputStream(getLength() > 0 && getLength() < Integer.MAX_VALUE? (int) getLength(): 8192);
+      byte[] buffer = new byte[8192];
+      int length;
+      while ((length = input.read(buffer)) >= 0) {
+        output.write(buffer, 0, length);
+      }
+      return output.toByteArray();
+    }
+  }
+  
+  /**
+   * Creates content source of bytes.
+   * @param bytes bytes
+   * @return content source
+   */
+  static ContentSource of(byte[] bytes) {
+    return new BytesContentSource(bytes);
+  }
+  
+  /**
+   * Creates content source of a file.
+   * @param file file
+   * @return content source
+   */
+  static ContentSource of(File file) {
+    return new FileContentSource(file);
+  }
+  
+  /**
+   * Bytes content source.
+   */
+  final class BytesContentSource implements ContentSource {
+    private static final long serialVersionUID = 1L;
+    private final byte[] bytes;
+
+    private BytesContentSource(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public InputStream openStream() {
+      return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public long getLength() {
+      return bytes.length;
+    }
+
+    @Override
+    public byte[] getBytes() {
+      return bytes;
+    }
+    
+    @Override
+    public String toString() {
+      return String.format("BYTES :: length: %d", bytes.length);
+    }
+  }
+  
+  /**
+   * File content source.
+   */
+  final class FileContentSource implements ContentSource {
+    private static final long serialVersionUID = 1L;
+    private final File file;
+
+    private FileContentSource(File file) {
+      this.file = file;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+      return Files.newInputStream(file.toPath());
+    }
+
+    @Override
+    public long getLength() {
+      return file.length();
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+      return Files.readAllBytes(file.toPath());
+    }
+    
+    @Override
+    public String toString() {
+      return String.format("FILE :: %s", file);
+    }
+  }
+}
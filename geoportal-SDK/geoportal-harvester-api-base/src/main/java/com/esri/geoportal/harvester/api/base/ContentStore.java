@@ -0,0 +1,298 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content store.
+ * <p>
+ * Keeps content of the data references of a single process. Payloads within 
+ * the {@link ContentBudget} are kept in memory, the others are spilled into 
+ * temporary files. Stored content is reference counted; it is discarded once
+ * the data reference holding it is released, that is, once the record has 
+ * left the link tree. Closing the store discards any content left.
+ * <p>
+ * Brokers obtain the store of the process through {@link #of(java.lang.Object)}
+ * called with the init context.
+ */
+public final class ContentStore {
+  private static final Logger LOG = LoggerFactory.getLogger(ContentStore.class);
+  
+  /** store keeping all the content in memory; used outside of any process */
+  public static final ContentStore HEAP = new ContentStore(ContentBudget.UNLIMITED);
+  
+  private static final int BUFFER_SIZE = 8192;
+  
+  private final ContentBudget budget;
+  private final Set<StoredContent> contents = Collections.newSetFromMap(new ConcurrentHashMap<>());
+  private final AtomicLong memory = new AtomicLong();
+  private final AtomicLong disk = new AtomicLong();
+  private final AtomicLong memoryHighWaterMark = new AtomicLong();
+  private final AtomicLong diskHighWaterMark = new AtomicLong();
+
+  /**
+   * Creates instance of the store.
+   * @param budget content budget
+   */
+  public ContentStore(ContentBudget budget) {
+    this.budget = budget;
+  }
+  
+  /**
+   * Gets content store of the owner.
+   * @param owner owner (i.e. init context, process)
+   * @return content store of the owner or {@link #HEAP} if owner has no content store
+   */
+  public static ContentStore of(Object owner) {
+    ContentStore store = owner instanceof Owner? ((Owner) owner).getContentStore(): null;
+    return store!=null? store: HEAP;
+  }
+  
+  /**
+   * Stores bytes.
+   * @param bytes bytes
+   * @return content source
+   * @throws IOException if spilling content fails
+   */
+  public ContentSource store(byte[] bytes) throws IOException {
+    if (budget.reserve(bytes.length)) {
+      return register(new StoredContent(this, bytes));
+    }
+    File file = budget.createTempFile();
+    try (OutputStream output = Files.newOutputStream(file.toPath())) {
+      output.write(bytes);
+    } catch (IOException ex) {
+      Files.deleteIfExists(file.toPath());
+      throw ex;
+    }
+    return register(new StoredContent(this, file, bytes.length));
+  }
+  
+  /**
+   * Stores content of the stream. Stream is read up to the end but not closed.
+   * @param input input stream
+   * @return content source
+   * @throws IOException if reading or spilling content fails
+   */
+  public ContentSource store(InputStream input) throws IOException {
+    ByteArrayOutputStream head = new ByteArrayOutputStream();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int length = 0;
+    while (head.size() <= budget.getThreshold() && (length = input.read(buffer)) >= 0) {
+      head.write(buffer, 0, length);
+    }
+    if (length < 0 && budget.reserve(head.size())) {
+      return register(new StoredContent(this, head.toByteArray()));
+    }
+    File file = budget.createTempFile();
+    long size = head.size();
+    try (OutputStream output = Files.newOutputStream(file.toPath())) {
+      head.writeTo(output);
+      head = null;
+      if (length >= 0) {
+        while ((length = input.read(buffer)) >= 0) {
+          output.write(buffer, 0, length);
+          size += length;
+        }
+      }
+    } catch (IOException ex) {
+      Files.deleteIfExists(file.toPath());
+      throw ex;
+    }
+    return register(new StoredContent(this, file, size));
+  }
+  
+  /**
+   * Releases content of the data reference.
+   * @param ref data reference
+   * @see SimpleDataReference#release() 
+   */
+  public static void release(DataReference ref) {
+    if (ref instanceof SimpleDataReference) {
+      ((SimpleDataReference) ref).release();
+    } else if (ref instanceof LazyDataReference) {
+      ((LazyDataReference) ref).release();
+    } else if (ref != null) {
+      release(ref.getOriginDataReference());
+    }
+  }
+  
+  /**
+   * Gets number of bytes currently kept in memory.
+   * @return number of bytes
+   */
+  public long getMemoryUsed() {
+    return memory.get();
+  }
+  
+  /**
+   * Gets number of bytes currently spilled to the disk.
+   * @return number of bytes
+   */
+  public long getDiskUsed() {
+    return disk.get();
+  }
+  
+  /**
+   * Gets maximum number of bytes kept in memory at once.
+   * @return number of bytes
+   */
+  public long getMemoryHighWaterMark() {
+    return memoryHighWaterMark.get();
+  }
+  
+  /**
+   * Gets maximum number of bytes spilled to the disk at once.
+   * @return number of bytes
+   */
+  public long getDiskHighWaterMark() {
+    return diskHighWaterMark.get();
+  }
+  
+  /**
+   * Discards all the content left in the store.
+   */
+  public void close() {
+    contents.forEach(StoredContent::discard);
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("CONTENT STORE :: memory: %d (max %d), disk: %d (max %d)", memory.get(), memoryHighWaterMark.get(), disk.get(), diskHighWaterMark.get());
+  }
+  
+  private StoredContent register(StoredContent content) {
+    if (this != HEAP) {
+      contents.add(content);
+    }
+    AtomicLong counter = content.file!=null? disk: memory;
+    AtomicLong highWaterMark = content.file!=null? diskHighWaterMark: memoryHighWaterMark;
+    long current = counter.addAndGet(content.length);
+    highWaterMark.accumulateAndGet(current, Math::max);
+    return content;
+  }
+  
+  private void unregister(StoredContent content) {
+    contents.remove(content);
+    if (content.file!=null) {
+      disk.addAndGet(-content.length);
+    } else {
+      memory.addAndGet(-content.length);
+      budget.free(content.length);
+    }
+  }
+  
+  /**
+   * Owner of a content store.
+   */
+  public interface Owner {
+    /**
+     * Gets content store.
+     * @return content store or <code>null</code> if no content store
+     */
+    ContentStore getContentStore();
+  }
+  
+  /**
+   * Stored content.
+   */
+  /*package*/ static final class StoredContent implements ContentSource {
+    private static final long serialVersionUID = 1L;
+    
+    private final transient ContentStore store;
+    private final transient AtomicInteger references = new AtomicInteger(1);
+    private final transient AtomicBoolean discarded = new AtomicBoolean();
+    private final byte[] bytes;
+    private final File file;
+    private final long length;
+
+    private StoredContent(ContentStore store, byte[] bytes) {
+      this.store = store;
+      this.bytes = bytes;
+      this.file = null;
+      this.length = bytes.length;
+    }
+
+    private StoredContent(ContentStore store, File file, long length) {
+      this.store = store;
+      this.bytes = null;
+      this.file = file;
+      this.length = length;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+      return bytes!=null? new ByteArrayInputStream(bytes): Files.newInputStream(file.toPath());
+    }
+
+    @Override
+    public long getLength() {
+      return length;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+      return bytes!=null? bytes: Files.readAllBytes(file.toPath());
+    }
+    
+    /**
+     * Removes a reference to the content; discards content once no references left.
+     */
+    /*package*/ void release() {
+      if (references != null && references.decrementAndGet() == 0) {
+        discard();
+      }
+    }
+    
+    /**
+     * Discards content.
+     */
+    private void discard() {
+      if (store == null || !discarded.compareAndSet(false, true)) {
+        return;
+      }
+      store.unregister(this);
+      if (file != null) {
+        try {
+          Files.deleteIfExists(file.toPath());
+        } catch (IOException ex) {
+          LOG.warn(String.format("Unable to delete spilled content: %s", file), ex);
+        }
+      }
+    }
+    
+    @Override
+    public String toString() {
+      return String.format("STORED :: %s, length: %d", file!=null? file: "memory", length);
+    }
+  }
+}
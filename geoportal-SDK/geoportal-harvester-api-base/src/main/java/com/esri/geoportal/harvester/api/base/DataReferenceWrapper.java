@@ -17,7 +17,9 @@ package com.esri.geoportal.harvester.api.base;
 
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.commons.constants.MimeType;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.Date;
 import java.util.HashMap;
@@ -56,13 +58,35 @@ public class DataReferenceWrapper implements DataReference {
 
   @Override
   public byte[] getContent(MimeType...mimeType) throws IOException {
-    byte [] data =  content.get(mimeType);
+    byte [] data =  findContent(mimeType);
     if (data==null) {
       data = baseRef.getContent(mimeType);
     }
     return data;
   }
 
+  @Override
+  public InputStream getContentStream(MimeType...mimeType) throws IOException {
+    byte [] data =  findContent(mimeType);
+    return data!=null? new ByteArrayInputStream(data): baseRef.getContentStream(mimeType);
+  }
+
+  @Override
+  public long getContentLength(MimeType...mimeType) throws IOException {
+    byte [] data =  findContent(mimeType);
+    return data!=null? data.length: baseRef.getContentLength(mimeType);
+  }
+  
+  private byte[] findContent(MimeType...mimeType) {
+    for (MimeType mt: mimeType) {
+      byte [] data = content.get(mt);
+      if (data!=null) {
+        return data;
+      }
+    }
+    return null;
+  }
+
   @Override
   public Set<MimeType> getContentType() {
     HashSet<MimeType> mimeTypes = new HashSet<>();
@@ -106,6 +130,11 @@ public class DataReferenceWrapper implements DataReference {
     return baseRef;
   }
 
+  @Override
+  public boolean isTombstone() {
+    return baseRef.isTombstone();
+  }
+
   @Override
   public String getInputBrokerRef() {
     return baseRef.getInputBrokerRef();
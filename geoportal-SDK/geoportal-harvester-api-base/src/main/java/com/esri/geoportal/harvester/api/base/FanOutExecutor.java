@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.ex.DataException;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.general.Link;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fan-out executor.
+ * <p>
+ * Pushes a single data reference to several sibling links at once and waits
+ * until all of them are done. The executor is bounded; if all the threads are
+ * busy, the link is pushed by the calling thread, thus nested fan-outs never
+ * wait for a free thread. Result of each link is kept separately; failure of
+ * one link, including a runtime exception, doesn't affect the others.
+ */
+public final class FanOutExecutor {
+  /** sequential executor; pushes links one after another in the calling thread */
+  public static final FanOutExecutor SEQUENTIAL = new FanOutExecutor(1);
+
+  private static final long KEEP_ALIVE = 60;
+
+  private final ExecutorService executor;
+
+  /**
+   * Creates instance of the executor.
+   * @param maxThreads maximum number of threads; value less than 2 means
+   * sequential execution
+   */
+  public FanOutExecutor(int maxThreads) {
+    if (maxThreads > 1) {
+      AtomicInteger counter = new AtomicInteger();
+      this.executor = new ThreadPoolExecutor(
+              0, maxThreads, KEEP_ALIVE, TimeUnit.SECONDS,
+              new SynchronousQueue<>(),
+              r -> {
+                Thread thread = new Thread(r, String.format("HARVESTING-FANOUT-%d", counter.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+              },
+              new ThreadPoolExecutor.CallerRunsPolicy());
+    } else {
+      this.executor = null;
+    }
+  }
+
+  /**
+   * Pushes data reference to all the links.
+   * @param links links
+   * @param dataRef data reference
+   * @return list of results, one for each link, in the order of links
+   * @throws DataProcessorException if waiting for the results has been interrupted
+   */
+  public List<Result> push(List<Link> links, DataReference dataRef) throws DataProcessorException {
+    ArrayList<Result> results = new ArrayList<>(links.size());
+    if (executor == null || links.size() < 2) {
+      for (Link link: links) {
+        results.add(execute(link, dataRef));
+      }
+      return results;
+    }
+
+    ArrayList<Future<Result>> futures = new ArrayList<>(links.size());
+    for (Link link: links.subList(1, links.size())) {
+      futures.add(executor.submit(() -> execute(link, dataRef)));
+    }
+    results.add(execute(links.get(0), dataRef));
+
+    try {
+      for (Future<Result> future: futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException ex) {
+      futures.forEach(f -> f.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new DataProcessorException(String.format("Interrupted pushing data: %s", dataRef), ex);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      if (ex.getCause() instanceof Error) {
+        throw (Error) ex.getCause();
+      }
+      throw new DataProcessorException(String.format("Error pushing data: %s", dataRef), ex.getCause());
+    }
+  }
+
+  /**
+   * Shuts down executor.
+   */
+  public void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private Result execute(Link link, DataReference dataRef) {
+    try {
+      return new Result(link.push(dataRef), null);
+    } catch (DataProcessorException|DataOutputException ex) {
+      return new Result(null, ex);
+    } catch (RuntimeException ex) {
+      // unexpected failure fails this link only
+      return new Result(null, new DataOutputException(null, dataRef.getId(), String.format("Error pushing data: %s", dataRef), ex));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("FANOUT :: %s", executor != null? executor: "sequential");
+  }
+
+  /**
+   * Result of pushing data reference to a single link.
+   */
+  public static final class Result {
+    private final PublishingStatus status;
+    private final DataException error;
+
+    private Result(PublishingStatus status, DataException error) {
+      this.status = status;
+      this.error = error;
+    }
+
+    /**
+     * Gets publishing status.
+     * @return publishing status
+     * @throws DataProcessorException if processing failed
+     * @throws DataOutputException if sending to the output failed
+     */
+    public PublishingStatus get() throws DataProcessorException, DataOutputException {
+      if (error instanceof DataProcessorException) {
+        throw (DataProcessorException) error;
+      }
+      if (error instanceof DataOutputException) {
+        throw (DataOutputException) error;
+      }
+      return status;
+    }
+  }
+}
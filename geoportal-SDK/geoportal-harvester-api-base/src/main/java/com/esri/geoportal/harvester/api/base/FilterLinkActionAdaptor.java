@@ -28,9 +28,13 @@ import java.util.List;
 
 /**
  * Filter link action adaptor.
+ * <p>
+ * Tombstones are never filtered out; deleting a record which has not been 
+ * published is harmless whereas keeping one deleted at the source is not.
  */
 public final class FilterLinkActionAdaptor implements LinkAction {
   private final FilterInstance filter;
+  private volatile boolean bypassed;
 
   /**
    * Creates instance of the adaptor.
@@ -40,6 +44,23 @@ public final class FilterLinkActionAdaptor implements LinkAction {
     this.filter = filter;
   }
 
+  /**
+   * Checks if filter is bypassed.
+   * @return <code>true</code> if filter is bypassed
+   */
+  public boolean isBypassed() {
+    return bypassed;
+  }
+
+  /**
+   * Sets filter bypassed. Bypassed filter passes all the data; used when the
+   * input broker has already applied the filter at the source.
+   * @param bypassed <code>true</code> to bypass filter
+   */
+  public void setBypassed(boolean bypassed) {
+    this.bypassed = bypassed;
+  }
+
   @Override
   public void initialize(InitContext context) throws DataProcessorException {
     filter.initialize(context);
@@ -57,7 +78,7 @@ public final class FilterLinkActionAdaptor implements LinkAction {
 
   @Override
   public List<DataReference> execute(DataReference dataRef) throws DataOutputException {
-    return filter.test(dataRef)? Arrays.asList(new DataReference[]{dataRef}): Collections.emptyList();
+    return bypassed || dataRef.isTombstone() || filter.test(dataRef)? Arrays.asList(new DataReference[]{dataRef}): Collections.emptyList();
   }
 
   @Override
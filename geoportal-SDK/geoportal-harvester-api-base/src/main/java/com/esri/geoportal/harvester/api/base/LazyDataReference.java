@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import com.esri.geoportal.commons.constants.MimeType;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ex.DataInputException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Lazy data reference.
+ * <p>
+ * Identity of the record is available immediately, but the content is loaded
+ * upon the first request for it, thus records rejected by filters looking at 
+ * the identity (i.e. source URI) are never downloaded. Content is loaded only
+ * once even if requested by several destinations; loading failure is 
+ * remembered and reported to each of them.
+ * <p>
+ * Attributes provided by the loader are merged into the attributes of the 
+ * reference upon loading. If last modified date is not known in advance, 
+ * it is taken from the loaded reference.
+ * 
+ * @see #isAbsent(com.esri.geoportal.harvester.api.DataReference) 
+ */
+public final class LazyDataReference implements DataReference {
+  private static final long serialVersionUID = 1L;
+  
+  // info
+  private final URI brokerUri;
+  private final String brokerName;
+  private final String id;
+  private final Date lastModifiedDate;
+  private final URI sourceUri;
+  private final String inputBrokerRef;
+  private final String taskRef;
+  
+  // data
+  private final HashMap<String,Object> attributesMap = new HashMap<>();
+  private transient Loader loader;
+  private DataReference loaded;
+  private IOException failure;
+  private boolean done;
+
+  /**
+   * Creates instance of the data reference.
+   * @param brokerUri broker URI
+   * @param brokerName broker name
+   * @param id record id
+   * @param lastModifiedDate last modified date or <code>null</code> if known only once content is loaded
+   * @param sourceUri source URI
+   * @param inputBrokerRef input broker reference or <code>null</code> if ad-hoc
+   * @param taskRef task reference of <code>null</code> if ad-hoc
+   * @param loader content loader
+   */
+  public LazyDataReference(URI brokerUri, String brokerName, String id, Date lastModifiedDate, URI sourceUri, String inputBrokerRef, String taskRef, Loader loader) {
+    this.brokerUri = brokerUri;
+    this.brokerName = brokerName;
+    this.id = id;
+    this.lastModifiedDate = lastModifiedDate;
+    this.sourceUri = sourceUri;
+    this.inputBrokerRef = inputBrokerRef;
+    this.taskRef = taskRef;
+    this.loader = loader;
+  }
+  
+  /**
+   * Checks if the data reference has no content. Loads the content of the lazy
+   * data reference if not loaded yet.
+   * @param ref data reference
+   * @return <code>true</code> if lazy data reference has been loaded but there was no content
+   * @throws IOException if loading content fails
+   */
+  public static boolean isAbsent(DataReference ref) throws IOException {
+    return ref instanceof LazyDataReference && ((LazyDataReference) ref).load() == null;
+  }
+  
+  /**
+   * Checks if content has been loaded.
+   * @return <code>true</code> if content has been loaded or loading has failed
+   */
+  public synchronized boolean isLoaded() {
+    return done;
+  }
+  
+  /**
+   * Releases content. Content kept in a {@link ContentStore} is discarded and
+   * content not loaded yet will never be loaded.
+   * @see ContentStore#release(com.esri.geoportal.harvester.api.DataReference) 
+   */
+  public synchronized void release() {
+    if (loaded != null) {
+      ContentStore.release(loaded);
+    }
+    loader = null;
+    done = true;
+  }
+
+  @Override
+  public URI getBrokerUri() {
+    return brokerUri;
+  }
+
+  @Override
+  public String getBrokerName() {
+    return brokerName;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public Date getLastModifiedDate() {
+    if (lastModifiedDate != null) {
+      return lastModifiedDate;
+    }
+    try {
+      DataReference ref = load();
+      return ref != null? ref.getLastModifiedDate(): null;
+    } catch (IOException ex) {
+      return null;
+    }
+  }
+
+  @Override
+  public URI getSourceUri() {
+    return sourceUri;
+  }
+
+  @Override
+  public byte[] getContent(MimeType... mimeType) throws IOException {
+    DataReference ref = load();
+    return ref != null? ref.getContent(mimeType): null;
+  }
+
+  @Override
+  public InputStream getContentStream(MimeType... mimeType) throws IOException {
+    DataReference ref = load();
+    return ref != null? ref.getContentStream(mimeType): null;
+  }
+
+  @Override
+  public long getContentLength(MimeType... mimeType) throws IOException {
+    DataReference ref = load();
+    return ref != null? ref.getContentLength(mimeType): -1;
+  }
+
+  @Override
+  public Set<MimeType> getContentType() {
+    try {
+      DataReference ref = load();
+      return ref != null? ref.getContentType(): Collections.emptySet();
+    } catch (IOException ex) {
+      return Collections.emptySet();
+    }
+  }
+
+  @Override
+  public HashMap<String, Object> getAttributesMap() {
+    return attributesMap;
+  }
+
+  @Override
+  public DataReference getOriginDataReference() {
+    return null;
+  }
+
+  @Override
+  public String getInputBrokerRef() {
+    return inputBrokerRef;
+  }
+
+  @Override
+  public String getTaskRef() {
+    return taskRef;
+  }
+  
+  /**
+   * Loads content.
+   * @return loaded reference or <code>null</code> if no content
+   * @throws IOException if loading content fails
+   */
+  private synchronized DataReference load() throws IOException {
+    if (!done) {
+      try {
+        loaded = loader != null? loader.load(): null;
+        if (loaded != null) {
+          loaded.getAttributesMap().forEach(attributesMap::putIfAbsent);
+        }
+      } catch (DataInputException ex) {
+        failure = new IOException(String.format("Error loading content of: %s", id), ex);
+      }
+      loader = null;
+      done = true;
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return loaded;
+  }
+  
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    try {
+      load();
+    } catch (IOException ex) {
+      // failure is serialized along with the reference
+    }
+    out.defaultWriteObject();
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("id: %s, modified: %s, source URI: %s, broker URI: %s, loaded: %b", id, lastModifiedDate, sourceUri, brokerUri, done);
+  }
+  
+  /**
+   * Content loader.
+   */
+  @FunctionalInterface
+  public interface Loader {
+    /**
+     * Loads content.
+     * @return data reference with the content or <code>null</code> if content is not available
+     * @throws DataInputException if loading content fails
+     */
+    DataReference load() throws DataInputException;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Publication ledger.
+ * <p>
+ * Keeps ids of the records published by a single task to a single destination.
+ * Output brokers performing cleanup use it to tell which records were 
+ * published before instead of enumerating the whole destination: records in 
+ * the ledger not published during the current harvest are to be deleted.
+ * <p>
+ * A ledger is incomplete until seeded with the records found in the 
+ * destination, thus brokers enumerate the destination once, seed the ledger
+ * and rely on it afterwards. Ids are those of the destination (i.e. document
+ * id, file path, item id), recorded upon publishing and removed upon deleting.
+ * <p>
+ * Brokers obtain the ledger through {@link #of(java.lang.Object)} called with
+ * the init context.
+ */
+public interface PublicationLedger {
+  
+  /**
+   * Gets publication ledger of the owner.
+   * @param owner owner (i.e. init context)
+   * @return publication ledger or <code>null</code> if no ledger available
+   */
+  static PublicationLedger of(Object owner) {
+    return owner instanceof Owner? ((Owner) owner).getPublicationLedger(): null;
+  }
+  
+  /**
+   * Lists ids of the published records.
+   * @return ids of the published records or <code>null</code> if the ledger
+   * has never been seeded
+   * @throws IOException if reading ledger fails
+   */
+  Collection<String> list() throws IOException;
+  
+  /**
+   * Seeds the ledger with the records found in the destination. Replaces 
+   * any ids recorded so far.
+   * @param ids ids of the records found in the destination
+   * @throws IOException if writing ledger fails
+   */
+  void seed(Collection<String> ids) throws IOException;
+  
+  /**
+   * Records published record. Failures are logged, not thrown, since they 
+   * must not fail publishing.
+   * @param id id of the record
+   */
+  void record(String id);
+  
+  /**
+   * Removes deleted record. Failures are logged, not thrown.
+   * @param id id of the record
+   */
+  void remove(String id);
+  
+  /**
+   * Owner of a publication ledger.
+   */
+  interface Owner {
+    /**
+     * Gets publication ledger.
+     * @return publication ledger or <code>null</code> if no ledger
+     */
+    PublicationLedger getPublicationLedger();
+  }
+}
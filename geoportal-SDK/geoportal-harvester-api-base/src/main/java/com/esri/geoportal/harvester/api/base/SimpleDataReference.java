@@ -17,7 +17,9 @@ package com.esri.geoportal.harvester.api.base;
 
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.commons.constants.MimeType;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.Date;
 import java.util.HashMap;
@@ -40,7 +42,7 @@ public final class SimpleDataReference implements DataReference {
   private final String taskRef;
   
   // data
-  private final Map<MimeType,byte []> content = new HashMap<>();
+  private final Map<MimeType,ContentSource> content = new HashMap<>();
   private final HashMap<String,Object> attributesMap = new HashMap<>();
 
   /**
@@ -69,9 +71,41 @@ public final class SimpleDataReference implements DataReference {
    * @param content content
    */
   public void addContext(MimeType mimeType, byte [] content) {
+    this.content.put(mimeType, content!=null? ContentSource.of(content): null);
+  }
+
+  /**
+   * Adds content of a particular type to the reference. Content will be read
+   * from the file each time requested, thus the file has to exist as long as
+   * the reference is in use.
+   * @param mimeType mime type
+   * @param file file with the content
+   */
+  public void addContext(MimeType mimeType, File file) {
+    this.content.put(mimeType, file!=null? ContentSource.of(file): null);
+  }
+
+  /**
+   * Adds content of a particular type to the reference.
+   * @param mimeType mime type
+   * @param content content source
+   */
+  public void addContext(MimeType mimeType, ContentSource content) {
     this.content.put(mimeType, content);
   }
   
+  /**
+   * Releases content. Content kept in a {@link ContentStore} is discarded; 
+   * the reference must not be used to read content any longer.
+   */
+  public void release() {
+    content.values().forEach(source -> {
+      if (source instanceof ContentStore.StoredContent) {
+        ((ContentStore.StoredContent) source).release();
+      }
+    });
+  }
+  
   @Override
   public URI getBrokerUri() {
     return brokerUri;
@@ -99,10 +133,27 @@ public final class SimpleDataReference implements DataReference {
 
   @Override
   public byte[] getContent(MimeType...mimeType) throws IOException {
+    ContentSource source = findContent(mimeType);
+    return source!=null? source.getBytes(): null;
+  }
+
+  @Override
+  public InputStream getContentStream(MimeType...mimeType) throws IOException {
+    ContentSource source = findContent(mimeType);
+    return source!=null? source.openStream(): null;
+  }
+
+  @Override
+  public long getContentLength(MimeType...mimeType) throws IOException {
+    ContentSource source = findContent(mimeType);
+    return source!=null? source.getLength(): -1;
+  }
+  
+  private ContentSource findContent(MimeType...mimeType) {
     for (MimeType mt: mimeType) {
-      byte [] bytes = content.get(mt);
-      if (bytes!=null) {
-        return bytes;
+      ContentSource source = content.get(mt);
+      if (source!=null) {
+        return source;
       }
     }
     return null;
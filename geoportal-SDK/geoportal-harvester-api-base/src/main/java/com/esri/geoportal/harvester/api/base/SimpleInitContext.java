@@ -25,9 +25,11 @@ import java.util.Map;
 /**
  * Simple broker context.
  */
-public class SimpleInitContext implements Broker.InitContext {
+public class SimpleInitContext implements Broker.InitContext, ContentStore.Owner, AbortSignal.Owner {
   private final Task task;
   private final List<Listener> listeners;
+  private final ContentStore contentStore;
+  private final AbortSignal abortSignal;
   private boolean preventCleanup;
 
   /**
@@ -36,8 +38,31 @@ public class SimpleInitContext implements Broker.InitContext {
    * @param listeners listeners
    */
   public SimpleInitContext(Task task, List<Listener> listeners) {
+    this(task, listeners, null);
+  }
+
+  /**
+   * Creates instance of the context.
+   * @param task task.
+   * @param listeners listeners
+   * @param contentStore content store of the process or <code>null</code> if none
+   */
+  public SimpleInitContext(Task task, List<Listener> listeners, ContentStore contentStore) {
+    this(task, listeners, contentStore, null);
+  }
+
+  /**
+   * Creates instance of the context.
+   * @param task task.
+   * @param listeners listeners
+   * @param contentStore content store of the process or <code>null</code> if none
+   * @param abortSignal abort signal of the process or <code>null</code> if none
+   */
+  public SimpleInitContext(Task task, List<Listener> listeners, ContentStore contentStore, AbortSignal abortSignal) {
     this.task = task;
     this.listeners = listeners;
+    this.contentStore = contentStore;
+    this.abortSignal = abortSignal;
   }
 
   @Override
@@ -64,5 +89,15 @@ public class SimpleInitContext implements Broker.InitContext {
   public void preventCleanup() {
     preventCleanup = true;
   }
+
+  @Override
+  public ContentStore getContentStore() {
+    return contentStore;
+  }
+
+  @Override
+  public AbortSignal getAbortSignal() {
+    return abortSignal;
+  }
   
 }
@@ -15,14 +15,19 @@
  */
 package com.esri.geoportal.harvester.api.base;
 
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Simple iterator context.
  */
 public class SimpleIteratorContext implements IteratorContext {
   private Date lastHarvestDate;
+  private String checkpoint;
+  private List<EntityDefinition> filters = Collections.emptyList();
 
   @Override
   public Date getLastHarvestDate() {
@@ -32,5 +37,23 @@ public class SimpleIteratorContext implements IteratorContext {
   public void setLastHarvest(Date lastHarvestDate) {
     this.lastHarvestDate = lastHarvestDate;
   }
+
+  @Override
+  public String getCheckpoint() {
+    return checkpoint;
+  }
+
+  public void setCheckpoint(String checkpoint) {
+    this.checkpoint = checkpoint;
+  }
+
+  @Override
+  public List<EntityDefinition> getFilters() {
+    return filters;
+  }
+
+  public void setFilters(List<EntityDefinition> filters) {
+    this.filters = filters!=null? filters: Collections.emptyList();
+  }
   
 }
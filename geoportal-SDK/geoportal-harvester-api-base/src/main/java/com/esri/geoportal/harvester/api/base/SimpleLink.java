@@ -31,6 +31,7 @@ import java.util.stream.Collectors;
 public class SimpleLink implements Link {
   private final LinkAction action;
   private final List<Link> drains;
+  private final FanOutExecutor fanOut;
 
   /**
    * Creates instance of the link.
@@ -38,8 +39,19 @@ public class SimpleLink implements Link {
    * @param drains drains
    */
   public SimpleLink(LinkAction action, List<Link> drains) {
+    this(action, drains, null);
+  }
+
+  /**
+   * Creates instance of the link pushing data to the drains concurrently.
+   * @param action link action.
+   * @param drains drains
+   * @param fanOut fan-out executor or <code>null</code> to push drains one after another
+   */
+  public SimpleLink(LinkAction action, List<Link> drains, FanOutExecutor fanOut) {
     this.action = action;
     this.drains = drains;
+    this.fanOut = fanOut;
   }
 
   @Override
@@ -58,6 +70,22 @@ public class SimpleLink implements Link {
     }
   }
 
+  /**
+   * Gets link action.
+   * @return link action
+   */
+  public LinkAction getAction() {
+    return action;
+  }
+
+  /**
+   * Gets drains.
+   * @return drains
+   */
+  public List<Link> getDrains() {
+    return drains;
+  }
+
   @Override
   public LinkDefinition getLinkDefinition() {
     LinkDefinition linkDef = new LinkDefinition();
@@ -66,16 +94,40 @@ public class SimpleLink implements Link {
     return linkDef;
   }
 
+  /**
+   * Pushes data reference through the link. Data is pushed to all the drains
+   * even if some of them fail; the first failure is thrown once all the drains
+   * are done.
+   * @param dataRef data reference
+   * @return publishing status
+   * @throws DataProcessorException if processing fails
+   * @throws DataOutputException if sending to the output fails
+   */
   @Override
   public PublishingStatus push(DataReference dataRef) throws DataProcessorException, DataOutputException {
-    PublishingStatus status = action.push(dataRef);
+    PublishingStatus status = PublishingStatus.emptyStatus().collect(action.push(dataRef));
+    FanOutExecutor executor = fanOut!=null? fanOut: FanOutExecutor.SEQUENTIAL;
+    DataProcessorException processorError = null;
+    DataOutputException outputError = null;
     for (DataReference dr: action.execute(dataRef)) {
       if (drains!=null) {
-        for (Link l: drains) {
-          status = status.collect(l.push(dr));
+        for (FanOutExecutor.Result r: executor.push(drains, dr)) {
+          try {
+            status = status.collect(r.get());
+          } catch (DataProcessorException ex) {
+            processorError = processorError!=null? processorError: ex;
+          } catch (DataOutputException ex) {
+            outputError = outputError!=null? outputError: ex;
+          }
         }
       }
     }
+    if (processorError!=null) {
+      throw processorError;
+    }
+    if (outputError!=null) {
+      throw outputError;
+    }
     return status;
   }
   
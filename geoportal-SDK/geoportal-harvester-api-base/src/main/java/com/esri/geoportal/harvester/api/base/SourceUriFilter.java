@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Source URI filter.
+ * <p>
+ * Collects regular expression filters on the source URI offered to the input
+ * broker through {@link IteratorContext#getFilters()}. Brokers listing data
+ * hierarchically (folders, directories) may use it to skip data which would 
+ * not pass, including whole branches where no source URI starting with the 
+ * branch URI could match, and then report the filters as honoured.
+ */
+public final class SourceUriFilter {
+  /** type of the regular expression filter */
+  public static final String TYPE = "REGEX";
+  /** regular expression pattern property */
+  public static final String P_PATTERN = "f-regex-pattern";
+  
+  private final List<EntityDefinition> definitions;
+  private final List<Pattern> patterns;
+
+  private SourceUriFilter(List<EntityDefinition> definitions, List<Pattern> patterns) {
+    this.definitions = definitions;
+    this.patterns = patterns;
+  }
+  
+  /**
+   * Creates source URI filter from the filters offered by the iterator context.
+   * @param iteratorContext iterator context
+   * @return source URI filter
+   */
+  public static SourceUriFilter of(IteratorContext iteratorContext) {
+    List<EntityDefinition> definitions = new ArrayList<>();
+    List<Pattern> patterns = new ArrayList<>();
+    for (EntityDefinition def: iteratorContext.getFilters()) {
+      String strPattern = TYPE.equals(def.getType())? def.getProperties().get(P_PATTERN): null;
+      if (strPattern != null) {
+        try {
+          patterns.add(Pattern.compile(strPattern));
+          definitions.add(def);
+        } catch (PatternSyntaxException ex) {
+          // invalid pattern is left for the filter itself to report
+        }
+      }
+    }
+    return new SourceUriFilter(Collections.unmodifiableList(definitions), patterns);
+  }
+  
+  /**
+   * Checks if source URI passes all the filters.
+   * @param sourceUri source URI
+   * @return <code>true</code> if source URI passes all the filters
+   */
+  public boolean accepts(String sourceUri) {
+    return patterns.stream().allMatch(p -> p.matcher(sourceUri).matches());
+  }
+  
+  /**
+   * Checks if any source URI starting with the given prefix might pass all
+   * the filters.
+   * @param prefix source URI prefix (i.e. folder URI)
+   * @return <code>false</code> if no source URI starting with the prefix can pass
+   */
+  public boolean mayAcceptBelow(String prefix) {
+    return patterns.stream().allMatch(p -> {
+      Matcher matcher = p.matcher(prefix);
+      return matcher.matches() || matcher.hitEnd();
+    });
+  }
+  
+  /**
+   * Gets definitions of the filters.
+   * @return list of filter definitions
+   */
+  public List<EntityDefinition> getDefinitions() {
+    return definitions;
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("SOURCE URI FILTER :: %s", patterns);
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.commons.constants.MimeType;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Tombstone.
+ * <p>
+ * Data reference without content announcing that the record has been deleted
+ * from the source. Links pass it down to the output brokers which delete the
+ * corresponding record from the destination.
+ */
+public final class Tombstone implements DataReference {
+  private static final long serialVersionUID = 1L;
+  
+  private final URI brokerUri;
+  private final String brokerName;
+  private final String id;
+  private final Date lastModifiedDate;
+  private final URI sourceUri;
+  private final String inputBrokerRef;
+  private final String taskRef;
+  
+  private final HashMap<String,Object> attributesMap = new HashMap<>();
+
+  /**
+   * Creates instance of the tombstone.
+   * @param brokerUri broker URI
+   * @param brokerName broker name
+   * @param id record id
+   * @param lastModifiedDate deletion date or <code>null</code> if unknown
+   * @param sourceUri source URI
+   * @param inputBrokerRef input broker reference or <code>null</code> if ad-hoc
+   * @param taskRef task reference of <code>null</code> if ad-hoc
+   */
+  public Tombstone(URI brokerUri, String brokerName, String id, Date lastModifiedDate, URI sourceUri, String inputBrokerRef, String taskRef) {
+    this.brokerUri = brokerUri;
+    this.brokerName = brokerName;
+    this.id = id;
+    this.lastModifiedDate = lastModifiedDate;
+    this.sourceUri = sourceUri;
+    this.inputBrokerRef = inputBrokerRef;
+    this.taskRef = taskRef;
+  }
+
+  @Override
+  public boolean isTombstone() {
+    return true;
+  }
+
+  @Override
+  public URI getBrokerUri() {
+    return brokerUri;
+  }
+
+  @Override
+  public String getBrokerName() {
+    return brokerName;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public Date getLastModifiedDate() {
+    return lastModifiedDate;
+  }
+
+  @Override
+  public URI getSourceUri() {
+    return sourceUri;
+  }
+
+  @Override
+  public byte[] getContent(MimeType...mimeType) {
+    return null;
+  }
+
+  @Override
+  public InputStream getContentStream(MimeType...mimeType) {
+    return null;
+  }
+
+  @Override
+  public long getContentLength(MimeType...mimeType) {
+    return -1;
+  }
+
+  @Override
+  public Set<MimeType> getContentType() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public HashMap<String, Object> getAttributesMap() {
+    return attributesMap;
+  }
+
+  @Override
+  public DataReference getOriginDataReference() {
+    return null;
+  }
+
+  @Override
+  public String getInputBrokerRef() {
+    return inputBrokerRef;
+  }
+
+  @Override
+  public String getTaskRef() {
+    return taskRef;
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("TOMBSTONE :: id: %s, deleted: %s, source URI: %s, broker URI: %s", id, lastModifiedDate, sourceUri, brokerUri);
+  }
+}
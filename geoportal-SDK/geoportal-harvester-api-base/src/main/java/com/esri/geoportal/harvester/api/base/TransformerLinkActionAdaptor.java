@@ -22,10 +22,15 @@ import com.esri.geoportal.harvester.api.defs.PublishingStatus;
 import com.esri.geoportal.harvester.api.ex.DataOutputException;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.general.LinkAction;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Transformer link action adaptor.
+ * <p>
+ * Lazy data reference found to have no content is not being transformed.
+ * Tombstones carry no content and are passed through as they are.
  */
 public final class TransformerLinkActionAdaptor implements LinkAction {
   private final TransformerInstance transformer;
@@ -55,6 +60,16 @@ public final class TransformerLinkActionAdaptor implements LinkAction {
 
   @Override
   public List<DataReference> execute(DataReference dataRef) throws DataProcessorException, DataOutputException {
+    if (dataRef.isTombstone()) {
+      return Collections.singletonList(dataRef);
+    }
+    try {
+      if (LazyDataReference.isAbsent(dataRef)) {
+        return Collections.emptyList();
+      }
+    } catch (IOException ex) {
+      throw new DataOutputException(null, dataRef.getId(), String.format("Error loading content of: %s", dataRef), ex);
+    }
     return transformer.transform(dataRef);
   }
 
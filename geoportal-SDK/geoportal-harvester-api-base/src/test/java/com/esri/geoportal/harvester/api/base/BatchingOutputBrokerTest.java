@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import com.esri.geoportal.commons.utils.SimpleCredentials;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.specs.OutputBroker;
+import com.esri.geoportal.harvester.api.specs.OutputConnector;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Batching output broker test.
+ * <p>
+ * Once aborted, records of the open batch fail at once, and neither the
+ * callers waiting for a batch published by another thread nor terminate 
+ * wait for the stuck destination longer than the abort grace period.
+ */
+public class BatchingOutputBrokerTest {
+  private static final long TIMEOUT = 10;
+  
+  private ExecutorService executor;
+  private AbortSignal abortSignal;
+  private StuckBroker stuck;
+  
+  @Before
+  public void setUp() {
+    executor = Executors.newCachedThreadPool();
+    abortSignal = new AbortSignal();
+    stuck = new StuckBroker();
+  }
+  
+  @After
+  public void tearDown() {
+    stuck.release.countDown();
+    executor.shutdownNow();
+  }
+  
+  @Test
+  public void testAbortFailsOpenBatch() throws Exception {
+    BatchingOutputBroker broker = initialize(new BatchPolicy(10, TimeUnit.HOURS.toMillis(1), 0));
+    Future<PublishingStatus> waiting = executor.submit(() -> broker.publish(ref("r1")));
+    
+    abortSignal.abort();
+    
+    assertFailed(waiting);
+    try {
+      broker.publish(ref("r2"));
+      fail("Publishing after abort should fail");
+    } catch (DataOutputException ex) {
+      // expected
+    }
+    assertEquals("Open batch should never reach the destination", 0, stuck.published);
+  }
+  
+  @Test
+  public void testAbortBoundsWaitForStuckBatch() throws Exception {
+    BatchingOutputBroker broker = initialize(new BatchPolicy(2, TimeUnit.HOURS.toMillis(1), 100));
+    CompletionService<PublishingStatus> publishing = new ExecutorCompletionService<>(executor);
+    publishing.submit(() -> broker.publish(ref("r1")));
+    publishing.submit(() -> broker.publish(ref("r2")));
+    assertTrue(stuck.entered.await(TIMEOUT, TimeUnit.SECONDS));
+    
+    abortSignal.abort();
+    
+    Future<PublishingStatus> waiting = publishing.poll(TIMEOUT, TimeUnit.SECONDS);
+    assertNotNull("Caller waiting for the stuck batch should give up", waiting);
+    assertFailed(waiting);
+    Future<?> terminated = executor.submit(broker::terminate);
+    terminated.get(TIMEOUT, TimeUnit.SECONDS);
+    assertTrue(stuck.terminated);
+  }
+  
+  private BatchingOutputBroker initialize(BatchPolicy policy) throws DataProcessorException {
+    BatchingOutputBroker broker = new BatchingOutputBroker(stuck, policy);
+    broker.initialize(new SimpleInitContext(null, Collections.emptyList(), ContentStore.HEAP, abortSignal));
+    return broker;
+  }
+  
+  private static void assertFailed(Future<PublishingStatus> future) throws Exception {
+    try {
+      future.get(TIMEOUT, TimeUnit.SECONDS);
+      fail("Publishing should fail after abort");
+    } catch (ExecutionException ex) {
+      assertTrue(ex.getCause() instanceof DataOutputException);
+    }
+  }
+  
+  private static DataReference ref(String id) {
+    return new SimpleDataReference(URI.create("test://broker"), "test", id, new Date(), URI.create("test://source/" + id), null, null);
+  }
+  
+  /**
+   * Broker stuck publishing until released.
+   */
+  private static class StuckBroker implements OutputBroker {
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile int published;
+    private volatile boolean terminated;
+
+    @Override
+    public PublishingStatus publish(DataReference ref) throws DataOutputException {
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException ex) {
+        throw new DataOutputException(this, ref.getId(), "Interrupted.", ex);
+      }
+      published++;
+      return PublishingStatus.CREATED;
+    }
+
+    @Override
+    public EntityDefinition getEntityDefinition() {
+      return new EntityDefinition();
+    }
+
+    @Override
+    public OutputConnector getConnector() {
+      return null;
+    }
+
+    @Override
+    public boolean hasAccess(SimpleCredentials creds) {
+      return true;
+    }
+
+    @Override
+    public void initialize(InitContext context) throws DataProcessorException {
+    }
+
+    @Override
+    public void terminate() {
+      terminated = true;
+    }
+  }
+}
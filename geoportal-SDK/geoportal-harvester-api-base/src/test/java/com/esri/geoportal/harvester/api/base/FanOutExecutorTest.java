@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.defs.LinkDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.general.Link;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Fan-out executor test.
+ * <p>
+ * Concurrent push is verified with links meeting at a barrier, which they can
+ * pass only if all of them are being pushed at the same time; sequential push
+ * is verified by the threads pushing the links.
+ * <p>
+ * {@link #benchmarkSequentialVsConcurrent()} is a benchmark rather than a test:
+ * it pushes a record to three slow destinations (100ms, 200ms and 300ms) both
+ * sequentially and concurrently and only prints elapsed time, which should be
+ * about the sum and about the slowest of the delays respectively.
+ */
+public class FanOutExecutorTest {
+  private static final long TIMEOUT = 10;
+  private static final long[] DELAYS = {100, 200, 300};
+  
+  private static FanOutExecutor fanOut;
+  private static DataReference dataRef;
+  
+  @BeforeClass
+  public static void initClass() {
+    fanOut = new FanOutExecutor(4);
+    dataRef = new SimpleDataReference(URI.create("test://broker"), "test", "id", new Date(), URI.create("test://source"), null, null);
+  }
+  
+  @AfterClass
+  public static void destroyClass() {
+    fanOut.shutdown();
+  }
+  
+  @Test
+  public void testConcurrentPush() throws Exception {
+    CyclicBarrier barrier = new CyclicBarrier(3);
+    List<Link> links = Arrays.asList(new BarrierLink(barrier), new BarrierLink(barrier), new BarrierLink(barrier));
+    
+    for (FanOutExecutor.Result result: fanOut.push(links, dataRef)) {
+      assertEquals("All the links should be pushed at the same time", PublishingStatus.CREATED, result.get());
+    }
+  }
+  
+  @Test
+  public void testSequentialPush() throws Exception {
+    AtomicInteger active = new AtomicInteger();
+    AtomicInteger maxActive = new AtomicInteger();
+    ThreadLink[] links = {new ThreadLink(active, maxActive), new ThreadLink(active, maxActive), new ThreadLink(active, maxActive)};
+    
+    for (FanOutExecutor.Result result: FanOutExecutor.SEQUENTIAL.push(Arrays.asList(links), dataRef)) {
+      assertEquals(PublishingStatus.CREATED, result.get());
+    }
+    
+    assertEquals("Links should be pushed one after another", 1, maxActive.get());
+    for (ThreadLink link: links) {
+      assertEquals("Links should be pushed by the calling thread", Collections.singleton(Thread.currentThread()), link.threads);
+    }
+  }
+  
+  @Test
+  public void testResultsOrderAndErrors() throws Exception {
+    List<Link> links = Arrays.asList(new ThreadLink(), new FailingLink(), new ThreadLink());
+    
+    List<FanOutExecutor.Result> results = fanOut.push(links, dataRef);
+    
+    assertEquals(3, results.size());
+    assertEquals(1, results.get(0).get().getCreated());
+    try {
+      results.get(1).get();
+      fail("Error expected from the failing link");
+    } catch (DataOutputException ex) {
+      // expected
+    }
+    assertEquals(1, results.get(2).get().getCreated());
+  }
+  
+  @Test
+  public void benchmarkSequentialVsConcurrent() throws Exception {
+    List<Link> links = Arrays.asList(new SlowLink(DELAYS[0]), new SlowLink(DELAYS[1]), new SlowLink(DELAYS[2]));
+    long sequential = measure(FanOutExecutor.SEQUENTIAL, links);
+    long concurrent = measure(fanOut, links);
+    System.out.println(String.format("Fan-out to %d destinations: sequential %dms, concurrent %dms", links.size(), sequential, concurrent));
+  }
+  
+  private long measure(FanOutExecutor executor, List<Link> links) throws Exception {
+    long start = System.currentTimeMillis();
+    for (FanOutExecutor.Result result: executor.push(links, dataRef)) {
+      result.get();
+    }
+    return System.currentTimeMillis() - start;
+  }
+  
+  private static abstract class TestLink implements Link {
+    @Override
+    public LinkDefinition getLinkDefinition() {
+      return new LinkDefinition();
+    }
+
+    @Override
+    public void initialize(InitContext context) throws DataProcessorException {
+    }
+
+    @Override
+    public void terminate() {
+    }
+  }
+  
+  private static class BarrierLink extends TestLink {
+    private final CyclicBarrier barrier;
+
+    public BarrierLink(CyclicBarrier barrier) {
+      this.barrier = barrier;
+    }
+
+    @Override
+    public PublishingStatus push(DataReference dataRef) throws DataProcessorException, DataOutputException {
+      try {
+        barrier.await(TIMEOUT, TimeUnit.SECONDS);
+      } catch (InterruptedException|BrokenBarrierException|TimeoutException ex) {
+        throw new DataProcessorException("Links not pushed at the same time.", ex);
+      }
+      return PublishingStatus.CREATED;
+    }
+  }
+  
+  private static class ThreadLink extends TestLink {
+    private final AtomicInteger active;
+    private final AtomicInteger maxActive;
+    private final Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+
+    public ThreadLink() {
+      this(new AtomicInteger(), new AtomicInteger());
+    }
+
+    public ThreadLink(AtomicInteger active, AtomicInteger maxActive) {
+      this.active = active;
+      this.maxActive = maxActive;
+    }
+
+    @Override
+    public PublishingStatus push(DataReference dataRef) throws DataProcessorException, DataOutputException {
+      maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+      try {
+        threads.add(Thread.currentThread());
+        return PublishingStatus.CREATED;
+      } finally {
+        active.decrementAndGet();
+      }
+    }
+  }
+  
+  private static class SlowLink extends TestLink {
+    private final long delay;
+
+    public SlowLink(long delay) {
+      this.delay = delay;
+    }
+
+    @Override
+    public PublishingStatus push(DataReference dataRef) throws DataProcessorException, DataOutputException {
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException ex) {
+        throw new DataProcessorException("Interrupted.", ex);
+      }
+      return PublishingStatus.CREATED;
+    }
+  }
+  
+  private static class FailingLink extends TestLink {
+    @Override
+    public PublishingStatus push(DataReference dataRef) throws DataProcessorException, DataOutputException {
+      throw new DataOutputException(null, dataRef.getId(), "Failure.");
+    }
+  }
+}
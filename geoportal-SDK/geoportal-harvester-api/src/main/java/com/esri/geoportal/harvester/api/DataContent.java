@@ -16,7 +16,9 @@
 package com.esri.geoportal.harvester.api;
 
 import com.esri.geoportal.commons.constants.MimeType;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Set;
 
 /**
@@ -32,6 +34,32 @@ public interface DataContent {
    */
   byte[] getContent(MimeType... mimeType) throws IOException;
 
+  /**
+   * Gets content as a stream.
+   * <p>
+   * Unlike {@link #getContent(com.esri.geoportal.commons.constants.MimeType...)},
+   * content doesn't have to be loaded into memory at once; implementations 
+   * backed by files stream directly from the disk. Caller is responsible for
+   * closing the stream.
+   * @param mimeType required mime type
+   * @return content stream or <code>null</code> if content by the mime type unavailable
+   * @throws IOException if getting content fails
+   */
+  default InputStream getContentStream(MimeType... mimeType) throws IOException {
+    byte[] content = getContent(mimeType);
+    return content != null? new ByteArrayInputStream(content): null;
+  }
+
+  /**
+   * Gets content length.
+   * @param mimeType required mime type
+   * @return content length in bytes or <code>-1</code> if content unavailable or its length unknown
+   * @throws IOException if getting content length fails
+   */
+  default long getContentLength(MimeType... mimeType) throws IOException {
+    return -1;
+  }
+
   /**
    * Gets content type.
    * @return content type variances
@@ -80,4 +80,14 @@ public interface DataReference extends Serializable, DataContent {
    * @return task reference of <code>null</code> if ad-hoc
    */
   String getTaskRef();
+  
+  /**
+   * Checks if reference is a tombstone signalling record removed from the source.
+   * Tombstone carries no content; destinations delete the record instead of
+   * publishing it.
+   * @return <code>true</code> if tombstone
+   */
+  default boolean isTombstone() {
+    return false;
+  }
 }
@@ -73,6 +73,10 @@ public interface ProcessInstance {
      * just submitted
      */
     submitted,
+    /**
+     * begun, but waiting for a free execution slot
+     */
+    waiting,
     /**
      * currently being executing
      */
@@ -119,6 +123,24 @@ public interface ProcessInstance {
      * @param ex onError
      */
     public void onError(DataException ex);
+    
+    /**
+     * Called when all the data acquired so far has been processed and the 
+     * iteration reached a new checkpoint.
+     * @param checkpoint checkpoint
+     * @see com.esri.geoportal.harvester.api.specs.InputBroker.Iterator#getCheckpoint() 
+     */
+    default void onCheckpoint(String checkpoint) {
+    }
+    
+    /**
+     * Called when the source has reported total number of data references
+     * to be acquired.
+     * @param total total number of data references
+     * @see com.esri.geoportal.harvester.api.specs.InputBroker.Iterator#getTotal() 
+     */
+    default void onTotal(long total) {
+    }
   }
   
 }
@@ -17,6 +17,7 @@ package com.esri.geoportal.harvester.api;
 
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
 import com.esri.geoportal.harvester.api.general.Entity;
 import com.esri.geoportal.harvester.api.specs.InputBroker;
 
@@ -34,6 +35,20 @@ public interface Processor extends Entity {
    * @return processor definition
    */
   EntityDefinition getEntityDefinition();
+  
+  /**
+   * Configures processor.
+   * <p>
+   * Processors which accept settings through the processor definition 
+   * properties return a new processor bound to these settings. By default the
+   * processor itself is returned.
+   * @param processorDefinition processor definition
+   * @return processor configured according to the definition
+   * @throws InvalidDefinitionException if invalid processor definition
+   */
+  default Processor configure(EntityDefinition processorDefinition) throws InvalidDefinitionException {
+    return this;
+  }
 
   /**
    * Creates process.
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.defs;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+
+/**
+ * Publishing result of a single record published within a batch.
+ * <p>
+ * Holds either publishing status or an error, thus failure of one record
+ * doesn't affect the other records of the same batch.
+ */
+public final class PublishingResult {
+  private final DataReference ref;
+  private final PublishingStatus status;
+  private final DataOutputException error;
+
+  private PublishingResult(DataReference ref, PublishingStatus status, DataOutputException error) {
+    this.ref = ref;
+    this.status = status;
+    this.error = error;
+  }
+  
+  /**
+   * Creates successful result.
+   * @param ref data reference
+   * @param status publishing status
+   * @return publishing result
+   */
+  public static PublishingResult success(DataReference ref, PublishingStatus status) {
+    return new PublishingResult(ref, status, null);
+  }
+  
+  /**
+   * Creates failed result.
+   * @param ref data reference
+   * @param error publishing error
+   * @return publishing result
+   */
+  public static PublishingResult failure(DataReference ref, DataOutputException error) {
+    return new PublishingResult(ref, null, error);
+  }
+
+  /**
+   * Gets data reference.
+   * @return data reference
+   */
+  public DataReference getDataReference() {
+    return ref;
+  }
+
+  /**
+   * Gets publishing status.
+   * @return publishing status
+   * @throws DataOutputException if publishing of the record failed
+   */
+  public PublishingStatus getStatus() throws DataOutputException {
+    if (error != null) {
+      throw error;
+    }
+    return status;
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("RESULT:: ref: %s, status: %s", ref, error != null? error.getMessage(): status);
+  }
+}
@@ -19,14 +19,18 @@ package com.esri.geoportal.harvester.api.defs;
  * Publishing status.
  */
 public class PublishingStatus {
-  public static final PublishingStatus EMPTY   = new ImmutablePublishingStatus(0, 0, 0);
-  public static final PublishingStatus SKIPPED = new ImmutablePublishingStatus(1, 0, 0);
-  public static final PublishingStatus CREATED = new ImmutablePublishingStatus(0, 1, 0);
-  public static final PublishingStatus UPDATED = new ImmutablePublishingStatus(0, 0, 1);
+  public static final PublishingStatus EMPTY     = new ImmutablePublishingStatus(0, 0, 0, 0, 0);
+  public static final PublishingStatus SKIPPED   = new ImmutablePublishingStatus(1, 0, 0, 0, 0);
+  public static final PublishingStatus CREATED   = new ImmutablePublishingStatus(0, 1, 0, 0, 0);
+  public static final PublishingStatus UPDATED   = new ImmutablePublishingStatus(0, 0, 1, 0, 0);
+  public static final PublishingStatus UNCHANGED = new ImmutablePublishingStatus(0, 0, 0, 1, 0);
+  public static final PublishingStatus DELETED   = new ImmutablePublishingStatus(0, 0, 0, 0, 1);
   
   private final long skipped;
   private final long created;
   private final long updated;
+  private final long unchanged;
+  private final long deleted;
   
   /**
    * Creates instance of the status.
@@ -35,9 +39,23 @@ public class PublishingStatus {
    * @param updated number of updated records
    */
   public PublishingStatus(long skipped, long created, long updated) {
+    this(skipped, created, updated, 0, 0);
+  }
+  
+  /**
+   * Creates instance of the status.
+   * @param skipped number of records skipped
+   * @param created number of created record
+   * @param updated number of updated records
+   * @param unchanged number of records not published because unchanged since the last publication
+   * @param deleted number of records deleted because removed from the source
+   */
+  public PublishingStatus(long skipped, long created, long updated, long unchanged, long deleted) {
     this.skipped = skipped;
     this.created = created;
     this.updated = updated;
+    this.unchanged = unchanged;
+    this.deleted = deleted;
   }
   
   /**
@@ -54,7 +72,7 @@ public class PublishingStatus {
    * @return outcome of collecting
    */
   public PublishingStatus collect(PublishingStatus ps) {
-    return new PublishingStatus(skipped+ps.getSkipped(), created+ps.getCreated(), updated+ps.getUpdated());
+    return new PublishingStatus(skipped+ps.getSkipped(), created+ps.getCreated(), updated+ps.getUpdated(), unchanged+ps.getUnchanged(), deleted+ps.getDeleted());
   }
   
   /**
@@ -80,12 +98,28 @@ public class PublishingStatus {
   public long getUpdated() {
     return updated;
   }
+
+  /**
+   * Gets number of records not published because unchanged since the last publication.
+   * @return number of unchanged records
+   */
+  public long getUnchanged() {
+    return unchanged;
+  }
+
+  /**
+   * Gets number of records deleted because removed from the source.
+   * @return number of deleted records
+   */
+  public long getDeleted() {
+    return deleted;
+  }
   
   @Override
   public boolean equals(Object obj) {
     if (obj instanceof PublishingStatus) {
       PublishingStatus ps = (PublishingStatus)obj;
-      return getSkipped()==ps.getSkipped() && getCreated()==ps.getCreated() && getUpdated()==ps.getUpdated();
+      return getSkipped()==ps.getSkipped() && getCreated()==ps.getCreated() && getUpdated()==ps.getUpdated() && getUnchanged()==ps.getUnchanged() && getDeleted()==ps.getDeleted();
     }
     return false;
   }
@@ -96,6 +130,8 @@ public class PublishingStatus {
     hash = 73 * hash + (int) (this.skipped ^ (this.skipped >>> 32));
     hash = 73 * hash + (int) (this.created ^ (this.created >>> 32));
     hash = 73 * hash + (int) (this.updated ^ (this.updated >>> 32));
+    hash = 73 * hash + (int) (this.unchanged ^ (this.unchanged >>> 32));
+    hash = 73 * hash + (int) (this.deleted ^ (this.deleted >>> 32));
     return hash;
   }
   
@@ -110,10 +146,16 @@ public class PublishingStatus {
     if (equals(UPDATED)) {
       return String.format("STATUS::UPDATED");
     }
+    if (equals(UNCHANGED)) {
+      return String.format("STATUS::UNCHANGED");
+    }
+    if (equals(DELETED)) {
+      return String.format("STATUS::DELETED");
+    }
     if (equals(EMPTY)) {
       return String.format("STATUS::EMPTY");
     }
-    return String.format("STATUS::skipped:%d,created:%d,updated:%s", skipped,created,updated);
+    return String.format("STATUS::skipped:%d,created:%d,updated:%s,unchanged:%d,deleted:%d", skipped,created,updated,unchanged,deleted);
   }
   
   /**
@@ -126,9 +168,11 @@ public class PublishingStatus {
      * @param skipped number of records skipped
      * @param created number of created record
      * @param updated number of updated records
+     * @param unchanged number of unchanged records
+     * @param deleted number of deleted records
      */
-    public ImmutablePublishingStatus(long skipped, long created, long updated) {
-      super(skipped, created, updated);
+    public ImmutablePublishingStatus(long skipped, long created, long updated, long unchanged, long deleted) {
+      super(skipped, created, updated, unchanged, deleted);
     }
 
     @Override
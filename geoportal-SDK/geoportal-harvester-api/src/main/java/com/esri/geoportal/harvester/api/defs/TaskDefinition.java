@@ -25,6 +25,13 @@ import java.util.List;
  * {@link com.esri.geoportal.harvester.api.defs.Task}.
  */
 public final class TaskDefinition implements Serializable {
+  /** default priority */
+  public static final int DEFAULT_PRIORITY = 5;
+  /** lowest priority */
+  public static final int MIN_PRIORITY = 1;
+  /** highest priority */
+  public static final int MAX_PRIORITY = 10;
+  
   private String name;
   private EntityDefinition processor;
   private EntityDefinition source;
@@ -33,6 +40,7 @@ public final class TaskDefinition implements Serializable {
   private boolean incremental;
   private boolean ignoreRobotsTxt;
   private String ref;
+  private int priority = DEFAULT_PRIORITY;
 
   /**
    * Gets task name.
@@ -162,9 +170,26 @@ public final class TaskDefinition implements Serializable {
     this.ref = ref;
   }
   
+  /**
+   * Gets priority. Harvests sharing the executor get time in proportion to
+   * their priorities.
+   * @return priority from {@link #MIN_PRIORITY} to {@link #MAX_PRIORITY}
+   */
+  public int getPriority() {
+    return priority;
+  }
+
+  /**
+   * Sets priority. Value out of range is brought to the nearest valid value.
+   * @param priority priority from {@link #MIN_PRIORITY} to {@link #MAX_PRIORITY}
+   */
+  public void setPriority(int priority) {
+    this.priority = Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, priority));
+  }
+  
   @Override
   public String toString() {
-    return String.format("NAME: %s, PROCESSOR: %s, SOURCE: %s, DESTINATIONS: %s, INCREMENTAL: %b, IGNOREROBOTSTXT: %b", name, processor, source, destinations!=null? destinations: null, incremental, ignoreRobotsTxt);
+    return String.format("NAME: %s, PROCESSOR: %s, SOURCE: %s, DESTINATIONS: %s, INCREMENTAL: %b, IGNOREROBOTSTXT: %b, PRIORITY: %d", name, processor, source, destinations!=null? destinations: null, incremental, ignoreRobotsTxt, priority);
   }
   
   @Override
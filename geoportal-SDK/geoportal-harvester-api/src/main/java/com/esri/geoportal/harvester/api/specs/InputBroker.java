@@ -18,10 +18,13 @@ package com.esri.geoportal.harvester.api.specs;
 import com.esri.geoportal.harvester.api.Broker;
 import com.esri.geoportal.harvester.api.DataContent;
 import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.ex.DataInputException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Input broker.
@@ -47,6 +50,23 @@ public interface InputBroker extends Broker<InputConnector> {
    */
   Iterator iterator(IteratorContext iteratorContext) throws DataInputException;
   
+  /**
+   * Gets partitions of the source.
+   * <p>
+   * Partitions are short, broker specific keys of independent, disjoint parts
+   * of the source which together cover the whole source, for example top 
+   * level folders. When passed back through {@link IteratorContext#getPartition()}, 
+   * iteration returns data of that partition only, thus partitions can be 
+   * iterated concurrently. Broker which cannot be partitioned returns an
+   * empty list.
+   * @param iteratorContext iterator context
+   * @return list of partitions
+   * @throws DataInputException if error listing partitions
+   */
+  default List<String> partitions(IteratorContext iteratorContext) throws DataInputException {
+    return Collections.emptyList();
+  }
+  
   /**
    * Reads content for the specific id
    * @param id id
@@ -72,6 +92,45 @@ public interface InputBroker extends Broker<InputConnector> {
      * @throws DataInputException if getting next data reference fails
      */
     DataReference next() throws DataInputException;
+    
+    /**
+     * Gets checkpoint.
+     * <p>
+     * Checkpoint is a short, broker specific position of the iteration. When 
+     * passed back through {@link IteratorContext#getCheckpoint()}, iteration
+     * resumes at that position. No data reference returned by {@link #next()}
+     * before the checkpoint has been taken might be skipped after resuming,
+     * although some might be returned again.
+     * @return checkpoint or <code>null</code> if checkpoint not available
+     */
+    default String getCheckpoint() {
+      return null;
+    }
+    
+    /**
+     * Gets total number of data references the iteration is expected to 
+     * return, as reported by the source (for example number of records 
+     * matched by the query). The number is an estimate only and might be
+     * unknown until the first page of data has been read.
+     * @return total number of data references or <code>null</code> if unknown
+     */
+    default Long getTotal() {
+      return null;
+    }
+    
+    /**
+     * Gets filters honoured by the iteration.
+     * <p>
+     * Iterator may apply some of the filters offered through 
+     * {@link IteratorContext#getFilters()} at the source, for example by
+     * not listing data which wouldn't pass them. Filters reported here are 
+     * guaranteed to pass every data reference returned by {@link #next()}, 
+     * thus they are not being evaluated again.
+     * @return list of filter definitions honoured by the iteration
+     */
+    default List<EntityDefinition> getHonouredFilters() {
+      return Collections.emptyList();
+    }
   }
   
   /**
@@ -83,5 +142,33 @@ public interface InputBroker extends Broker<InputConnector> {
      * @return last harvest date or <code>null</code> if no last harvest date available
      */
     Date getLastHarvestDate();
+    
+    /**
+     * Gets checkpoint of the interrupted iteration to resume from.
+     * @return checkpoint or <code>null</code> if iteration starts from the beginning
+     * @see Iterator#getCheckpoint() 
+     */
+    default String getCheckpoint() {
+      return null;
+    }
+    
+    /**
+     * Gets filters every data reference has to pass before reaching any of
+     * the destinations.
+     * @return list of filter definitions
+     * @see Iterator#getHonouredFilters() 
+     */
+    default List<EntityDefinition> getFilters() {
+      return Collections.emptyList();
+    }
+    
+    /**
+     * Gets partition to iterate.
+     * @return partition or <code>null</code> to iterate the whole source
+     * @see InputBroker#partitions(IteratorContext) 
+     */
+    default String getPartition() {
+      return null;
+    }
   }
 }
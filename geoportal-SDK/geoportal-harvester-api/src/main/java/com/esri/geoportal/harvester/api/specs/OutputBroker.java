@@ -18,7 +18,10 @@ package com.esri.geoportal.harvester.api.specs;
 import com.esri.geoportal.harvester.api.Broker;
 import com.esri.geoportal.harvester.api.ex.DataOutputException;
 import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.defs.PublishingResult;
 import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Output broker.
@@ -36,4 +39,50 @@ public interface OutputBroker extends Broker<OutputConnector> {
    * @throws DataOutputException if publishing data fails
    */
   PublishingStatus publish(DataReference ref) throws DataOutputException;
+  
+  /**
+   * Deletes data removed from the source.
+   * <p>
+   * Called with a tombstone reference, i.e. {@link DataReference#isTombstone()}.
+   * Default implementation skips it; brokers able to locate published record 
+   * by the source reference override it.
+   * @param ref tombstone data reference
+   * @return publishing status, {@link PublishingStatus#DELETED} if record deleted
+   * @throws DataOutputException if deleting data fails
+   */
+  default PublishingStatus delete(DataReference ref) throws DataOutputException {
+    return PublishingStatus.SKIPPED;
+  }
+  
+  /**
+   * Publishes batch of data.
+   * <p>
+   * Default implementation publishes each data reference separately. Brokers
+   * capable of sending several records in a single request may override it,
+   * together with {@link #isBatchNative()}. Failure of a single record has to
+   * be reported through its result rather than thrown.
+   * @param refs data references
+   * @return publishing results, one for each data reference, in the same order
+   */
+  default List<PublishingResult> publishBatch(List<DataReference> refs) {
+    ArrayList<PublishingResult> results = new ArrayList<>(refs.size());
+    for (DataReference ref: refs) {
+      try {
+        results.add(PublishingResult.success(ref, publish(ref)));
+      } catch (DataOutputException ex) {
+        results.add(PublishingResult.failure(ref, ex));
+      }
+    }
+    return results;
+  }
+  
+  /**
+   * Checks if broker publishes batch natively, i.e. in fewer requests than
+   * one request per record. Records are grouped into batches only for such
+   * brokers; otherwise grouping would merely delay publishing.
+   * @return <code>true</code> if batch is published natively
+   */
+  default boolean isBatchNative() {
+    return false;
+  }
 }
@@ -29,6 +29,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Properties;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
@@ -45,6 +46,7 @@ public class Application {
   private static final String version = "2.0.0";
 
   private String geometryServiceUrl = DEFAULT_GEOMETRY_SERVICE;
+  private final Properties settings = new Properties();
 
   public static void main(String[] args) {
     Application app = new Application();
@@ -72,6 +74,16 @@ public class Application {
           this.geometryServiceUrl = geoUrl;
         } 
 
+        // settings overriding the defaults
+        if (cli.hasOption('c')) {
+          try (InputStream inputStream = new FileInputStream(new File(cli.getOptionValue('c')))) {
+            settings.load(inputStream);
+          }
+        }
+        if (cli.hasOption('D')) {
+          settings.putAll(cli.getOptionProperties("D"));
+        }
+
         if (cli.hasOption('f')) {
           String fileName = cli.getOptionValue('f');
           File file = new File(fileName);
@@ -88,7 +100,7 @@ public class Application {
           printHelp(options);
         }
       }
-    } catch (IOException|DataProcessorException|InvalidDefinitionException ex) {
+    } catch (IOException|DataProcessorException|InvalidDefinitionException|IllegalArgumentException ex) {
       ex.printStackTrace(System.err);
     } catch (ParseException ex) {
       printHeader();
@@ -118,6 +130,9 @@ public class Application {
     Option task = new Option("t", "task", true, "executes task defined as JSON");
     Option geo = new Option("g", "geometry", true, "url to accessible geometry service");
     geo.setArgName("url");
+    Option config = new Option("c", "config", true, "reads settings from the properties file");
+    config.setArgName("file");
+    Option property = Option.builder("D").hasArgs().valueSeparator('=').argName("property=value").desc("overrides single setting, i.e. -Dharvest.max.concurrent=8").build();
     
     Options options = new Options();
     options.addOption(help);
@@ -126,12 +141,14 @@ public class Application {
     options.addOption(file);
     options.addOption(task);
     options.addOption(geo);
+    options.addOption(config);
+    options.addOption(property);
     
     return options;
   }
 
   protected void harvest(TaskDefinition taskDefinition) throws DataProcessorException, InvalidDefinitionException {
-    Bootstrap boot = new Bootstrap(this.geometryServiceUrl, new MemReportManager());
+    Bootstrap boot = new Bootstrap(this.geometryServiceUrl, new MemReportManager(), settings);
     Engine engine = boot.createEngine();
     IteratorContext iterCtx = new SimpleIteratorContext();
 
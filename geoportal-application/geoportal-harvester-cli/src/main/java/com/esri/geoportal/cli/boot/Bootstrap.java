@@ -70,13 +70,25 @@ import com.esri.geoportal.harvester.gptsrc.GptConnector;
 import com.esri.geoportal.harvester.unc.UncConnector;
 import com.esri.geoportal.harvester.waf.WafConnector;
 import com.esri.geoportal.harvester.api.ex.*;
+import com.esri.geoportal.harvester.api.base.BatchPolicy;
+import com.esri.geoportal.harvester.api.base.ContentBudget;
+import com.esri.geoportal.harvester.api.base.FanOutExecutor;
 import com.esri.geoportal.harvester.engine.defaults.DefaultProcessor;
+import com.esri.geoportal.harvester.engine.defaults.PipelineProcessor;
+import com.esri.geoportal.harvester.engine.utils.BackpressurePolicy;
+import com.esri.geoportal.harvester.engine.utils.EventBusPolicy;
+import com.esri.geoportal.harvester.engine.utils.HarvestExecutor;
+import com.esri.geoportal.harvester.engine.utils.PartitionPolicy;
+import com.esri.geoportal.harvester.engine.utils.ProcessorOptions;
+import com.esri.geoportal.harvester.engine.utils.PublishingOptions;
 import com.esri.geoportal.harvester.oai.pmh.OaiConnector;
 import com.esri.geoportal.harvester.sink.SinkConnector;
 import com.esri.geoportal.harvester.jdbc.JdbcConnector;
 import com.esri.geoportal.harvester.dcat.DcatConnector;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.Properties;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.xpath.XPathExpressionException;
 import org.apache.http.impl.client.HttpClients;
@@ -85,6 +97,8 @@ import org.apache.http.impl.client.HttpClients;
  * Bootstrap.
  */
 public class Bootstrap {
+  /** resource with the default settings */
+  public static final String DEFAULT_SETTINGS = "/harvester.properties";
 
   private TriggerRegistry triggerRegistry;
   private TransformerRegistry transformerRegistry;
@@ -101,6 +115,9 @@ public class Bootstrap {
   private final TaskManager taskManager = new MemTaskManager();
   private final TriggerInstanceManager triggerInstanceManager = new MemTriggerInstanceManager();
   private final TriggerManager triggerManager = new MemTriggerManager();
+  private final FanOutExecutor fanOut;
+  private final HarvestExecutor harvestExecutor;
+  private final ProcessorOptions processorOptions;
   
   private BrokersService brokerService;
   private ExecutionService executionService;
@@ -116,8 +133,74 @@ public class Bootstrap {
    * @param reportManager report manager
    */
   public Bootstrap(String geometryServiceUrl, ReportManager reportManager) {
+    this(geometryServiceUrl, reportManager, new Properties());
+  }
+  
+  /**
+   * Creates instance of the bootstrap.
+   * @param geometryServiceUrl Esri geometry service URL
+   * @param reportManager report manager
+   * @param settings settings overriding the defaults read from {@link #DEFAULT_SETTINGS}
+   * @throws IllegalArgumentException if invalid settings
+   */
+  public Bootstrap(String geometryServiceUrl, ReportManager reportManager, Properties settings) {
+    Properties props = readDefaults();
+    props.putAll(settings);
     this.geometryServiceUrl = geometryServiceUrl;
     this.reportManager = reportManager;
+    this.fanOut = new FanOutExecutor(getInt(props, "fanout.thread.count"));
+    this.harvestExecutor = new HarvestExecutor(getInt(props, "harvest.max.concurrent"), getLong(props, "harvest.time.slice"));
+    this.processorOptions = new ProcessorOptions(
+            harvestExecutor, 
+            fanOut, 
+            new EventBusPolicy(getInt(props, "listener.queue.capacity"), getOverflow(props, "listener.overflow")), 
+            new ContentBudget(getLong(props, "content.memory.threshold"), getLong(props, "content.memory.limit"), props.getProperty("content.temp.folder")), 
+            new BackpressurePolicy(getLong(props, "inflight.bytes.ceiling"), getLong(props, "inflight.bytes.lowwater")), 
+            new PartitionPolicy(getInt(props, "partition.parallelism"), getInt(props, "partition.attempts"))
+    );
+  }
+  
+  /**
+   * Reads default settings.
+   * @return default settings
+   */
+  private static Properties readDefaults() {
+    Properties props = new Properties();
+    try (InputStream input = Bootstrap.class.getResourceAsStream(DEFAULT_SETTINGS)) {
+      if (input != null) {
+        props.load(input);
+      }
+    } catch (IOException ex) {
+      throw new IllegalStateException(String.format("Error reading default settings: %s", DEFAULT_SETTINGS), ex);
+    }
+    return props;
+  }
+  
+  private static long getLong(Properties props, String key) {
+    String value = props.getProperty(key, "").trim();
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException ex) {
+      throw new IllegalArgumentException(String.format("Invalid value of %s: %s", key, value), ex);
+    }
+  }
+  
+  private static int getInt(Properties props, String key) {
+    String value = props.getProperty(key, "").trim();
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException ex) {
+      throw new IllegalArgumentException(String.format("Invalid value of %s: %s", key, value), ex);
+    }
+  }
+  
+  private static EventBusPolicy.Overflow getOverflow(Properties props, String key) {
+    String value = props.getProperty(key, "").trim();
+    try {
+      return EventBusPolicy.Overflow.valueOf(value.toUpperCase());
+    } catch (IllegalArgumentException ex) {
+      throw new IllegalArgumentException(String.format("Invalid value of %s: %s", key, value), ex);
+    }
   }
   
   /**
@@ -134,7 +217,7 @@ public class Bootstrap {
               createProcessesService(), 
               createTriggersService(), 
               createExecutionService());
-      processorRegistry.setDefaultProcessor(new DefaultProcessor());
+      processorRegistry.setDefaultProcessor(new DefaultProcessor(processorOptions));
       engine.init();
       return engine;
     } catch (IOException|TransformerConfigurationException|XPathExpressionException ex) {
@@ -175,7 +258,8 @@ public class Bootstrap {
               createFilterRegistry(), 
               createProcessorRegistry(), 
               createTaskManager(), 
-              createHistoryManager() 
+              createHistoryManager(),
+              new PublishingOptions(fanOut, BatchPolicy.NONE, null, null)
       );
     }
     return taskService;
@@ -301,6 +385,8 @@ public class Bootstrap {
   protected ProcessorRegistry createProcessorRegistry() {
     if (processorRegistry==null) {
       processorRegistry = new MemProcessorRegistry();
+      
+      processorRegistry.put(PipelineProcessor.TYPE, new PipelineProcessor(processorOptions));
     }
     
     return processorRegistry;
@@ -20,13 +20,16 @@ import com.esri.geoportal.harvester.engine.managers.HistoryManager;
 import com.esri.geoportal.harvester.engine.utils.CrudlException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
  * In-memory history manager.
  */
 public class MemHistoryManager extends MemCruds<History.Event> implements HistoryManager {
+  private final Map<UUID, History.Checkpoint> checkpoints = new ConcurrentHashMap<>();
 
   @Override
   public History buildHistory(UUID uuid) throws CrudlException {
@@ -38,6 +41,7 @@ public class MemHistoryManager extends MemCruds<History.Event> implements Histor
   @Override
   public void purgeHistory(UUID taskId) throws CrudlException {
     mem.entrySet().stream().filter(e->e.getValue().getTaskId().equals(taskId)).map(e->e.getKey()).forEach(uuid->mem.remove(uuid));
+    checkpoints.remove(taskId);
   }
 
   @Override
@@ -48,5 +52,19 @@ public class MemHistoryManager extends MemCruds<History.Event> implements Histor
   @Override
   public void storeFailedDataId(UUID eventId, String dataId) throws CrudlException {
   }
+
+  @Override
+  public History.Checkpoint readCheckpoint(UUID taskId) throws CrudlException {
+    return checkpoints.get(taskId);
+  }
+
+  @Override
+  public void storeCheckpoint(UUID taskId, History.Checkpoint checkpoint) throws CrudlException {
+    if (checkpoint != null) {
+      checkpoints.put(taskId, checkpoint);
+    } else {
+      checkpoints.remove(taskId);
+    }
+  }
   
 }
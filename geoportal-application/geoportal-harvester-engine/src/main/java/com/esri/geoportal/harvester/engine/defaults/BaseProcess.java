@@ -0,0 +1,506 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.defaults;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.Initializable.InitContext;
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
+import com.esri.geoportal.harvester.api.base.ContentStore;
+import com.esri.geoportal.harvester.api.base.FanOutExecutor;
+import com.esri.geoportal.harvester.api.base.SimpleInitContext;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.defs.TaskDefinition;
+import com.esri.geoportal.harvester.api.ex.DataInputException;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.general.Link;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
+import com.esri.geoportal.harvester.engine.utils.FilterPushdown;
+import com.esri.geoportal.harvester.engine.utils.HarvestExecutor;
+import com.esri.geoportal.harvester.engine.utils.HarvestTicket;
+import com.esri.geoportal.harvester.engine.utils.InFlightGauge;
+import com.esri.geoportal.harvester.engine.utils.ListenerEventBus;
+import com.esri.geoportal.harvester.engine.utils.PartitionPolicy;
+import com.esri.geoportal.harvester.engine.utils.PartitionedIterator;
+import com.esri.geoportal.harvester.engine.utils.ProcessorOptions;
+import com.esri.geoportal.harvester.engine.utils.RecordInputException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base process.
+ * <p>
+ * Handles lifecycle, status, abort and listener events of the process, and
+ * drains the input broker iterator. Each acquired record is handed over to
+ * {@link #process(DataReference, long, InputBroker.Iterator)} of the subclass.
+ */
+public abstract class BaseProcess implements ProcessInstance, ContentStore.Owner, InFlightGauge.Owner, HarvestTicket.Owner, AbortSignal.Owner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BaseProcess.class);
+  private final List<ProcessInstance.Listener> listeners = Collections.synchronizedList(new ArrayList<>());
+  private final ListenerEventBus events;
+  private final ContentStore contentStore;
+  private final InFlightGauge inFlight;
+  private final HarvestTicket ticket;
+  private final AbortSignal abortSignal = new AbortSignal();
+
+  final Task task;
+  final Runnable harvest;
+  final HarvestExecutor harvestExecutor;
+  final FanOutExecutor fanOut;
+  final PartitionPolicy partitions;
+
+  private volatile Thread runner;
+  private volatile Future<?> future;
+  private volatile boolean waiting;
+  private volatile boolean completed;
+  private volatile boolean aborting;
+  private String lastCheckpoint;
+  private Long lastTotal;
+  private String yieldCheckpoint;
+
+  /**
+   * Creates instance of the process.
+   *
+   * @param task task
+   * @param iteratorContext iteration context
+   * @param options processor options
+   */
+  protected BaseProcess(Task task, IteratorContext iteratorContext, ProcessorOptions options) {
+    this.task = task;
+    this.events = new ListenerEventBus(listeners, options.getEventBus());
+    this.contentStore = new ContentStore(options.getContentBudget());
+    this.inFlight = new InFlightGauge(options.getBackpressure());
+    this.ticket = options.getHarvestExecutor().newTicket(task.getTaskDefinition().getPriority());
+    this.harvestExecutor = options.getHarvestExecutor();
+    this.fanOut = options.getFanOut();
+    this.partitions = options.getPartitions();
+    this.harvest = () -> {
+      if (!start()) {
+        return;
+      }
+      try {
+        harvest(iteratorContext);
+      } finally {
+        finish();
+      }
+    };
+  }
+
+  /**
+   * Called before the first record is acquired.
+   */
+  protected void beforeIteration() {
+  }
+
+  /**
+   * Processes single acquired record. Size of the record has been already
+   * added to the in-flight gauge; it has to be removed once the record is
+   * processed.
+   * @param dataReference data reference
+   * @param size size of the record content
+   * @param iterator iterator the record has been acquired from
+   * @throws InterruptedException if interrupted
+   */
+  protected abstract void process(DataReference dataReference, long size, InputBroker.Iterator iterator) throws InterruptedException;
+
+  /**
+   * Called once iteration is over, whether completed, failed or aborted.
+   */
+  protected void afterIteration() {
+  }
+
+  /**
+   * Gets title of the process.
+   * @return title
+   */
+  protected String getTitle() {
+    return task.getTaskDefinition().toString();
+  }
+
+  /**
+   * Checks if process is being aborted.
+   * @return <code>true</code> if process is being aborted
+   */
+  protected boolean isAborting() {
+    return aborting;
+  }
+
+  /**
+   * Initializes all elements.
+   * @param context init context
+   * @throws DataProcessorException if initialization fails
+   */
+  private void initialize(InitContext context) throws DataProcessorException {
+    task.getDataSource().initialize(context);
+    for (Link link: task.getDataDestinations()) {
+      link.initialize(context);
+    }
+  }
+
+  /**
+   * Terminates all tasks
+   */
+  private void terminate() {
+    task.getDataSource().terminate();
+    task.getDataDestinations().stream().forEach(Link::terminate);
+  }
+
+  /**
+   * Initializes references.
+   */
+  private void initializeRefs() {
+    if (task.getRef() == null) {
+      task.setRef(UUID.randomUUID().toString());
+    }
+    TaskDefinition taskDefinition = task.getTaskDefinition();
+    if (taskDefinition.getSource().getRef() == null) {
+      taskDefinition.setRef(UUID.randomUUID().toString());
+    }
+  }
+
+  /**
+   * Harvests all the data.
+   * @param iteratorContext iteration context
+   */
+  private void harvest(IteratorContext iteratorContext) {
+    InitContext initContext = new SimpleInitContext(task, listeners, contentStore, abortSignal);
+    if (iteratorContext.getCheckpoint() != null) {
+      // records harvested before the checkpoint are not published again,
+      // thus cleanup would remove them from the destinations
+      initContext.preventCleanup();
+    }
+    LOG.info(formatForLog("Started harvest: %s", getTitle()));
+
+    initializeRefs();
+
+    if (!task.getDataDestinations().isEmpty()) {
+      InputBroker.Iterator iterator = null;
+      try {
+        initialize(initContext);
+        onStatusChange();
+
+        beforeIteration();
+
+        iterator = PartitionedIterator.iterator(task.getDataSource(), FilterPushdown.offer(iteratorContext, task.getDataDestinations()), partitions);
+        FilterPushdown.bypass(task.getDataDestinations(), iterator.getHonouredFilters());
+        while (iterator.hasNext()) {
+          if (Thread.currentThread().isInterrupted()) {
+            break;
+          }
+
+          yieldSlot(iterator);
+          inFlight.awaitCapacity();
+          DataReference dataReference;
+          try {
+            dataReference = iterator.next();
+          } catch (RecordInputException ex) {
+            LOG.warn(formatForLog("Failed reading %s during %s", ex.getDataId(), getTitle()));
+            onError(ex);
+            continue;
+          }
+          long size = InFlightGauge.sizeOf(dataReference);
+          inFlight.add(size);
+          onAcquire(dataReference);
+          process(dataReference, size, iterator);
+          yieldSlot(iterator);
+        }
+
+      } catch (DataInputException ex) {
+        if (abortSignal.isAborted()) {
+          LOG.debug(formatForLog("Harvesting of %s aborted", getTitle()), ex);
+        } else {
+          LOG.error(formatForLog("Error harvesting of %s", getTitle()), ex);
+          onError(ex);
+        }
+      } catch (DataProcessorException ex) {
+        LOG.error(formatForLog("Error harvesting of %s", getTitle()), ex);
+        onError(ex);
+      } catch (InterruptedException ex) {
+        LOG.debug(formatForLog("Harvesting of %s interrupted", getTitle()));
+      } finally {
+        PartitionedIterator.close(iterator);
+        afterIteration();
+        terminate();
+        contentStore.close();
+        synchronized (this) {
+          completed = true;
+          aborting = false;
+          runner = null;
+        }
+        Thread.interrupted();
+        onStatusChange();
+      }
+    }
+  }
+
+  /**
+   * Hands the slot over to another harvest if due, but only once the iteration
+   * reached a new checkpoint, i.e. between pages of the source. In the middle
+   * of a page the source might keep the session open (resumption token, 
+   * paging) which shouldn't expire while waiting for the slot. Iteration 
+   * without checkpoints keeps the slot until completed.
+   * @param iterator iterator
+   * @throws InterruptedException if waiting for the slot has been interrupted
+   */
+  private void yieldSlot(InputBroker.Iterator iterator) throws InterruptedException {
+    String checkpoint = iterator.getCheckpoint();
+    if (checkpoint != null && !checkpoint.equals(yieldCheckpoint)) {
+      yieldCheckpoint = checkpoint;
+      ticket.yieldSlot();
+    }
+  }
+
+  /**
+   * Marks the process as being executed by the current thread.
+   * @return <code>false</code> if the process has been aborted while waiting
+   */
+  private synchronized boolean start() {
+    if (completed) {
+      return false;
+    }
+    runner = Thread.currentThread();
+    waiting = false;
+    return true;
+  }
+
+  /**
+   * Releases the current thread.
+   */
+  private synchronized void finish() {
+    runner = null;
+  }
+
+  /**
+   * Pushes single data reference to all the destinations.
+   * @param dataReference data reference
+   */
+  protected void push(DataReference dataReference) {
+    List<FanOutExecutor.Result> results;
+    try {
+      results = fanOut.push(task.getDataDestinations(), dataReference);
+    } catch (DataProcessorException ex) {
+      if (!Thread.currentThread().isInterrupted()) {
+        LOG.warn(formatForLog("Failed harvesting %s during %s", dataReference, getTitle()));
+        onError(ex);
+      }
+      return;
+    } catch (RuntimeException ex) {
+      // unexpected failure of a filter, transformer or broker fails the record only
+      LOG.warn(formatForLog("Failed harvesting %s during %s", dataReference, getTitle()), ex);
+      onError(new DataOutputException(null, dataReference.getId(), formatForLog("Error harvesting %s", dataReference), ex));
+      return;
+    }
+    results.forEach(r -> {
+      try {
+        PublishingStatus status = r.get();
+        LOG.debug(formatForLog("Harvested %s during %s", dataReference, getTitle()));
+        onSuccess(dataReference, status);
+      } catch (DataProcessorException ex) {
+        LOG.warn(formatForLog("Failed harvesting %s during %s", dataReference, getTitle()));
+        onError(ex);
+      } catch (DataOutputException ex) {
+        LOG.warn(formatForLog("Failed harvesting %s during %s", dataReference, getTitle()));
+        onError(ex);
+      }
+    });
+  }
+
+  @Override
+  public Task getTask() {
+    return task;
+  }
+
+  @Override
+  public ContentStore getContentStore() {
+    return contentStore;
+  }
+
+  @Override
+  public InFlightGauge getInFlightGauge() {
+    return inFlight;
+  }
+
+  @Override
+  public HarvestTicket getHarvestTicket() {
+    return ticket;
+  }
+
+  @Override
+  public AbortSignal getAbortSignal() {
+    return abortSignal;
+  }
+
+  @Override
+  public void addListener(ProcessInstance.Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Gets process status.
+   *
+   * @return process status
+   */
+  @Override
+  public synchronized ProcessInstance.Status getStatus() {
+    if (completed) {
+      return ProcessInstance.Status.completed;
+    }
+    if (aborting) {
+      return ProcessInstance.Status.aborting;
+    }
+    if (runner != null) {
+      return ProcessInstance.Status.working;
+    }
+    if (waiting) {
+      return ProcessInstance.Status.waiting;
+    }
+    return ProcessInstance.Status.submitted;
+  }
+
+  @Override
+  public void init() {
+    onStatusChange();
+  }
+
+  /**
+   * Begins the process.
+   */
+  @Override
+  public synchronized void begin() {
+    if (getStatus() != ProcessInstance.Status.submitted) {
+      throw new IllegalStateException(formatForLog("Error begininig the process: process is in %s state", getStatus()));
+    }
+    waiting = true;
+    onStatusChange();
+    future = harvestExecutor.submit(harvest, ticket);
+  }
+
+  /**
+   * Aborts the process.
+   */
+  @Override
+  public synchronized void abort() {
+    if (getStatus() == ProcessInstance.Status.waiting) {
+      LOG.info(formatForLog("Aborting waiting process: %s", getTitle()));
+      waiting = false;
+      completed = true;
+      future.cancel(true);
+      onStatusChange();
+      return;
+    }
+    if (getStatus() != ProcessInstance.Status.working) {
+      throw new IllegalStateException(formatForLog("Error aborting the process: process is in %s state", getStatus()));
+    }
+    LOG.info(formatForLog("Aborting process: %s", getTitle()));
+    aborting = true;
+    onStatusChange();
+    runner.interrupt();
+    abortSignal.abort();
+  }
+
+  /**
+   * Called to handle output error.
+   *
+   * @param ex output exception
+   */
+  protected void onError(DataOutputException ex) {
+    events.onError(ex);
+  }
+
+  /**
+   * Called to handle processor error.
+   *
+   * @param ex processor exception
+   */
+  protected void onError(DataProcessorException ex) {
+    events.onError(ex);
+  }
+
+  /**
+   * Called to handle input error.
+   *
+   * @param ex input exception
+   */
+  protected void onError(DataInputException ex) {
+    events.onError(ex);
+  }
+
+  /**
+   * Called to handle successful data processing
+   *
+   * @param dataRef data reference
+   * @param status publishing status
+   */
+  protected void onSuccess(DataReference dataRef, PublishingStatus status) {
+    events.onDataProcessed(dataRef, status);
+  }
+
+  /**
+   * Called to handle successful data acquiring
+   *
+   * @param dataRef data reference
+   */
+  protected void onAcquire(DataReference dataRef) {
+    events.onDataAcquired(dataRef);
+  }
+
+  /**
+   * Called after data has been processed to report a new checkpoint.
+   *
+   * @param checkpoint checkpoint or <code>null</code> if no checkpoint available
+   */
+  protected void onCheckpoint(String checkpoint) {
+    if (checkpoint != null && !checkpoint.equals(lastCheckpoint)) {
+      lastCheckpoint = checkpoint;
+      events.onCheckpoint(checkpoint);
+    }
+  }
+
+  /**
+   * Called after data has been acquired to report total number of data.
+   *
+   * @param total total number of data or <code>null</code> if unknown
+   */
+  protected void onTotal(Long total) {
+    if (total != null && !total.equals(lastTotal)) {
+      lastTotal = total;
+      events.onTotal(total);
+    }
+  }
+
+  /**
+   * Called when status has been changed.
+   */
+  protected void onStatusChange() {
+    Status status = getStatus();
+    events.onStatusChange(status);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("PROCESS:: status: %s, title: %s", getStatus(), getTitle());
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.esri.geoportal.harvester.engine.defaults;
 
+import com.esri.geoportal.harvester.api.base.SimpleIteratorContext;
 import com.esri.geoportal.harvester.api.defs.Task;
 import com.esri.geoportal.harvester.api.defs.TaskDefinition;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
@@ -24,6 +25,8 @@ import com.esri.geoportal.harvester.engine.services.ExecutionService;
 import com.esri.geoportal.harvester.engine.services.ProcessesService;
 import com.esri.geoportal.harvester.engine.services.TasksService;
 import com.esri.geoportal.harvester.engine.utils.ProcessReference;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * Default execution service.
@@ -50,4 +53,11 @@ public class DefaultExecutionService implements ExecutionService {
     Task task = tasksService.createTask(taskDefinition);
     return processesService.createProcess(task, iteratorContext);
   }
+
+  @Override
+  public ProcessReference executeFailed(TaskDefinition taskDefinition, UUID eventId) throws InvalidDefinitionException, DataProcessorException {
+    List<String> failedIds = tasksService.getFailedDocuments(eventId);
+    Task task = tasksService.createTask(taskDefinition, failedIds);
+    return processesService.createProcess(task, new SimpleIteratorContext());
+  }
 }
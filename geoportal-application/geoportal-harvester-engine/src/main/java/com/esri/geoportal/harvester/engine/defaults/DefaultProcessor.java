@@ -15,28 +15,17 @@
  */
 package com.esri.geoportal.harvester.engine.defaults;
 
-import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
 import com.esri.geoportal.harvester.api.DataReference;
-import com.esri.geoportal.harvester.api.Initializable.InitContext;
 import com.esri.geoportal.harvester.api.ProcessInstance;
 import com.esri.geoportal.harvester.api.Processor;
-import com.esri.geoportal.harvester.api.base.SimpleInitContext;
+import com.esri.geoportal.harvester.api.base.ContentStore;
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
-import com.esri.geoportal.harvester.api.defs.PublishingStatus;
 import com.esri.geoportal.harvester.api.defs.Task;
-import com.esri.geoportal.harvester.api.defs.TaskDefinition;
 import com.esri.geoportal.harvester.api.defs.UITemplate;
-import com.esri.geoportal.harvester.api.ex.DataInputException;
-import com.esri.geoportal.harvester.api.ex.DataOutputException;
-import com.esri.geoportal.harvester.api.ex.DataProcessorException;
-import com.esri.geoportal.harvester.api.general.Link;
 import com.esri.geoportal.harvester.api.specs.InputBroker;
 import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import com.esri.geoportal.harvester.engine.utils.ProcessorOptions;
 import java.util.Locale;
-import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +38,23 @@ public class DefaultProcessor implements Processor {
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultProcessor.class);
   
+  private final ProcessorOptions options;
+
+  /**
+   * Creates instance of the processor pushing to the destinations sequentially.
+   */
+  public DefaultProcessor() {
+    this(ProcessorOptions.DEFAULT);
+  }
+
+  /**
+   * Creates instance of the processor.
+   * @param options processor options
+   */
+  public DefaultProcessor(ProcessorOptions options) {
+    this.options = options;
+  }
+  
   @Override
   public String getType() {
     return TYPE;
@@ -71,59 +77,15 @@ public class DefaultProcessor implements Processor {
   @Override
   public ProcessInstance createProcess(Task task, IteratorContext iteratorContext) {
     LOG.info(String.format("SUBMITTING: %s", task));
-    return new DefaultProcess(task, iteratorContext);
+    return new DefaultProcess(task, iteratorContext, options);
   }
 
   /**
    * Default process.
+   * <p>
+   * Pushes each record to the destinations before acquiring the next one.
    */
-  public static class DefaultProcess implements ProcessInstance {
-
-    private static final Logger LOG = LoggerFactory.getLogger(DefaultProcess.class);
-    private final List<ProcessInstance.Listener> listeners = Collections.synchronizedList(new ArrayList<>());
-
-    final Task task;
-    final Thread thread;
-
-    private volatile boolean completed;
-    private volatile boolean aborting;
-
-    private String getTitle() {
-      return task.getTaskDefinition().toString();
-    }
-    
-    /**
-     * Initializes all elements.
-     * @param context init context
-     * @throws DataProcessorException if initialization fails
-     */
-    private void initialize(InitContext context) throws DataProcessorException {
-      task.getDataSource().initialize(context);
-      for (Link link: task.getDataDestinations()) {
-        link.initialize(context);
-      }
-    }
-    
-    /**
-     * Terminates all tasks
-     */
-    private void terminate() {
-      task.getDataSource().terminate();
-      task.getDataDestinations().stream().forEach(Link::terminate);
-    }
-    
-    /**
-     * Initializes references.
-     */
-    private void initializeRefs() {
-      if (task.getRef() == null) {
-        task.setRef(UUID.randomUUID().toString());
-      }
-      TaskDefinition taskDefinition = task.getTaskDefinition();
-      if (taskDefinition.getSource().getRef() == null) {
-        taskDefinition.setRef(UUID.randomUUID().toString());
-      }
-    }
+  public static class DefaultProcess extends BaseProcess {
     
     /**
      * Creates instance of the process.
@@ -132,179 +94,30 @@ public class DefaultProcessor implements Processor {
      * @param iteratorContext iteration context
      */
     public DefaultProcess(Task task, IteratorContext iteratorContext) {
-      this.task = task;
-      this.thread = new Thread(() -> {
-        InitContext initContext = new SimpleInitContext(task,listeners);
-        LOG.info(formatForLog("Started harvest: %s", getTitle()));
-        
-        initializeRefs();
-        
-        if (!task.getDataDestinations().isEmpty()) {
-          try {
-            initialize(initContext);
-            onStatusChange();
-            
-            InputBroker.Iterator iterator = task.getDataSource().iterator(iteratorContext);
-            while (iterator.hasNext()) {
-              if (Thread.currentThread().isInterrupted()) {
-                break;
-              }
-              
-              DataReference dataReference = iterator.next();
-              onAcquire(dataReference);
-              
-              task.getDataDestinations().stream().forEach((d) -> {
-                try {
-                  PublishingStatus status = d.push(dataReference);
-                  LOG.debug(formatForLog("Harvested %s during %s", dataReference, getTitle()));
-                  onSuccess(dataReference, status);
-                } catch (DataProcessorException ex) {
-                  LOG.warn(formatForLog("Failed harvesting %s during %s", dataReference, getTitle()));
-                  onError(ex);
-                } catch (DataOutputException ex) {
-                  LOG.warn(formatForLog("Failed harvesting %s during %s", dataReference, getTitle()));
-                  onError(ex);
-                }
-              });
-            }
-            
-          } catch (DataInputException ex) {
-            LOG.error(formatForLog("Error harvesting of %s", getTitle()), ex);
-            onError(ex);
-          } catch (DataProcessorException ex) {
-            LOG.error(formatForLog("Error harvesting of %s", getTitle()), ex);
-            onError(ex);
-          } finally {
-            terminate();
-            completed = true;
-            aborting = false;
-            Thread.interrupted();
-            onStatusChange();
-          }
-        }
-      }, "HARVESTING");
-    }
-
-    @Override
-    public Task getTask() {
-      return task;
-    }
-
-    @Override
-    public void addListener(ProcessInstance.Listener listener) {
-      listeners.add(listener);
+      this(task, iteratorContext, ProcessorOptions.DEFAULT);
     }
-
+    
     /**
-     * Gets process status.
+     * Creates instance of the process.
      *
-     * @return process status
-     */
-    @Override
-    public synchronized ProcessInstance.Status getStatus() {
-      if (completed) {
-        return ProcessInstance.Status.completed;
-      }
-      if (aborting) {
-        return ProcessInstance.Status.aborting;
-      }
-      if (thread.isAlive()) {
-        return ProcessInstance.Status.working;
-      }
-      return ProcessInstance.Status.submitted;
-    }
-
-    @Override
-    public void init() {
-      onStatusChange();
-    }
-
-    /**
-     * Begins the process.
+     * @param task task
+     * @param iteratorContext iteration context
+     * @param options processor options
      */
-    @Override
-    public synchronized void begin() {
-      if (getStatus() != ProcessInstance.Status.submitted) {
-        throw new IllegalStateException(formatForLog("Error begininig the process: process is in %s state", getStatus()));
-      }
-      thread.start();
+    public DefaultProcess(Task task, IteratorContext iteratorContext, ProcessorOptions options) {
+      super(task, iteratorContext, options);
     }
 
-    /**
-     * Aborts the process.
-     */
     @Override
-    public synchronized void abort() {
-      if (getStatus() != ProcessInstance.Status.working) {
-        throw new IllegalStateException(formatForLog("Error aborting the process: process is in %s state", getStatus()));
+    protected void process(DataReference dataReference, long size, InputBroker.Iterator iterator) {
+      try {
+        push(dataReference);
+      } finally {
+        ContentStore.release(dataReference);
+        getInFlightGauge().remove(size);
       }
-      LOG.info(formatForLog("Aborting process: %s", getTitle()));
-      aborting = true;
-      onStatusChange();
-      thread.interrupt();
-    }
-
-    /**
-     * Called to handle output error.
-     *
-     * @param ex output exception
-     */
-    private void onError(DataOutputException ex) {
-      listeners.forEach(l -> {
-        l.onError(ex);
-      });
-    }
-
-    /**
-     * Called to handle processor error.
-     *
-     * @param ex processor exception
-     */
-    private void onError(DataProcessorException ex) {
-      listeners.forEach(l -> {
-        l.onError(ex);
-      });
-    }
-
-    /**
-     * Called to handle input error.
-     *
-     * @param ex input exception
-     */
-    private void onError(DataInputException ex) {
-      listeners.forEach(l -> l.onError(ex));
-    }
-
-    /**
-     * Called to handle successful data processing
-     *
-     * @param dataRef data reference
-     * @param status publishing status
-     */
-    private void onSuccess(DataReference dataRef, PublishingStatus status) {
-      listeners.forEach(l -> l.onDataProcessed(dataRef, status));
-    }
-
-    /**
-     * Called to handle successful data acquiring
-     *
-     * @param dataRef data reference
-     */
-    private void onAcquire(DataReference dataRef) {
-      listeners.forEach(l -> l.onDataAcquired(dataRef));
-    }
-
-    /**
-     * Called when status has been changed.
-     */
-    private void onStatusChange() {
-      Status status = getStatus();
-      listeners.forEach(l -> l.onStatusChange(status));
-    }
-
-    @Override
-    public String toString() {
-      return String.format("PROCESS:: status: %s, title: %s", getStatus(), getTitle());
+      onCheckpoint(iterator.getCheckpoint());
+      onTotal(iterator.getTotal());
     }
   }
 }
@@ -22,7 +22,10 @@ import com.esri.geoportal.harvester.api.FilterInstance;
 import com.esri.geoportal.harvester.api.Processor;
 import com.esri.geoportal.harvester.api.Transformer;
 import com.esri.geoportal.harvester.api.TransformerInstance;
+import com.esri.geoportal.harvester.api.base.BatchPolicy;
+import com.esri.geoportal.harvester.api.base.BatchingOutputBroker;
 import com.esri.geoportal.harvester.api.base.BrokerLinkActionAdaptor;
+import com.esri.geoportal.harvester.api.base.FanOutExecutor;
 import com.esri.geoportal.harvester.api.base.FilterLinkActionAdaptor;
 import com.esri.geoportal.harvester.api.base.SimpleInitContext;
 import com.esri.geoportal.harvester.api.base.SimpleLink;
@@ -41,8 +44,10 @@ import com.esri.geoportal.harvester.api.specs.InputConnector;
 import com.esri.geoportal.harvester.api.specs.OutputBroker;
 import com.esri.geoportal.harvester.api.specs.OutputConnector;
 import com.esri.geoportal.harvester.engine.services.TasksService;
+import com.esri.geoportal.harvester.engine.managers.FingerprintManager;
 import com.esri.geoportal.harvester.engine.managers.History;
 import com.esri.geoportal.harvester.engine.managers.HistoryManager;
+import com.esri.geoportal.harvester.engine.managers.LedgerManager;
 import com.esri.geoportal.harvester.engine.managers.TaskManager;
 import com.esri.geoportal.harvester.engine.registers.FilterRegistry;
 import com.esri.geoportal.harvester.engine.registers.InboundConnectorRegistry;
@@ -50,7 +55,13 @@ import com.esri.geoportal.harvester.engine.registers.OutboundConnectorRegistry;
 import com.esri.geoportal.harvester.engine.registers.ProcessorRegistry;
 import com.esri.geoportal.harvester.engine.registers.TransformerRegistry;
 import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import com.esri.geoportal.harvester.engine.utils.FingerprintingOutputBroker;
+import com.esri.geoportal.harvester.engine.utils.LedgerOutputBroker;
+import com.esri.geoportal.harvester.engine.utils.PublishingOptions;
+import com.esri.geoportal.harvester.engine.utils.RecordsInputBroker;
+import com.esri.geoportal.harvester.engine.utils.SharedLinkAction;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -71,6 +82,10 @@ public class DefaultTasksService implements TasksService {
   protected final ProcessorRegistry processorRegistry;
   protected final TaskManager taskManager;
   protected final HistoryManager historyManager;
+  protected final FanOutExecutor fanOut;
+  protected final BatchPolicy batchPolicy;
+  protected final FingerprintManager fingerprintManager;
+  protected final LedgerManager ledgerManager;
 
   /**
    * Creates instance of the service.
@@ -89,6 +104,28 @@ public class DefaultTasksService implements TasksService {
           FilterRegistry filterRegistry,
           ProcessorRegistry processorRegistry, 
           TaskManager taskManager, HistoryManager historyManager) {
+    this(inboundConnectorRegistry, outboundConnectorRegistry, transformerRegistry, filterRegistry, processorRegistry, taskManager, historyManager, PublishingOptions.DEFAULT);
+  }
+
+  /**
+   * Creates instance of the service.
+   * @param inboundConnectorRegistry inbound connectors registry
+   * @param outboundConnectorRegistry outbound connectors registry
+   * @param transformerRegistry transformer registry
+   * @param filterRegistry filter registry
+   * @param processorRegistry processor registry
+   * @param taskManager task manager task manager
+   * @param historyManager history manager history manager
+   * @param options publishing options
+   */
+  public DefaultTasksService(
+          InboundConnectorRegistry inboundConnectorRegistry, 
+          OutboundConnectorRegistry outboundConnectorRegistry, 
+          TransformerRegistry transformerRegistry,
+          FilterRegistry filterRegistry,
+          ProcessorRegistry processorRegistry, 
+          TaskManager taskManager, HistoryManager historyManager,
+          PublishingOptions options) {
     this.inboundConnectorRegistry = inboundConnectorRegistry;
     this.outboundConnectorRegistry = outboundConnectorRegistry;
     this.transformerRegistry = transformerRegistry;
@@ -96,6 +133,10 @@ public class DefaultTasksService implements TasksService {
     this.processorRegistry = processorRegistry;
     this.taskManager = taskManager;
     this.historyManager = historyManager;
+    this.fanOut = options.getFanOut();
+    this.batchPolicy = options.getBatchPolicy();
+    this.fingerprintManager = options.getFingerprintManager();
+    this.ledgerManager = options.getLedgerManager();
   }
 
   @Override
@@ -120,6 +161,12 @@ public class DefaultTasksService implements TasksService {
   public boolean deleteTaskDefinition(UUID taskId) throws DataProcessorException {
     try {
       historyManager.purgeHistory(taskId);
+      if (fingerprintManager!=null) {
+        fingerprintManager.purge(taskId);
+      }
+      if (ledgerManager!=null) {
+        ledgerManager.purge(taskId);
+      }
       return taskManager.delete(taskId);
     } catch (CrudlException ex) {
       throw new DataProcessorException(String.format("Error deleting task definition: %s", taskId), ex);
@@ -159,6 +206,15 @@ public class DefaultTasksService implements TasksService {
     }
   }
   
+  @Override
+  public History.Checkpoint getCheckpoint(UUID taskId) throws DataProcessorException {
+    try {
+      return historyManager.readCheckpoint(taskId);
+    } catch (CrudlException ex) {
+      throw new DataProcessorException(String.format("Error getting checkpoint for: %s", taskId), ex);
+    }
+  }
+  
   @Override
   public List<String> getFailedDocuments(UUID eventId) throws DataProcessorException {
     try {
@@ -211,9 +267,12 @@ public class DefaultTasksService implements TasksService {
   public Task createTask(TaskDefinition taskDefinition) throws InvalidDefinitionException {
     InputBroker dataSource = newInputBroker(taskDefinition.getSource());
 
+    boolean persistent = taskDefinition.getRef()!=null;
+    SharedActions shared = new SharedActions();
+    shared.count(taskDefinition.getDestinations(), Collections.emptyList());
     ArrayList<Link> dataDestinations = new ArrayList<>();
     for (LinkDefinition def : taskDefinition.getDestinations()) {
-      dataDestinations.add(newLink(def));
+      dataDestinations.add(newLink(def, persistent, shared, Collections.emptyList()));
     }
     
     Processor processor = newProcessor(taskDefinition.getProcessor());
@@ -221,6 +280,12 @@ public class DefaultTasksService implements TasksService {
     return new Task(taskDefinition.getName(), taskDefinition.getRef(), processor, dataSource, dataDestinations, taskDefinition.getKeywords(), taskDefinition.isIncremental(), taskDefinition.isIgnoreRobotsTxt());
   }
   
+  @Override
+  public Task createTask(TaskDefinition taskDefinition, List<String> recordIds) throws InvalidDefinitionException {
+    Task task = createTask(taskDefinition);
+    return new Task(task.getName(), task.getRef(), task.getProcessor(), new RecordsInputBroker(task.getDataSource(), recordIds), task.getDataDestinations(), taskDefinition.getKeywords(), taskDefinition.isIncremental(), taskDefinition.isIgnoreRobotsTxt());
+  }
+  
   /**
    * Creates new processor.
    * @param processorDefinition processor definition
@@ -236,7 +301,7 @@ public class DefaultTasksService implements TasksService {
     if (processor == null) {
       throw new InvalidDefinitionException(String.format("Unable to select processor based on definition: %s", processorDefinition));
     }
-    return processor;
+    return processorDefinition != null? processor.configure(processorDefinition): processor;
   }
   
   /**
@@ -255,33 +320,71 @@ public class DefaultTasksService implements TasksService {
     return dsFactory.createBroker(entityDefinition);
   }
 
+  /**
+   * Checks if link action may be shared by several drains.
+   * @param actionDefinition action definition
+   * @return <code>true</code> if action is a filter or a transformer
+   */
+  private boolean isShareable(EntityDefinition actionDefinition) {
+    return actionDefinition!=null && outboundConnectorRegistry.get(actionDefinition.getType())==null &&
+            (filterRegistry.get(actionDefinition.getType())!=null || transformerRegistry.get(actionDefinition.getType())!=null);
+  }
+
   /**
    * Creates new link.
    * @param linkDefinition link definition
+   * @param persistent <code>true</code> if task is persistent, thus published records can be tracked
+   * @param shared actions shared by the links of different destinations
+   * @param path definitions of the shareable actions leading to the link or 
+   * <code>null</code> if any of them is not shareable
    * @return link
    * @throws InvalidDefinitionException if invalid definition
    */
-  private Link newLink(LinkDefinition linkDefinition) throws InvalidDefinitionException {
-    LinkAction linkAction = newLinkAction(linkDefinition.getAction());
+  private Link newLink(LinkDefinition linkDefinition, boolean persistent, SharedActions shared, List<EntityDefinition> path) throws InvalidDefinitionException {
+    List<EntityDefinition> linkPath = path!=null && isShareable(linkDefinition.getAction())? append(path, linkDefinition.getAction()): null;
+    LinkAction linkAction = linkPath!=null? shared.get(linkPath): null;
+    if (linkAction==null) {
+      linkAction = newLinkAction(linkDefinition.getAction(), persistent);
+      if (linkPath!=null && shared.getCount(linkPath)>1) {
+        linkAction = new SharedLinkAction(linkAction, shared.getCount(linkPath));
+        shared.put(linkPath, linkAction);
+      }
+    }
     ArrayList<Link> drains = new ArrayList<>();
     if (linkDefinition.getDrains()!=null) {
       for (LinkDefinition drainDef: linkDefinition.getDrains()) {
-        drains.add(newLink(drainDef));
+        drains.add(newLink(drainDef, persistent, shared, linkPath));
       }
     }
-    return new SimpleLink(linkAction, drains);
+    return new SimpleLink(linkAction, drains, fanOut);
+  }
+  
+  private static List<EntityDefinition> append(List<EntityDefinition> path, EntityDefinition actionDefinition) {
+    ArrayList<EntityDefinition> appended = new ArrayList<>(path);
+    appended.add(actionDefinition);
+    return appended;
   }
   
   /**
    * Creates new link action.
    * @param actionDefinition action definition
+   * @param persistent <code>true</code> if task is persistent, thus published records can be tracked
    * @return link action
    * @throws InvalidDefinitionException if invalid definition.
    */
-  private LinkAction newLinkAction(EntityDefinition actionDefinition) throws InvalidDefinitionException {
+  private LinkAction newLinkAction(EntityDefinition actionDefinition, boolean persistent) throws InvalidDefinitionException {
     OutputConnector<OutputBroker> outputConnector = outboundConnectorRegistry.get(actionDefinition.getType());
     if (outputConnector!=null) {
       OutputBroker broker = outputConnector.createBroker(actionDefinition);
+      if (persistent && ledgerManager!=null) {
+        broker = new LedgerOutputBroker(broker, ledgerManager);
+      }
+      if (batchPolicy.isEnabled() && broker.isBatchNative()) {
+        broker = new BatchingOutputBroker(broker, batchPolicy);
+      }
+      if (persistent && fingerprintManager!=null) {
+        broker = new FingerprintingOutputBroker(broker, fingerprintManager);
+      }
       return new BrokerLinkActionAdaptor(broker);
     }
     
@@ -343,4 +446,57 @@ public class DefaultTasksService implements TasksService {
     
     return updated;
   }
+  
+  /**
+   * Filter and transformer actions shared by the links of different destinations.
+   * <p>
+   * Links share an action if the definitions of all the actions on the path 
+   * from the top level down to the link are identical filters or transformers,
+   * thus every one of them receives exactly the same data. Output brokers are
+   * never shared.
+   */
+  private class SharedActions {
+    private final List<List<EntityDefinition>> paths = new ArrayList<>();
+    private final List<Integer> counts = new ArrayList<>();
+    private final List<LinkAction> actions = new ArrayList<>();
+    
+    /**
+     * Counts links of each path of shareable actions.
+     * @param linkDefinitions link definitions
+     * @param path path leading to the links
+     */
+    void count(List<LinkDefinition> linkDefinitions, List<EntityDefinition> path) {
+      if (linkDefinitions==null) {
+        return;
+      }
+      for (LinkDefinition def: linkDefinitions) {
+        if (isShareable(def.getAction())) {
+          List<EntityDefinition> linkPath = append(path, def.getAction());
+          int index = paths.indexOf(linkPath);
+          if (index<0) {
+            paths.add(linkPath);
+            counts.add(1);
+            actions.add(null);
+          } else {
+            counts.set(index, counts.get(index)+1);
+          }
+          count(def.getDrains(), linkPath);
+        }
+      }
+    }
+    
+    int getCount(List<EntityDefinition> path) {
+      int index = paths.indexOf(path);
+      return index>=0? counts.get(index): 0;
+    }
+    
+    LinkAction get(List<EntityDefinition> path) {
+      int index = paths.indexOf(path);
+      return index>=0? actions.get(index): null;
+    }
+    
+    void put(List<EntityDefinition> path, LinkAction action) {
+      actions.set(paths.indexOf(path), action);
+    }
+  }
 }
@@ -19,6 +19,7 @@ import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
 import com.esri.geoportal.harvester.api.ProcessInstance;
 import com.esri.geoportal.harvester.api.Trigger;
 import com.esri.geoportal.harvester.api.TriggerInstance;
+import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
 import com.esri.geoportal.harvester.api.base.SimpleIteratorContext;
 import com.esri.geoportal.harvester.api.defs.TaskDefinition;
 import com.esri.geoportal.harvester.api.defs.TriggerDefinition;
@@ -27,6 +28,7 @@ import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
 import com.esri.geoportal.harvester.api.specs.InputBroker;
 import com.esri.geoportal.harvester.engine.managers.History;
 import com.esri.geoportal.harvester.engine.managers.HistoryManager;
+import com.esri.geoportal.harvester.engine.managers.LeaseManager;
 import com.esri.geoportal.harvester.engine.services.ExecutionService;
 import com.esri.geoportal.harvester.engine.services.TriggersService;
 import com.esri.geoportal.harvester.engine.managers.TriggerInstanceManager;
@@ -35,29 +37,49 @@ import com.esri.geoportal.harvester.engine.managers.TriggerManager;
 import com.esri.geoportal.harvester.engine.registers.TriggerRegistry;
 import com.esri.geoportal.harvester.engine.utils.CrudlException;
 import com.esri.geoportal.harvester.engine.utils.HistoryManagerAdaptor;
+import com.esri.geoportal.harvester.engine.utils.LeasePolicy;
 import com.esri.geoportal.harvester.engine.utils.ProcessReference;
 import com.esri.geoportal.harvester.engine.utils.TriggerReference;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Default triggers service.
+ * <p>
+ * If lease policy is enabled, several nodes may share the same database. Each
+ * node activates only the triggers it holds a lease of, and claims no more 
+ * than its fair share of all the triggers. Leases are renewed every heartbeat;
+ * triggers of a node which failed to renew its leases are taken over by the
+ * other nodes, and an interrupted harvest is resumed from its checkpoint.
  */
 public class DefaultTriggersService implements TriggersService {
   private static final Logger LOG = LoggerFactory.getLogger(DefaultTriggersService.class);
+  private static final String NODE_LEASE = "NODE:";
+  private static final String TRIGGER_LEASE = "TRIGGER:";
   
   protected final TriggerRegistry triggerRegistry;
   protected final TriggerManager triggerManager;
   protected final HistoryManager historyManager;
   protected final TriggerInstanceManager triggerInstanceManager;
   protected final ExecutionService executionService;
+  protected final LeaseManager leaseManager;
+  protected final LeasePolicy leases;
+  
+  private final Map<UUID, TriggerContext> leased = new ConcurrentHashMap<>();
+  private ScheduledExecutorService heartbeat;
 
   /**
    * Creates instance of the service.
@@ -68,11 +90,27 @@ public class DefaultTriggersService implements TriggersService {
    * @param executionService execution service
    */
   public DefaultTriggersService(TriggerRegistry triggerRegistry, TriggerManager triggerManager, HistoryManager historyManager, TriggerInstanceManager triggerInstanceManager, ExecutionService executionService) {
+    this(triggerRegistry, triggerManager, historyManager, triggerInstanceManager, executionService, null, LeasePolicy.NONE);
+  }
+
+  /**
+   * Creates instance of the service.
+   * @param triggerRegistry trigger registry
+   * @param triggerManager trigger manager
+   * @param historyManager history manager
+   * @param triggerInstanceManager trigger instance manager
+   * @param executionService execution service
+   * @param leaseManager lease manager or <code>null</code> if no leases
+   * @param leases lease policy
+   */
+  public DefaultTriggersService(TriggerRegistry triggerRegistry, TriggerManager triggerManager, HistoryManager historyManager, TriggerInstanceManager triggerInstanceManager, ExecutionService executionService, LeaseManager leaseManager, LeasePolicy leases) {
     this.triggerRegistry = triggerRegistry;
     this.triggerManager = triggerManager;
     this.historyManager = historyManager;
     this.triggerInstanceManager = triggerInstanceManager;
     this.executionService = executionService;
+    this.leaseManager = leaseManager;
+    this.leases = leaseManager!=null? leases: LeasePolicy.NONE;
   }
 
   @Override
@@ -91,8 +129,11 @@ public class DefaultTriggersService implements TriggersService {
   }
   
   @Override
-  public TriggerReference deactivateTriggerInstance(UUID triggerInstanceUuid) throws InvalidDefinitionException, DataProcessorException {
+  public synchronized TriggerReference deactivateTriggerInstance(UUID triggerInstanceUuid) throws InvalidDefinitionException, DataProcessorException {
     TaskUuidTriggerInstancePair pair = triggerInstanceManager.remove(triggerInstanceUuid);
+    if (pair == null && leases.isEnabled()) {
+      return deleteTriggerLeasedElsewhere(triggerInstanceUuid);
+    }
     if (pair == null) {
       throw new InvalidDefinitionException(formatForLog("Invalid trigger id: %s", triggerInstanceUuid));
     }
@@ -109,11 +150,38 @@ public class DefaultTriggersService implements TriggersService {
       } catch (CrudlException ex) {
         LOG.warn(formatForLog("Error deleting trigger: %s", triggerInstanceUuid), ex);
       }
+      if (leased.remove(triggerInstanceUuid)!=null) {
+        release(triggerInstanceUuid);
+      }
+    }
+  }
+  
+  /**
+   * Deletes definition of the trigger activated by another node. The other 
+   * node deactivates the trigger upon its next heartbeat.
+   * @param triggerInstanceUuid trigger id
+   * @return trigger reference
+   * @throws InvalidDefinitionException if no such trigger
+   * @throws DataProcessorException if accessing repository fails
+   */
+  private TriggerReference deleteTriggerLeasedElsewhere(UUID triggerInstanceUuid) throws InvalidDefinitionException, DataProcessorException {
+    try {
+      TriggerManager.TaskUuidTriggerDefinitionPair definition = triggerManager.read(triggerInstanceUuid);
+      if (definition == null) {
+        throw new InvalidDefinitionException(formatForLog("Invalid trigger id: %s", triggerInstanceUuid));
+      }
+      triggerManager.delete(triggerInstanceUuid);
+      return new TriggerReference(triggerInstanceUuid, definition.getTaskUuid(), definition.getTriggerDefinition());
+    } catch (CrudlException ex) {
+      throw new DataProcessorException(formatForLog("Error deleting trigger: %s", triggerInstanceUuid), ex);
     }
   }
 
   @Override
   public List<TriggerReference> listActivatedTriggers() {
+    if (leases.isEnabled()) {
+      return listSharedTriggers();
+    }
     return triggerInstanceManager.listAll().stream()
             .map(e->new TriggerReference(e.getKey(), e.getValue().getTaskId(), e.getValue().getTriggerInstance().getTriggerDefinition()))
             .collect(Collectors.toList());
@@ -121,34 +189,51 @@ public class DefaultTriggersService implements TriggersService {
 
   @Override
   public List<TriggerReference> listActivatedTriggers(UUID taskId) {
+    if (leases.isEnabled()) {
+      return listSharedTriggers().stream()
+              .filter(r->taskId.equals(r.getTaskId()))
+              .collect(Collectors.toList());
+    }
     return triggerInstanceManager.listAll().stream()
             .filter(e->taskId.equals(e.getValue().getTaskId()))
             .map(e->new TriggerReference(e.getKey(), e.getValue().getTaskId(), e.getValue().getTriggerInstance().getTriggerDefinition()))
             .collect(Collectors.toList());
   }
   
+  /**
+   * Lists triggers activated by any of the nodes.
+   * @return list of trigger references
+   */
+  private List<TriggerReference> listSharedTriggers() {
+    try {
+      return select().stream()
+              .map(e->new TriggerReference(e.getKey(), e.getValue().getTaskUuid(), e.getValue().getTriggerDefinition()))
+              .collect(Collectors.toList());
+    } catch (CrudlException ex) {
+      LOG.error("Error listing trigger definitions", ex);
+      return Collections.emptyList();
+    }
+  }
   
   @Override
-  public void activateTriggerInstances() {
+  public synchronized void activateTriggerInstances() {
+    if (leases.isEnabled()) {
+      LOG.info(String.format("Sharing triggers with other nodes: %s", leases));
+      heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "HARVESTING-LEASE");
+        thread.setDaemon(true);
+        return thread;
+      });
+      heartbeat.scheduleWithFixedDelay(this::heartbeat, 0, leases.getHeartbeat(), TimeUnit.MILLISECONDS);
+      return;
+    }
     try {
       select().forEach(e->{
         UUID uuid = e.getKey();
         TriggerManager.TaskUuidTriggerDefinitionPair definition = e.getValue();
         
         try {
-          Trigger trigger = getTrigger(definition.getTriggerDefinition().getType());
-          if (trigger==null) {
-            throw new InvalidDefinitionException(formatForLog("Invalid trigger type: %s", definition.getTriggerDefinition().getType()));
-          }
-          TriggerInstance triggerInstance = trigger.createInstance(definition.getTriggerDefinition());
-          
-          TaskUuidTriggerInstancePair pair2 = new TriggerInstanceManager.TaskUuidTriggerInstancePair();
-          pair2.setTaskId(definition.getTaskUuid());
-          pair2.setTriggerInstance(triggerInstance);
-          triggerInstanceManager.put(uuid, pair2);
-          
-          TriggerInstance.Context context = new TriggerContext(definition.getTaskUuid());
-          triggerInstance.activate(context);
+          activate(uuid, definition.getTaskUuid(), definition.getTriggerDefinition(), new TriggerContext(definition.getTaskUuid()));
         } catch (DataProcessorException|InvalidDefinitionException ex) {
           LOG.warn(formatForLog("Error creating and activating trigger instance: %s -> %s", uuid, definition), ex);
         }
@@ -159,7 +244,17 @@ public class DefaultTriggersService implements TriggersService {
   }
   
   @Override
-  public void deactivateTriggerInstances() {
+  public synchronized void deactivateTriggerInstances() {
+    if (heartbeat!=null) {
+      heartbeat.shutdownNow();
+      heartbeat = null;
+      new ArrayList<>(leased.keySet()).forEach(uuid->drop(uuid, false));
+      try {
+        leaseManager.release(NODE_LEASE + leases.getNode(), leases.getNode());
+      } catch (CrudlException ex) {
+        LOG.warn(formatForLog("Error releasing lease of the node: %s", leases.getNode()), ex);
+      }
+    }
     triggerInstanceManager.listAll().stream().forEach(e->{
       TriggerInstance triggerInstance = e.getValue().getTriggerInstance();
       triggerInstance.deactivate();
@@ -168,33 +263,187 @@ public class DefaultTriggersService implements TriggersService {
   }
   
   @Override
-  public TriggerReference schedule(UUID taskId, TriggerDefinition trigDef, InputBroker.IteratorContext iteratorContext) throws InvalidDefinitionException, DataProcessorException {
+  public synchronized TriggerReference schedule(UUID taskId, TriggerDefinition trigDef, InputBroker.IteratorContext iteratorContext) throws InvalidDefinitionException, DataProcessorException {
     try {
       TriggerManager.TaskUuidTriggerDefinitionPair pair = new TriggerManager.TaskUuidTriggerDefinitionPair();
       pair.setTaskUuid(taskId);
       pair.setTriggerDefinition(trigDef);
       UUID uuid = triggerManager.create(pair);
-      Trigger trigger = triggerRegistry.get(trigDef.getType());
-      TriggerInstance triggerInstance = trigger.createInstance(trigDef);
-      
-      TaskUuidTriggerInstancePair pair2 = new TriggerInstanceManager.TaskUuidTriggerInstancePair();
-      pair2.setTaskId(taskId);
-      pair2.setTriggerInstance(triggerInstance);
-      triggerInstanceManager.put(uuid, pair2);
-      
       TriggerContext context = new TriggerContext(taskId);
-      triggerInstance.activate(context);
+      if (leases.isEnabled()) {
+        if (!leaseManager.acquire(TRIGGER_LEASE + uuid, leases.getNode(), leases.getDuration())) {
+          return new TriggerReference(uuid, taskId, trigDef);
+        }
+        leased.put(uuid, context);
+      }
+      activate(uuid, taskId, trigDef, context);
       return new TriggerReference(uuid, taskId, trigDef);
     } catch (CrudlException ex) {
       throw new DataProcessorException(formatForLog("Error scheduling task: %s", trigDef.getTaskDefinition()), ex);
     }
   }
   
+  /**
+   * Creates and activates trigger instance.
+   * @param uuid trigger id
+   * @param taskId task id
+   * @param trigDef trigger definition
+   * @param context trigger context
+   * @throws InvalidDefinitionException if invalid trigger definition
+   * @throws DataProcessorException if activating trigger fails
+   */
+  private void activate(UUID uuid, UUID taskId, TriggerDefinition trigDef, TriggerContext context) throws InvalidDefinitionException, DataProcessorException {
+    Trigger trigger = getTrigger(trigDef.getType());
+    if (trigger==null) {
+      throw new InvalidDefinitionException(formatForLog("Invalid trigger type: %s", trigDef.getType()));
+    }
+    TriggerInstance triggerInstance = trigger.createInstance(trigDef);
+
+    TaskUuidTriggerInstancePair pair2 = new TriggerInstanceManager.TaskUuidTriggerInstancePair();
+    pair2.setTaskId(taskId);
+    pair2.setTriggerInstance(triggerInstance);
+    triggerInstanceManager.put(uuid, pair2);
+
+    triggerInstance.activate(context);
+  }
+  
+  /**
+   * Renews leases of the node, gives up triggers deleted or leased by another
+   * node, claims free triggers up to the fair share, and releases idle triggers
+   * above the fair share so other nodes may claim them.
+   */
+  /*package*/ synchronized void heartbeat() {
+    String node = leases.getNode();
+    try {
+      leaseManager.acquire(NODE_LEASE + node, node, leases.getDuration());
+      Map<UUID, TriggerManager.TaskUuidTriggerDefinitionPair> definitions = new HashMap<>();
+      select().forEach(e->definitions.put(e.getKey(), e.getValue()));
+      
+      for (UUID uuid: new ArrayList<>(leased.keySet())) {
+        if (!definitions.containsKey(uuid)) {
+          LOG.info(formatForLog("Trigger has been deleted: %s", uuid));
+          drop(uuid, false);
+        } else if (!leaseManager.renew(TRIGGER_LEASE + uuid, node, leases.getDuration())) {
+          LOG.warn(formatForLog("Lease of the trigger has been lost: %s", uuid));
+          drop(uuid, true);
+        }
+      }
+      
+      int nodes = Math.max(1, leaseManager.count(NODE_LEASE));
+      int share = (definitions.size() + nodes - 1) / nodes;
+      
+      List<UUID> free = new ArrayList<>(definitions.keySet());
+      free.removeAll(leased.keySet());
+      Collections.shuffle(free);
+      for (UUID uuid: free) {
+        if (leased.size() >= share) {
+          break;
+        }
+        if (leaseManager.acquire(TRIGGER_LEASE + uuid, node, leases.getDuration())) {
+          claim(uuid, definitions.get(uuid));
+        }
+      }
+      
+      for (UUID uuid: new ArrayList<>(leased.keySet())) {
+        if (leased.size() <= share) {
+          break;
+        }
+        if (!leased.get(uuid).isBusy()) {
+          LOG.info(formatForLog("Handing over trigger to another node: %s", uuid));
+          drop(uuid, false);
+        }
+      }
+    } catch (CrudlException ex) {
+      LOG.warn(formatForLog("Error renewing leases of the node: %s", node), ex);
+    }
+  }
+  
+  /**
+   * Claims trigger leased by this node. If harvest of the task has been 
+   * interrupted, it is resumed first and the trigger is activated afterwards.
+   * @param uuid trigger id
+   * @param definition trigger definition
+   */
+  private void claim(UUID uuid, TriggerManager.TaskUuidTriggerDefinitionPair definition) {
+    TriggerContext context = new TriggerContext(definition.getTaskUuid());
+    leased.put(uuid, context);
+    LOG.info(formatForLog("Trigger claimed by node %s: %s", leases.getNode(), uuid));
+    try {
+      if (context.checkpoint()!=null) {
+        LOG.info(formatForLog("Resuming interrupted harvest of the task: %s", definition.getTaskUuid()));
+        ProcessInstance process = context.execute(definition.getTriggerDefinition().getTaskDefinition());
+        process.addListener(new BaseProcessInstanceListener() {
+          @Override
+          public void onStatusChange(ProcessInstance.Status status) {
+            if (status==ProcessInstance.Status.completed) {
+              activateClaimed(uuid, definition, context);
+            }
+          }
+        });
+        process.begin();
+      } else {
+        activate(uuid, definition.getTaskUuid(), definition.getTriggerDefinition(), context);
+      }
+    } catch (DataProcessorException|InvalidDefinitionException ex) {
+      LOG.warn(formatForLog("Error creating and activating trigger instance: %s -> %s", uuid, definition), ex);
+    }
+  }
+  
+  /**
+   * Activates claimed trigger unless its lease has been given up meanwhile.
+   * @param uuid trigger id
+   * @param definition trigger definition
+   * @param context trigger context
+   */
+  private synchronized void activateClaimed(UUID uuid, TriggerManager.TaskUuidTriggerDefinitionPair definition, TriggerContext context) {
+    if (leased.get(uuid)==context) {
+      try {
+        activate(uuid, definition.getTaskUuid(), definition.getTriggerDefinition(), context);
+      } catch (DataProcessorException|InvalidDefinitionException ex) {
+        LOG.warn(formatForLog("Error creating and activating trigger instance: %s -> %s", uuid, definition), ex);
+      }
+    }
+  }
+  
+  /**
+   * Drops trigger leased by this node.
+   * @param uuid trigger id
+   * @param lost <code>true</code> if lease has been lost to another node; 
+   * harvest in progress is aborted since the other node may start it again
+   */
+  private void drop(UUID uuid, boolean lost) {
+    TriggerContext context = leased.remove(uuid);
+    TaskUuidTriggerInstancePair pair = triggerInstanceManager.remove(uuid);
+    if (pair!=null) {
+      pair.getTriggerInstance().deactivate();
+    }
+    if (lost) {
+      if (context!=null) {
+        context.abort();
+      }
+    } else {
+      release(uuid);
+    }
+  }
+  
+  /**
+   * Releases lease of the trigger.
+   * @param uuid trigger id
+   */
+  private void release(UUID uuid) {
+    try {
+      leaseManager.release(TRIGGER_LEASE + uuid, leases.getNode());
+    } catch (CrudlException ex) {
+      LOG.warn(formatForLog("Error releasing lease of the trigger: %s", uuid), ex);
+    }
+  }
+  
   /**
    * DefaultEngine-bound trigger context.
    */
   private class TriggerContext implements TriggerInstance.Context {
     private final UUID taskId;
+    private volatile ProcessInstance process;
     
     /**
      * Creates instance of the context.
@@ -208,14 +457,39 @@ public class DefaultTriggersService implements TriggersService {
     public synchronized ProcessInstance execute(TaskDefinition taskDefinition) throws DataProcessorException, InvalidDefinitionException {
       SimpleIteratorContext iteratorContext = new SimpleIteratorContext();
       iteratorContext.setLastHarvest(taskDefinition.isIncremental()? lastHarvest(): null);
+      History.Checkpoint checkpoint = checkpoint();
+      if (checkpoint!=null) {
+        iteratorContext.setLastHarvest(checkpoint.getLastHarvestDate());
+        iteratorContext.setCheckpoint(checkpoint.getPosition());
+      }
       ProcessReference ref = executionService.execute(taskDefinition,iteratorContext);
       if (taskId!=null) {
-        ref.getProcess().addListener(new HistoryManagerAdaptor(taskId, ref.getProcess(), historyManager));
+        ref.getProcess().addListener(new HistoryManagerAdaptor(taskId, ref.getProcess(), historyManager, iteratorContext));
       }
       ref.getProcess().init();
+      process = ref.getProcess();
       return ref.getProcess();
     }
     
+    /**
+     * Checks if harvest started by the context is still in progress.
+     * @return <code>true</code> if harvest is in progress
+     */
+    private boolean isBusy() {
+      ProcessInstance current = process;
+      return current!=null && current.getStatus()!=ProcessInstance.Status.completed;
+    }
+    
+    /**
+     * Aborts harvest started by the context if still in progress.
+     */
+    private void abort() {
+      ProcessInstance current = process;
+      if (current!=null && current.getStatus()!=ProcessInstance.Status.completed) {
+        current.abort();
+      }
+    }
+    
     @Override
     public Date lastHarvest() throws DataProcessorException {
       try {
@@ -230,5 +504,18 @@ public class DefaultTriggersService implements TriggersService {
         throw new DataProcessorException(formatForLog("Error getting last harvest for: %s", taskId), ex);
       }
     }
+    
+    /**
+     * Gets checkpoint of the interrupted harvest.
+     * @return checkpoint or <code>null</code> if no checkpoint
+     * @throws DataProcessorException if accessing repository fails
+     */
+    private History.Checkpoint checkpoint() throws DataProcessorException {
+      try {
+        return taskId!=null? historyManager.readCheckpoint(taskId): null;
+      } catch (CrudlException ex) {
+        throw new DataProcessorException(formatForLog("Error getting checkpoint for: %s", taskId), ex);
+      }
+    }
   }
 }
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.defaults;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.Processor;
+import com.esri.geoportal.harvester.api.base.ContentStore;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.defs.UITemplate;
+import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
+import com.esri.geoportal.harvester.engine.utils.BackpressurePolicy;
+import com.esri.geoportal.harvester.engine.utils.ProcessorOptions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pipeline processor.
+ * <p>
+ * Splits harvesting into three stages: a single producer draining the input
+ * broker iterator, a bounded queue of acquired records, and a pool of workers
+ * pushing records through the task links. Acquiring the next record overlaps
+ * with publishing of the previous ones, and several records are being published
+ * at the same time.
+ * <p>
+ * Queue capacity and number of workers are taken from the processor definition
+ * properties of the task. Independently of the queue capacity, acquiring is
+ * paused once content of the queued and processed records reaches the ceiling
+ * of the {@link BackpressurePolicy}.
+ */
+public class PipelineProcessor implements Processor {
+
+  public static final String TYPE = "PIPELINE";
+  public static final String P_QUEUE_CAPACITY = "p-pipeline-queue-capacity";
+  public static final String P_WORKER_COUNT = "p-pipeline-worker-count";
+
+  public static final int DEFAULT_QUEUE_CAPACITY = 100;
+  public static final int DEFAULT_WORKER_COUNT = 4;
+
+  private static final Logger LOG = LoggerFactory.getLogger(PipelineProcessor.class);
+
+  private final PipelineProcessorDefinitionAdaptor definition;
+  private final ProcessorOptions options;
+
+  /**
+   * Creates instance of the processor with default settings.
+   */
+  public PipelineProcessor() {
+    this(ProcessorOptions.DEFAULT);
+  }
+
+  /**
+   * Creates instance of the processor with default settings.
+   * @param options processor options
+   */
+  public PipelineProcessor(ProcessorOptions options) {
+    try {
+      this.definition = new PipelineProcessorDefinitionAdaptor(new EntityDefinition());
+      this.options = options;
+    } catch (InvalidDefinitionException ex) {
+      throw new IllegalStateException("Error creating default pipeline processor definition.", ex);
+    }
+  }
+
+  /**
+   * Creates instance of the processor.
+   * @param definition processor definition
+   * @param options processor options
+   */
+  /*package*/ PipelineProcessor(PipelineProcessorDefinitionAdaptor definition, ProcessorOptions options) {
+    this.definition = definition;
+    this.options = options;
+  }
+
+  @Override
+  public String getType() {
+    return TYPE;
+  }
+
+  @Override
+  public UITemplate getTemplate(Locale locale) {
+    ResourceBundle bundle = ResourceBundle.getBundle("EngineResource", locale);
+    List<UITemplate.Argument> arguments = new ArrayList<>();
+    arguments.add(new UITemplate.IntegerArgument(P_QUEUE_CAPACITY, bundle.getString("engine.processors.pipeline.queueCapacity"), false, DEFAULT_QUEUE_CAPACITY));
+    arguments.add(new UITemplate.IntegerArgument(P_WORKER_COUNT, bundle.getString("engine.processors.pipeline.workerCount"), false, DEFAULT_WORKER_COUNT));
+    UITemplate uiTemplate = new UITemplate(getType(), bundle.getString("engine.processors.pipeline"), arguments);
+    return uiTemplate;
+  }
+
+  @Override
+  public EntityDefinition getEntityDefinition() {
+    EntityDefinition entityDefiniton = definition.getEntityDefinition();
+    entityDefiniton.setLabel(TYPE);
+    return entityDefiniton;
+  }
+
+  @Override
+  public Processor configure(EntityDefinition processorDefinition) throws InvalidDefinitionException {
+    return new PipelineProcessor(new PipelineProcessorDefinitionAdaptor(processorDefinition), options);
+  }
+
+  @Override
+  public ProcessInstance createProcess(Task task, IteratorContext iteratorContext) {
+    LOG.info(String.format("SUBMITTING: %s", task));
+    return new PipelineProcess(task, iteratorContext, definition.getQueueCapacity(), definition.getWorkerCount(), options);
+  }
+
+  /**
+   * Pipeline process.
+   * <p>
+   * Listeners see one event at the time even if records are being completed 
+   * by several workers and in the different order than they have been acquired;
+   * events are either delivered while holding the listeners lock, or through
+   * the listener event bus.
+   */
+  public static class PipelineProcess extends BaseProcess {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PipelineProcess.class);
+    private static final long POLL_TIMEOUT = 100;
+
+    private final int workerCount;
+    private final BlockingQueue<Item> queue;
+    private final TreeMap<Long, String> processed = new TreeMap<>();
+    private long nextProcessed = 1;
+    private long seq;
+    private ExecutorService workers;
+
+    private volatile boolean producing;
+
+    /**
+     * Creates instance of the process.
+     *
+     * @param task task
+     * @param iteratorContext iteration context
+     * @param queueCapacity queue capacity
+     * @param workerCount number of workers
+     */
+    public PipelineProcess(Task task, IteratorContext iteratorContext, int queueCapacity, int workerCount) {
+      this(task, iteratorContext, queueCapacity, workerCount, ProcessorOptions.DEFAULT);
+    }
+
+    /**
+     * Creates instance of the process.
+     *
+     * @param task task
+     * @param iteratorContext iteration context
+     * @param queueCapacity queue capacity
+     * @param workerCount number of workers
+     * @param options processor options
+     */
+    public PipelineProcess(Task task, IteratorContext iteratorContext, int queueCapacity, int workerCount, ProcessorOptions options) {
+      super(task, iteratorContext, options);
+      this.workerCount = workerCount;
+      this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @Override
+    protected void beforeIteration() {
+      producing = true;
+      workers = createWorkers();
+    }
+
+    @Override
+    protected void process(DataReference dataReference, long size, InputBroker.Iterator iterator) throws InterruptedException {
+      Item item = new Item(++seq, dataReference, iterator.getCheckpoint(), size);
+      onTotal(iterator.getTotal());
+      try {
+        queue.put(item);
+      } catch (InterruptedException ex) {
+        getInFlightGauge().remove(item.size);
+        throw ex;
+      }
+    }
+
+    @Override
+    protected void afterIteration() {
+      producing = false;
+      if (workers != null) {
+        drain(workers);
+      }
+    }
+
+    /**
+     * Creates and starts workers.
+     * @return workers executor
+     */
+    private ExecutorService createWorkers() {
+      AtomicInteger counter = new AtomicInteger();
+      ExecutorService workers = Executors.newFixedThreadPool(workerCount, r -> new Thread(r, String.format("HARVESTING-WORKER-%d", counter.incrementAndGet())));
+      for (int i = 0; i < workerCount; i++) {
+        workers.execute(this::work);
+      }
+      return workers;
+    }
+
+    /**
+     * Waits until workers process all the queued records. If the process
+     * has been aborted, queued records are discarded and workers interrupted;
+     * content of the discarded records is released once the content store closes.
+     * @param workers workers executor
+     */
+    private void drain(ExecutorService workers) {
+      if (isAborting()) {
+        discardQueued();
+        workers.shutdownNow();
+      } else {
+        workers.shutdown();
+      }
+      try {
+        while (!workers.awaitTermination(POLL_TIMEOUT, TimeUnit.MILLISECONDS)) {
+          if (isAborting()) {
+            discardQueued();
+            workers.shutdownNow();
+          }
+        }
+      } catch (InterruptedException ex) {
+        discardQueued();
+        workers.shutdownNow();
+      }
+    }
+
+    /**
+     * Discards all the queued records.
+     */
+    private void discardQueued() {
+      Item item;
+      while ((item = queue.poll()) != null) {
+        getInFlightGauge().remove(item.size);
+      }
+    }
+
+    /**
+     * Worker loop; takes records from the queue and pushes them to the destinations.
+     */
+    private void work() {
+      try {
+        while (!Thread.currentThread().isInterrupted()) {
+          // workers pause while the producer waits for the slot handed over
+          getHarvestTicket().awaitSlot();
+          Item item = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+          if (item == null) {
+            if (!producing && queue.isEmpty()) {
+              break;
+            }
+            continue;
+          }
+          try {
+            push(item.dataReference);
+          } finally {
+            ContentStore.release(item.dataReference);
+            getInFlightGauge().remove(item.size);
+            // acknowledged even if push failed with an error, otherwise 
+            // checkpoints of all the records acquired later would be withheld
+            onProcessed(item);
+          }
+        }
+      } catch (InterruptedException ex) {
+        LOG.debug(formatForLog("Worker of %s interrupted", getTitle()));
+      }
+    }
+
+    /**
+     * Marks item as processed. Once all the items acquired before are processed
+     * as well, the checkpoint of the latest one is reported to the listeners.
+     * @param item processed item
+     */
+    private void onProcessed(Item item) {
+      synchronized (processed) {
+        processed.put(item.seq, item.checkpoint);
+        String checkpoint = null;
+        while (processed.containsKey(nextProcessed)) {
+          String cp = processed.remove(nextProcessed++);
+          if (cp != null) {
+            checkpoint = cp;
+          }
+        }
+        onCheckpoint(checkpoint);
+      }
+    }
+  }
+
+  /**
+   * Queued data reference.
+   */
+  private static final class Item {
+    private final long seq;
+    private final DataReference dataReference;
+    private final String checkpoint;
+    private final long size;
+
+    public Item(long seq, DataReference dataReference, String checkpoint, long size) {
+      this.seq = seq;
+      this.dataReference = dataReference;
+      this.checkpoint = checkpoint;
+      this.size = size;
+    }
+  }
+}
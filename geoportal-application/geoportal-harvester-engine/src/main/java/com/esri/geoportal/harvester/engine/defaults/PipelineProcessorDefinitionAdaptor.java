@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.defaults;
+
+import static com.esri.geoportal.harvester.engine.defaults.PipelineProcessor.DEFAULT_QUEUE_CAPACITY;
+import static com.esri.geoportal.harvester.engine.defaults.PipelineProcessor.DEFAULT_WORKER_COUNT;
+import static com.esri.geoportal.harvester.engine.defaults.PipelineProcessor.P_QUEUE_CAPACITY;
+import static com.esri.geoportal.harvester.engine.defaults.PipelineProcessor.P_WORKER_COUNT;
+import com.esri.geoportal.harvester.api.base.BrokerDefinitionAdaptor;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Pipeline processor definition adaptor.
+ */
+/*package*/ class PipelineProcessorDefinitionAdaptor extends BrokerDefinitionAdaptor {
+  private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+  private int workerCount = DEFAULT_WORKER_COUNT;
+
+  /**
+   * Creates instance of the adaptor.
+   * @param def processor definition
+   * @throws InvalidDefinitionException if definition is invalid
+   */
+  public PipelineProcessorDefinitionAdaptor(EntityDefinition def) throws InvalidDefinitionException {
+    super(def);
+    if (StringUtils.trimToEmpty(def.getType()).isEmpty()) {
+      def.setType(PipelineProcessor.TYPE);
+    } else if (!PipelineProcessor.TYPE.equals(def.getType())) {
+      throw new InvalidDefinitionException("Processor definition doesn't match");
+    } else {
+      queueCapacity = parsePositive(P_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY);
+      workerCount = parsePositive(P_WORKER_COUNT, DEFAULT_WORKER_COUNT);
+    }
+  }
+
+  private int parsePositive(String propertyName, int defaultValue) throws InvalidDefinitionException {
+    String value = StringUtils.trimToEmpty(get(propertyName));
+    if (value.isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      int number = Integer.parseInt(value);
+      if (number <= 0) {
+        throw new InvalidDefinitionException(String.format("Invalid %s: %s", propertyName, value));
+      }
+      return number;
+    } catch (NumberFormatException ex) {
+      throw new InvalidDefinitionException(String.format("Invalid %s: %s", propertyName, value), ex);
+    }
+  }
+
+  @Override
+  public void override(Map<String, String> params) {
+    consume(params, P_QUEUE_CAPACITY);
+    consume(params, P_WORKER_COUNT);
+  }
+
+  /**
+   * Gets queue capacity.
+   * @return maximum number of records waiting for the workers
+   */
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  /**
+   * Sets queue capacity.
+   * @param queueCapacity maximum number of records waiting for the workers
+   */
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+    set(P_QUEUE_CAPACITY, Integer.toString(queueCapacity));
+  }
+
+  /**
+   * Gets worker count.
+   * @return number of workers pushing records through the links
+   */
+  public int getWorkerCount() {
+    return workerCount;
+  }
+
+  /**
+   * Sets worker count.
+   * @param workerCount number of workers pushing records through the links
+   */
+  public void setWorkerCount(int workerCount) {
+    this.workerCount = workerCount;
+    set(P_WORKER_COUNT, Integer.toString(workerCount));
+  }
+}
@@ -19,6 +19,7 @@ import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.harvester.api.Filter;
 import com.esri.geoportal.harvester.api.FilterInstance;
+import com.esri.geoportal.harvester.api.base.SourceUriFilter;
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.defs.UITemplate;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
@@ -37,11 +38,14 @@ import org.slf4j.LoggerFactory;
  * Regular expression filer.
  * <p>
  * Filters which passes data with source URI matching given regular expression.
+ * Input brokers may apply the filter at the source.
+ * 
+ * @see SourceUriFilter
  */
 public class RegExFilter implements Filter {
   private static final Logger LOG = LoggerFactory.getLogger(RegExFilter.class);
-  public static final String F_REGEX_PATTERN = "f-regex-pattern";
-  public static final String TYPE = "REGEX";
+  public static final String F_REGEX_PATTERN = SourceUriFilter.P_PATTERN;
+  public static final String TYPE = SourceUriFilter.TYPE;
 
   @Override
   public FilterInstance createInstance(EntityDefinition filterDefinition) throws InvalidDefinitionException {
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.managers;
+
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import java.util.UUID;
+
+/**
+ * Fingerprint manager.
+ * <p>
+ * Keeps digests of the content published by each task to each destination, 
+ * thus allowing to tell if the record has changed since it's last publication.
+ */
+public interface FingerprintManager {
+  /**
+   * Reads fingerprint of the published record.
+   * @param taskId task id
+   * @param destination destination key
+   * @param dataId data id
+   * @return fingerprint or <code>null</code> if record never published
+   * @throws CrudlException if unable to read fingerprint
+   */
+  String read(UUID taskId, String destination, String dataId) throws CrudlException;
+  
+  /**
+   * Stores fingerprint of the published record.
+   * @param taskId task id
+   * @param destination destination key
+   * @param dataId data id
+   * @param fingerprint fingerprint
+   * @throws CrudlException if unable to store fingerprint
+   */
+  void store(UUID taskId, String destination, String dataId, String fingerprint) throws CrudlException;
+  
+  /**
+   * Removes fingerprint of the record deleted from the destination.
+   * @param taskId task id
+   * @param destination destination key
+   * @param dataId data id
+   * @throws CrudlException if unable to remove fingerprint
+   */
+  void remove(UUID taskId, String destination, String dataId) throws CrudlException;
+  
+  /**
+   * Purges all fingerprints of the task.
+   * @param taskId task id
+   * @throws CrudlException if unable to purge fingerprints
+   */
+  void purge(UUID taskId) throws CrudlException;
+}
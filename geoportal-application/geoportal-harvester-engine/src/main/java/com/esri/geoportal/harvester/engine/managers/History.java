@@ -28,11 +28,13 @@ public class History extends ArrayList<History.Event> {
   private static final Logger LOG = LoggerFactory.getLogger(History.class);
   
   /**
-   * Gets last event.
+   * Gets last event. Events of re-running failed records are not taken into
+   * account, since such runs do not harvest the source.
    * @return last event
    */
   public History.Event getLastEvent() {
     return stream()
+              .filter(e->!e.isRetry())
               .sorted((left,right)->0-left.getStartTimestamp().compareTo(right.getStartTimestamp()))
               .findFirst()
               .orElse(null);
@@ -47,6 +49,7 @@ public class History extends ArrayList<History.Event> {
     private Date startTimestamp;
     private Date endTimestamp;
     private Report report;
+    private boolean retry;
 
     /**
      * Gest event id.
@@ -127,6 +130,22 @@ public class History extends ArrayList<History.Event> {
     public void setReport(Report report) {
       this.report = report;
     }
+
+    /**
+     * Checks if event records re-running failed records of another event.
+     * @return <code>true</code> if event records re-running failed records
+     */
+    public boolean isRetry() {
+      return retry;
+    }
+
+    /**
+     * Sets flag indicating event records re-running failed records of another event.
+     * @param retry <code>true</code> if event records re-running failed records
+     */
+    public void setRetry(boolean retry) {
+      this.retry = retry;
+    }
   }
   
   /**
@@ -139,9 +158,70 @@ public class History extends ArrayList<History.Event> {
     public long created;
     /** number of records updated. */
     public long updated;
+    /** number of records unchanged since the last publication. */
+    public long unchanged;
+    /** number of records deleted because deleted at the source. */
+    public long deleted;
     /** number of records failed. */
     public long failed;
     public Long failedToHarvest;
     public Long failedToPublish;
   }
+  
+  /**
+   * Checkpoint of the interrupted harvest.
+   */
+  public static final class Checkpoint {
+    private String position;
+    private Date lastHarvestDate;
+    private Date timestamp;
+
+    /**
+     * Gets iteration position.
+     * @return iteration position
+     */
+    public String getPosition() {
+      return position;
+    }
+
+    /**
+     * Sets iteration position.
+     * @param position iteration position
+     */
+    public void setPosition(String position) {
+      this.position = position;
+    }
+
+    /**
+     * Gets last harvest date the interrupted harvest has been started with.
+     * @return last harvest date or <code>null</code> if harvest was not incremental
+     */
+    public Date getLastHarvestDate() {
+      return lastHarvestDate;
+    }
+
+    /**
+     * Sets last harvest date the interrupted harvest has been started with.
+     * @param lastHarvestDate last harvest date or <code>null</code> if harvest was not incremental
+     */
+    public void setLastHarvestDate(Date lastHarvestDate) {
+      this.lastHarvestDate = lastHarvestDate;
+    }
+
+    /**
+     * Gets timestamp of the checkpoint.
+     * @return timestamp
+     */
+    public Date getTimestamp() {
+      return timestamp;
+    }
+
+    /**
+     * Sets timestamp of the checkpoint.
+     * @param timestamp timestamp
+     */
+    public void setTimestamp(Date timestamp) {
+      this.timestamp = timestamp;
+    }
+  }
 }
@@ -54,4 +54,20 @@ public interface HistoryManager extends CrudlRepo<History.Event> {
    * @throws CrudlException if unable to store data
    */
   void storeFailedDataId(UUID eventId, String dataId) throws CrudlException;
+
+  /**
+   * Reads checkpoint of the interrupted harvest.
+   * @param taskId task id
+   * @return checkpoint or <code>null</code> if no checkpoint
+   * @throws CrudlException if unable to read checkpoint
+   */
+  History.Checkpoint readCheckpoint(UUID taskId) throws CrudlException;
+
+  /**
+   * Stores checkpoint of the harvest.
+   * @param taskId task id
+   * @param checkpoint checkpoint or <code>null</code> to remove checkpoint
+   * @throws CrudlException if unable to store checkpoint
+   */
+  void storeCheckpoint(UUID taskId, History.Checkpoint checkpoint) throws CrudlException;
 }
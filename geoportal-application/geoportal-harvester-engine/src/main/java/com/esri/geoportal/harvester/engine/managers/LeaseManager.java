@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.managers;
+
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+
+/**
+ * Lease manager.
+ * <p>
+ * Keeps time-limited leases in a store shared by all the harvester nodes, thus
+ * allowing exactly one node to own a resource at a time. A lease not renewed 
+ * before it expires may be acquired by any other node. Expiration is always 
+ * evaluated with the clock of the store, thus clocks of the nodes don't have to
+ * be synchronized.
+ */
+public interface LeaseManager {
+  /**
+   * Acquires lease. Lease is acquired if it doesn't exist, has already expired,
+   * or is already owned by the owner.
+   * @param key lease key
+   * @param owner owner
+   * @param duration lease duration in milliseconds
+   * @return <code>true</code> if lease has been acquired
+   * @throws CrudlException if unable to acquire lease
+   */
+  boolean acquire(String key, String owner, long duration) throws CrudlException;
+  
+  /**
+   * Renews lease. Lease is renewed only if still owned by the owner.
+   * @param key lease key
+   * @param owner owner
+   * @param duration lease duration in milliseconds
+   * @return <code>true</code> if lease has been renewed
+   * @throws CrudlException if unable to renew lease
+   */
+  boolean renew(String key, String owner, long duration) throws CrudlException;
+  
+  /**
+   * Releases lease owned by the owner.
+   * @param key lease key
+   * @param owner owner
+   * @throws CrudlException if unable to release lease
+   */
+  void release(String key, String owner) throws CrudlException;
+  
+  /**
+   * Counts leases not expired yet.
+   * @param prefix key prefix
+   * @return number of leases with the key starting with the prefix
+   * @throws CrudlException if unable to count leases
+   */
+  int count(String prefix) throws CrudlException;
+}
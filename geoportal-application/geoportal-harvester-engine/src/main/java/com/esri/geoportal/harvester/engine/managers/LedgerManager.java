@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.managers;
+
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ledger manager.
+ * <p>
+ * Keeps ids of the records published by each task to each destination along
+ * with the time of their last publication, thus allowing destinations to 
+ * clean up records not harvested anymore without enumerating the destination.
+ */
+public interface LedgerManager {
+  /**
+   * Lists ids of the published records.
+   * @param taskId task id
+   * @param destination destination key
+   * @return list of ids or <code>null</code> if ledger has never been seeded
+   * @throws CrudlException if unable to list ids
+   */
+  List<String> list(UUID taskId, String destination) throws CrudlException;
+  
+  /**
+   * Seeds ledger with the records found in the destination.
+   * @param taskId task id
+   * @param destination destination key
+   * @param ids ids of the records found in the destination
+   * @throws CrudlException if unable to seed ledger
+   */
+  void seed(UUID taskId, String destination, Collection<String> ids) throws CrudlException;
+  
+  /**
+   * Records published record.
+   * @param taskId task id
+   * @param destination destination key
+   * @param id id of the record
+   * @param published publication time
+   * @throws CrudlException if unable to record
+   */
+  void record(UUID taskId, String destination, String id, Date published) throws CrudlException;
+  
+  /**
+   * Removes deleted record.
+   * @param taskId task id
+   * @param destination destination key
+   * @param id id of the record
+   * @throws CrudlException if unable to remove
+   */
+  void remove(UUID taskId, String destination, String id) throws CrudlException;
+  
+  /**
+   * Purges ledgers of the task.
+   * @param taskId task id
+   * @throws CrudlException if unable to purge ledgers
+   */
+  void purge(UUID taskId) throws CrudlException;
+}
@@ -20,6 +20,7 @@ import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
 import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
 import com.esri.geoportal.harvester.engine.utils.ProcessReference;
+import java.util.UUID;
 
 /**
  * Execution service.
@@ -36,4 +37,15 @@ public interface ExecutionService {
    * @throws DataProcessorException if accessing repository fails
    */
   ProcessReference execute(TaskDefinition taskDefinition, IteratorContext iteratorContext) throws InvalidDefinitionException, DataProcessorException;
+
+  /**
+   * Executes task only for the records which failed during the given event.
+   *
+   * @param taskDefinition task definition
+   * @param eventId id of the history event
+   * @return process handle
+   * @throws InvalidDefinitionException invalid definition exception
+   * @throws DataProcessorException if accessing repository fails
+   */
+  ProcessReference executeFailed(TaskDefinition taskDefinition, UUID eventId) throws InvalidDefinitionException, DataProcessorException;
 }
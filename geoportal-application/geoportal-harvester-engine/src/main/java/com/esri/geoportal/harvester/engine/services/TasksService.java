@@ -88,6 +88,14 @@ public interface TasksService {
    */
   History getHistory(UUID taskId) throws DataProcessorException;
   
+  /**
+   * Gets checkpoint of the interrupted harvest.
+   * @param taskId task id
+   * @return checkpoint or <code>null</code> if the last harvest hasn't been interrupted
+   * @throws DataProcessorException if accessing repository fails
+   */
+  History.Checkpoint getCheckpoint(UUID taskId) throws DataProcessorException;
+  
   /**
    * Gets failed documents.
    * @param eventId event id
@@ -111,6 +119,17 @@ public interface TasksService {
    */
   Task createTask(TaskDefinition taskDefinition) throws InvalidDefinitionException;
   
+  /**
+   * Creates task reading only selected records from the source.
+   * <p>
+   * The task is processed by the processor configured in the task definition.
+   * @param taskDefinition task definition
+   * @param recordIds ids of the records to read
+   * @return task
+   * @throws InvalidDefinitionException if invalid task definition
+   */
+  Task createTask(TaskDefinition taskDefinition, List<String> recordIds) throws InvalidDefinitionException;
+  
   /**
    * Fetching content.
    * @param taskId task id
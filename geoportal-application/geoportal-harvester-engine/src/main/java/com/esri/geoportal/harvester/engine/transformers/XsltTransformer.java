@@ -36,6 +36,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.ResourceBundle;
+import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
@@ -78,11 +79,15 @@ public class XsltTransformer implements Transformer {
 
   /**
    * XSLT transformer instance.
+   * <p>
+   * Compiled stylesheet is shared, but each transformation gets its own 
+   * transformer, thus instance may be used by several threads at once.
    */
   private class XsltTransformerInstance implements TransformerInstance {
 
     private final EntityDefinition definition;
-    private final javax.xml.transform.Transformer xsltTransformer;
+    private final Templates xsltTemplates;
+    private final Properties xsltProperties = new Properties();
 
     /**
      * Creates instance of the transformer instance.
@@ -97,12 +102,10 @@ public class XsltTransformer implements Transformer {
         throw new InvalidDefinitionException(String.format("No transformation defined"));
       }
       try {
-        xsltTransformer = TransformerFactory.newInstance().newTransformer(new StreamSource(new ByteArrayInputStream(strXslt.getBytes("UTF-8"))));
+        xsltTemplates = TransformerFactory.newInstance().newTemplates(new StreamSource(new ByteArrayInputStream(strXslt.getBytes("UTF-8"))));
         String strProps = definition.getProperties().get(X_XSLT_PROPS);
         if (strProps != null) {
-          Properties props = new Properties();
-          props.load(new ByteArrayInputStream(strProps.getBytes("UTF-8")));
-          props.entrySet().stream().forEach(e -> xsltTransformer.setParameter(e.getKey().toString(), e.getValue()));
+          xsltProperties.load(new ByteArrayInputStream(strProps.getBytes("UTF-8")));
         }
       } catch (IOException | TransformerConfigurationException ex) {
         throw new InvalidDefinitionException(String.format("Invalid transformation: %s", strXslt), ex);
@@ -128,6 +131,8 @@ public class XsltTransformer implements Transformer {
     public List<DataReference> transform(DataReference input) throws DataTransformerException {
       ByteArrayOutputStream result = new ByteArrayOutputStream();
       try {
+        javax.xml.transform.Transformer xsltTransformer = xsltTemplates.newTransformer();
+        xsltProperties.entrySet().stream().forEach(e -> xsltTransformer.setParameter(e.getKey().toString(), e.getValue()));
         xsltTransformer.transform(new StreamSource(new InputStreamReader(new ByteArrayInputStream(input.getContent(MimeType.APPLICATION_XML, MimeType.TEXT_XML)), "UTF-8")), new StreamResult(new OutputStreamWriter(result, "UTF-8")));
         DataReferenceWrapper dataRef = new DataReferenceWrapper(input);
         dataRef.addContext(MimeType.APPLICATION_XML, result.toByteArray());
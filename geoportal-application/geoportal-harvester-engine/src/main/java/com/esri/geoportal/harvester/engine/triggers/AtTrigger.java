@@ -15,15 +15,12 @@
  */
 package com.esri.geoportal.harvester.engine.triggers;
 
-import com.esri.geoportal.harvester.api.ProcessInstance;
 import com.esri.geoportal.harvester.api.Trigger;
 import com.esri.geoportal.harvester.api.TriggerInstance;
 import com.esri.geoportal.harvester.api.defs.TriggerDefinition;
 import com.esri.geoportal.harvester.api.defs.UITemplate;
-import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
-import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
-import java.lang.ref.WeakReference;
+import com.esri.geoportal.harvester.engine.utils.TriggerScheduler;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -32,11 +29,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
-import java.util.WeakHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,8 +76,24 @@ public class AtTrigger implements Trigger {
   private static final Logger LOG = LoggerFactory.getLogger(AtTrigger.class);
   public static final String T_AT_TIME = "t-at-time";
   public static final String TYPE = "AT";
-  private static final ScheduledExecutorService service = Executors.newScheduledThreadPool(1000);
-  private static final WeakHashMap<AtTriggerInstance,WeakReference<AtTriggerInstance>> weakMap = new WeakHashMap<>();
+  private static final int MAX_CATCH_UP_DAYS = 366;
+  private final TriggerScheduler scheduler;
+  private final Set<ScheduledTriggerInstance> active = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Creates instance of the trigger using default scheduler.
+   */
+  public AtTrigger() {
+    this(TriggerScheduler.getDefault());
+  }
+
+  /**
+   * Creates instance of the trigger.
+   * @param scheduler trigger scheduler
+   */
+  public AtTrigger(TriggerScheduler scheduler) {
+    this.scheduler = scheduler;
+  }
 
   @Override
   public String getType() {
@@ -104,104 +114,89 @@ public class AtTrigger implements Trigger {
     if (!getType().equals(triggerDefinition.getType())) {
       throw new InvalidDefinitionException(String.format("Invalid trigger definition: %s", triggerDefinition));
     }
-    AtTriggerInstance instance = new AtTriggerInstance(triggerDefinition);
-    weakMap.put(instance, new WeakReference<>(instance));
-    return instance;
+    return new AtTriggerInstance(triggerDefinition);
   }
 
   @Override
   public void close() throws Exception {
-    weakMap.values().stream().map(v->v.get()).forEach(i->{
-        i.deactivate();
-    });
-    service.shutdownNow();
+    new ArrayList<>(active).forEach(ScheduledTriggerInstance::deactivate);
   }
   
   /**
    * 'At' trigger instance.
    */
-  private class AtTriggerInstance implements TriggerInstance {
-    final TriggerDefinition triggerDefinition;
-    private ScheduledFuture<?> future;
+  private class AtTriggerInstance extends ScheduledTriggerInstance {
+    private volatile Predicate<Date> predicate;
 
     /**
      * Creates instance of the trigger instance
      * @param triggerDefinition trigger definition
      */
     public AtTriggerInstance(TriggerDefinition triggerDefinition) {
-      this.triggerDefinition = triggerDefinition;
-    }
-
-    @Override
-    public TriggerDefinition getTriggerDefinition() {
-      return triggerDefinition;
+      super(triggerDefinition, scheduler, active);
     }
 
     @Override
-    public void activate(Context triggerContext) throws DataProcessorException, InvalidDefinitionException {
+    protected void validate() throws InvalidDefinitionException {
       try {
-        Predicate<Date> predicate = parsePredicate(triggerDefinition.getProperties().get(T_AT_TIME));
-        schedule(newRunnable(triggerContext,predicate));
+        predicate = parsePredicate(triggerDefinition.getProperties().get(T_AT_TIME));
       } catch (ParseException ex) {
         throw new InvalidDefinitionException(String.format("Invalid predicate definition: %s", triggerDefinition.getProperties().get(T_AT_TIME)), ex);
       }
     }
 
     @Override
-    public synchronized void deactivate() {
-      if (future!=null) {
-        future.cancel(true);
-        future = null;
-      }
+    protected boolean isDue(Date date) {
+      return predicate.test(date);
     }
     
-    private Runnable newRunnable(Context triggerContext, Predicate<Date> predicate) {
-      return ()->{
-        if (predicate.test(new Date())) {
-          try {
-            ProcessInstance process = triggerContext.execute(triggerDefinition.getTaskDefinition());
-            process.addListener(new BaseProcessInstanceListener() {
-              @Override
-              public void onStatusChange(ProcessInstance.Status status) {
-                if (status==ProcessInstance.Status.completed && !Thread.currentThread().isInterrupted()) {
-                  schedule(newRunnable(triggerContext, predicate));
-                }
-              }
-            });
-            process.begin();
-          } catch (DataProcessorException|InvalidDefinitionException ex) {
-            LOG.error(String.format("Error submitting task"), ex);
-          }
-        } else {
-          schedule(newRunnable(triggerContext, predicate));
+    /**
+     * Calculates delay until the next time of the day.
+     * @param lastHarvest last harvest
+     * @return delay in milliseconds, or zero if catching up a run missed 
+     * since the last harvest
+     * @throws ParseException if extracting minute of the day failed
+     */
+    @Override
+    protected long calcDelay(Date lastHarvest) throws ParseException {
+      int reqMinOfDay = getMinOfDay();
+      Calendar cal = Calendar.getInstance();
+      long now = cal.getTimeInMillis();
+      cal.set(Calendar.HOUR_OF_DAY, reqMinOfDay / 60);
+      cal.set(Calendar.MINUTE, reqMinOfDay % 60);
+      cal.set(Calendar.SECOND, 0);
+      cal.set(Calendar.MILLISECOND, 0);
+      if (lastHarvest!=null && isCatchUp()) {
+        Calendar recent = (Calendar)cal.clone();
+        if (recent.getTimeInMillis() > now) {
+          recent.add(Calendar.DAY_OF_MONTH, -1);
+        }
+        if (isMissed(recent, lastHarvest)) {
+          LOG.info(String.format("Catching up run missed since %s: %s", lastHarvest, triggerDefinition.getTaskDefinition()));
+          return 0;
         }
-      };
-    }
-    
-    private synchronized void schedule(Runnable runnable) {
-      try {
-        long delay = calcDelay();
-        LOG.info(String.format("Task is scheduled to be run in %d minues: %s", delay, triggerDefinition.getTaskDefinition()));
-        future = service.schedule(runnable, delay, TimeUnit.MINUTES);
-      } catch (ParseException ex) {
-        LOG.error(String.format("Error activating trigger: %s", getType()), ex);
       }
+      if (cal.getTimeInMillis() <= now) {
+        cal.add(Calendar.DAY_OF_MONTH, 1);
+      }
+      return cal.getTimeInMillis() - now;
     }
     
     /**
-     * Calculates delay (in minutes)
-     * @return delay
-     * @throws ParseException if extracting minute of the day failed
+     * Checks if any run has been missed since the last harvest. All the missed
+     * runs are coalesced into a single one.
+     * @param cal time of the most recent run due
+     * @param lastHarvest last harvest
+     * @return <code>true</code> if any run has been missed
      */
-    private long calcDelay() throws ParseException {
-      int reqMinOfDay = getMinOfDay();
-      Calendar cal = Calendar.getInstance();
-      int curMinOfDay = extractMinOfDay(cal);
-
-      int dif = reqMinOfDay - curMinOfDay;
-      long delay = dif>0? dif: (24*60)-curMinOfDay+reqMinOfDay; 
-
-      return delay;
+    private boolean isMissed(Calendar cal, Date lastHarvest) {
+      for (int day = 0; day < MAX_CATCH_UP_DAYS && cal.getTime().after(lastHarvest); day++) {
+        if (predicate.test(cal.getTime())) {
+          return true;
+        }
+        cal.add(Calendar.DAY_OF_MONTH, -1);
+      }
+      return false;
     }
     
     /**
@@ -314,15 +309,5 @@ public class AtTrigger implements Trigger {
       
       return (d)->!predicates.stream().map(p->p.test(d)).anyMatch(b->b==false);
     }
-    
-    /**
-     * Gets minute of the day.
-     * @param cal calendar
-     * @return minute of the day.
-     */
-    private int extractMinOfDay(Calendar cal) {
-      int minOfDay = cal.get(Calendar.HOUR_OF_DAY)*60 + cal.get(Calendar.MINUTE);
-      return minOfDay;
-    }
   }
 }
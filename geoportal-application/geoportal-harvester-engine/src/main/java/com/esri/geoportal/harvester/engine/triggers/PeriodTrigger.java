@@ -15,15 +15,12 @@
  */
 package com.esri.geoportal.harvester.engine.triggers;
 
-import com.esri.geoportal.harvester.api.ProcessInstance;
 import com.esri.geoportal.harvester.api.Trigger;
 import com.esri.geoportal.harvester.api.TriggerInstance;
 import com.esri.geoportal.harvester.api.defs.TriggerDefinition;
 import com.esri.geoportal.harvester.api.defs.UITemplate;
-import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
-import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
-import java.lang.ref.WeakReference;
+import com.esri.geoportal.harvester.engine.utils.TriggerScheduler;
 import java.text.ParseException;
 import java.time.Duration;
 import java.time.Instant;
@@ -35,13 +32,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
-import java.util.WeakHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Period trigger. Allows to schedule task periodically, for example: daily or 
@@ -63,11 +55,25 @@ import org.slf4j.LoggerFactory;
  * "P0.5M" - biweekly<br>
  */
 public class PeriodTrigger implements Trigger {
-  private static final Logger LOG = LoggerFactory.getLogger(PeriodTrigger.class);
   public static final String T_PERIOD = "t-period";
   public static final String TYPE = "PERIOD";
-  private static final ScheduledExecutorService service = Executors.newScheduledThreadPool(1000);
-  private static final WeakHashMap<PeriodTriggerInstance,WeakReference<PeriodTriggerInstance>> weakMap = new WeakHashMap<>();
+  private final TriggerScheduler scheduler;
+  private final Set<ScheduledTriggerInstance> active = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Creates instance of the trigger using default scheduler.
+   */
+  public PeriodTrigger() {
+    this(TriggerScheduler.getDefault());
+  }
+
+  /**
+   * Creates instance of the trigger.
+   * @param scheduler trigger scheduler
+   */
+  public PeriodTrigger(TriggerScheduler scheduler) {
+    this.scheduler = scheduler;
+  }
 
   @Override
   public String getType() {
@@ -88,92 +94,44 @@ public class PeriodTrigger implements Trigger {
     if (!getType().equals(triggerDefinition.getType())) {
       throw new InvalidDefinitionException(String.format("Invalid trigger definition: %s", triggerDefinition));
     }
-    PeriodTriggerInstance instance = new PeriodTriggerInstance(triggerDefinition);
-    weakMap.put(instance, new WeakReference<>(instance));
-    return instance;
+    return new PeriodTriggerInstance(triggerDefinition);
   }
 
   @Override
   public void close() throws Exception {
-    weakMap.values().stream().map(v->v.get()).forEach(i->{
-        i.deactivate();
-    });
-    service.shutdownNow();
+    new ArrayList<>(active).forEach(ScheduledTriggerInstance::deactivate);
   }
 
   /**
    * Period trigger instance.
    */
-  private class PeriodTriggerInstance implements TriggerInstance {
-    final TriggerDefinition triggerDefinition;
-    private Future<?> future;
+  private class PeriodTriggerInstance extends ScheduledTriggerInstance {
+    private TemporalAmount period;
 
     /**
      * Creates instance of the trigger instance
      * @param triggerDefinition trigger definition
      */
     public PeriodTriggerInstance(TriggerDefinition triggerDefinition) {
-      this.triggerDefinition = triggerDefinition;
-    }
-
-    @Override
-    public TriggerDefinition getTriggerDefinition() {
-      return triggerDefinition;
+      super(triggerDefinition, scheduler, active);
     }
 
     @Override
-    public void activate(Context triggerContext) throws DataProcessorException, InvalidDefinitionException {
-      schedule(triggerContext.lastHarvest(), newRunnable(triggerContext));
+    protected void validate() throws InvalidDefinitionException {
+      try {
+        period = parseTemporalAmount(triggerDefinition.getProperties().get(T_PERIOD));
+      } catch (ParseException ex) {
+        throw new InvalidDefinitionException(String.format("Invalid period definition: %s", triggerDefinition.getProperties().get(T_PERIOD)), ex);
+      }
     }
 
     @Override
-    public synchronized void deactivate() {
-      if (future!=null) {
-        future.cancel(true);
-        future = null;
-      }
-    }
-    
-    private Runnable newRunnable(Context triggerContext) {
-      return ()->{
-        try {
-          ProcessInstance process = triggerContext.execute(triggerDefinition.getTaskDefinition());
-          process.addListener(new BaseProcessInstanceListener() {
-            @Override
-            public void onStatusChange(ProcessInstance.Status status) {
-              if (status==ProcessInstance.Status.completed && !Thread.currentThread().isInterrupted()) {
-                schedule(new Date(),newRunnable(triggerContext));
-              }
-            }
-          });
-          process.begin();
-        } catch (DataProcessorException|InvalidDefinitionException ex) {
-          LOG.error(String.format("Error submitting task"), ex);
-        }
-      };
-    }
-    
-    private synchronized void schedule(Date lastHarvest, Runnable runnable) {
-      try {
-        if (lastHarvest==null) {
-          LOG.info(String.format("Task is being submitted now: %s", triggerDefinition.getTaskDefinition()));
-          future = service.submit(runnable);
-        } else {
-          TemporalAmount tempAmt = parseTemporalAmount(triggerDefinition.getProperties().get(T_PERIOD));
-          Instant due = (Instant)tempAmt.addTo(lastHarvest.toInstant());
-          
-          long delay = (due.toEpochMilli()-new Date().getTime())/1000/60;
-          if (delay>0) {
-            LOG.info(String.format("Task is scheduled to be run in %d minues: %s", delay, triggerDefinition.getTaskDefinition()));
-            future = service.schedule(runnable, delay, TimeUnit.MINUTES);
-          } else {
-            LOG.info(String.format("Task is being submitted now: %s", triggerDefinition.getTaskDefinition()));
-            future = service.submit(runnable);
-          }
-        }
-      } catch (ParseException ex) {
-        LOG.error(String.format("Error activating trigger: %s", getType()), ex);
+    protected long calcDelay(Date lastHarvest) throws ParseException {
+      if (lastHarvest==null) {
+        return 0;
       }
+      Instant due = (Instant)period.addTo(lastHarvest.toInstant());
+      return due.toEpochMilli()-new Date().getTime();
     }
   }
     
@@ -184,6 +142,9 @@ public class PeriodTrigger implements Trigger {
    * @throws ParseException if invalid minute of the day definition
    */
   private static TemporalAmount parseTemporalAmount(String strPeriod) throws ParseException {
+    if (strPeriod==null) {
+      throw new ParseException("Missing period.", 0);
+    }
     try {
       return Period.parse(strPeriod);
     } catch (DateTimeParseException thenTryAgain) {
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.triggers;
+
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.TriggerInstance;
+import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
+import com.esri.geoportal.harvester.api.defs.TriggerDefinition;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
+import com.esri.geoportal.harvester.engine.utils.TriggerScheduler;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scheduled trigger instance.
+ * <p>
+ * Base of the trigger instances firing on a schedule. The instance schedules
+ * itself with the {@link TriggerScheduler}, executes the task once due, and
+ * schedules itself again once the process is completed. State of the instance
+ * is tracked explicitly, and the instance stays registered with its trigger 
+ * only while active.
+ * <p>
+ * A run due at activation is delayed by a random jitter, and a harvest is 
+ * postponed if the cap on the harvests started within a minute has been 
+ * reached (see {@link com.esri.geoportal.harvester.engine.utils.TriggerPolicy}).
+ */
+/*package*/ abstract class ScheduledTriggerInstance implements TriggerInstance {
+  private static final Logger LOG = LoggerFactory.getLogger(ScheduledTriggerInstance.class);
+  
+  protected final TriggerDefinition triggerDefinition;
+  private final TriggerScheduler scheduler;
+  private final Set<ScheduledTriggerInstance> active;
+  
+  private State state = State.INACTIVE;
+  private Context triggerContext;
+  private TriggerScheduler.Timeout timeout;
+  private boolean overdue;
+
+  /**
+   * Creates instance of the trigger instance.
+   * @param triggerDefinition trigger definition
+   * @param scheduler scheduler
+   * @param active set of active instances of the trigger
+   */
+  protected ScheduledTriggerInstance(TriggerDefinition triggerDefinition, TriggerScheduler scheduler, Set<ScheduledTriggerInstance> active) {
+    this.triggerDefinition = triggerDefinition;
+    this.scheduler = scheduler;
+    this.active = active;
+  }
+
+  @Override
+  public TriggerDefinition getTriggerDefinition() {
+    return triggerDefinition;
+  }
+
+  /**
+   * Gets state.
+   * @return state
+   */
+  public synchronized State getState() {
+    return state;
+  }
+
+  @Override
+  public void activate(Context triggerContext) throws DataProcessorException, InvalidDefinitionException {
+    validate();
+    Date lastHarvest = triggerContext.lastHarvest();
+    synchronized (this) {
+      this.triggerContext = triggerContext;
+      this.state = State.INACTIVE;
+      active.add(this);
+      schedule(lastHarvest, true);
+    }
+  }
+
+  @Override
+  public synchronized void deactivate() {
+    state = State.DEACTIVATED;
+    if (timeout != null) {
+      timeout.cancel();
+      timeout = null;
+    }
+    active.remove(this);
+  }
+
+  /**
+   * Validates trigger definition.
+   * @throws InvalidDefinitionException if trigger definition is invalid
+   */
+  protected abstract void validate() throws InvalidDefinitionException;
+
+  /**
+   * Calculates delay until the task is due.
+   * @param lastHarvest last harvest date or <code>null</code> if never harvested
+   * @return delay in milliseconds; zero or negative value means the task is
+   * overdue and will be executed regardless of {@link #isDue(java.util.Date)}
+   * @throws ParseException if trigger definition is invalid
+   */
+  protected abstract long calcDelay(Date lastHarvest) throws ParseException;
+
+  /**
+   * Checks if missed runs are caught up.
+   * @return <code>true</code> to run once at activation if any run has been
+   * missed since the last harvest
+   */
+  protected boolean isCatchUp() {
+    return scheduler.getPolicy().isCatchUp();
+  }
+
+  /**
+   * Checks if task may be executed at the given time.
+   * @param date date
+   * @return <code>true</code> if task may be executed
+   */
+  protected boolean isDue(Date date) {
+    return true;
+  }
+
+  private synchronized void schedule(Date lastHarvest, boolean activation) {
+    if (state == State.DEACTIVATED) {
+      return;
+    }
+    try {
+      long delay = calcDelay(lastHarvest);
+      overdue = delay <= 0;
+      if (overdue && activation && scheduler.getPolicy().getJitter() > 0) {
+        delay = ThreadLocalRandom.current().nextLong(scheduler.getPolicy().getJitter());
+      }
+      if (delay > 0) {
+        LOG.info(String.format("Task is scheduled to be run in %d seconds: %s", TimeUnit.MILLISECONDS.toSeconds(delay), triggerDefinition.getTaskDefinition()));
+      } else {
+        LOG.info(String.format("Task is being submitted now: %s", triggerDefinition.getTaskDefinition()));
+      }
+      timeout = scheduler.schedule(this::fire, delay, TimeUnit.MILLISECONDS);
+      state = State.SCHEDULED;
+    } catch (ParseException ex) {
+      state = State.INACTIVE;
+      LOG.error(String.format("Error activating trigger: %s", triggerDefinition.getType()), ex);
+    }
+  }
+
+  private void fire() {
+    Context context;
+    synchronized (this) {
+      if (state != State.SCHEDULED) {
+        return;
+      }
+      timeout = null;
+      if (!overdue && !isDue(new Date())) {
+        schedule(new Date(), false);
+        return;
+      }
+      long wait = scheduler.reserveStart();
+      if (wait > 0) {
+        LOG.info(String.format("Task is postponed by %d seconds due to the cap on started harvests: %s", TimeUnit.MILLISECONDS.toSeconds(wait), triggerDefinition.getTaskDefinition()));
+        overdue = true;
+        timeout = scheduler.schedule(this::fire, wait, TimeUnit.MILLISECONDS);
+        return;
+      }
+      state = State.RUNNING;
+      context = triggerContext;
+    }
+    try {
+      ProcessInstance process = context.execute(triggerDefinition.getTaskDefinition());
+      process.addListener(new BaseProcessInstanceListener() {
+        @Override
+        public void onStatusChange(ProcessInstance.Status status) {
+          if (status==ProcessInstance.Status.completed) {
+            completed();
+          }
+        }
+      });
+      process.begin();
+    } catch (DataProcessorException|InvalidDefinitionException ex) {
+      synchronized (this) {
+        if (state == State.RUNNING) {
+          state = State.INACTIVE;
+        }
+      }
+      LOG.error(String.format("Error submitting task"), ex);
+    }
+  }
+
+  private synchronized void completed() {
+    if (state == State.RUNNING) {
+      schedule(new Date(), false);
+    }
+  }
+
+  /**
+   * Trigger instance state.
+   */
+  public enum State {
+    /** not scheduled */
+    INACTIVE,
+    /** waiting to be due */
+    SCHEDULED,
+    /** task is being executed */
+    RUNNING,
+    /** deactivated */
+    DEACTIVATED
+  }
+}
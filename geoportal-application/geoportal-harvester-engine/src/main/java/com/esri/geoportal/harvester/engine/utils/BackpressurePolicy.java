@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+/**
+ * Backpressure policy.
+ * <p>
+ * Tells how many bytes of record content a single process may keep in flight,
+ * that is, acquired from the source but not yet pushed to all the destinations.
+ * Once the ceiling is reached, acquiring is paused until the destinations
+ * drain the content below the low-water mark.
+ * 
+ * @see InFlightGauge
+ */
+public final class BackpressurePolicy {
+  /** no backpressure; records are acquired regardless of the content in flight */
+  public static final BackpressurePolicy NONE = new BackpressurePolicy(Long.MAX_VALUE, Long.MAX_VALUE);
+  
+  private final long ceiling;
+  private final long lowWaterMark;
+
+  /**
+   * Creates instance of the policy.
+   * @param ceiling number of bytes in flight which pauses acquiring records
+   * @param lowWaterMark number of bytes in flight which resumes acquiring 
+   * records; value greater than the ceiling means the ceiling itself
+   */
+  public BackpressurePolicy(long ceiling, long lowWaterMark) {
+    this.ceiling = ceiling > 0? ceiling: Long.MAX_VALUE;
+    this.lowWaterMark = Math.max(0, Math.min(lowWaterMark, this.ceiling));
+  }
+
+  /**
+   * Gets ceiling.
+   * @return number of bytes in flight which pauses acquiring records
+   */
+  public long getCeiling() {
+    return ceiling;
+  }
+
+  /**
+   * Gets low-water mark.
+   * @return number of bytes in flight which resumes acquiring records
+   */
+  public long getLowWaterMark() {
+    return lowWaterMark;
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("BACKPRESSURE :: ceiling: %d, low-water mark: %d", ceiling, lowWaterMark);
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+/**
+ * Event bus policy.
+ * <p>
+ * Tells how many process events may wait for the listeners, and what happens
+ * to the harvest when the listeners can't keep up.
+ */
+public final class EventBusPolicy {
+  /** no event bus; listeners are notified by the harvesting thread */
+  public static final EventBusPolicy SYNCHRONOUS = new EventBusPolicy(0, Overflow.BLOCK);
+  
+  private final int capacity;
+  private final Overflow overflow;
+
+  /**
+   * Creates instance of the policy.
+   * @param capacity maximum number of events waiting for the listeners; zero or
+   * negative value means listeners are notified synchronously
+   * @param overflow behavior when the maximum number of events is reached
+   */
+  public EventBusPolicy(int capacity, Overflow overflow) {
+    this.capacity = Math.max(0, capacity);
+    this.overflow = overflow != null? overflow: Overflow.BLOCK;
+  }
+
+  /**
+   * Gets capacity.
+   * @return maximum number of events waiting for the listeners
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Gets overflow behavior.
+   * @return behavior when the maximum number of events is reached
+   */
+  public Overflow getOverflow() {
+    return overflow;
+  }
+  
+  /**
+   * Checks if events are delivered asynchronously.
+   * @return <code>true</code> if events are delivered asynchronously
+   */
+  public boolean isAsynchronous() {
+    return capacity > 0;
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("EVENT BUS :: capacity: %d, overflow: %s", capacity, overflow);
+  }
+  
+  /**
+   * Overflow behavior.
+   */
+  public enum Overflow {
+    /** harvest waits until there is a room for the event */
+    BLOCK,
+    /** data events are dropped and counted; status changes and checkpoints are never dropped */
+    DROP
+  }
+}
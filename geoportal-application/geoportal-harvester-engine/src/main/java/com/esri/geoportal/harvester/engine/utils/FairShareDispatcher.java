@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Fair-share dispatcher.
+ * <p>
+ * Hands a fixed number of slots to the harvests in proportion to their 
+ * priorities (stride scheduling). Each harvest accumulates a pass: time it has
+ * held a slot divided by its priority. A free slot goes to the waiting harvest
+ * with the lowest pass, lowered by a credit growing with the time spent waiting
+ * (aging), thus even the lowest priority harvest gets a slot eventually. 
+ * A harvest joining the competition starts with the lowest pass of the others,
+ * so it doesn't claim the time it hasn't been competing for.
+ */
+/*package*/ final class FairShareDispatcher {
+  /** pass credit for each millisecond of waiting */
+  private static final double AGING = 0.01;
+  
+  private final int slots;
+  private final long timeSlice;
+  private final LongSupplier clock;
+  private final List<HarvestTicket> waiting = new ArrayList<>();
+  private final List<HarvestTicket> holding = new ArrayList<>();
+
+  /**
+   * Creates instance of the dispatcher.
+   * @param slots number of slots
+   * @param timeSlice time in milliseconds a harvest may hold a slot while
+   * another harvest is waiting
+   */
+  public FairShareDispatcher(int slots, long timeSlice) {
+    this(slots, timeSlice, System::currentTimeMillis);
+  }
+  
+  /**
+   * Creates instance of the dispatcher.
+   * @param slots number of slots
+   * @param timeSlice time in milliseconds a harvest may hold a slot while
+   * another harvest is waiting
+   * @param clock clock providing current time in milliseconds
+   */
+  public FairShareDispatcher(int slots, long timeSlice, LongSupplier clock) {
+    this.slots = Math.max(1, slots);
+    this.timeSlice = Math.max(1, timeSlice);
+    this.clock = clock;
+  }
+  
+  /**
+   * Waits for a slot.
+   * @param ticket ticket
+   * @throws InterruptedException if waiting has been interrupted
+   */
+  public synchronized void acquire(HarvestTicket ticket) throws InterruptedException {
+    if (ticket.getGrants() == 0) {
+      ticket.pass = Math.max(ticket.pass, lowestPass());
+    }
+    ticket.requested(clock.getAsLong());
+    waiting.add(ticket);
+    try {
+      while (holding.size() >= slots || next() != ticket) {
+        wait();
+      }
+    } catch (InterruptedException ex) {
+      waiting.remove(ticket);
+      notifyAll();
+      throw ex;
+    }
+    waiting.remove(ticket);
+    holding.add(ticket);
+    ticket.granted(clock.getAsLong());
+    notifyAll();
+  }
+  
+  /**
+   * Releases slot.
+   * @param ticket ticket
+   */
+  public synchronized void release(HarvestTicket ticket) {
+    if (holding.remove(ticket)) {
+      ticket.pass += (clock.getAsLong() - ticket.grantedAt) / (double) ticket.getPriority();
+      ticket.released();
+      notifyAll();
+    }
+  }
+  
+  /**
+   * Hands the slot over if the time slice has elapsed and another harvest
+   * is waiting. The harvest competes for the slot again right away, thus it 
+   * keeps the slot if its pass is still the lowest one.
+   * @param ticket ticket
+   * @throws InterruptedException if waiting for the slot has been interrupted
+   */
+  public synchronized void yieldSlot(HarvestTicket ticket) throws InterruptedException {
+    if (waiting.isEmpty() || !holding.contains(ticket) || clock.getAsLong() - ticket.grantedAt < timeSlice) {
+      return;
+    }
+    release(ticket);
+    acquire(ticket);
+  }
+  
+  /**
+   * Waits while the harvest waits for the slot it has handed over.
+   * @param ticket ticket
+   * @throws InterruptedException if waiting has been interrupted
+   */
+  public synchronized void awaitSlot(HarvestTicket ticket) throws InterruptedException {
+    while (waiting.contains(ticket)) {
+      wait();
+    }
+  }
+  
+  /**
+   * Gets number of harvests waiting for a slot.
+   * @return number of harvests waiting for a slot
+   */
+  public synchronized int getWaitingCount() {
+    return waiting.size();
+  }
+  
+  /**
+   * Gets number of harvests holding a slot.
+   * @return number of harvests holding a slot
+   */
+  public synchronized int getHoldingCount() {
+    return holding.size();
+  }
+  
+  /**
+   * Selects waiting harvest to get the next slot.
+   * @return ticket of the harvest
+   */
+  private HarvestTicket next() {
+    long now = clock.getAsLong();
+    HarvestTicket next = null;
+    double best = Double.MAX_VALUE;
+    for (HarvestTicket ticket: waiting) {
+      double effective = ticket.pass - AGING * (now - ticket.requestedAt);
+      if (effective < best) {
+        best = effective;
+        next = ticket;
+      }
+    }
+    return next;
+  }
+  
+  /**
+   * Gets the lowest pass of the harvests competing for the slots.
+   * @return the lowest pass or zero if no other harvest
+   */
+  private double lowestPass() {
+    double lowest = Double.MAX_VALUE;
+    for (HarvestTicket ticket: waiting) {
+      lowest = Math.min(lowest, ticket.pass);
+    }
+    for (HarvestTicket ticket: holding) {
+      lowest = Math.min(lowest, ticket.pass);
+    }
+    return lowest != Double.MAX_VALUE? lowest: 0;
+  }
+  
+  @Override
+  public synchronized String toString() {
+    return String.format("FAIR SHARE :: slots: %d, time slice: %d, holding: %d, waiting: %d", slots, timeSlice, holding.size(), waiting.size());
+  }
+}
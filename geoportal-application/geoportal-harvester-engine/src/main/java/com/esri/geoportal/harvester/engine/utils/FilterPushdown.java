@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.base.FilterLinkActionAdaptor;
+import com.esri.geoportal.harvester.api.base.SimpleLink;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.general.Link;
+import com.esri.geoportal.harvester.api.general.LinkAction;
+import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Filter pushdown.
+ * <p>
+ * Finds filters every data reference has to pass before reaching any of the 
+ * destinations, that is, filters leading each of the top level links, and 
+ * offers them to the input broker through the iterator context. Filters 
+ * honoured by the broker iterator are bypassed, thus not being evaluated again.
+ */
+public final class FilterPushdown {
+  
+  private FilterPushdown() {}
+  
+  /**
+   * Offers filters to the input broker.
+   * @param iteratorContext iterator context
+   * @param destinations top level links
+   * @return iterator context offering filters common to all the destinations
+   */
+  public static IteratorContext offer(IteratorContext iteratorContext, List<Link> destinations) {
+    List<EntityDefinition> common = null;
+    for (Link link: destinations) {
+      List<EntityDefinition> leading = new ArrayList<>();
+      collect(link, leading);
+      if (common == null) {
+        common = leading;
+      } else {
+        common.retainAll(leading);
+      }
+    }
+    List<EntityDefinition> filters = common!=null? Collections.unmodifiableList(common): Collections.emptyList();
+    return new IteratorContext() {
+      @Override
+      public Date getLastHarvestDate() {
+        return iteratorContext.getLastHarvestDate();
+      }
+
+      @Override
+      public String getCheckpoint() {
+        return iteratorContext.getCheckpoint();
+      }
+
+      @Override
+      public String getPartition() {
+        return iteratorContext.getPartition();
+      }
+
+      @Override
+      public List<EntityDefinition> getFilters() {
+        return filters;
+      }
+    };
+  }
+  
+  /**
+   * Bypasses leading filters honoured by the input broker; re-enables others.
+   * @param destinations top level links
+   * @param honoured list of filter definitions honoured by the input broker
+   */
+  public static void bypass(List<Link> destinations, List<EntityDefinition> honoured) {
+    for (Link link: destinations) {
+      bypass(link, honoured);
+    }
+  }
+  
+  private static void collect(Link link, List<EntityDefinition> leading) {
+    FilterLinkActionAdaptor filter = asFilter(link);
+    if (filter != null) {
+      leading.add(filter.getLinkActionDefinition());
+      List<Link> drains = ((SimpleLink) link).getDrains();
+      if (drains != null && drains.size() == 1) {
+        collect(drains.get(0), leading);
+      }
+    }
+  }
+  
+  private static void bypass(Link link, List<EntityDefinition> honoured) {
+    FilterLinkActionAdaptor filter = asFilter(link);
+    if (filter != null) {
+      filter.setBypassed(honoured.contains(filter.getLinkActionDefinition()));
+      List<Link> drains = ((SimpleLink) link).getDrains();
+      if (drains != null && drains.size() == 1) {
+        bypass(drains.get(0), honoured);
+      }
+    }
+  }
+  
+  private static FilterLinkActionAdaptor asFilter(Link link) {
+    if (link instanceof SimpleLink) {
+      LinkAction action = ((SimpleLink) link).getAction();
+      if (action instanceof SharedLinkAction) {
+        action = ((SharedLinkAction) action).getAction();
+      }
+      if (action instanceof FilterLinkActionAdaptor) {
+        return (FilterLinkActionAdaptor) action;
+      }
+    }
+    return null;
+  }
+}
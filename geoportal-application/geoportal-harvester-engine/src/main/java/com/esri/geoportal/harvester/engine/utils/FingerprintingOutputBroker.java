@@ -0,0 +1,277 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.commons.constants.MimeType;
+import com.esri.geoportal.commons.utils.SimpleCredentials;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingResult;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.specs.OutputBroker;
+import com.esri.geoportal.harvester.api.specs.OutputConnector;
+import com.esri.geoportal.harvester.engine.managers.FingerprintManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fingerprinting output broker.
+ * <p>
+ * Stores a digest of the content of each record published to the destination.
+ * During incremental harvest, a record with the same digest as the one 
+ * published last time is not being published again and is reported as 
+ * {@link PublishingStatus#UNCHANGED}. Full harvest publishes every record, 
+ * refreshing digests, so destinations can still clean up records not 
+ * harvested anymore.
+ */
+public class FingerprintingOutputBroker implements OutputBroker {
+  private static final Logger LOG = LoggerFactory.getLogger(FingerprintingOutputBroker.class);
+  private static final String ALGORITHM = "SHA-256";
+  
+  private final OutputBroker broker;
+  private final FingerprintManager fingerprintManager;
+  private final String destination;
+  private volatile UUID taskId;
+  private volatile boolean skipUnchanged;
+
+  /**
+   * Creates instance of the broker.
+   * @param broker underlying broker
+   * @param fingerprintManager fingerprint manager
+   */
+  public FingerprintingOutputBroker(OutputBroker broker, FingerprintManager fingerprintManager) {
+    this.broker = broker;
+    this.fingerprintManager = fingerprintManager;
+    this.destination = destinationKey(broker.getEntityDefinition());
+  }
+
+  @Override
+  public void initialize(InitContext context) throws DataProcessorException {
+    broker.initialize(context);
+    Task task = context.getTask();
+    taskId = parseUUID(task.getRef());
+    skipUnchanged = taskId != null && task.getTaskDefinition().isIncremental();
+  }
+
+  @Override
+  public void terminate() {
+    broker.terminate();
+  }
+
+  @Override
+  public EntityDefinition getEntityDefinition() {
+    return broker.getEntityDefinition();
+  }
+
+  @Override
+  public OutputConnector getConnector() {
+    return broker.getConnector();
+  }
+
+  @Override
+  public boolean hasAccess(SimpleCredentials creds) {
+    return broker.hasAccess(creds);
+  }
+
+  @Override
+  public PublishingStatus publish(DataReference ref) throws DataOutputException {
+    String fingerprint = fingerprint(ref);
+    if (isUnchanged(ref, fingerprint)) {
+      return PublishingStatus.UNCHANGED;
+    }
+    PublishingStatus status = broker.publish(ref);
+    store(ref, fingerprint, status);
+    return status;
+  }
+
+  @Override
+  public PublishingStatus delete(DataReference ref) throws DataOutputException {
+    PublishingStatus status = broker.delete(ref);
+    if (taskId != null) {
+      try {
+        fingerprintManager.remove(taskId, destination, ref.getId());
+      } catch (CrudlException ex) {
+        LOG.warn(formatForLog("Error removing fingerprint of: %s", ref.getId()), ex);
+      }
+    }
+    return status;
+  }
+
+  @Override
+  public List<PublishingResult> publishBatch(List<DataReference> refs) {
+    List<PublishingResult> results = new ArrayList<>(refs.size());
+    List<DataReference> changed = new ArrayList<>(refs.size());
+    List<String> fingerprints = new ArrayList<>(refs.size());
+    for (DataReference ref: refs) {
+      String fingerprint = fingerprint(ref);
+      if (isUnchanged(ref, fingerprint)) {
+        results.add(PublishingResult.success(ref, PublishingStatus.UNCHANGED));
+      } else {
+        results.add(null);
+        changed.add(ref);
+        fingerprints.add(fingerprint);
+      }
+    }
+    
+    if (!changed.isEmpty()) {
+      List<PublishingResult> published = broker.publishBatch(changed);
+      for (int i = 0, j = 0; i < results.size(); i++) {
+        if (results.get(i) == null) {
+          PublishingResult result = j < published.size()
+                  ? published.get(j)
+                  : PublishingResult.failure(changed.get(j), new DataOutputException(broker, changed.get(j).getId(), "Missing batch publishing result."));
+          try {
+            store(changed.get(j), fingerprints.get(j), result.getStatus());
+          } catch (DataOutputException ex) {
+            // failed records are not being fingerprinted
+          }
+          results.set(i, result);
+          j++;
+        }
+      }
+    }
+    
+    return results;
+  }
+
+  @Override
+  public boolean isBatchNative() {
+    return broker.isBatchNative();
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("FINGERPRINT [%s]", broker);
+  }
+
+  /**
+   * Checks if the record is unchanged since the last publication.
+   * @param ref data reference
+   * @param fingerprint current fingerprint or <code>null</code> if unknown
+   * @return <code>true</code> if unchanged and can be skipped
+   */
+  private boolean isUnchanged(DataReference ref, String fingerprint) {
+    if (!skipUnchanged || fingerprint == null) {
+      return false;
+    }
+    try {
+      return fingerprint.equals(fingerprintManager.read(taskId, destination, ref.getId()));
+    } catch (CrudlException ex) {
+      LOG.warn(formatForLog("Error reading fingerprint of: %s", ref.getId()), ex);
+      return false;
+    }
+  }
+
+  /**
+   * Stores fingerprint of the published record.
+   * @param ref data reference
+   * @param fingerprint fingerprint or <code>null</code> if unknown
+   * @param status publishing status
+   */
+  private void store(DataReference ref, String fingerprint, PublishingStatus status) {
+    if (taskId == null || fingerprint == null || status.getCreated() + status.getUpdated() == 0) {
+      return;
+    }
+    try {
+      fingerprintManager.store(taskId, destination, ref.getId(), fingerprint);
+    } catch (CrudlException ex) {
+      LOG.warn(formatForLog("Error storing fingerprint of: %s", ref.getId()), ex);
+    }
+  }
+
+  /**
+   * Calculates fingerprint of the content.
+   * @param ref data reference
+   * @return fingerprint or <code>null</code> if unable to calculate
+   */
+  private String fingerprint(DataReference ref) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+      List<MimeType> contentTypes = new ArrayList<>(ref.getContentType());
+      contentTypes.sort(Comparator.comparing(MimeType::getName));
+      for (MimeType contentType: contentTypes) {
+        try (InputStream content = ref.getContentStream(contentType)) {
+          if (content != null) {
+            digest.update(contentType.getName().getBytes(StandardCharsets.UTF_8));
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = content.read(buffer)) >= 0) {
+              digest.update(buffer, 0, length);
+            }
+          }
+        }
+      }
+      return toHex(digest.digest());
+    } catch (IOException|NoSuchAlgorithmException ex) {
+      LOG.debug(formatForLog("Unable to calculate fingerprint of: %s", ref.getId()), ex);
+      return null;
+    }
+  }
+
+  /**
+   * Creates destination key.
+   * <p>
+   * Key is a digest of the destination definition, thus any change of the 
+   * destination (i.e. different URL) makes all the records being published
+   * again.
+   * @param definition destination definition
+   * @return destination key
+   */
+  /*package*/ static String destinationKey(EntityDefinition definition) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+      digest.update(String.valueOf(definition.getType()).getBytes(StandardCharsets.UTF_8));
+      Map<String, String> properties = new TreeMap<>(definition.getProperties());
+      properties.forEach((key, value) -> {
+        digest.update(String.format("\n%s=%s", key, value).getBytes(StandardCharsets.UTF_8));
+      });
+      return toHex(digest.digest());
+    } catch (NoSuchAlgorithmException ex) {
+      return String.valueOf(definition.getType());
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b: bytes) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+
+  /*package*/ static UUID parseUUID(String ref) {
+    try {
+      return ref != null? UUID.fromString(ref): null;
+    } catch (IllegalArgumentException ex) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.defs.TaskDefinition;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Harvest executor.
+ * <p>
+ * Engine-wide executor of the harvesting processes. At most the given number of
+ * harvests are executed at the same time; any other begun harvest waits in the
+ * queue in the order it has been begun.
+ * <p>
+ * If time slice is given, slots are shared fairly instead: a harvest holding
+ * a slot longer than the time slice hands it over to a waiting harvest at the
+ * next page boundary, and slots are granted in proportion to the priorities of
+ * the harvests (see {@link FairShareDispatcher}). A long harvest thus no longer
+ * delays short ones until it completes. A harvest handing its slot over keeps
+ * its thread, therefore at most {@link #THREADS_PER_SLOT} harvests per slot 
+ * compete for the slots; any other begun harvest waits in the queue in the
+ * order it has been begun.
+ */
+public final class HarvestExecutor {
+  /** executor without limit on number of concurrent harvests */
+  public static final HarvestExecutor UNLIMITED = new HarvestExecutor(0);
+  
+  /** number of harvests per slot competing for the slots */
+  public static final int THREADS_PER_SLOT = 2;
+  
+  private static final long KEEP_ALIVE = 1;
+  
+  private final int maxConcurrent;
+  private final ThreadPoolExecutor executor;
+  private final FairShareDispatcher dispatcher;
+  private final LongSupplier clock;
+
+  /**
+   * Creates instance of the executor.
+   * @param maxConcurrent maximum number of concurrent harvests; zero or
+   * negative value means no limit
+   */
+  public HarvestExecutor(int maxConcurrent) {
+    this(maxConcurrent, 0);
+  }
+
+  /**
+   * Creates instance of the executor.
+   * @param maxConcurrent maximum number of concurrent harvests; zero or
+   * negative value means no limit
+   * @param timeSlice time in milliseconds a harvest may hold a slot while
+   * another harvest is waiting; zero or negative value means a harvest holds
+   * the slot until it completes
+   */
+  public HarvestExecutor(int maxConcurrent, long timeSlice) {
+    this(maxConcurrent, timeSlice, System::currentTimeMillis);
+  }
+
+  /**
+   * Creates instance of the executor.
+   * @param maxConcurrent maximum number of concurrent harvests; zero or
+   * negative value means no limit
+   * @param timeSlice time in milliseconds a harvest may hold a slot while
+   * another harvest is waiting; zero or negative value means a harvest holds
+   * the slot until it completes
+   * @param clock clock providing current time in milliseconds
+   */
+  /*package*/ HarvestExecutor(int maxConcurrent, long timeSlice, LongSupplier clock) {
+    this.maxConcurrent = Math.max(0, maxConcurrent);
+    this.clock = clock;
+    this.dispatcher = this.maxConcurrent > 0 && timeSlice > 0? new FairShareDispatcher(this.maxConcurrent, timeSlice, clock): null;
+    AtomicInteger counter = new AtomicInteger();
+    if (this.maxConcurrent > 0) {
+      // harvest handing its slot over keeps its own thread while waiting for the slot
+      int threads = dispatcher != null? THREADS_PER_SLOT * this.maxConcurrent: this.maxConcurrent;
+      this.executor = new ThreadPoolExecutor(
+              threads, threads, KEEP_ALIVE, TimeUnit.SECONDS, 
+              new LinkedBlockingQueue<>(), 
+              r -> new Thread(r, String.format("HARVESTING-%d", counter.incrementAndGet())));
+      this.executor.allowCoreThreadTimeOut(true);
+    } else {
+      this.executor = new ThreadPoolExecutor(
+              0, Integer.MAX_VALUE, KEEP_ALIVE, TimeUnit.SECONDS, 
+              new SynchronousQueue<>(), 
+              r -> new Thread(r, String.format("HARVESTING-%d", counter.incrementAndGet())));
+    }
+  }
+  
+  /**
+   * Submits harvest for execution.
+   * @param harvest harvest
+   * @return future
+   */
+  public Future<?> submit(Runnable harvest) {
+    return submit(harvest, newTicket(TaskDefinition.DEFAULT_PRIORITY));
+  }
+  
+  /**
+   * Creates new ticket.
+   * @param priority priority of the harvest
+   * @return ticket
+   */
+  public HarvestTicket newTicket(int priority) {
+    return new HarvestTicket(priority, dispatcher);
+  }
+  
+  /**
+   * Submits harvest for execution.
+   * @param harvest harvest
+   * @param ticket ticket of the harvest created by this executor
+   * @return future
+   */
+  public Future<?> submit(Runnable harvest, HarvestTicket ticket) {
+    if (dispatcher != null) {
+      return executor.submit(() -> {
+        try {
+          dispatcher.acquire(ticket);
+        } catch (InterruptedException ex) {
+          return;
+        }
+        try {
+          harvest.run();
+        } finally {
+          dispatcher.release(ticket);
+        }
+      });
+    }
+    ticket.requested(clock.getAsLong());
+    return executor.submit(() -> {
+      ticket.granted(clock.getAsLong());
+      try {
+        harvest.run();
+      } finally {
+        ticket.released();
+      }
+    });
+  }
+  
+  /**
+   * Gets maximum number of concurrent harvests.
+   * @return maximum number of concurrent harvests or zero if no limit
+   */
+  public int getMaxConcurrent() {
+    return maxConcurrent;
+  }
+  
+  /**
+   * Gets number of harvests being executed.
+   * @return number of harvests being executed
+   */
+  public int getActiveCount() {
+    return dispatcher != null? dispatcher.getHoldingCount(): executor.getActiveCount();
+  }
+  
+  /**
+   * Gets number of harvests waiting for execution.
+   * @return number of harvests waiting for execution
+   */
+  public int getWaitingCount() {
+    return dispatcher != null? dispatcher.getWaitingCount() + getQueuedCount(): getQueuedCount();
+  }
+  
+  /**
+   * Gets number of harvests in the queue. Harvests aborted while waiting stay
+   * in the queue until taken by a thread, thus they are not counted.
+   * @return number of harvests in the queue
+   */
+  private int getQueuedCount() {
+    return (int) executor.getQueue().stream()
+            .filter(r -> !(r instanceof Future) || !((Future<?>) r).isCancelled())
+            .count();
+  }
+  
+  /**
+   * Shuts down executor. Harvests already being executed are interrupted.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("HARVEST EXECUTOR :: max: %d, active: %d, waiting: %d%s", maxConcurrent, getActiveCount(), getWaitingCount(), dispatcher != null? ", " + dispatcher: "");
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.defs.TaskDefinition;
+
+/**
+ * Harvest ticket.
+ * <p>
+ * Represents a single harvest before {@link HarvestExecutor}. The harvest
+ * calls {@link #yieldSlot()} between pages of the source; if the executor 
+ * shares its slots fairly and another harvest is waiting, the slot is handed 
+ * over and the call blocks until the slot is granted back. Any other thread
+ * working for the harvest calls {@link #awaitSlot()} to pause meanwhile. Ticket
+ * also collects scheduling statistics: number of slots granted and time spent 
+ * waiting for them.
+ */
+public final class HarvestTicket {
+  private final int priority;
+  private final FairShareDispatcher dispatcher;
+  
+  // scheduling state; guarded by the dispatcher
+  double pass;
+  long requestedAt;
+  long grantedAt;
+  
+  private volatile boolean holding;
+  private volatile long grants;
+  private volatile long waitTime;
+  private volatile long maxWait;
+
+  /**
+   * Creates instance of the ticket.
+   * @param priority priority
+   * @param dispatcher dispatcher or <code>null</code> if slots are not shared
+   */
+  /*package*/ HarvestTicket(int priority, FairShareDispatcher dispatcher) {
+    this.priority = Math.max(TaskDefinition.MIN_PRIORITY, Math.min(TaskDefinition.MAX_PRIORITY, priority));
+    this.dispatcher = dispatcher;
+  }
+  
+  /**
+   * Gets harvest ticket of the owner.
+   * @param owner owner (i.e. process)
+   * @return harvest ticket of the owner or a new ticket if owner has no ticket
+   */
+  public static HarvestTicket of(Object owner) {
+    HarvestTicket ticket = owner instanceof Owner? ((Owner) owner).getHarvestTicket(): null;
+    return ticket!=null? ticket: new HarvestTicket(TaskDefinition.DEFAULT_PRIORITY, null);
+  }
+  
+  /**
+   * Hands the slot over to another harvest if the time slice has elapsed and
+   * another harvest is waiting.
+   * @throws InterruptedException if waiting for the slot has been interrupted
+   */
+  public void yieldSlot() throws InterruptedException {
+    if (dispatcher!=null) {
+      dispatcher.yieldSlot(this);
+    }
+  }
+
+  /**
+   * Waits while the harvest waits for the slot it has handed over.
+   * @throws InterruptedException if waiting has been interrupted
+   */
+  public void awaitSlot() throws InterruptedException {
+    if (dispatcher!=null) {
+      dispatcher.awaitSlot(this);
+    }
+  }
+
+  /**
+   * Gets priority.
+   * @return priority
+   */
+  public int getPriority() {
+    return priority;
+  }
+  
+  /**
+   * Checks if harvest holds a slot.
+   * @return <code>true</code> if harvest holds a slot
+   */
+  public boolean isHolding() {
+    return holding;
+  }
+
+  /**
+   * Gets number of slots granted.
+   * @return number of slots granted
+   */
+  public long getGrants() {
+    return grants;
+  }
+
+  /**
+   * Gets total time spent waiting for a slot.
+   * @return time in milliseconds
+   */
+  public long getWaitTime() {
+    return waitTime;
+  }
+
+  /**
+   * Gets the longest time spent waiting for a slot.
+   * @return time in milliseconds
+   */
+  public long getMaxWait() {
+    return maxWait;
+  }
+  
+  /**
+   * Records harvest waiting for a slot.
+   * @param now current time
+   */
+  /*package*/ void requested(long now) {
+    requestedAt = now;
+  }
+  
+  /**
+   * Records slot granted to the harvest.
+   * @param now current time
+   */
+  /*package*/ void granted(long now) {
+    long wait = Math.max(0, now - requestedAt);
+    grantedAt = now;
+    holding = true;
+    grants++;
+    waitTime += wait;
+    maxWait = Math.max(maxWait, wait);
+  }
+  
+  /**
+   * Records slot released by the harvest.
+   */
+  /*package*/ void released() {
+    holding = false;
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("TICKET :: priority: %d, holding: %b, grants: %d, wait time: %d, max wait: %d", priority, holding, grants, waitTime, maxWait);
+  }
+  
+  /**
+   * Owner of the ticket.
+   */
+  public interface Owner {
+    /**
+     * Gets harvest ticket.
+     * @return harvest ticket
+     */
+    HarvestTicket getHarvestTicket();
+  }
+}
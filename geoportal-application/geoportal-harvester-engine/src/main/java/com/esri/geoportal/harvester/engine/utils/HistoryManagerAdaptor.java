@@ -22,9 +22,11 @@ import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.harvester.api.ProcessInstance;
 import com.esri.geoportal.harvester.api.defs.PublishingStatus;
 import com.esri.geoportal.harvester.api.ex.DataException;
+import com.esri.geoportal.harvester.api.ex.DataInputException;
 import com.esri.geoportal.harvester.api.ex.DataOutputException;
 import com.esri.geoportal.harvester.engine.managers.History;
 import com.esri.geoportal.harvester.engine.managers.HistoryManager;
+import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
 import java.util.Date;
 import java.util.UUID;
 import org.slf4j.Logger;
@@ -32,18 +34,34 @@ import org.slf4j.LoggerFactory;
 
 /**
  * History manager adaptor.
+ * <p>
+ * Stores history event once the process is completed. While the process is
+ * running, the latest checkpoint is periodically stored as well; it is kept
+ * after the process has been aborted or failed to read the input, and removed
+ * after the process has finished successfully. Checkpoints are left intact if
+ * the adaptor has been created without iterator context.
+ * <p>
+ * Events of re-running failed records are marked as retry, thus they are not
+ * taken for the last harvest of the task.
  */
 public class HistoryManagerAdaptor extends BaseProcessInstanceListener {
 
   private static final Logger LOG = LoggerFactory.getLogger(HistoryManagerAdaptor.class);
+  private static final long CHECKPOINT_INTERVAL = 30000;
 
   private final UUID uuid;
   private final ProcessInstance processInstance;
   private final HistoryManager historyManager;
   private final History.Event event = new History.Event();
   private final History.Report report = new History.Report();
+  private final Date lastHarvestDate;
   private Date startDate;
   private Date endDate;
+  private String checkpoint;
+  private long checkpointTime;
+  private boolean interrupted;
+  private final boolean checkpoints;
+  private final boolean retry;
 
   /**
    * Creates instance of the adaptor.
@@ -53,9 +71,42 @@ public class HistoryManagerAdaptor extends BaseProcessInstanceListener {
    * @param historyManager history manager.
    */
   public HistoryManagerAdaptor(UUID uuid, ProcessInstance processInstance, HistoryManager historyManager) {
+    this(uuid, processInstance, historyManager, null);
+  }
+
+  /**
+   * Creates instance of the adaptor.
+   *
+   * @param uuid process id
+   * @param processInstance process instance
+   * @param historyManager history manager.
+   * @param iteratorContext iterator context the process has been created with
+   */
+  public HistoryManagerAdaptor(UUID uuid, ProcessInstance processInstance, HistoryManager historyManager, IteratorContext iteratorContext) {
+    this(uuid, processInstance, historyManager, iteratorContext, false);
+  }
+
+  private HistoryManagerAdaptor(UUID uuid, ProcessInstance processInstance, HistoryManager historyManager, IteratorContext iteratorContext, boolean retry) {
     this.uuid = uuid;
     this.processInstance = processInstance;
     this.historyManager = historyManager;
+    this.lastHarvestDate = iteratorContext != null? iteratorContext.getLastHarvestDate(): null;
+    this.checkpoint = iteratorContext != null? iteratorContext.getCheckpoint(): null;
+    this.checkpoints = iteratorContext != null;
+    this.retry = retry;
+  }
+
+  /**
+   * Creates instance of the adaptor for the process re-running failed records.
+   * Checkpoints are left intact.
+   *
+   * @param uuid process id
+   * @param processInstance process instance
+   * @param historyManager history manager.
+   * @return adaptor
+   */
+  public static HistoryManagerAdaptor forRetry(UUID uuid, ProcessInstance processInstance, HistoryManager historyManager) {
+    return new HistoryManagerAdaptor(uuid, processInstance, historyManager, null, true);
   }
 
   @Override
@@ -64,6 +115,7 @@ public class HistoryManagerAdaptor extends BaseProcessInstanceListener {
       case submitted:
         event.setUuid(UUID.randomUUID());
         event.setTaskId(uuid);
+        event.setRetry(retry);
         report.failedToHarvest = 0L;
         report.failedToPublish = 0L;
         break;
@@ -73,6 +125,9 @@ public class HistoryManagerAdaptor extends BaseProcessInstanceListener {
           event.setStartTimestamp(startDate);
         }
         break;
+      case aborting:
+        interrupted = true;
+        break;
       case completed: {
         if (startDate == null) {
           startDate = new Date();
@@ -88,6 +143,9 @@ public class HistoryManagerAdaptor extends BaseProcessInstanceListener {
         } catch (CrudlException ex) {
           LOG.error(formatForLog("Error creating history event for: %s", uuid), ex);
         }
+        if (checkpoints) {
+          storeCheckpoint(interrupted? checkpoint: null);
+        }
       }
       break;
     }
@@ -102,24 +160,74 @@ public class HistoryManagerAdaptor extends BaseProcessInstanceListener {
   public void onDataProcessed(DataReference dataReference, PublishingStatus status) {
     report.created += status.getCreated();
     report.updated += status.getUpdated();
+    report.unchanged += status.getUnchanged();
+    report.deleted += status.getDeleted();
+  }
+
+  @Override
+  public void onCheckpoint(String checkpoint) {
+    if (!checkpoints) {
+      return;
+    }
+    this.checkpoint = checkpoint;
+    long now = System.currentTimeMillis();
+    if (now - checkpointTime >= CHECKPOINT_INTERVAL) {
+      checkpointTime = now;
+      storeCheckpoint(checkpoint);
+    }
   }
 
   @Override
   public void onError(DataException ex) {
     report.failed++;
+    if (ex instanceof RecordInputException) {
+      // single record failed to be read; iteration goes on
+      report.failedToHarvest ++;
+      storeFailedDataId(((RecordInputException) ex).getDataId());
+      return;
+    }
+    if (ex instanceof DataInputException) {
+      interrupted = true;
+    }
     
     Throwable dataOutputException = ExceptionUtils.unfoldCauses(ex).stream().filter((Throwable t) -> t instanceof DataOutputException).findAny().orElse(null);
     if (dataOutputException != null) {
       report.failedToPublish ++;
       DataOutputException outex = (DataOutputException) dataOutputException;
-      try {
-        historyManager.storeFailedDataId(event.getUuid(), outex.getDataId());
-      } catch (CrudlException ex2) {
-        LOG.error(formatForLog("Error storing failed data id: %s %s [%s]", uuid, event.getUuid(), outex.getDataId()), ex);
-      }
+      storeFailedDataId(outex.getDataId());
     } else {
       report.failedToHarvest ++;
     }
   }
 
+  /**
+   * Stores id of the failed record.
+   * @param dataId record id
+   */
+  private void storeFailedDataId(String dataId) {
+    try {
+      historyManager.storeFailedDataId(event.getUuid(), dataId);
+    } catch (CrudlException ex) {
+      LOG.error(formatForLog("Error storing failed data id: %s %s [%s]", uuid, event.getUuid(), dataId), ex);
+    }
+  }
+
+  /**
+   * Stores checkpoint.
+   * @param position iteration position or <code>null</code> to remove checkpoint
+   */
+  private void storeCheckpoint(String position) {
+    try {
+      History.Checkpoint cp = null;
+      if (position != null) {
+        cp = new History.Checkpoint();
+        cp.setPosition(position);
+        cp.setLastHarvestDate(lastHarvestDate);
+        cp.setTimestamp(new Date());
+      }
+      historyManager.storeCheckpoint(uuid, cp);
+    } catch (CrudlException ex) {
+      LOG.error(formatForLog("Error storing checkpoint for: %s", uuid), ex);
+    }
+  }
 }
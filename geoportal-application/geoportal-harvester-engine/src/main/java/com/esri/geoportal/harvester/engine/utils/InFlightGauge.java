@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.commons.constants.MimeType;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.LazyDataReference;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * In-flight gauge.
+ * <p>
+ * Counts bytes of record content in flight within a single process and
+ * applies {@link BackpressurePolicy}. The producer calls {@link #awaitCapacity()}
+ * before acquiring next record; the call blocks while acquiring is paused.
+ * A record is always let through if nothing is in flight, thus a single record
+ * larger than the ceiling never stalls the process.
+ */
+public final class InFlightGauge {
+  private final BackpressurePolicy policy;
+  private long current;
+  private long peak;
+  private boolean paused;
+
+  /**
+   * Creates instance of the gauge.
+   * @param policy backpressure policy
+   */
+  public InFlightGauge(BackpressurePolicy policy) {
+    this.policy = policy != null? policy: BackpressurePolicy.NONE;
+  }
+  
+  /**
+   * Gets in-flight gauge of the owner.
+   * @param owner owner (i.e. process)
+   * @return in-flight gauge of the owner or an idle gauge if owner has no gauge
+   */
+  public static InFlightGauge of(Object owner) {
+    InFlightGauge gauge = owner instanceof Owner? ((Owner) owner).getInFlightGauge(): null;
+    return gauge!=null? gauge: new InFlightGauge(BackpressurePolicy.NONE);
+  }
+  
+  /**
+   * Calculates size of the data reference content.
+   * @param ref data reference
+   * @return total length of all the content types; content of unknown length
+   * and content of lazy data reference not loaded yet are not counted
+   */
+  public static long sizeOf(DataReference ref) {
+    if (ref instanceof LazyDataReference && !((LazyDataReference) ref).isLoaded()) {
+      return 0;
+    }
+    long size = 0;
+    Set<MimeType> contentType = ref.getContentType();
+    if (contentType != null) {
+      for (MimeType mimeType: contentType) {
+        try {
+          size += Math.max(0, ref.getContentLength(mimeType));
+        } catch (IOException ex) {
+          // content of unknown length is not counted
+        }
+      }
+    }
+    return size;
+  }
+  
+  /**
+   * Waits until acquiring records is allowed.
+   * @throws InterruptedException if waiting has been interrupted
+   */
+  public synchronized void awaitCapacity() throws InterruptedException {
+    if (current >= policy.getCeiling()) {
+      paused = true;
+    }
+    while (paused) {
+      wait();
+    }
+  }
+  
+  /**
+   * Adds content of the record entering the flight.
+   * @param bytes number of bytes
+   */
+  public synchronized void add(long bytes) {
+    current += bytes;
+    peak = Math.max(peak, current);
+  }
+  
+  /**
+   * Removes content of the record leaving the flight.
+   * @param bytes number of bytes
+   */
+  public synchronized void remove(long bytes) {
+    current -= bytes;
+    if (paused && current <= policy.getLowWaterMark()) {
+      paused = false;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Gets number of bytes currently in flight.
+   * @return number of bytes
+   */
+  public synchronized long getCurrent() {
+    return current;
+  }
+
+  /**
+   * Gets maximum number of bytes in flight at once.
+   * @return number of bytes
+   */
+  public synchronized long getPeak() {
+    return peak;
+  }
+  
+  @Override
+  public synchronized String toString() {
+    return String.format("IN FLIGHT :: current: %d, peak: %d, paused: %b, %s", current, peak, paused, policy);
+  }
+  
+  /**
+   * Owner of an in-flight gauge.
+   */
+  public interface Owner {
+    /**
+     * Gets in-flight gauge.
+     * @return in-flight gauge
+     */
+    InFlightGauge getInFlightGauge();
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Lease policy.
+ * <p>
+ * Tells if triggers are shared by several harvester nodes using the same 
+ * database. If enabled, each node activates only the triggers it holds a lease
+ * of, renews its leases every heartbeat, and takes over the triggers of a node
+ * which failed to renew its leases in time.
+ * 
+ * @see com.esri.geoportal.harvester.engine.managers.LeaseManager
+ */
+public final class LeasePolicy {
+  /** no leases; every node activates all the triggers */
+  public static final LeasePolicy NONE = new LeasePolicy(null, 0, 0);
+  
+  private final String node;
+  private final long duration;
+  private final long heartbeat;
+
+  /**
+   * Creates instance of the policy.
+   * @param node node name; blank name means unique name generated at startup
+   * @param duration lease duration in milliseconds; value less than 1 means 
+   * leases are disabled
+   * @param heartbeat interval between renewals in milliseconds; value less 
+   * than 1 or not less than duration means a third of the duration
+   */
+  public LeasePolicy(String node, long duration, long heartbeat) {
+    this.node = StringUtils.defaultIfBlank(node, String.format("%s-%s", hostName(), UUID.randomUUID()));
+    this.duration = Math.max(0, duration);
+    this.heartbeat = heartbeat > 0 && heartbeat < this.duration? heartbeat: Math.max(1, this.duration / 3);
+  }
+
+  /**
+   * Gets node name.
+   * @return node name
+   */
+  public String getNode() {
+    return node;
+  }
+
+  /**
+   * Gets lease duration.
+   * @return lease duration in milliseconds
+   */
+  public long getDuration() {
+    return duration;
+  }
+
+  /**
+   * Gets heartbeat.
+   * @return interval between renewals in milliseconds
+   */
+  public long getHeartbeat() {
+    return heartbeat;
+  }
+  
+  /**
+   * Checks if leases are enabled.
+   * @return <code>true</code> if leases are enabled
+   */
+  public boolean isEnabled() {
+    return duration > 0;
+  }
+  
+  private static String hostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException ex) {
+      return "localhost";
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("LEASE :: node: %s, duration: %d, heartbeat: %d", node, duration, heartbeat);
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.commons.utils.SimpleCredentials;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ProcessInstance.Listener;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
+import com.esri.geoportal.harvester.api.base.ContentStore;
+import com.esri.geoportal.harvester.api.base.PublicationLedger;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingResult;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.specs.OutputBroker;
+import com.esri.geoportal.harvester.api.specs.OutputConnector;
+import com.esri.geoportal.harvester.engine.managers.LedgerManager;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ledger output broker.
+ * <p>
+ * Offers the underlying broker a {@link PublicationLedger} of the task and 
+ * the destination through the init context. Brokers performing cleanup use 
+ * the ledger instead of enumerating the destination.
+ */
+public class LedgerOutputBroker implements OutputBroker {
+  private static final Logger LOG = LoggerFactory.getLogger(LedgerOutputBroker.class);
+  
+  private final OutputBroker broker;
+  private final LedgerManager ledgerManager;
+  private final String destination;
+
+  /**
+   * Creates instance of the broker.
+   * @param broker underlying broker
+   * @param ledgerManager ledger manager
+   */
+  public LedgerOutputBroker(OutputBroker broker, LedgerManager ledgerManager) {
+    this.broker = broker;
+    this.ledgerManager = ledgerManager;
+    this.destination = FingerprintingOutputBroker.destinationKey(broker.getEntityDefinition());
+  }
+
+  @Override
+  public void initialize(InitContext context) throws DataProcessorException {
+    UUID taskId = FingerprintingOutputBroker.parseUUID(context.getTask().getRef());
+    broker.initialize(taskId != null? new LedgerInitContext(context, new Ledger(taskId)): context);
+  }
+
+  @Override
+  public void terminate() {
+    broker.terminate();
+  }
+
+  @Override
+  public EntityDefinition getEntityDefinition() {
+    return broker.getEntityDefinition();
+  }
+
+  @Override
+  public OutputConnector getConnector() {
+    return broker.getConnector();
+  }
+
+  @Override
+  public boolean hasAccess(SimpleCredentials creds) {
+    return broker.hasAccess(creds);
+  }
+
+  @Override
+  public PublishingStatus publish(DataReference ref) throws DataOutputException {
+    return broker.publish(ref);
+  }
+
+  @Override
+  public PublishingStatus delete(DataReference ref) throws DataOutputException {
+    return broker.delete(ref);
+  }
+
+  @Override
+  public List<PublishingResult> publishBatch(List<DataReference> refs) {
+    return broker.publishBatch(refs);
+  }
+
+  @Override
+  public boolean isBatchNative() {
+    return broker.isBatchNative();
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("LEDGER [%s]", broker);
+  }
+  
+  /**
+   * Ledger of the task and the destination.
+   */
+  private class Ledger implements PublicationLedger {
+    private final UUID taskId;
+
+    public Ledger(UUID taskId) {
+      this.taskId = taskId;
+    }
+
+    @Override
+    public Collection<String> list() throws IOException {
+      try {
+        return ledgerManager.list(taskId, destination);
+      } catch (CrudlException ex) {
+        throw new IOException(formatForLog("Error listing ledger of: %s", taskId), ex);
+      }
+    }
+
+    @Override
+    public void seed(Collection<String> ids) throws IOException {
+      try {
+        ledgerManager.seed(taskId, destination, ids);
+      } catch (CrudlException ex) {
+        throw new IOException(formatForLog("Error seeding ledger of: %s", taskId), ex);
+      }
+    }
+
+    @Override
+    public void record(String id) {
+      try {
+        ledgerManager.record(taskId, destination, id, new Date());
+      } catch (CrudlException ex) {
+        LOG.warn(formatForLog("Error recording publication of: %s", id), ex);
+      }
+    }
+
+    @Override
+    public void remove(String id) {
+      try {
+        ledgerManager.remove(taskId, destination, id);
+      } catch (CrudlException ex) {
+        LOG.warn(formatForLog("Error removing publication of: %s", id), ex);
+      }
+    }
+  }
+  
+  /**
+   * Init context offering the ledger.
+   */
+  private static class LedgerInitContext implements InitContext, ContentStore.Owner, AbortSignal.Owner, PublicationLedger.Owner {
+    private final InitContext context;
+    private final PublicationLedger ledger;
+
+    public LedgerInitContext(InitContext context, PublicationLedger ledger) {
+      this.context = context;
+      this.ledger = ledger;
+    }
+
+    @Override
+    public Task getTask() {
+      return context.getTask();
+    }
+
+    @Override
+    public Map<String, String> getParams() {
+      return context.getParams();
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+      context.addListener(listener);
+    }
+
+    @Override
+    public boolean canCleanup() {
+      return context.canCleanup();
+    }
+
+    @Override
+    public void preventCleanup() {
+      context.preventCleanup();
+    }
+
+    @Override
+    public ContentStore getContentStore() {
+      return ContentStore.of(context);
+    }
+
+    @Override
+    public AbortSignal getAbortSignal() {
+      return AbortSignal.of(context);
+    }
+
+    @Override
+    public PublicationLedger getPublicationLedger() {
+      return ledger;
+    }
+  }
+}
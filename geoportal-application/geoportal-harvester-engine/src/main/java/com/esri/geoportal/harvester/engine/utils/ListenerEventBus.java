@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.ex.DataException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Listener event bus.
+ * <p>
+ * Delivers events of a single process to the listeners from a separate thread,
+ * thus harvesting threads don't wait for the bookkeeping like storing history
+ * or writing reports. Events are delivered in the order they have been 
+ * published, one at the time. A full bus either blocks the harvesting thread 
+ * or drops and counts data events, depending on the {@link EventBusPolicy}.
+ */
+public final class ListenerEventBus implements ProcessInstance.Listener {
+  private static final Logger LOG = LoggerFactory.getLogger(ListenerEventBus.class);
+  private static final AtomicInteger COUNTER = new AtomicInteger();
+  private static final long IDLE_TIMEOUT = 1000;
+  
+  private final List<ProcessInstance.Listener> listeners;
+  private final EventBusPolicy policy;
+  private final BlockingQueue<Consumer<ProcessInstance.Listener>> queue;
+  private final AtomicLong dropped = new AtomicLong();
+  private Thread consumer;
+
+  /**
+   * Creates instance of the bus.
+   * @param listeners listeners to notify
+   * @param policy event bus policy
+   */
+  public ListenerEventBus(List<ProcessInstance.Listener> listeners, EventBusPolicy policy) {
+    this.listeners = listeners;
+    this.policy = policy;
+    this.queue = policy.isAsynchronous()? new ArrayBlockingQueue<>(policy.getCapacity()): null;
+  }
+  
+  /**
+   * Gets number of dropped events.
+   * @return number of dropped events
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  @Override
+  public void onStatusChange(ProcessInstance.Status status) {
+    publish(l -> l.onStatusChange(status), false);
+    if (status == ProcessInstance.Status.completed && dropped.get() > 0) {
+      LOG.warn(String.format("%d process events have been dropped by the event bus.", dropped.get()));
+    }
+  }
+
+  @Override
+  public void onDataAcquired(DataReference dataReference) {
+    publish(l -> l.onDataAcquired(dataReference), true);
+  }
+
+  @Override
+  public void onDataProcessed(DataReference dataReference, PublishingStatus status) {
+    publish(l -> l.onDataProcessed(dataReference, status), true);
+  }
+
+  @Override
+  public void onError(DataException ex) {
+    publish(l -> l.onError(ex), true);
+  }
+
+  @Override
+  public void onCheckpoint(String checkpoint) {
+    publish(l -> l.onCheckpoint(checkpoint), false);
+  }
+
+  @Override
+  public void onTotal(long total) {
+    publish(l -> l.onTotal(total), false);
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("%s, dropped: %d", policy, dropped.get());
+  }
+  
+  /**
+   * Publishes event.
+   * @param event event
+   * @param droppable <code>true</code> if event can be dropped
+   */
+  private void publish(Consumer<ProcessInstance.Listener> event, boolean droppable) {
+    if (queue == null) {
+      deliver(event);
+      return;
+    }
+    if (!queue.offer(event)) {
+      if (droppable && policy.getOverflow() == EventBusPolicy.Overflow.DROP) {
+        dropped.incrementAndGet();
+        return;
+      }
+      put(event);
+    }
+    ensureConsumer();
+  }
+  
+  /**
+   * Puts event into the queue, waiting for a room even if interrupted.
+   * <p>
+   * Aborting process interrupts the harvesting thread, yet the events it 
+   * publishes while completing must not be lost.
+   * @param event event
+   */
+  private void put(Consumer<ProcessInstance.Listener> event) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          queue.put(event);
+          return;
+        } catch (InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+  
+  /**
+   * Makes sure there is a thread consuming events.
+   */
+  private synchronized void ensureConsumer() {
+    if (consumer == null) {
+      consumer = new Thread(this::consume, String.format("HARVESTING-EVENTS-%d", COUNTER.incrementAndGet()));
+      consumer.start();
+    }
+  }
+  
+  /**
+   * Consumes events until the bus stays idle.
+   */
+  private void consume() {
+    while (true) {
+      Consumer<ProcessInstance.Listener> event = null;
+      try {
+        event = queue.poll(IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ex) {
+        // keep on delivering; the thread terminates once the bus is idle
+      }
+      if (event != null) {
+        deliver(event);
+      } else {
+        synchronized (this) {
+          if (queue.isEmpty()) {
+            consumer = null;
+            return;
+          }
+        }
+      }
+    }
+  }
+  
+  /**
+   * Delivers event to all the listeners.
+   * @param event event
+   */
+  private void deliver(Consumer<ProcessInstance.Listener> event) {
+    listeners.forEach(l -> {
+      try {
+        event.accept(l);
+      } catch (RuntimeException ex) {
+        LOG.error(String.format("Error notifying listener: %s", l), ex);
+      }
+    });
+  }
+}
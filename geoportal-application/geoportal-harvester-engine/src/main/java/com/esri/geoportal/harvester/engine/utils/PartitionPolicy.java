@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+/**
+ * Partition policy.
+ * <p>
+ * Tells how many partitions of a single source are being iterated at the same
+ * time, and how many times iteration of a failing partition is attempted 
+ * before giving up on it.
+ * 
+ * @see PartitionedIterator
+ */
+public final class PartitionPolicy {
+  /** no partitioning; every source is iterated by a single iterator */
+  public static final PartitionPolicy NONE = new PartitionPolicy(1, 1);
+  
+  private final int parallelism;
+  private final int attempts;
+
+  /**
+   * Creates instance of the policy.
+   * @param parallelism maximum number of partitions iterated at the same time;
+   * value less than 2 disables partitioning
+   * @param attempts number of attempts to iterate each partition
+   */
+  public PartitionPolicy(int parallelism, int attempts) {
+    this.parallelism = Math.max(1, parallelism);
+    this.attempts = Math.max(1, attempts);
+  }
+
+  /**
+   * Gets parallelism.
+   * @return maximum number of partitions iterated at the same time
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Gets number of attempts.
+   * @return number of attempts to iterate each partition
+   */
+  public int getAttempts() {
+    return attempts;
+  }
+  
+  /**
+   * Checks if partitioning is enabled.
+   * @return <code>true</code> if partitioning is enabled
+   */
+  public boolean isEnabled() {
+    return parallelism > 1;
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("PARTITION :: parallelism: %d, attempts: %d", parallelism, attempts);
+  }
+}
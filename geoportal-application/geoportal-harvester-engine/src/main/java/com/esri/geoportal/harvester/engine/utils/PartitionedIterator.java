@@ -0,0 +1,404 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.ex.DataInputException;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Partitioned iterator.
+ * <p>
+ * Iterates partitions of a single source concurrently and merges data of all 
+ * the partitions into a single iteration, thus processors keep consuming one 
+ * iterator. Data of each partition is returned in the order of that partition.
+ * <p>
+ * Failing partition is iterated again from its last checkpoint until the 
+ * attempts of the {@link PartitionPolicy} are exhausted; other partitions are
+ * not affected. Error of the partition given up on is reported once all the 
+ * other partitions are done.
+ * <p>
+ * Checkpoint of the iteration combines checkpoints of all the partitions, 
+ * thus each partition resumes at its own position and partitions already 
+ * done are not iterated again.
+ */
+public final class PartitionedIterator implements InputBroker.Iterator {
+  private static final Logger LOG = LoggerFactory.getLogger(PartitionedIterator.class);
+  private static final String HEADER = "PARTITIONS\n";
+  private static final String DONE = "~";
+  private static final long RETRY_DELAY = 1000;
+
+  private final InputBroker broker;
+  private final IteratorContext iteratorContext;
+  private final PartitionPolicy policy;
+  private final List<String> partitions;
+  private final BlockingQueue<Entry> queue;
+  private final ExecutorService executor;
+  private final Map<String, Long> totals = new ConcurrentHashMap<>();
+  private final List<EntityDefinition> honouredFilters;
+  
+  private final Map<String, String> checkpoints = new HashMap<>();
+  private final Set<String> done = new HashSet<>();
+  private final List<DataInputException> failures = new ArrayList<>();
+  private final int pending;
+  private int ended;
+  private Entry nextEntry;
+  private String checkpoint;
+  private volatile boolean closed;
+
+  /**
+   * Creates iterator of the source.
+   * <p>
+   * Source is iterated by a single iterator if partitioning is disabled, the 
+   * broker provides less than two partitions, or iteration resumes from the
+   * checkpoint of a non-partitioned iteration.
+   * @param broker input broker
+   * @param iteratorContext iterator context
+   * @param policy partition policy
+   * @return iterator
+   * @throws DataInputException if error creating iterator
+   */
+  public static InputBroker.Iterator iterator(InputBroker broker, IteratorContext iteratorContext, PartitionPolicy policy) throws DataInputException {
+    String checkpoint = iteratorContext.getCheckpoint();
+    boolean partitioned = checkpoint != null && checkpoint.startsWith(HEADER);
+    if (checkpoint != null && !partitioned) {
+      return broker.iterator(iteratorContext);
+    }
+    List<String> partitions = policy.isEnabled()? broker.partitions(iteratorContext): null;
+    if (partitions == null || partitions.size() < 2) {
+      return broker.iterator(partitioned? new PartitionContext(iteratorContext, null, null): iteratorContext);
+    }
+    return new PartitionedIterator(broker, iteratorContext, policy, partitions);
+  }
+  
+  /**
+   * Closes iterator; stops iterating partitions of the partitioned iterator.
+   * @param iterator iterator or <code>null</code>
+   */
+  public static void close(InputBroker.Iterator iterator) {
+    if (iterator instanceof PartitionedIterator) {
+      ((PartitionedIterator) iterator).close();
+    }
+  }
+
+  /**
+   * Creates instance of the iterator.
+   * @param broker input broker
+   * @param iteratorContext iterator context
+   * @param policy partition policy
+   * @param partitions partitions
+   * @throws DataInputException if error creating iterators of the partitions
+   */
+  private PartitionedIterator(InputBroker broker, IteratorContext iteratorContext, PartitionPolicy policy, List<String> partitions) throws DataInputException {
+    this.broker = broker;
+    this.iteratorContext = iteratorContext;
+    this.policy = policy;
+    this.partitions = partitions;
+    this.queue = new ArrayBlockingQueue<>(policy.getParallelism());
+    
+    if (iteratorContext.getCheckpoint() != null) {
+      parse(iteratorContext.getCheckpoint());
+    }
+    
+    Map<String, InputBroker.Iterator> iterators = new HashMap<>();
+    List<EntityDefinition> honoured = null;
+    for (String partition: partitions) {
+      if (!done.contains(partition)) {
+        InputBroker.Iterator iterator = broker.iterator(new PartitionContext(iteratorContext, partition, checkpoints.get(partition)));
+        iterators.put(partition, iterator);
+        if (honoured == null) {
+          honoured = new ArrayList<>(iterator.getHonouredFilters());
+        } else {
+          honoured.retainAll(iterator.getHonouredFilters());
+        }
+      }
+    }
+    this.honouredFilters = honoured != null? honoured: new ArrayList<>();
+    this.pending = iterators.size();
+    
+    AtomicInteger counter = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(Math.max(1, Math.min(policy.getParallelism(), pending)), r -> {
+      Thread thread = new Thread(r, String.format("HARVESTING-PARTITION-%d", counter.incrementAndGet()));
+      thread.setDaemon(true);
+      return thread;
+    });
+    for (String partition: partitions) {
+      InputBroker.Iterator iterator = iterators.get(partition);
+      if (iterator != null) {
+        String start = checkpoints.get(partition);
+        executor.submit(() -> produce(partition, iterator, start));
+      }
+    }
+    executor.shutdown();
+  }
+
+  @Override
+  public boolean hasNext() throws DataInputException {
+    if (nextEntry != null) {
+      return true;
+    }
+    while (ended < pending) {
+      Entry entry;
+      try {
+        entry = queue.take();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      if (entry.ref != null) {
+        nextEntry = entry;
+        return true;
+      }
+      ended++;
+      if (entry.error != null) {
+        failures.add(entry.error);
+      } else {
+        done.add(entry.partition);
+        checkpoints.remove(entry.partition);
+        checkpoint = null;
+      }
+    }
+    if (!failures.isEmpty()) {
+      DataInputException ex = failures.remove(0);
+      failures.forEach(ex::addSuppressed);
+      failures.clear();
+      throw ex;
+    }
+    return false;
+  }
+
+  @Override
+  public DataReference next() throws DataInputException {
+    if (nextEntry == null) {
+      throw new DataInputException(broker, "No more data available");
+    }
+    Entry entry = nextEntry;
+    nextEntry = null;
+    if (entry.checkpoint != null && !entry.checkpoint.equals(checkpoints.put(entry.partition, entry.checkpoint))) {
+      checkpoint = null;
+    }
+    return entry.ref;
+  }
+
+  @Override
+  public String getCheckpoint() {
+    if (checkpoint == null && (!done.isEmpty() || !checkpoints.isEmpty())) {
+      checkpoint = format();
+    }
+    return checkpoint;
+  }
+
+  @Override
+  public Long getTotal() {
+    if (totals.size() < pending) {
+      return null;
+    }
+    return totals.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  @Override
+  public List<EntityDefinition> getHonouredFilters() {
+    return honouredFilters;
+  }
+  
+  /**
+   * Closes iterator; stops iterating partitions.
+   */
+  public void close() {
+    closed = true;
+    executor.shutdownNow();
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("PARTITIONED [%s] :: partitions: %d, %s", broker, partitions.size(), policy);
+  }
+
+  /**
+   * Iterates single partition; runs in its own thread.
+   * @param partition partition
+   * @param iterator iterator of the partition
+   * @param start checkpoint the iteration has started from
+   */
+  private void produce(String partition, InputBroker.Iterator iterator, String start) {
+    String lastCheckpoint = start;
+    try {
+      for (int attempt = 1; !closed; attempt++) {
+        try {
+          if (iterator == null) {
+            iterator = broker.iterator(new PartitionContext(iteratorContext, partition, lastCheckpoint));
+          }
+          while (!closed && iterator.hasNext()) {
+            DataReference ref = iterator.next();
+            String current = iterator.getCheckpoint();
+            if (current != null) {
+              lastCheckpoint = current;
+            }
+            Long total = iterator.getTotal();
+            if (total != null) {
+              totals.put(partition, total);
+            }
+            queue.put(new Entry(partition, ref, lastCheckpoint, null));
+          }
+          queue.put(new Entry(partition, null, null, null));
+          return;
+        } catch (DataInputException|RuntimeException ex) {
+          if (closed) {
+            return;
+          }
+          if (attempt >= policy.getAttempts() || ex instanceof RuntimeException) {
+            DataInputException error = ex instanceof DataInputException
+                    ? (DataInputException) ex
+                    : new DataInputException(broker, String.format("Error iterating partition: %s", partition), ex);
+            queue.put(new Entry(partition, null, null, error));
+            return;
+          }
+          LOG.warn(formatForLog("Error iterating partition %s of %s; attempt %d of %d failed.", partition, broker, attempt, policy.getAttempts()), ex);
+          iterator = null;
+          Thread.sleep(RETRY_DELAY * attempt);
+        }
+      }
+    } catch (InterruptedException ex) {
+      LOG.debug(formatForLog("Iterating partition %s of %s interrupted.", partition, broker));
+    }
+  }
+  
+  /**
+   * Formats combined checkpoint. Each partition is listed in its own line 
+   * followed by either its own checkpoint or a mark of the partition done.
+   * @return checkpoint
+   */
+  private String format() {
+    StringBuilder sb = new StringBuilder(HEADER);
+    for (String partition: partitions) {
+      String value = done.contains(partition)? DONE: checkpoints.get(partition) != null? encode(checkpoints.get(partition)): null;
+      if (value != null) {
+        sb.append(encode(partition)).append("=").append(value).append("\n");
+      }
+    }
+    return sb.toString();
+  }
+  
+  /**
+   * Parses combined checkpoint.
+   * @param checkpoint checkpoint
+   */
+  private void parse(String checkpoint) {
+    for (String line: checkpoint.substring(HEADER.length()).split("\n")) {
+      int idx = line.indexOf('=');
+      if (idx > 0) {
+        String partition = decode(line.substring(0, idx));
+        String value = line.substring(idx + 1);
+        if (DONE.equals(value)) {
+          done.add(partition);
+        } else {
+          checkpoints.put(partition, decode(value));
+        }
+      }
+    }
+    done.retainAll(partitions);
+    checkpoints.keySet().retainAll(partitions);
+  }
+  
+  private static String encode(String value) {
+    try {
+      return URLEncoder.encode(value, "UTF-8");
+    } catch (UnsupportedEncodingException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+  
+  private static String decode(String value) {
+    try {
+      return URLDecoder.decode(value, "UTF-8");
+    } catch (UnsupportedEncodingException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * Entry of the queue; either data reference or end of the partition.
+   */
+  private static final class Entry {
+    final String partition;
+    final DataReference ref;
+    final String checkpoint;
+    final DataInputException error;
+
+    public Entry(String partition, DataReference ref, String checkpoint, DataInputException error) {
+      this.partition = partition;
+      this.ref = ref;
+      this.checkpoint = checkpoint;
+      this.error = error;
+    }
+  }
+  
+  /**
+   * Iterator context of a single partition.
+   */
+  private static final class PartitionContext implements IteratorContext {
+    private final IteratorContext iteratorContext;
+    private final String partition;
+    private final String checkpoint;
+
+    public PartitionContext(IteratorContext iteratorContext, String partition, String checkpoint) {
+      this.iteratorContext = iteratorContext;
+      this.partition = partition;
+      this.checkpoint = checkpoint;
+    }
+
+    @Override
+    public Date getLastHarvestDate() {
+      return iteratorContext.getLastHarvestDate();
+    }
+
+    @Override
+    public String getCheckpoint() {
+      return checkpoint;
+    }
+
+    @Override
+    public List<EntityDefinition> getFilters() {
+      return iteratorContext.getFilters();
+    }
+
+    @Override
+    public String getPartition() {
+      return partition;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.base.ContentBudget;
+import com.esri.geoportal.harvester.api.base.FanOutExecutor;
+
+/**
+ * Processor options.
+ * <p>
+ * Executors and policies shared by all the processes created by a processor.
+ */
+public final class ProcessorOptions {
+  /** harvests run at once, pushing sequentially, with no limits */
+  public static final ProcessorOptions DEFAULT = new ProcessorOptions(null, null, null, null, null, null);
+  
+  private final HarvestExecutor harvestExecutor;
+  private final FanOutExecutor fanOut;
+  private final EventBusPolicy eventBus;
+  private final ContentBudget contentBudget;
+  private final BackpressurePolicy backpressure;
+  private final PartitionPolicy partitions;
+
+  /**
+   * Creates instance of the options. Any <code>null</code> argument means 
+   * the default for that argument.
+   * @param harvestExecutor executor of the harvests
+   * @param fanOut executor used to push data to the destinations
+   * @param eventBus policy of delivering events to the listeners
+   * @param contentBudget budget of the memory holding record content
+   * @param backpressure policy limiting content in flight
+   * @param partitions policy of iterating partitions of the source
+   */
+  public ProcessorOptions(HarvestExecutor harvestExecutor, FanOutExecutor fanOut, EventBusPolicy eventBus, ContentBudget contentBudget, BackpressurePolicy backpressure, PartitionPolicy partitions) {
+    this.harvestExecutor = harvestExecutor != null? harvestExecutor: HarvestExecutor.UNLIMITED;
+    this.fanOut = fanOut != null? fanOut: FanOutExecutor.SEQUENTIAL;
+    this.eventBus = eventBus != null? eventBus: EventBusPolicy.SYNCHRONOUS;
+    this.contentBudget = contentBudget != null? contentBudget: ContentBudget.UNLIMITED;
+    this.backpressure = backpressure != null? backpressure: BackpressurePolicy.NONE;
+    this.partitions = partitions != null? partitions: PartitionPolicy.NONE;
+  }
+
+  /**
+   * Gets harvest executor.
+   * @return executor of the harvests
+   */
+  public HarvestExecutor getHarvestExecutor() {
+    return harvestExecutor;
+  }
+
+  /**
+   * Gets fan-out executor.
+   * @return executor used to push data to the destinations
+   */
+  public FanOutExecutor getFanOut() {
+    return fanOut;
+  }
+
+  /**
+   * Gets event bus policy.
+   * @return policy of delivering events to the listeners
+   */
+  public EventBusPolicy getEventBus() {
+    return eventBus;
+  }
+
+  /**
+   * Gets content budget.
+   * @return budget of the memory holding record content
+   */
+  public ContentBudget getContentBudget() {
+    return contentBudget;
+  }
+
+  /**
+   * Gets backpressure policy.
+   * @return policy limiting content in flight
+   */
+  public BackpressurePolicy getBackpressure() {
+    return backpressure;
+  }
+
+  /**
+   * Gets partition policy.
+   * @return policy of iterating partitions of the source
+   */
+  public PartitionPolicy getPartitions() {
+    return partitions;
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("PROCESSOR OPTIONS :: %s, %s, %s, %s", eventBus, contentBudget, backpressure, partitions);
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.base.BatchPolicy;
+import com.esri.geoportal.harvester.api.base.FanOutExecutor;
+import com.esri.geoportal.harvester.engine.managers.FingerprintManager;
+import com.esri.geoportal.harvester.engine.managers.LedgerManager;
+
+/**
+ * Publishing options.
+ * <p>
+ * Tells how the tasks built by the tasks service publish to the destinations.
+ */
+public final class PublishingOptions {
+  /** sequential, unbatched publishing with no fingerprints and no ledger */
+  public static final PublishingOptions DEFAULT = new PublishingOptions(null, null, null, null);
+  
+  private final FanOutExecutor fanOut;
+  private final BatchPolicy batchPolicy;
+  private final FingerprintManager fingerprintManager;
+  private final LedgerManager ledgerManager;
+
+  /**
+   * Creates instance of the options.
+   * @param fanOut executor used to push data to the sibling links or 
+   * <code>null</code> to push sequentially
+   * @param batchPolicy policy of grouping records published to the same 
+   * destination or <code>null</code> for no batching
+   * @param fingerprintManager fingerprint manager or <code>null</code> to 
+   * always publish unchanged records
+   * @param ledgerManager ledger manager or <code>null</code> to let 
+   * destinations enumerate records to clean up
+   */
+  public PublishingOptions(FanOutExecutor fanOut, BatchPolicy batchPolicy, FingerprintManager fingerprintManager, LedgerManager ledgerManager) {
+    this.fanOut = fanOut != null? fanOut: FanOutExecutor.SEQUENTIAL;
+    this.batchPolicy = batchPolicy != null? batchPolicy: BatchPolicy.NONE;
+    this.fingerprintManager = fingerprintManager;
+    this.ledgerManager = ledgerManager;
+  }
+
+  /**
+   * Gets fan-out executor.
+   * @return executor used to push data to the sibling links
+   */
+  public FanOutExecutor getFanOut() {
+    return fanOut;
+  }
+
+  /**
+   * Gets batch policy.
+   * @return policy of grouping records published to the same destination
+   */
+  public BatchPolicy getBatchPolicy() {
+    return batchPolicy;
+  }
+
+  /**
+   * Gets fingerprint manager.
+   * @return fingerprint manager or <code>null</code> if none
+   */
+  public FingerprintManager getFingerprintManager() {
+    return fingerprintManager;
+  }
+
+  /**
+   * Gets ledger manager.
+   * @return ledger manager or <code>null</code> if none
+   */
+  public LedgerManager getLedgerManager() {
+    return ledgerManager;
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("PUBLISHING OPTIONS :: %s, fingerprints: %b, ledger: %b", batchPolicy, fingerprintManager != null, ledgerManager != null);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate meter.
+ * <p>
+ * Counts events and measures their rate: the mean rate since the meter has 
+ * been created, and the exponentially weighted moving average over the last 
+ * minute. Events are counted with striped counters, thus marking from many 
+ * threads at once doesn't contend; the average is updated lazily every
+ * {@link #TICK_INTERVAL} seconds by whichever thread comes first.
+ */
+public final class RateMeter {
+  /** tick interval in seconds */
+  public static final int TICK_INTERVAL = 5;
+  
+  private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(TICK_INTERVAL);
+  private static final double ALPHA = 1 - Math.exp(-TICK_INTERVAL / 60.0);
+  
+  private final LongAdder count = new LongAdder();
+  private final LongAdder uncounted = new LongAdder();
+  private final long startTime;
+  private final AtomicLong lastTick;
+  private volatile double rate;
+  private volatile boolean initialized;
+
+  /**
+   * Creates instance of the meter.
+   */
+  public RateMeter() {
+    this.startTime = System.nanoTime();
+    this.lastTick = new AtomicLong(startTime);
+  }
+  
+  /**
+   * Marks single event.
+   */
+  public void mark() {
+    tickIfNecessary();
+    count.increment();
+    uncounted.increment();
+  }
+  
+  /**
+   * Gets number of events.
+   * @return number of events
+   */
+  public long getCount() {
+    return count.sum();
+  }
+  
+  /**
+   * Gets mean rate since the meter has been created.
+   * @return number of events per second
+   */
+  public double getMeanRate() {
+    long elapsed = System.nanoTime() - startTime;
+    return elapsed > 0? count.sum() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed: 0.0;
+  }
+  
+  /**
+   * Gets exponentially weighted moving average of the rate over the last minute.
+   * <p>
+   * Until the first tick elapses, the mean rate is reported instead.
+   * @return number of events per second
+   */
+  public double getOneMinuteRate() {
+    tickIfNecessary();
+    return initialized? rate: getMeanRate();
+  }
+  
+  /**
+   * Updates the average for all the elapsed ticks.
+   */
+  private void tickIfNecessary() {
+    long oldTick = lastTick.get();
+    long now = System.nanoTime();
+    long age = now - oldTick;
+    if (age > TICK_NANOS) {
+      long newTick = now - age % TICK_NANOS;
+      if (lastTick.compareAndSet(oldTick, newTick)) {
+        long ticks = age / TICK_NANOS;
+        synchronized (this) {
+          for (long i = 0; i < ticks; i++) {
+            tick();
+          }
+        }
+      }
+    }
+  }
+  
+  /**
+   * Updates the average for a single tick.
+   */
+  private void tick() {
+    double instantRate = uncounted.sumThenReset() / (double) TICK_INTERVAL;
+    if (initialized) {
+      rate += ALPHA * (instantRate - rate);
+    } else {
+      rate = instantRate;
+      initialized = true;
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("RATE :: count: %d, mean: %.2f/s, 1 min: %.2f/s", getCount(), getMeanRate(), getOneMinuteRate());
+  }
+}
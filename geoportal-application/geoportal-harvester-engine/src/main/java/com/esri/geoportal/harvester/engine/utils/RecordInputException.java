@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.ex.DataInputException;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+
+/**
+ * Record input exception.
+ * <p>
+ * Thrown by {@link InputBroker.Iterator#next()} if a single record cannot be 
+ * read. Unlike other input exceptions, it doesn't end the iteration; the 
+ * record is reported as failed and the iteration continues.
+ */
+public class RecordInputException extends DataInputException {
+  private final String dataId;
+
+  /**
+   * Creates instance of the exception.
+   * @param inputBroker input broker
+   * @param dataId id of the record
+   * @param msg the detail message
+   * @param t cause
+   */
+  public RecordInputException(InputBroker inputBroker, String dataId, String msg, Throwable t) {
+    super(inputBroker, msg, t);
+    this.dataId = dataId;
+  }
+
+  /**
+   * Gets id of the record.
+   * @return record id
+   */
+  public String getDataId() {
+    return dataId;
+  }
+}
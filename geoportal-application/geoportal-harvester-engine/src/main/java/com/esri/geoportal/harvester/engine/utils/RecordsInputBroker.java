@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.commons.constants.MimeType;
+import com.esri.geoportal.commons.utils.SimpleCredentials;
+import com.esri.geoportal.harvester.api.DataContent;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.SimpleDataReference;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.ex.DataInputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import com.esri.geoportal.harvester.api.specs.InputConnector;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records input broker.
+ * <p>
+ * Instead of iterating over the whole source, reads only the selected records 
+ * one by one through {@link InputBroker#readContent(java.lang.String)} of the
+ * underlying broker. Records no longer available in the source are skipped;
+ * records which cannot be read are reported as failed through 
+ * {@link RecordInputException} and the remaining records are read anyway.
+ * <p>
+ * Only a fraction of the records is published, thus the broker prevents 
+ * cleanup of the destinations.
+ */
+public class RecordsInputBroker implements InputBroker {
+  private static final Logger LOG = LoggerFactory.getLogger(RecordsInputBroker.class);
+  
+  private final InputBroker broker;
+  private final List<String> recordIds;
+  private String taskRef;
+
+  /**
+   * Creates instance of the broker.
+   * @param broker underlying broker
+   * @param recordIds ids of the records to read
+   */
+  public RecordsInputBroker(InputBroker broker, List<String> recordIds) {
+    this.broker = broker;
+    this.recordIds = new ArrayList<>(recordIds);
+  }
+
+  @Override
+  public void initialize(InitContext context) throws DataProcessorException {
+    taskRef = context.getTask().getRef();
+    context.preventCleanup();
+    broker.initialize(context);
+  }
+
+  @Override
+  public void terminate() {
+    broker.terminate();
+  }
+
+  @Override
+  public URI getBrokerUri() throws URISyntaxException {
+    return broker.getBrokerUri();
+  }
+
+  @Override
+  public Iterator iterator(IteratorContext iteratorContext) throws DataInputException {
+    return new RecordsIterator();
+  }
+
+  @Override
+  public DataContent readContent(String id) throws DataInputException {
+    return broker.readContent(id);
+  }
+
+  @Override
+  public EntityDefinition getEntityDefinition() {
+    return broker.getEntityDefinition();
+  }
+
+  @Override
+  public InputConnector getConnector() {
+    return broker.getConnector();
+  }
+
+  @Override
+  public boolean hasAccess(SimpleCredentials creds) {
+    return broker.hasAccess(creds);
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("RECORDS [%s, %d records]", broker, recordIds.size());
+  }
+  
+  /**
+   * Creates data reference from the content which is not a data reference itself.
+   * @param id record id
+   * @param content content
+   * @return data reference
+   * @throws DataInputException if reading content fails
+   */
+  private DataReference createReference(String id, DataContent content) throws DataInputException {
+    try {
+      SimpleDataReference ref = new SimpleDataReference(
+              broker.getBrokerUri(), 
+              broker.getEntityDefinition().getLabel(), 
+              id, null, toSourceUri(id), 
+              broker.getEntityDefinition().getRef(), taskRef);
+      for (MimeType contentType: content.getContentType()) {
+        ref.addContext(contentType, content.getContent(contentType));
+      }
+      return ref;
+    } catch (IOException|URISyntaxException ex) {
+      throw new DataInputException(broker, formatForLog("Error reading content: %s", id), ex);
+    }
+  }
+  
+  private static URI toSourceUri(String id) {
+    try {
+      return new URI(id);
+    } catch (URISyntaxException ex) {
+      return null;
+    }
+  }
+  
+  /**
+   * Records iterator.
+   */
+  private class RecordsIterator implements InputBroker.Iterator {
+    private int index;
+    private DataReference nextRef;
+    private RecordInputException nextFailure;
+
+    @Override
+    public boolean hasNext() throws DataInputException {
+      while (nextRef == null && nextFailure == null && index < recordIds.size()) {
+        String id = recordIds.get(index++);
+        try {
+          DataContent content = broker.readContent(id);
+          if (content == null) {
+            LOG.warn(formatForLog("Record no longer available: %s", id));
+          } else {
+            nextRef = content instanceof DataReference? (DataReference)content: createReference(id, content);
+          }
+        } catch (DataInputException ex) {
+          nextFailure = new RecordInputException(broker, id, formatForLog("Error reading record: %s", id), ex);
+        }
+      }
+      return nextRef != null || nextFailure != null;
+    }
+
+    @Override
+    public DataReference next() throws DataInputException {
+      if (!hasNext()) {
+        throw new DataInputException(broker, "No more records.");
+      }
+      if (nextFailure != null) {
+        RecordInputException failure = nextFailure;
+        nextFailure = null;
+        throw failure;
+      }
+      DataReference ref = nextRef;
+      nextRef = null;
+      return ref;
+    }
+
+    @Override
+    public Long getTotal() {
+      return (long) recordIds.size();
+    }
+  }
+}
@@ -44,6 +44,14 @@ public interface ReportBuilder {
    */
   void acquire(ProcessInstance process, DataReference dataReference);
   
+  /**
+   * Indicates source has reported total number of data to acquire.
+   * @param process process
+   * @param total total number of data to acquire
+   */
+  default void total(ProcessInstance process, long total) {
+  }
+  
   /**
    * Make success entry.
    * @param process process
@@ -51,6 +59,22 @@ public interface ReportBuilder {
    */
   void success(ProcessInstance process, DataReference dataReference);
   
+  /**
+   * Make unchanged entry.
+   * @param process process
+   * @param dataReference data reference unchanged since the last publication
+   */
+  default void unchanged(ProcessInstance process, DataReference dataReference) {
+  }
+  
+  /**
+   * Make deleted entry.
+   * @param process process
+   * @param dataReference tombstone of the record deleted from the destination
+   */
+  default void deleted(ProcessInstance process, DataReference dataReference) {
+  }
+  
   /**
    * Make harvest error entry.
    * @param process process
@@ -61,9 +61,18 @@ public class ReportBuilderAdaptor extends BaseProcessInstanceListener {
     reportBuilder.acquire(processInstance, dataReference);
   }
 
+  @Override
+  public void onTotal(long total) {
+    reportBuilder.total(processInstance, total);
+  }
+
   @Override
   public void onDataProcessed(DataReference dataReference, PublishingStatus status) {
-    if (!status.equals(PublishingStatus.SKIPPED)) {
+    if (status.getDeleted() > 0) {
+      reportBuilder.deleted(processInstance, dataReference);
+    } else if (status.getUnchanged() > 0 && status.getCreated() + status.getUpdated() == 0) {
+      reportBuilder.unchanged(processInstance, dataReference);
+    } else if (!status.equals(PublishingStatus.SKIPPED)) {
       reportBuilder.success(processInstance, dataReference);
     }
   }
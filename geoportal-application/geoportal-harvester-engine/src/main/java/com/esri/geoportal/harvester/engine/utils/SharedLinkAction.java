@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.general.LinkAction;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared link action.
+ * <p>
+ * Filter or transformer action shared by several sibling links of different
+ * destinations. Each of the links receives the same data reference; the 
+ * action is executed once for the first of them and its result is handed to
+ * all the others, thus a record is transformed or matched only once however
+ * many destinations consume the result. Each destination keeps its own link,
+ * thus its own publishing status and failures.
+ */
+public class SharedLinkAction implements LinkAction {
+  private final LinkAction action;
+  private final int sharers;
+  private final Map<DataReference, Result> results = new IdentityHashMap<>();
+  private int initialized;
+
+  /**
+   * Creates instance of the action.
+   * @param action underlying action
+   * @param sharers number of links sharing the action
+   */
+  public SharedLinkAction(LinkAction action, int sharers) {
+    this.action = action;
+    this.sharers = sharers;
+  }
+
+  /**
+   * Gets underlying action.
+   * @return underlying action
+   */
+  public LinkAction getAction() {
+    return action;
+  }
+
+  @Override
+  public synchronized void initialize(InitContext context) throws DataProcessorException {
+    if (initialized++ == 0) {
+      action.initialize(context);
+    }
+  }
+
+  @Override
+  public synchronized void terminate() {
+    if (initialized > 0 && --initialized == 0) {
+      action.terminate();
+      synchronized (results) {
+        results.clear();
+      }
+    }
+  }
+
+  @Override
+  public EntityDefinition getLinkActionDefinition() {
+    return action.getLinkActionDefinition();
+  }
+
+  @Override
+  public List<DataReference> execute(DataReference dataRef) throws DataProcessorException, DataOutputException {
+    Result result;
+    synchronized (results) {
+      result = results.computeIfAbsent(dataRef, r -> new Result());
+      if (++result.taken >= sharers) {
+        results.remove(dataRef);
+      }
+    }
+    return result.get(dataRef);
+  }
+
+  @Override
+  public PublishingStatus push(DataReference dataRef) throws DataProcessorException, DataOutputException {
+    return action.push(dataRef);
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("SHARED [%s, %d links]", action, sharers);
+  }
+  
+  /**
+   * Result of executing the action for a single data reference.
+   */
+  private class Result {
+    private int taken;
+    private boolean done;
+    private List<DataReference> output;
+    private Exception error;
+    
+    /**
+     * Gets result; executes action if not executed yet.
+     * @param dataRef data reference
+     * @return output of the action
+     * @throws DataProcessorException if processing fails
+     * @throws DataOutputException if output fails
+     */
+    synchronized List<DataReference> get(DataReference dataRef) throws DataProcessorException, DataOutputException {
+      if (!done) {
+        done = true;
+        try {
+          output = action.execute(dataRef);
+        } catch (DataProcessorException|DataOutputException|RuntimeException ex) {
+          error = ex;
+        }
+      }
+      if (error instanceof DataProcessorException) {
+        throw (DataProcessorException) error;
+      }
+      if (error instanceof DataOutputException) {
+        throw (DataOutputException) error;
+      }
+      if (error instanceof RuntimeException) {
+        throw (RuntimeException) error;
+      }
+      return output;
+    }
+  }
+}
@@ -58,6 +58,97 @@ public interface Statistics {
    */
   long getSucceeded();
 
+  /**
+   * Gets number of records not published because unchanged since the last publication.
+   * @return number of unchanged records
+   */
+  long getUnchanged();
+
+  /**
+   * Gets number of records deleted from the destination because deleted at the source.
+   * @return number of deleted records
+   */
+  long getDeleted();
+
+  /**
+   * Gets total number of records as reported by the source.
+   * @return total number of records or <code>null</code> if unknown
+   */
+  Long getTotal();
+
+  /**
+   * Gets mean throughput since the start.
+   * @return number of acquired records per second
+   */
+  double getThroughput();
+
+  /**
+   * Gets acquire rate; an exponentially weighted moving average over the last minute.
+   * @return number of acquired records per second
+   */
+  double getAcquiredRate();
+
+  /**
+   * Gets publish rate; an exponentially weighted moving average over the last minute.
+   * @return number of published records per second
+   */
+  double getPublishedRate();
+
+  /**
+   * Gets failure rate; an exponentially weighted moving average over the last minute.
+   * @return number of failed records per second
+   */
+  double getFailedRate();
+
+  /**
+   * Gets estimated time remaining.
+   * @return estimated time remaining in seconds or <code>null</code> if 
+   * total number of records is unknown
+   */
+  Long getEstimatedTimeRemaining();
+
+  /**
+   * Gets maximum number of bytes of record content kept in memory at once.
+   * @return number of bytes
+   */
+  long getContentMemoryHighWaterMark();
+
+  /**
+   * Gets maximum number of bytes of record content spilled to the disk at once.
+   * @return number of bytes
+   */
+  long getContentDiskHighWaterMark();
+
+  /**
+   * Gets number of bytes of record content currently in flight.
+   * @return number of bytes acquired but not yet pushed to all the destinations
+   */
+  long getInFlightBytes();
+
+  /**
+   * Gets maximum number of bytes of record content in flight at once.
+   * @return number of bytes
+   */
+  long getInFlightBytesPeak();
+
+  /**
+   * Gets number of times the harvest has been granted an execution slot.
+   * @return number of slots granted
+   */
+  long getSlotGrants();
+
+  /**
+   * Gets total time the harvest has been waiting for an execution slot.
+   * @return time in milliseconds
+   */
+  long getSlotWaitTime();
+
+  /**
+   * Gets the longest time the harvest has been waiting for an execution slot.
+   * @return time in milliseconds
+   */
+  long getSlotMaxWait();
+
   /**
    * Checks if there was a general error.
    * @return <code>true</code> if there was a general error
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+/**
+ * Trigger policy.
+ * <p>
+ * Spreads the load caused by triggers, especially right after startup when
+ * all the saved triggers are activated at once. A run due at activation is 
+ * delayed by a random jitter; runs missed while the harvester was down are
+ * coalesced into a single catch-up run; and the number of harvests started by
+ * the triggers within a minute is capped, the extra ones being postponed.
+ */
+public final class TriggerPolicy {
+  /** no jitter, no catch-up, no cap */
+  public static final TriggerPolicy NONE = new TriggerPolicy(0, false, 0);
+  
+  private final long jitter;
+  private final boolean catchUp;
+  private final int maxStartsPerMinute;
+
+  /**
+   * Creates instance of the policy.
+   * @param jitter maximum random delay in milliseconds of a run due at
+   * activation; value less than 1 means no jitter
+   * @param catchUp <code>true</code> to run once at activation if any run has
+   * been missed since the last harvest
+   * @param maxStartsPerMinute maximum number of harvests started by the 
+   * triggers within a minute; value less than 1 means no limit
+   */
+  public TriggerPolicy(long jitter, boolean catchUp, int maxStartsPerMinute) {
+    this.jitter = Math.max(0, jitter);
+    this.catchUp = catchUp;
+    this.maxStartsPerMinute = Math.max(0, maxStartsPerMinute);
+  }
+
+  /**
+   * Gets jitter.
+   * @return maximum random delay in milliseconds of a run due at activation
+   */
+  public long getJitter() {
+    return jitter;
+  }
+
+  /**
+   * Checks if missed runs are caught up.
+   * @return <code>true</code> to run once at activation if any run has been
+   * missed since the last harvest
+   */
+  public boolean isCatchUp() {
+    return catchUp;
+  }
+
+  /**
+   * Gets maximum number of starts per minute.
+   * @return maximum number of harvests started by the triggers within a minute
+   * or zero if no limit
+   */
+  public int getMaxStartsPerMinute() {
+    return maxStartsPerMinute;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("TRIGGER POLICY :: jitter: %d, catch-up: %b, max starts per minute: %d", jitter, catchUp, maxStartsPerMinute);
+  }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Trigger scheduler.
+ * <p>
+ * Hashed timer wheel shared by all the triggers. A single thread advances the
+ * wheel once per tick and hands expired timeouts over to a small pool of
+ * worker threads, thus number of threads does not depend on the number of 
+ * scheduled triggers, and each scheduled trigger costs just a single entry in
+ * the wheel. Timeouts fire no earlier than requested and at most one tick
+ * later.
+ * <p>
+ * The scheduler also applies {@link TriggerPolicy}: it keeps track of the 
+ * harvests started by the triggers within the last minute.
+ */
+public final class TriggerScheduler {
+  private static final Logger LOG = LoggerFactory.getLogger(TriggerScheduler.class);
+  
+  /** default tick (milliseconds) */
+  public static final long DEFAULT_TICK = 1000;
+  /** default number of buckets of the wheel */
+  public static final int DEFAULT_WHEEL_SIZE = 512;
+  /** default number of worker threads */
+  public static final int DEFAULT_THREADS = 2;
+  
+  private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+  
+  private static TriggerScheduler defaultScheduler;
+  
+  private final long tick;
+  private final TriggerPolicy policy;
+  private final ArrayDeque<Long> starts = new ArrayDeque<>();
+  private final LinkedHashSet<Timeout>[] wheel;
+  private final int mask;
+  private final ThreadPoolExecutor workers;
+  private final ConcurrentLinkedQueue<Timeout> added = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pending = new AtomicInteger();
+  private final LongSupplier clock;
+  private final boolean manual;
+  private final long startTime;
+  private Thread ticker;
+  private volatile boolean shutdown;
+  private long ticks;
+
+  /**
+   * Gets default scheduler.
+   * @return default scheduler shared by triggers created without a scheduler
+   */
+  public static synchronized TriggerScheduler getDefault() {
+    if (defaultScheduler == null) {
+      defaultScheduler = new TriggerScheduler(DEFAULT_TICK, DEFAULT_THREADS);
+    }
+    return defaultScheduler;
+  }
+
+  /**
+   * Creates instance of the scheduler.
+   * @param tick tick in milliseconds
+   * @param threads number of worker threads
+   */
+  public TriggerScheduler(long tick, int threads) {
+    this(tick, DEFAULT_WHEEL_SIZE, threads, TriggerPolicy.NONE);
+  }
+
+  /**
+   * Creates instance of the scheduler.
+   * @param tick tick in milliseconds
+   * @param threads number of worker threads
+   * @param policy trigger policy
+   */
+  public TriggerScheduler(long tick, int threads, TriggerPolicy policy) {
+    this(tick, DEFAULT_WHEEL_SIZE, threads, policy);
+  }
+
+  /**
+   * Creates instance of the scheduler.
+   * @param tick tick in milliseconds
+   * @param wheelSize number of buckets of the wheel; rounded up to a power of two
+   * @param threads number of worker threads
+   * @param policy trigger policy
+   */
+  public TriggerScheduler(long tick, int wheelSize, int threads, TriggerPolicy policy) {
+    this(tick, wheelSize, threads, policy, null);
+  }
+
+  /**
+   * Creates instance of the scheduler.
+   * @param tick tick in milliseconds
+   * @param wheelSize number of buckets of the wheel; rounded up to a power of two
+   * @param threads number of worker threads
+   * @param policy trigger policy
+   * @param clock clock providing current time in nanoseconds; if given, the 
+   * wheel is advanced by {@link #advance()} instead of the timer thread
+   */
+  @SuppressWarnings("unchecked")
+  /*package*/ TriggerScheduler(long tick, int wheelSize, int threads, TriggerPolicy policy, LongSupplier clock) {
+    this.clock = clock != null? clock: System::nanoTime;
+    this.manual = clock != null;
+    this.startTime = this.clock.getAsLong();
+    this.tick = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tick));
+    this.policy = policy;
+    int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+    this.wheel = new LinkedHashSet[size];
+    for (int i = 0; i < size; i++) {
+      this.wheel[i] = new LinkedHashSet<>();
+    }
+    this.mask = size - 1;
+    AtomicInteger counter = new AtomicInteger();
+    int maxThreads = Math.max(1, threads);
+    this.workers = new ThreadPoolExecutor(
+            maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> {
+              Thread thread = new Thread(r, String.format("HARVESTING-TRIGGER-%d", counter.incrementAndGet()));
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.workers.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Schedules task.
+   * @param task task to run
+   * @param delay delay
+   * @param unit unit of the delay
+   * @return timeout
+   * @throws IllegalStateException if scheduler has been shut down
+   */
+  public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+    if (shutdown) {
+      throw new IllegalStateException("Trigger scheduler has been shut down.");
+    }
+    if (!manual) {
+      startTicker();
+    }
+    Timeout timeout = new Timeout(task, clock.getAsLong() - startTime + unit.toNanos(Math.max(0, delay)));
+    pending.incrementAndGet();
+    added.add(timeout);
+    return timeout;
+  }
+
+  /**
+   * Gets trigger policy.
+   * @return trigger policy
+   */
+  public TriggerPolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Reserves start of a harvest within the cap of the policy.
+   * @return zero if the harvest may start now, or time in milliseconds until
+   * the cap allows another start
+   */
+  public synchronized long reserveStart() {
+    if (policy.getMaxStartsPerMinute() <= 0) {
+      return 0;
+    }
+    long now = TimeUnit.NANOSECONDS.toMillis(clock.getAsLong());
+    while (!starts.isEmpty() && starts.peekFirst() <= now - MINUTE) {
+      starts.pollFirst();
+    }
+    if (starts.size() < policy.getMaxStartsPerMinute()) {
+      starts.addLast(now);
+      return 0;
+    }
+    return starts.peekFirst() + MINUTE - now;
+  }
+
+  /**
+   * Gets number of pending timeouts.
+   * @return number of timeouts neither fired nor cancelled yet
+   */
+  public int getPendingCount() {
+    return pending.get();
+  }
+
+  /**
+   * Shuts down scheduler. Pending timeouts never fire.
+   */
+  public void shutdown() {
+    shutdown = true;
+    synchronized (this) {
+      if (ticker != null) {
+        ticker.interrupt();
+      }
+    }
+    workers.shutdownNow();
+  }
+
+  private synchronized void startTicker() {
+    if (ticker == null) {
+      ticker = new Thread(this::run, "HARVESTING-TIMER");
+      ticker.setDaemon(true);
+      ticker.start();
+    }
+  }
+
+  private void run() {
+    try {
+      while (!shutdown) {
+        long sleep = (ticks + 1) * tick - (clock.getAsLong() - startTime);
+        if (sleep > 0) {
+          TimeUnit.NANOSECONDS.sleep(sleep);
+        }
+        nextTick();
+      }
+    } catch (InterruptedException ex) {
+      LOG.debug("Trigger scheduler interrupted.");
+    }
+  }
+
+  /**
+   * Advances the wheel by all the ticks elapsed according to the clock. Used
+   * instead of the timer thread if the scheduler has been created with its
+   * own clock.
+   */
+  /*package*/ synchronized void advance() {
+    while ((ticks + 1) * tick <= clock.getAsLong() - startTime) {
+      nextTick();
+    }
+  }
+
+  private void nextTick() {
+    removeCancelled();
+    transferAdded();
+    expire(wheel[(int) (ticks & mask)]);
+    ticks++;
+  }
+
+  private void removeCancelled() {
+    for (Timeout timeout = cancelled.poll(); timeout != null; timeout = cancelled.poll()) {
+      if (timeout.bucket != null) {
+        timeout.bucket.remove(timeout);
+        timeout.bucket = null;
+      }
+    }
+  }
+
+  private void transferAdded() {
+    for (Timeout timeout = added.poll(); timeout != null; timeout = added.poll()) {
+      if (timeout.state.get() != State.PENDING) {
+        continue;
+      }
+      // tick processed at the end of which the deadline passes
+      long due = Math.max((timeout.deadline + tick - 1) / tick - 1, ticks);
+      timeout.rounds = (due - ticks) / wheel.length;
+      timeout.bucket = wheel[(int) (due & mask)];
+      timeout.bucket.add(timeout);
+    }
+  }
+
+  private void expire(LinkedHashSet<Timeout> bucket) {
+    for (Iterator<Timeout> it = bucket.iterator(); it.hasNext();) {
+      Timeout timeout = it.next();
+      if (timeout.rounds > 0) {
+        timeout.rounds--;
+        continue;
+      }
+      it.remove();
+      timeout.bucket = null;
+      if (timeout.state.compareAndSet(State.PENDING, State.EXPIRED)) {
+        pending.decrementAndGet();
+        workers.execute(timeout::fire);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("TRIGGER SCHEDULER :: tick: %dms, wheel: %d, threads: %d, pending: %d, %s", TimeUnit.NANOSECONDS.toMillis(tick), wheel.length, workers.getMaximumPoolSize(), getPendingCount(), policy);
+  }
+  
+  /**
+   * Timeout state.
+   */
+  public enum State {
+    /** waiting to fire */
+    PENDING,
+    /** fired */
+    EXPIRED,
+    /** cancelled before fired */
+    CANCELLED
+  }
+
+  /**
+   * Timeout.
+   */
+  public final class Timeout {
+    private final Runnable task;
+    private final long deadline;
+    private final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+    // accessed by the ticker thread only
+    private LinkedHashSet<Timeout> bucket;
+    private long rounds;
+
+    private Timeout(Runnable task, long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Gets state.
+     * @return state
+     */
+    public State getState() {
+      return state.get();
+    }
+
+    /**
+     * Cancels timeout.
+     * @return <code>true</code> if cancelled before fired
+     */
+    public boolean cancel() {
+      if (state.compareAndSet(State.PENDING, State.CANCELLED)) {
+        pending.decrementAndGet();
+        cancelled.add(this);
+        return true;
+      }
+      return false;
+    }
+
+    private void fire() {
+      try {
+        task.run();
+      } catch (RuntimeException ex) {
+        LOG.error("Error running scheduled task.", ex);
+      }
+    }
+  }
+}
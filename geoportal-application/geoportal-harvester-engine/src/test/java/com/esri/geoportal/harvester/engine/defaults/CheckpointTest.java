@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.defaults;
+
+import com.esri.geoportal.harvester.api.Processor;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checkpoint test.
+ * <p>
+ * Resuming interrupted harvest publishes only the records after the 
+ * checkpoint, thus it must not clean up records harvested before.
+ */
+public class CheckpointTest {
+  private static final List<String> IDS = ids(10);
+
+  @Test
+  public void testFullHarvestCleansUp() throws Exception {
+    MemoryOutputBroker destination = new MemoryOutputBroker("destination", true);
+    destination.getRecords().put("stale", "stale");
+    
+    Harvest.run(new DefaultProcessor(), new MemoryInputBroker(IDS), null, destination);
+    
+    assertFalse("Stale record should be cleaned up", destination.getRecords().containsKey("stale"));
+    assertEquals(IDS.size(), destination.getRecords().size());
+  }
+
+  @Test
+  public void testDefaultProcessorResumeKeepsRecords() throws Exception {
+    testResumeKeepsRecords(new DefaultProcessor());
+  }
+
+  @Test
+  public void testPipelineProcessorResumeKeepsRecords() throws Exception {
+    testResumeKeepsRecords(new PipelineProcessor());
+  }
+
+  private void testResumeKeepsRecords(Processor processor) throws Exception {
+    MemoryOutputBroker destination = new MemoryOutputBroker("destination", true);
+    Harvest.run(processor, new MemoryInputBroker(IDS), null, destination);
+    assertEquals(IDS.size(), destination.getRecords().size());
+    
+    Harvest resumed = Harvest.run(processor, new MemoryInputBroker(IDS), "6", destination);
+    
+    assertEquals("Only records after the checkpoint should be harvested", 4, resumed.getProcessed());
+    assertEquals("Records harvested before the checkpoint should survive", IDS.size(), destination.getRecords().size());
+  }
+  
+  /**
+   * Creates record ids.
+   * @param count number of ids
+   * @return list of ids
+   */
+  public static List<String> ids(int count) {
+    ArrayList<String> ids = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      ids.add(String.format("r%d", i));
+    }
+    return ids;
+  }
+}
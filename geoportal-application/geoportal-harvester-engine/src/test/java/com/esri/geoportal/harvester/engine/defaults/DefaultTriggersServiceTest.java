@@ -0,0 +1,324 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.defaults;
+
+import com.esri.geoportal.harvester.api.Trigger;
+import com.esri.geoportal.harvester.api.TriggerInstance;
+import com.esri.geoportal.harvester.api.defs.TriggerDefinition;
+import com.esri.geoportal.harvester.api.defs.UITemplate;
+import com.esri.geoportal.harvester.engine.managers.LeaseManager;
+import com.esri.geoportal.harvester.engine.managers.TriggerInstanceManager;
+import com.esri.geoportal.harvester.engine.managers.TriggerManager;
+import com.esri.geoportal.harvester.engine.registers.TriggerRegistry;
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import com.esri.geoportal.harvester.engine.utils.LeasePolicy;
+import com.esri.geoportal.harvester.engine.utils.MemoryHistoryManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Default triggers service test.
+ * <p>
+ * Several nodes share triggers through leases kept in memory. Leases expire
+ * according to a virtual clock advanced by the test, and heartbeats are
+ * called directly, thus nodes can be made to fail at will.
+ */
+public class DefaultTriggersServiceTest {
+  private static final long DURATION = 30000;
+  private static final long HEARTBEAT = 10000;
+  private static final int TRIGGERS = 6;
+  
+  private MemoryLeaseManager leaseManager;
+  private MemoryTriggerManager triggerManager;
+  private Node a;
+  private Node b;
+
+  @Before
+  public void setUp() throws Exception {
+    leaseManager = new MemoryLeaseManager();
+    triggerManager = new MemoryTriggerManager();
+    for (int i = 0; i < TRIGGERS; i++) {
+      TriggerDefinition trigDef = new TriggerDefinition();
+      trigDef.setType(CountingTrigger.TYPE);
+      TriggerManager.TaskUuidTriggerDefinitionPair pair = new TriggerManager.TaskUuidTriggerDefinitionPair();
+      pair.setTaskUuid(UUID.randomUUID());
+      pair.setTriggerDefinition(trigDef);
+      triggerManager.create(pair);
+    }
+    a = new Node("a");
+    b = new Node("b");
+  }
+
+  @Test
+  public void testSingleNodeClaimsAll() throws Exception {
+    a.service.heartbeat();
+    
+    assertEquals("Single node should activate every trigger", TRIGGERS, a.trigger.active.get());
+  }
+
+  @Test
+  public void testFairShare() throws Exception {
+    shareFairly();
+    
+    assertEquals("Each node should activate its fair share", TRIGGERS / 2, a.trigger.active.get());
+    assertEquals(TRIGGERS / 2, b.trigger.active.get());
+    assertActivatedOnce();
+  }
+
+  @Test
+  public void testTakeOverAfterNodeFailure() throws Exception {
+    shareFairly();
+    
+    for (long time = HEARTBEAT; time <= DURATION + HEARTBEAT; time += HEARTBEAT) {
+      leaseManager.clock = time;
+      b.service.heartbeat();
+    }
+    assertEquals("Triggers of the failed node should be taken over", TRIGGERS, b.trigger.active.get());
+    
+    a.service.heartbeat();
+    assertEquals("Node coming back should give up triggers taken over", 0, a.trigger.active.get());
+    assertEquals(TRIGGERS, b.trigger.active.get());
+    assertActivatedOnce();
+  }
+
+  @Test
+  public void testDeletedTriggerReleased() throws Exception {
+    a.service.heartbeat();
+    UUID deleted = triggerManager.list().iterator().next().getKey();
+    triggerManager.delete(deleted);
+    
+    a.service.heartbeat();
+    
+    assertEquals("Deleted trigger should be deactivated", TRIGGERS - 1, a.trigger.active.get());
+    assertFalse(a.instances.mem.containsKey(deleted));
+    assertEquals("Lease of the deleted trigger should be released", TRIGGERS - 1, leaseManager.count("TRIGGER:"));
+  }
+
+  @Test
+  public void testScheduledTriggerLeased() throws Exception {
+    shareFairly();
+    TriggerDefinition trigDef = new TriggerDefinition();
+    trigDef.setType(CountingTrigger.TYPE);
+    
+    b.service.schedule(UUID.randomUUID(), trigDef, null);
+    a.service.heartbeat();
+    b.service.heartbeat();
+    
+    assertEquals("Scheduled trigger should be activated by the node scheduling it", TRIGGERS / 2 + 1, b.trigger.active.get());
+    assertEquals(TRIGGERS / 2, a.trigger.active.get());
+    assertActivatedOnce();
+  }
+
+  /**
+   * Lets the first node claim all the triggers, then the second node join.
+   */
+  private void shareFairly() {
+    a.service.heartbeat();
+    b.service.heartbeat();
+    assertEquals("Triggers leased by another node should not be claimed", 0, b.trigger.active.get());
+    a.service.heartbeat();
+    b.service.heartbeat();
+  }
+
+  private void assertActivatedOnce() {
+    Set<UUID> common = new HashSet<>(a.instances.mem.keySet());
+    common.retainAll(b.instances.mem.keySet());
+    assertTrue(String.format("Triggers activated by both nodes: %s", common), common.isEmpty());
+  }
+
+  /**
+   * Harvester node.
+   */
+  private class Node {
+    private final CountingTrigger trigger = new CountingTrigger();
+    private final MemoryTriggerInstanceManager instances = new MemoryTriggerInstanceManager();
+    private final DefaultTriggersService service;
+
+    public Node(String name) {
+      TriggerRegistry triggerRegistry = new TriggerRegistry();
+      triggerRegistry.register(trigger);
+      service = new DefaultTriggersService(triggerRegistry, triggerManager, new MemoryHistoryManager(), instances, null, leaseManager, new LeasePolicy(name, DURATION, HEARTBEAT));
+    }
+  }
+
+  /**
+   * Trigger counting active instances.
+   */
+  private static class CountingTrigger implements Trigger {
+    private static final String TYPE = "COUNTING";
+    private final AtomicInteger active = new AtomicInteger();
+
+    @Override
+    public String getType() {
+      return TYPE;
+    }
+
+    @Override
+    public UITemplate getTemplate(Locale locale) {
+      return null;
+    }
+
+    @Override
+    public TriggerInstance createInstance(TriggerDefinition triggerDefinition) {
+      return new TriggerInstance() {
+        @Override
+        public TriggerDefinition getTriggerDefinition() {
+          return triggerDefinition;
+        }
+
+        @Override
+        public void activate(TriggerInstance.Context triggerContext) {
+          active.incrementAndGet();
+        }
+
+        @Override
+        public void deactivate() {
+          active.decrementAndGet();
+        }
+      };
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * Lease manager with a virtual clock.
+   */
+  private static class MemoryLeaseManager implements LeaseManager {
+    private final Map<String, String> owners = new LinkedHashMap<>();
+    private final Map<String, Long> expirations = new LinkedHashMap<>();
+    private volatile long clock;
+
+    @Override
+    public synchronized boolean acquire(String key, String owner, long duration) {
+      if (owners.containsKey(key) && !owner.equals(owners.get(key)) && expirations.get(key) > clock) {
+        return false;
+      }
+      owners.put(key, owner);
+      expirations.put(key, clock + duration);
+      return true;
+    }
+
+    @Override
+    public synchronized boolean renew(String key, String owner, long duration) {
+      if (!owner.equals(owners.get(key)) || expirations.get(key) <= clock) {
+        return false;
+      }
+      expirations.put(key, clock + duration);
+      return true;
+    }
+
+    @Override
+    public synchronized void release(String key, String owner) {
+      if (owner.equals(owners.get(key))) {
+        owners.remove(key);
+        expirations.remove(key);
+      }
+    }
+
+    @Override
+    public synchronized int count(String prefix) {
+      return (int) expirations.entrySet().stream()
+              .filter(e -> e.getKey().startsWith(prefix) && e.getValue() > clock)
+              .count();
+    }
+  }
+
+  /**
+   * Trigger manager shared by the nodes.
+   */
+  private static class MemoryTriggerManager implements TriggerManager {
+    private final Map<UUID, TaskUuidTriggerDefinitionPair> mem = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    @Override
+    public UUID create(TaskUuidTriggerDefinitionPair data) throws CrudlException {
+      UUID uuid = UUID.randomUUID();
+      mem.put(uuid, data);
+      return uuid;
+    }
+
+    @Override
+    public boolean delete(UUID id) throws CrudlException {
+      return mem.remove(id) != null;
+    }
+
+    @Override
+    public TaskUuidTriggerDefinitionPair read(UUID id) throws CrudlException {
+      return mem.get(id);
+    }
+
+    @Override
+    public boolean update(UUID id, TaskUuidTriggerDefinitionPair data) throws CrudlException {
+      return mem.put(id, data) != null;
+    }
+
+    @Override
+    public Collection<Map.Entry<UUID, TaskUuidTriggerDefinitionPair>> list() throws CrudlException {
+      synchronized (mem) {
+        return new ArrayList<>(mem.entrySet());
+      }
+    }
+  }
+
+  /**
+   * Trigger instance manager of a single node.
+   */
+  private static class MemoryTriggerInstanceManager implements TriggerInstanceManager {
+    private final Map<UUID, TaskUuidTriggerInstancePair> mem = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    @Override
+    public void put(UUID uuid, TaskUuidTriggerInstancePair instance) {
+      mem.put(uuid, instance);
+    }
+
+    @Override
+    public TaskUuidTriggerInstancePair get(UUID uuid) {
+      return mem.get(uuid);
+    }
+
+    @Override
+    public TaskUuidTriggerInstancePair remove(UUID uuid) {
+      return mem.remove(uuid);
+    }
+
+    @Override
+    public List<Map.Entry<UUID, TaskUuidTriggerInstancePair>> listAll() {
+      synchronized (mem) {
+        return mem.entrySet().stream().collect(Collectors.toList());
+      }
+    }
+
+    @Override
+    public void clear() {
+      mem.clear();
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.defaults;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.Processor;
+import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
+import com.esri.geoportal.harvester.api.base.BrokerLinkActionAdaptor;
+import com.esri.geoportal.harvester.api.base.SimpleIteratorContext;
+import com.esri.geoportal.harvester.api.base.SimpleLink;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.ex.DataException;
+import com.esri.geoportal.harvester.api.general.Link;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import com.esri.geoportal.harvester.api.specs.OutputBroker;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Harvest run by a test.
+ */
+public final class Harvest {
+  private static final long TIMEOUT = 30;
+
+  private final AtomicLong processed = new AtomicLong();
+  private final List<DataException> errors = Collections.synchronizedList(new ArrayList<>());
+  private volatile PublishingStatus status = PublishingStatus.emptyStatus();
+  private volatile String checkpoint;
+
+  /**
+   * Runs a harvest to completion.
+   * @param processor processor
+   * @param source source
+   * @param checkpoint checkpoint to resume from or <code>null</code> to harvest from the beginning
+   * @param destinations destinations
+   * @return harvest
+   * @throws Exception if harvest doesn't complete in time
+   */
+  public static Harvest run(Processor processor, InputBroker source, String checkpoint, OutputBroker...destinations) throws Exception {
+    ArrayList<Link> links = new ArrayList<>();
+    for (OutputBroker destination: destinations) {
+      links.add(new SimpleLink(new BrokerLinkActionAdaptor(destination), Collections.emptyList()));
+    }
+    return run(new Task("test", null, processor, source, links), checkpoint);
+  }
+
+  /**
+   * Runs a harvest to completion.
+   * @param task task
+   * @param checkpoint checkpoint to resume from or <code>null</code> to harvest from the beginning
+   * @return harvest
+   * @throws Exception if harvest doesn't complete in time
+   */
+  public static Harvest run(Task task, String checkpoint) throws Exception {
+    SimpleIteratorContext iteratorContext = new SimpleIteratorContext();
+    iteratorContext.setCheckpoint(checkpoint);
+    ProcessInstance process = task.getProcessor().createProcess(task, iteratorContext);
+    Harvest harvest = new Harvest();
+    CountDownLatch completed = new CountDownLatch(1);
+    process.addListener(new BaseProcessInstanceListener() {
+      @Override
+      public void onStatusChange(ProcessInstance.Status status) {
+        if (status == ProcessInstance.Status.completed) {
+          completed.countDown();
+        }
+      }
+
+      @Override
+      public void onDataProcessed(DataReference dataReference, PublishingStatus status) {
+        harvest.processed.incrementAndGet();
+        synchronized (harvest) {
+          harvest.status = harvest.status.collect(status);
+        }
+      }
+
+      @Override
+      public void onCheckpoint(String checkpoint) {
+        harvest.checkpoint = checkpoint;
+      }
+
+      @Override
+      public void onError(DataException ex) {
+        harvest.errors.add(ex);
+      }
+    });
+    process.init();
+    process.begin();
+    if (!completed.await(TIMEOUT, TimeUnit.SECONDS)) {
+      process.abort();
+      throw new AssertionError(String.format("Harvest not completed in %d seconds", TIMEOUT));
+    }
+    return harvest;
+  }
+
+  /**
+   * Gets number of processed data events.
+   * @return number of processed data events
+   */
+  public long getProcessed() {
+    return processed.get();
+  }
+
+  /**
+   * Gets collected publishing status.
+   * @return publishing status
+   */
+  public synchronized PublishingStatus getStatus() {
+    return status;
+  }
+
+  /**
+   * Gets the latest reported checkpoint.
+   * @return checkpoint or <code>null</code> if none reported
+   */
+  public String getCheckpoint() {
+    return checkpoint;
+  }
+
+  /**
+   * Gets reported errors.
+   * @return errors
+   */
+  public List<DataException> getErrors() {
+    return errors;
+  }
+}
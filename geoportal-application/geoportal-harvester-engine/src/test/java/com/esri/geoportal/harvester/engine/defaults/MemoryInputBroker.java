@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.defaults;
+
+import com.esri.geoportal.commons.constants.MimeType;
+import com.esri.geoportal.commons.utils.SimpleCredentials;
+import com.esri.geoportal.harvester.api.DataContent;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.SimpleDataReference;
+import com.esri.geoportal.harvester.api.base.Tombstone;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.ex.DataInputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import com.esri.geoportal.harvester.api.specs.InputConnector;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory input broker.
+ * <p>
+ * Iterates over the given record ids; checkpoint is the index of the next
+ * record. Records listed as broken cannot be read, records listed as changed
+ * come with a different content and records listed as deleted are iterated 
+ * as tombstones.
+ */
+public class MemoryInputBroker implements InputBroker {
+  private final List<String> ids;
+  private final Set<String> broken = new HashSet<>();
+  private final Set<String> changed = new HashSet<>();
+  private final Set<String> deleted = new HashSet<>();
+
+  /**
+   * Creates instance of the broker.
+   * @param ids record ids
+   */
+  public MemoryInputBroker(List<String> ids) {
+    this.ids = new ArrayList<>(ids);
+  }
+
+  /**
+   * Makes record unreadable.
+   * @param id record id
+   * @return this broker
+   */
+  public MemoryInputBroker broken(String id) {
+    broken.add(id);
+    return this;
+  }
+
+  /**
+   * Changes content of the record.
+   * @param id record id
+   * @return this broker
+   */
+  public MemoryInputBroker changed(String id) {
+    changed.add(id);
+    return this;
+  }
+
+  /**
+   * Deletes record from the source.
+   * @param id record id
+   * @return this broker
+   */
+  public MemoryInputBroker deleted(String id) {
+    deleted.add(id);
+    return this;
+  }
+
+  @Override
+  public void initialize(InitContext context) throws DataProcessorException {
+  }
+
+  @Override
+  public void terminate() {
+  }
+
+  @Override
+  public URI getBrokerUri() throws URISyntaxException {
+    return new URI("memory://source");
+  }
+
+  @Override
+  public Iterator iterator(IteratorContext iteratorContext) throws DataInputException {
+    int start = iteratorContext.getCheckpoint() != null? Integer.parseInt(iteratorContext.getCheckpoint()): 0;
+    return new Iterator() {
+      int index = start;
+
+      @Override
+      public boolean hasNext() throws DataInputException {
+        return index < ids.size();
+      }
+
+      @Override
+      public DataReference next() throws DataInputException {
+        return read(ids.get(index++));
+      }
+
+      @Override
+      public String getCheckpoint() {
+        return Integer.toString(index);
+      }
+    };
+  }
+
+  @Override
+  public DataContent readContent(String id) throws DataInputException {
+    if (broken.contains(id)) {
+      throw new DataInputException(this, String.format("Unable to read: %s", id));
+    }
+    return ids.contains(id)? read(id): null;
+  }
+
+  private DataReference read(String id) throws DataInputException {
+    try {
+      if (deleted.contains(id)) {
+        return new Tombstone(getBrokerUri(), "memory", id, null, new URI("memory://source/" + id), null, null);
+      }
+      SimpleDataReference ref = new SimpleDataReference(getBrokerUri(), "memory", id, null, new URI("memory://source/" + id), null, null);
+      ref.addContext(MimeType.APPLICATION_XML, String.format(changed.contains(id)? "<record id=\"%s\" changed=\"true\"/>": "<record id=\"%s\"/>", id).getBytes(StandardCharsets.UTF_8));
+      return ref;
+    } catch (URISyntaxException ex) {
+      throw new DataInputException(this, String.format("Invalid id: %s", id), ex);
+    }
+  }
+
+  @Override
+  public EntityDefinition getEntityDefinition() {
+    EntityDefinition def = new EntityDefinition();
+    def.setType("MEMORY");
+    def.setLabel("memory");
+    return def;
+  }
+
+  @Override
+  public InputConnector getConnector() {
+    return null;
+  }
+
+  @Override
+  public boolean hasAccess(SimpleCredentials creds) {
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("MEMORY [%d records]", ids.size());
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.defaults;
+
+import com.esri.geoportal.commons.utils.SimpleCredentials;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
+import com.esri.geoportal.harvester.api.base.PublicationLedger;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.ex.DataException;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.specs.OutputBroker;
+import com.esri.geoportal.harvester.api.specs.OutputConnector;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory output broker.
+ * <p>
+ * Publishes records into a map. If cleanup is enabled, removes records not
+ * published during the harvest when terminated, the same way the connectors
+ * do. Publication ledger, if offered by the init context, is used instead of
+ * enumerating the records. Tombstones delete records. Publishing records 
+ * listed as faulty throws a runtime exception, publishing records listed as
+ * fatal throws an error.
+ */
+public class MemoryOutputBroker implements OutputBroker {
+  private final String name;
+  private final boolean cleanup;
+  private final Map<String, String> records = new ConcurrentHashMap<>();
+  private final Set<String> faulty = new HashSet<>();
+  private final Set<String> fatal = new HashSet<>();
+  private final Set<String> existing = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger enumerations = new AtomicInteger();
+  private volatile boolean preventCleanup;
+  private volatile PublicationLedger ledger;
+
+  /**
+   * Creates instance of the broker.
+   * @param name name of the destination
+   * @param cleanup <code>true</code> to remove records not published during the harvest
+   */
+  public MemoryOutputBroker(String name, boolean cleanup) {
+    this.name = name;
+    this.cleanup = cleanup;
+  }
+
+  /**
+   * Makes publishing of the record throw a runtime exception.
+   * @param id record id
+   * @return this broker
+   */
+  public MemoryOutputBroker faulty(String id) {
+    faulty.add(id);
+    return this;
+  }
+
+  /**
+   * Makes publishing of the record throw an error.
+   * @param id record id
+   * @return this broker
+   */
+  public MemoryOutputBroker fatal(String id) {
+    fatal.add(id);
+    return this;
+  }
+
+  /**
+   * Gets published records.
+   * @return map of record ids and content
+   */
+  public Map<String, String> getRecords() {
+    return records;
+  }
+
+  /**
+   * Gets number of times the records have been enumerated for cleanup.
+   * @return number of enumerations
+   */
+  public int getEnumerations() {
+    return enumerations.get();
+  }
+
+  @Override
+  public void initialize(InitContext context) throws DataProcessorException {
+    preventCleanup = !context.canCleanup();
+    ledger = PublicationLedger.of(context);
+    if (cleanup && !preventCleanup) {
+      context.addListener(new BaseProcessInstanceListener() {
+        @Override
+        public void onError(DataException ex) {
+          if (!ex.isNegligible()) {
+            preventCleanup = true;
+          }
+        }
+      });
+      try {
+        Collection<String> recorded = ledger != null? ledger.list(): null;
+        if (recorded != null) {
+          existing.addAll(recorded);
+        } else {
+          enumerations.incrementAndGet();
+          existing.addAll(new HashSet<>(records.keySet()));
+          if (ledger != null) {
+            ledger.seed(existing);
+          }
+        }
+      } catch (IOException ex) {
+        throw new DataProcessorException("Error reading ledger.", ex);
+      }
+    }
+  }
+
+  @Override
+  public void terminate() {
+    if (cleanup && !preventCleanup) {
+      existing.forEach(id -> {
+        records.remove(id);
+        if (ledger != null) {
+          ledger.remove(id);
+        }
+      });
+    }
+    existing.clear();
+  }
+
+  @Override
+  public PublishingStatus publish(DataReference ref) throws DataOutputException {
+    if (faulty.contains(ref.getId())) {
+      throw new IllegalStateException(String.format("Faulty record: %s", ref.getId()));
+    }
+    if (fatal.contains(ref.getId())) {
+      throw new Error(String.format("Fatal record: %s", ref.getId()));
+    }
+    existing.remove(ref.getId());
+    String previous = records.put(ref.getId(), ref.getId());
+    if (ledger != null) {
+      ledger.record(ref.getId());
+    }
+    return previous != null? PublishingStatus.UPDATED: PublishingStatus.CREATED;
+  }
+
+  @Override
+  public PublishingStatus delete(DataReference ref) throws DataOutputException {
+    existing.remove(ref.getId());
+    if (ledger != null) {
+      ledger.remove(ref.getId());
+    }
+    return records.remove(ref.getId()) != null? PublishingStatus.DELETED: PublishingStatus.SKIPPED;
+  }
+
+  @Override
+  public EntityDefinition getEntityDefinition() {
+    EntityDefinition def = new EntityDefinition();
+    def.setType("MEMORY");
+    def.setLabel(name);
+    return def;
+  }
+
+  @Override
+  public OutputConnector getConnector() {
+    return null;
+  }
+
+  @Override
+  public boolean hasAccess(SimpleCredentials creds) {
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("MEMORY [%s]", name);
+  }
+}
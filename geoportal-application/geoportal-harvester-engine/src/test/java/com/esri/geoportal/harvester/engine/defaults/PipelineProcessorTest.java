@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.defaults;
+
+import static com.esri.geoportal.harvester.engine.defaults.CheckpointTest.ids;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Pipeline processor test.
+ */
+public class PipelineProcessorTest {
+
+  @Test
+  public void testFaultyRecordDoesNotStopHarvest() throws Exception {
+    List<String> ids = ids(20);
+    MemoryOutputBroker destination = new MemoryOutputBroker("destination", false).faulty("r3");
+    
+    Harvest harvest = Harvest.run(new PipelineProcessor(), new MemoryInputBroker(ids), null, destination);
+    
+    assertEquals("Other records should be published", ids.size() - 1, destination.getRecords().size());
+    assertEquals(1, harvest.getErrors().size());
+    assertTrue("Failure should be reported as failed record", harvest.getErrors().get(0) instanceof DataOutputException);
+    assertEquals("r3", ((DataOutputException) harvest.getErrors().get(0)).getDataId());
+  }
+
+  @Test
+  public void testFatalRecordDoesNotStallCheckpoints() throws Exception {
+    List<String> ids = ids(20);
+    MemoryOutputBroker destination = new MemoryOutputBroker("destination", false).fatal("r3");
+    
+    Harvest harvest = Harvest.run(new PipelineProcessor(), new MemoryInputBroker(ids), null, destination);
+    
+    assertEquals("Other records should be published", ids.size() - 1, destination.getRecords().size());
+    assertEquals("Checkpoint should advance past the fatal record", Integer.toString(ids.size()), harvest.getCheckpoint());
+  }
+
+  @Test
+  public void testAllRecordsFaulty() throws Exception {
+    List<String> ids = ids(PipelineProcessor.DEFAULT_QUEUE_CAPACITY * 2);
+    MemoryOutputBroker destination = new MemoryOutputBroker("destination", false);
+    ids.forEach(destination::faulty);
+    
+    Harvest harvest = Harvest.run(new PipelineProcessor(), new MemoryInputBroker(ids), null, destination);
+    
+    assertEquals("Every record should be reported as failed", ids.size(), harvest.getErrors().size());
+    assertTrue(destination.getRecords().isEmpty());
+  }
+}
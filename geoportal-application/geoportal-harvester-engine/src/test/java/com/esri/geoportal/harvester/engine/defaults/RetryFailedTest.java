@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.defaults;
+
+import static com.esri.geoportal.harvester.engine.defaults.CheckpointTest.ids;
+import com.esri.geoportal.harvester.engine.utils.RecordInputException;
+import com.esri.geoportal.harvester.engine.utils.RecordsInputBroker;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Retry of the failed records test.
+ */
+public class RetryFailedTest {
+
+  @Test
+  public void testRetryKeepsOtherRecords() throws Exception {
+    List<String> ids = ids(10);
+    MemoryOutputBroker destination = new MemoryOutputBroker("destination", true);
+    Harvest.run(new PipelineProcessor(), new MemoryInputBroker(ids), null, destination);
+    
+    MemoryInputBroker source = new MemoryInputBroker(ids).broken("r5");
+    Harvest retry = Harvest.run(new PipelineProcessor(), new RecordsInputBroker(source, Arrays.asList("r2", "r5", "r7")), null, destination);
+    
+    assertEquals("Records not retried should survive", ids.size(), destination.getRecords().size());
+    assertEquals("Readable records should be published", 2, retry.getProcessed());
+    assertEquals(1, retry.getErrors().size());
+    assertTrue("Unreadable record should be reported as failed", retry.getErrors().get(0) instanceof RecordInputException);
+    assertEquals("r5", ((RecordInputException) retry.getErrors().get(0)).getDataId());
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.defaults;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.Processor;
+import com.esri.geoportal.harvester.api.base.BrokerLinkActionAdaptor;
+import com.esri.geoportal.harvester.api.base.SimpleLink;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.general.Link;
+import com.esri.geoportal.harvester.api.general.LinkAction;
+import com.esri.geoportal.harvester.engine.utils.SharedLinkAction;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Shared link action test.
+ * <p>
+ * Destinations sharing an identical transformer keep their own links, thus
+ * the records are reported per destination and failure of one destination
+ * doesn't affect the others.
+ */
+public class SharedLinkActionTest {
+  private static final List<String> IDS = CheckpointTest.ids(10);
+
+  @Test
+  public void testDefaultProcessor() throws Exception {
+    testSharedAction(new DefaultProcessor());
+  }
+
+  @Test
+  public void testPipelineProcessor() throws Exception {
+    testSharedAction(new PipelineProcessor());
+  }
+
+  private void testSharedAction(Processor processor) throws Exception {
+    CountingAction counting = new CountingAction();
+    SharedLinkAction shared = new SharedLinkAction(counting, 2);
+    MemoryOutputBroker faulty = new MemoryOutputBroker("faulty", false).faulty("r3");
+    MemoryOutputBroker healthy = new MemoryOutputBroker("healthy", false);
+    List<Link> links = Arrays.asList(link(shared, faulty), link(shared, healthy));
+
+    Harvest harvest = Harvest.run(new Task("test", null, processor, new MemoryInputBroker(IDS), links), null);
+
+    assertEquals("Shared action should be executed once per record", IDS.size(), counting.executed.get());
+    assertEquals("Failure of one destination should not affect the other", IDS.size(), healthy.getRecords().size());
+    assertEquals(IDS.size() - 1, faulty.getRecords().size());
+    assertEquals("Records should be reported per destination", 2 * IDS.size() - 1, harvest.getProcessed());
+    assertEquals(1, harvest.getErrors().size());
+  }
+
+  private static Link link(LinkAction action, MemoryOutputBroker destination) {
+    Link drain = new SimpleLink(new BrokerLinkActionAdaptor(destination), Collections.emptyList());
+    return new SimpleLink(action, Collections.singletonList(drain));
+  }
+
+  /**
+   * Pass-through action counting executions.
+   */
+  private static class CountingAction implements LinkAction {
+    private final AtomicInteger executed = new AtomicInteger();
+
+    @Override
+    public EntityDefinition getLinkActionDefinition() {
+      return new EntityDefinition();
+    }
+
+    @Override
+    public List<DataReference> execute(DataReference dataRef) {
+      executed.incrementAndGet();
+      return Collections.singletonList(dataRef);
+    }
+
+    @Override
+    public PublishingStatus push(DataReference dataRef) {
+      return PublishingStatus.EMPTY;
+    }
+
+    @Override
+    public void initialize(InitContext context) {
+    }
+
+    @Override
+    public void terminate() {
+    }
+  }
+}
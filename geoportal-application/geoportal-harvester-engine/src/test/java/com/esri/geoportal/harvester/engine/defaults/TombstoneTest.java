@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.defaults;
+
+import static com.esri.geoportal.harvester.engine.defaults.CheckpointTest.ids;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.FilterInstance;
+import com.esri.geoportal.harvester.api.Processor;
+import com.esri.geoportal.harvester.api.base.BrokerLinkActionAdaptor;
+import com.esri.geoportal.harvester.api.base.FilterLinkActionAdaptor;
+import com.esri.geoportal.harvester.api.base.SimpleLink;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.general.Link;
+import com.esri.geoportal.harvester.api.specs.OutputBroker;
+import com.esri.geoportal.harvester.engine.utils.FingerprintingOutputBroker;
+import com.esri.geoportal.harvester.engine.utils.MemoryFingerprintManager;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tombstone test.
+ * <p>
+ * Records deleted from the source are deleted from the destination by the 
+ * next harvest, no cleanup needed.
+ */
+public class TombstoneTest {
+  private static final List<String> IDS = ids(10);
+
+  @Test
+  public void testDefaultProcessor() throws Exception {
+    testTombstoneDeletesRecord(new DefaultProcessor());
+  }
+
+  @Test
+  public void testPipelineProcessor() throws Exception {
+    testTombstoneDeletesRecord(new PipelineProcessor());
+  }
+
+  @Test
+  public void testTombstoneOfUnknownRecordSkipped() throws Exception {
+    MemoryOutputBroker destination = new MemoryOutputBroker("destination", false);
+    
+    Harvest harvest = Harvest.run(new PipelineProcessor(), new MemoryInputBroker(IDS).deleted("r3"), null, destination);
+    
+    assertEquals(0, harvest.getStatus().getDeleted());
+    assertEquals("Record deleted from the source should not be published", IDS.size() - 1, destination.getRecords().size());
+    assertTrue(harvest.getErrors().isEmpty());
+  }
+
+  @Test
+  public void testTombstoneBypassesFilter() throws Exception {
+    MemoryOutputBroker destination = new MemoryOutputBroker("destination", false);
+    Harvest.run(new PipelineProcessor(), new MemoryInputBroker(IDS), null, destination);
+    Link drain = new SimpleLink(new BrokerLinkActionAdaptor(destination), Collections.emptyList());
+    Link filter = new SimpleLink(new FilterLinkActionAdaptor(new RejectingFilter()), Collections.singletonList(drain));
+    
+    Harvest harvest = Harvest.run(new Task("test", null, new PipelineProcessor(), new MemoryInputBroker(IDS).deleted("r3"), Collections.singletonList(filter)), null);
+    
+    assertEquals("Tombstone should never be filtered out", 1, harvest.getStatus().getDeleted());
+    assertFalse(destination.getRecords().containsKey("r3"));
+    assertEquals(IDS.size() - 1, destination.getRecords().size());
+  }
+
+  @Test
+  public void testTombstoneRemovesFingerprint() throws Exception {
+    UUID taskId = UUID.randomUUID();
+    MemoryFingerprintManager fingerprintManager = new MemoryFingerprintManager();
+    MemoryOutputBroker destination = new MemoryOutputBroker("destination", false);
+    OutputBroker broker = new FingerprintingOutputBroker(destination, fingerprintManager);
+    
+    harvest(taskId, new MemoryInputBroker(IDS), broker);
+    harvest(taskId, new MemoryInputBroker(IDS).deleted("r3"), broker);
+    assertEquals("Fingerprint of the deleted record should be removed", IDS.size() - 1, fingerprintManager.size());
+    
+    Harvest harvest = harvest(taskId, new MemoryInputBroker(IDS), broker);
+    assertEquals("Record restored at the source should be published again", 1, harvest.getStatus().getCreated());
+    assertEquals(IDS.size() - 1, harvest.getStatus().getUnchanged());
+    assertTrue(destination.getRecords().containsKey("r3"));
+  }
+
+  private void testTombstoneDeletesRecord(Processor processor) throws Exception {
+    MemoryOutputBroker destination = new MemoryOutputBroker("destination", false);
+    Harvest.run(processor, new MemoryInputBroker(IDS), null, destination);
+    
+    Harvest harvest = Harvest.run(processor, new MemoryInputBroker(IDS).deleted("r3").deleted("r7"), null, destination);
+    
+    assertEquals("Records deleted from the source should be deleted", 2, harvest.getStatus().getDeleted());
+    assertEquals(IDS.size() - 2, harvest.getStatus().getUpdated());
+    assertFalse(destination.getRecords().containsKey("r3"));
+    assertFalse(destination.getRecords().containsKey("r7"));
+    assertEquals(IDS.size() - 2, destination.getRecords().size());
+    assertTrue(harvest.getErrors().isEmpty());
+  }
+
+  private static Harvest harvest(UUID taskId, MemoryInputBroker source, OutputBroker broker) throws Exception {
+    Link link = new SimpleLink(new BrokerLinkActionAdaptor(broker), Collections.emptyList());
+    return Harvest.run(new Task("test", taskId.toString(), new PipelineProcessor(), source, Collections.singletonList(link), Collections.emptyList(), true, false), null);
+  }
+
+  /**
+   * Filter rejecting every record.
+   */
+  private static class RejectingFilter implements FilterInstance {
+
+    @Override
+    public EntityDefinition getFilterDefinition() {
+      EntityDefinition def = new EntityDefinition();
+      def.setType("REJECT");
+      return def;
+    }
+
+    @Override
+    public boolean test(DataReference dataReference) {
+      return false;
+    }
+
+    @Override
+    public void initialize(InitContext context) throws DataProcessorException {
+    }
+
+    @Override
+    public void terminate() {
+    }
+  }
+}
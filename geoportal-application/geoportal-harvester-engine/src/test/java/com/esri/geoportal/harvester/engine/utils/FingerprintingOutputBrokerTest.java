@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.harvester.engine.defaults.CheckpointTest.ids;
+import com.esri.geoportal.harvester.api.base.BrokerLinkActionAdaptor;
+import com.esri.geoportal.harvester.api.base.SimpleLink;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.specs.OutputBroker;
+import com.esri.geoportal.harvester.engine.defaults.Harvest;
+import com.esri.geoportal.harvester.engine.defaults.MemoryInputBroker;
+import com.esri.geoportal.harvester.engine.defaults.MemoryOutputBroker;
+import com.esri.geoportal.harvester.engine.defaults.PipelineProcessor;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Fingerprinting output broker test.
+ */
+public class FingerprintingOutputBrokerTest {
+  private final UUID taskId = UUID.randomUUID();
+  private final List<String> ids = ids(10);
+  private MemoryFingerprintManager fingerprintManager;
+  private MemoryOutputBroker destination;
+
+  @Before
+  public void setUp() throws Exception {
+    fingerprintManager = new MemoryFingerprintManager();
+    destination = new MemoryOutputBroker("destination", false);
+    Harvest first = harvest(new MemoryInputBroker(ids), true);
+    assertEquals("Records never published should be published", ids.size(), first.getStatus().getCreated());
+    assertEquals("Fingerprint of each published record should be stored", ids.size(), fingerprintManager.size());
+  }
+
+  @Test
+  public void testIncrementalHarvestSkipsUnchanged() throws Exception {
+    Harvest harvest = harvest(new MemoryInputBroker(ids).changed("r3"), true);
+    
+    assertEquals("Unchanged records should not be published", ids.size() - 1, harvest.getStatus().getUnchanged());
+    assertEquals("Changed record should be published", 1, harvest.getStatus().getUpdated());
+    assertEquals(ids.size(), harvest.getProcessed());
+  }
+
+  @Test
+  public void testChangedRecordSkippedOnceRepublished() throws Exception {
+    harvest(new MemoryInputBroker(ids).changed("r3"), true);
+    Harvest harvest = harvest(new MemoryInputBroker(ids).changed("r3"), true);
+    
+    assertEquals("Fingerprint of the republished record should be refreshed", ids.size(), harvest.getStatus().getUnchanged());
+  }
+
+  @Test
+  public void testFullHarvestPublishesAll() throws Exception {
+    Harvest harvest = harvest(new MemoryInputBroker(ids), false);
+    
+    assertEquals("Full harvest should publish every record", ids.size(), harvest.getStatus().getUpdated());
+    assertEquals(0, harvest.getStatus().getUnchanged());
+  }
+
+  @Test
+  public void testAdHocTaskPublishesAll() throws Exception {
+    OutputBroker broker = new FingerprintingOutputBroker(destination, fingerprintManager);
+    Harvest harvest = Harvest.run(new PipelineProcessor(), new MemoryInputBroker(ids), null, broker);
+    
+    assertEquals("Task without id has no fingerprints to compare to", ids.size(), harvest.getStatus().getUpdated());
+  }
+
+  private Harvest harvest(MemoryInputBroker source, boolean incremental) throws Exception {
+    OutputBroker broker = new FingerprintingOutputBroker(destination, fingerprintManager);
+    SimpleLink link = new SimpleLink(new BrokerLinkActionAdaptor(broker), Collections.emptyList());
+    Task task = new Task("test", taskId.toString(), new PipelineProcessor(), source, Arrays.asList(link), Collections.emptyList(), incremental, false);
+    return Harvest.run(task, null);
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Harvest executor test.
+ * <p>
+ * Synthetic harvests share a single slot. Each record advances a virtual
+ * clock by 10ms instead of sleeping, so the scheduling decisions depend only
+ * on the order of the records, never on the speed of the machine.
+ * <p>
+ * {@link #benchmarkShortHarvestLatency()} is a benchmark rather than a test:
+ * it measures wall-clock latency of short harvests begun next to a long one 
+ * and only prints it.
+ */
+public class HarvestExecutorTest {
+  private static final long RECORD_TIME = 10;
+  private static final long TIME_SLICE = 50;
+  private static final int LONG_RECORDS = 200;
+  private static final int SHORT_RECORDS = 5;
+  private static final int JOIN_AT = 5;
+  private static final long TIMEOUT = 30;
+  private static final int SHORT_COUNT = 5;
+  private static final long SHORT_INTERVAL = 200;
+  
+  private final AtomicLong clock = new AtomicLong();
+  
+  @Test
+  public void testRunToCompletionDelaysShortHarvest() throws Exception {
+    HarvestExecutor executor = new HarvestExecutor(1, 0, clock::get);
+    try {
+      List<String> records = runLongAndShort(executor);
+      
+      assertEquals("Short harvest should start after the long one completes", LONG_RECORDS, records.indexOf("short"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+  
+  @Test
+  public void testFairShareYieldsSlotToShortHarvest() throws Exception {
+    HarvestExecutor executor = new HarvestExecutor(1, TIME_SLICE, clock::get);
+    try {
+      List<String> records = runLongAndShort(executor);
+      
+      assertTrue("Short harvest should complete before the long one", records.lastIndexOf("short") < records.lastIndexOf("long"));
+      assertTrue("Short harvest should start within a time slice", records.indexOf("short") <= JOIN_AT + TIME_SLICE / RECORD_TIME);
+    } finally {
+      executor.shutdown();
+    }
+  }
+  
+  @Test
+  public void testProportionalShare() throws Exception {
+    HarvestExecutor executor = new HarvestExecutor(1, 20, clock::get);
+    try {
+      AtomicInteger total = new AtomicInteger();
+      AtomicInteger high = new AtomicInteger();
+      AtomicInteger low = new AtomicInteger();
+      CountDownLatch start = new CountDownLatch(1);
+      HarvestTicket highTicket = executor.newTicket(8);
+      HarvestTicket lowTicket = executor.newTicket(2);
+      Future<?> f1 = executor.submit(harvest(highTicket, high, total, start), highTicket);
+      Future<?> f2 = executor.submit(harvest(lowTicket, low, total, start), lowTicket);
+      awaitWaiting(executor::getWaitingCount);
+      start.countDown();
+      f1.get(TIMEOUT, TimeUnit.SECONDS);
+      f2.get(TIMEOUT, TimeUnit.SECONDS);
+      
+      assertTrue("Low priority harvest should not starve", low.get() > 0);
+      assertTrue("Slot should be handed over repeatedly", lowTicket.getGrants() > 1 && highTicket.getGrants() > 1);
+      assertTrue("High priority harvest should get proportionally more time", high.get() > 2 * low.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+  
+  @Test
+  public void testFairShareThreadsBounded() throws Exception {
+    HarvestExecutor executor = new HarvestExecutor(1, TIME_SLICE, clock::get);
+    try {
+      Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> harvests = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        HarvestTicket ticket = executor.newTicket(5);
+        harvests.add(executor.submit(() -> {
+          threads.add(Thread.currentThread());
+          try {
+            start.await();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+        }, ticket));
+      }
+      
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+      while (executor.getWaitingCount() < 9) {
+        assertTrue("All but the harvest holding the slot should be waiting", System.currentTimeMillis() < deadline);
+        Thread.sleep(1);
+      }
+      assertEquals(1, executor.getActiveCount());
+      start.countDown();
+      for (Future<?> harvest: harvests) {
+        harvest.get(TIMEOUT, TimeUnit.SECONDS);
+      }
+      assertTrue("Harvests should share a bounded number of threads", threads.size() <= HarvestExecutor.THREADS_PER_SLOT);
+    } finally {
+      executor.shutdown();
+    }
+  }
+  
+  @Test
+  public void testCancelledHarvestNotWaiting() throws Exception {
+    HarvestExecutor executor = new HarvestExecutor(1);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      Future<?> running = executor.submit(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      Future<?> first = executor.submit(() -> {});
+      Future<?> second = executor.submit(() -> {});
+      assertEquals(2, executor.getWaitingCount());
+      
+      first.cancel(true);
+      assertEquals("Cancelled harvest should not be waiting", 1, executor.getWaitingCount());
+      
+      start.countDown();
+      running.get(TIMEOUT, TimeUnit.SECONDS);
+      second.get(TIMEOUT, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+  }
+  
+  /**
+   * Benchmarks scheduling of synthetic harvests sharing a single slot in 
+   * real time: a long harvest (200 records, 10ms each) begun first, and short
+   * harvests (5 records) begun every 200ms while the long one is running. 
+   * Latency of the short harvests is compared between the executor running
+   * harvests to completion and the executor sharing the slot fairly.
+   */
+  @Test
+  public void benchmarkShortHarvestLatency() throws Exception {
+    long fifo = maxShortLatency(new HarvestExecutor(1));
+    long fair = maxShortLatency(new HarvestExecutor(1, TIME_SLICE));
+    System.out.println(String.format("Max latency of %d short harvests next to a long harvest: run to completion %dms, fair share %dms", SHORT_COUNT, fifo, fair));
+  }
+  
+  private long maxShortLatency(HarvestExecutor executor) throws Exception {
+    try {
+      HarvestTicket longTicket = executor.newTicket(5);
+      Future<?> longHarvest = executor.submit(sleeping(longTicket, LONG_RECORDS), longTicket);
+      Thread.sleep(50);
+      
+      long[] latencies = new long[SHORT_COUNT];
+      List<Future<?>> shortHarvests = new ArrayList<>();
+      for (int i = 0; i < SHORT_COUNT; i++) {
+        int index = i;
+        long begun = System.currentTimeMillis();
+        HarvestTicket ticket = executor.newTicket(5);
+        shortHarvests.add(executor.submit(() -> {
+          sleeping(ticket, SHORT_RECORDS).run();
+          latencies[index] = System.currentTimeMillis() - begun;
+        }, ticket));
+        Thread.sleep(SHORT_INTERVAL);
+      }
+      for (Future<?> shortHarvest: shortHarvests) {
+        shortHarvest.get();
+      }
+      longHarvest.get();
+      
+      long max = 0;
+      for (long latency: latencies) {
+        max = Math.max(max, latency);
+      }
+      return max;
+    } finally {
+      executor.shutdown();
+    }
+  }
+  
+  private Runnable sleeping(HarvestTicket ticket, int records) {
+    return () -> {
+      try {
+        for (int i = 0; i < records; i++) {
+          ticket.yieldSlot();
+          Thread.sleep(RECORD_TIME);
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    };
+  }
+  
+  /**
+   * Runs a long harvest and a short harvest begun while the long one is
+   * running.
+   * @param executor executor
+   * @return names of the harvests in the order of the harvested records
+   */
+  private List<String> runLongAndShort(HarvestExecutor executor) throws Exception {
+    List<String> records = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch joined = new CountDownLatch(1);
+    HarvestTicket longTicket = executor.newTicket(5);
+    Future<?> longHarvest = executor.submit(() -> {
+      try {
+        for (int i = 0; i < LONG_RECORDS; i++) {
+          if (i == JOIN_AT) {
+            joined.await();
+          }
+          record(longTicket, records, "long");
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }, longTicket);
+    
+    HarvestTicket shortTicket = executor.newTicket(5);
+    Future<?> shortHarvest = executor.submit(() -> {
+      try {
+        for (int i = 0; i < SHORT_RECORDS; i++) {
+          record(shortTicket, records, "short");
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }, shortTicket);
+    awaitWaiting(executor::getWaitingCount);
+    joined.countDown();
+    
+    shortHarvest.get(TIMEOUT, TimeUnit.SECONDS);
+    longHarvest.get(TIMEOUT, TimeUnit.SECONDS);
+    assertEquals(LONG_RECORDS + SHORT_RECORDS, records.size());
+    return records;
+  }
+  
+  private void record(HarvestTicket ticket, List<String> records, String name) throws InterruptedException {
+    ticket.yieldSlot();
+    records.add(name);
+    clock.addAndGet(RECORD_TIME);
+  }
+  
+  private Runnable harvest(HarvestTicket ticket, AtomicInteger counter, AtomicInteger total, CountDownLatch start) {
+    return () -> {
+      try {
+        start.await();
+        while (total.get() < 1000) {
+          ticket.yieldSlot();
+          if (total.incrementAndGet() > 1000) {
+            break;
+          }
+          counter.incrementAndGet();
+          clock.addAndGet(RECORD_TIME);
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    };
+  }
+  
+  /**
+   * Waits until a harvest waits for the slot.
+   * @param waitingCount number of waiting harvests
+   */
+  private static void awaitWaiting(IntSupplier waitingCount) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+    while (waitingCount.getAsInt() < 1) {
+      assertTrue("Harvest should be waiting for the slot", System.currentTimeMillis() < deadline);
+      Thread.sleep(1);
+    }
+  }
+}
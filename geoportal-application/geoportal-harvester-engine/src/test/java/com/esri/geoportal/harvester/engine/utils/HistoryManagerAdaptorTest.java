@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.base.SimpleIteratorContext;
+import com.esri.geoportal.harvester.api.ex.DataInputException;
+import com.esri.geoportal.harvester.engine.managers.History;
+import java.util.Date;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * History manager adaptor test.
+ * <p>
+ * Checkpoint of the harvest is kept if the harvest has been interrupted and
+ * removed once the harvest has been completed.
+ */
+public class HistoryManagerAdaptorTest {
+  private final UUID taskId = UUID.randomUUID();
+  private MemoryHistoryManager historyManager;
+
+  @Before
+  public void setUp() {
+    historyManager = new MemoryHistoryManager();
+  }
+
+  @Test
+  public void testCheckpointKeptAfterAbort() throws Exception {
+    HistoryManagerAdaptor adaptor = start(new SimpleIteratorContext());
+    adaptor.onCheckpoint("3");
+    assertEquals("Checkpoint should be stored while harvesting", "3", historyManager.readCheckpoint(taskId).getPosition());
+    
+    adaptor.onCheckpoint("5");
+    adaptor.onStatusChange(ProcessInstance.Status.aborting);
+    adaptor.onStatusChange(ProcessInstance.Status.completed);
+    
+    History.Checkpoint checkpoint = historyManager.readCheckpoint(taskId);
+    assertNotNull("Checkpoint should be kept after abort", checkpoint);
+    assertEquals("The latest checkpoint should be kept", "5", checkpoint.getPosition());
+    assertEquals(1, historyManager.buildHistory(taskId).size());
+  }
+
+  @Test
+  public void testCheckpointKeptAfterInputFailure() throws Exception {
+    HistoryManagerAdaptor adaptor = start(new SimpleIteratorContext());
+    adaptor.onCheckpoint("3");
+    
+    adaptor.onError(new DataInputException(null, "Error reading data."));
+    adaptor.onStatusChange(ProcessInstance.Status.completed);
+    
+    assertEquals("Checkpoint should be kept after failing to read the input", "3", historyManager.readCheckpoint(taskId).getPosition());
+  }
+
+  @Test
+  public void testCheckpointRemovedAfterCompletion() throws Exception {
+    HistoryManagerAdaptor adaptor = start(new SimpleIteratorContext());
+    adaptor.onCheckpoint("3");
+    
+    adaptor.onError(new RecordInputException(null, "r3", "Error reading record.", null));
+    adaptor.onStatusChange(ProcessInstance.Status.completed);
+    
+    assertNull("Checkpoint should be removed once harvest completed", historyManager.readCheckpoint(taskId));
+  }
+
+  @Test
+  public void testResumedCheckpointKeepsLastHarvestDate() throws Exception {
+    Date lastHarvest = new Date(0);
+    SimpleIteratorContext iteratorContext = new SimpleIteratorContext();
+    iteratorContext.setLastHarvest(lastHarvest);
+    iteratorContext.setCheckpoint("3");
+    HistoryManagerAdaptor adaptor = start(iteratorContext);
+    
+    adaptor.onStatusChange(ProcessInstance.Status.aborting);
+    adaptor.onStatusChange(ProcessInstance.Status.completed);
+    
+    History.Checkpoint checkpoint = historyManager.readCheckpoint(taskId);
+    assertEquals("Checkpoint resumed from should be kept if nothing harvested", "3", checkpoint.getPosition());
+    assertEquals("Date of the harvest interrupted should be kept", lastHarvest, checkpoint.getLastHarvestDate());
+  }
+
+  @Test
+  public void testNoCheckpointsWithoutIteratorContext() throws Exception {
+    HistoryManagerAdaptor adaptor = new HistoryManagerAdaptor(taskId, null, historyManager);
+    adaptor.onStatusChange(ProcessInstance.Status.submitted);
+    adaptor.onStatusChange(ProcessInstance.Status.working);
+    adaptor.onCheckpoint("3");
+    adaptor.onStatusChange(ProcessInstance.Status.aborting);
+    adaptor.onStatusChange(ProcessInstance.Status.completed);
+    
+    assertNull(historyManager.readCheckpoint(taskId));
+  }
+
+  @Test
+  public void testRetryNotTakenForLastHarvest() throws Exception {
+    HistoryManagerAdaptor harvest = start(new SimpleIteratorContext());
+    harvest.onStatusChange(ProcessInstance.Status.completed);
+    History.Event harvestEvent = historyManager.buildHistory(taskId).getLastEvent();
+    
+    HistoryManagerAdaptor retry = HistoryManagerAdaptor.forRetry(taskId, null, historyManager);
+    retry.onStatusChange(ProcessInstance.Status.submitted);
+    retry.onStatusChange(ProcessInstance.Status.working);
+    retry.onStatusChange(ProcessInstance.Status.completed);
+    
+    History history = historyManager.buildHistory(taskId);
+    assertEquals("Retry should be recorded in the history", 2, history.size());
+    assertEquals("Retry should be marked", 1, history.stream().filter(History.Event::isRetry).count());
+    assertSame("Retry should not be taken for the last harvest", harvestEvent, history.getLastEvent());
+  }
+
+  private HistoryManagerAdaptor start(SimpleIteratorContext iteratorContext) {
+    HistoryManagerAdaptor adaptor = new HistoryManagerAdaptor(taskId, null, historyManager, iteratorContext);
+    adaptor.onStatusChange(ProcessInstance.Status.submitted);
+    adaptor.onStatusChange(ProcessInstance.Status.working);
+    return adaptor;
+  }
+}
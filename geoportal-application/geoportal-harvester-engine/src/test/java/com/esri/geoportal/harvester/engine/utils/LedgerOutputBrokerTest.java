@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.harvester.engine.defaults.CheckpointTest.ids;
+import com.esri.geoportal.harvester.api.base.BrokerLinkActionAdaptor;
+import com.esri.geoportal.harvester.api.base.SimpleLink;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.specs.OutputBroker;
+import com.esri.geoportal.harvester.engine.defaults.Harvest;
+import com.esri.geoportal.harvester.engine.defaults.MemoryInputBroker;
+import com.esri.geoportal.harvester.engine.defaults.MemoryOutputBroker;
+import com.esri.geoportal.harvester.engine.defaults.PipelineProcessor;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Ledger output broker test.
+ * <p>
+ * Destination enumerates its records only if no ledger has been seeded yet.
+ */
+public class LedgerOutputBrokerTest {
+  private final UUID taskId = UUID.randomUUID();
+  private final List<String> ids = ids(10);
+  private MemoryLedgerManager ledgerManager;
+  private MemoryOutputBroker destination;
+
+  @Before
+  public void setUp() throws Exception {
+    ledgerManager = new MemoryLedgerManager();
+    destination = new MemoryOutputBroker("destination", true);
+    destination.getRecords().put("stale", "stale");
+    
+    harvest(taskId, ids);
+    
+    assertEquals("Destination should be enumerated to seed the ledger", 1, destination.getEnumerations());
+    assertFalse("Record found in the destination should be cleaned up", destination.getRecords().containsKey("stale"));
+    assertEquals("Ledger should list published records only", new HashSet<>(ids), new HashSet<>(list(taskId)));
+  }
+
+  @Test
+  public void testCleanupWithoutEnumeration() throws Exception {
+    destination.getRecords().put("foreign", "foreign");
+    
+    harvest(taskId, ids.subList(0, 8));
+    
+    assertEquals("Destination should not be enumerated once ledger seeded", 1, destination.getEnumerations());
+    assertFalse("Records recorded in the ledger but not harvested should be cleaned up", destination.getRecords().containsKey("r8"));
+    assertFalse(destination.getRecords().containsKey("r9"));
+    assertTrue("Records not recorded in the ledger should be left intact", destination.getRecords().containsKey("foreign"));
+    assertEquals(new HashSet<>(ids.subList(0, 8)), new HashSet<>(list(taskId)));
+  }
+
+  @Test
+  public void testLedgerPerTask() throws Exception {
+    UUID otherTaskId = UUID.randomUUID();
+    
+    harvest(otherTaskId, ids.subList(0, 8));
+    
+    assertEquals("Ledger of another task should be seeded from the destination", 2, destination.getEnumerations());
+    assertEquals(new HashSet<>(ids), new HashSet<>(list(taskId)));
+  }
+
+  @Test
+  public void testAdHocTaskEnumerates() throws Exception {
+    OutputBroker broker = new LedgerOutputBroker(destination, ledgerManager);
+    
+    Harvest.run(new PipelineProcessor(), new MemoryInputBroker(ids), null, broker);
+    
+    assertEquals("Task without id has no ledger", 2, destination.getEnumerations());
+  }
+
+  private List<String> list(UUID taskId) throws CrudlException {
+    return ledgerManager.list(taskId, FingerprintingOutputBroker.destinationKey(destination.getEntityDefinition()));
+  }
+
+  private void harvest(UUID taskId, List<String> ids) throws Exception {
+    OutputBroker broker = new LedgerOutputBroker(destination, ledgerManager);
+    SimpleLink link = new SimpleLink(new BrokerLinkActionAdaptor(broker), Collections.emptyList());
+    Harvest.run(new Task("test", taskId.toString(), new PipelineProcessor(), new MemoryInputBroker(ids), Arrays.asList(link)), null);
+  }
+}
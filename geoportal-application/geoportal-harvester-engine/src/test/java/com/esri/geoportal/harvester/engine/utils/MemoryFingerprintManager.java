@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.engine.managers.FingerprintManager;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory fingerprint manager.
+ */
+public class MemoryFingerprintManager implements FingerprintManager {
+  private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+
+  @Override
+  public String read(UUID taskId, String destination, String dataId) throws CrudlException {
+    return fingerprints.get(key(taskId, destination, dataId));
+  }
+
+  @Override
+  public void store(UUID taskId, String destination, String dataId, String fingerprint) throws CrudlException {
+    fingerprints.put(key(taskId, destination, dataId), fingerprint);
+  }
+
+  @Override
+  public void remove(UUID taskId, String destination, String dataId) throws CrudlException {
+    fingerprints.remove(key(taskId, destination, dataId));
+  }
+
+  @Override
+  public void purge(UUID taskId) throws CrudlException {
+    fingerprints.keySet().removeIf(key -> key.startsWith(taskId + "\n"));
+  }
+
+  /**
+   * Gets number of stored fingerprints.
+   * @return number of stored fingerprints
+   */
+  public int size() {
+    return fingerprints.size();
+  }
+
+  private static String key(UUID taskId, String destination, String dataId) {
+    return String.format("%s\n%s\n%s", taskId, destination, dataId);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.engine.managers.History;
+import com.esri.geoportal.harvester.engine.managers.HistoryManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory history manager.
+ */
+public class MemoryHistoryManager implements HistoryManager {
+  private final Map<UUID, History.Event> events = new ConcurrentHashMap<>();
+  private final Map<UUID, List<String>> failedData = new ConcurrentHashMap<>();
+  private final Map<UUID, History.Checkpoint> checkpoints = new ConcurrentHashMap<>();
+
+  @Override
+  public History buildHistory(UUID uuid) throws CrudlException {
+    History history = new History();
+    events.values().stream().filter(e -> uuid.equals(e.getTaskId())).forEach(history::add);
+    return history;
+  }
+
+  @Override
+  public void purgeHistory(UUID taskId) throws CrudlException {
+    events.values().removeIf(e -> taskId.equals(e.getTaskId()));
+  }
+
+  @Override
+  public List<String> listFailedData(UUID eventId) throws CrudlException {
+    return failedData.getOrDefault(eventId, Collections.emptyList());
+  }
+
+  @Override
+  public void storeFailedDataId(UUID eventId, String dataId) throws CrudlException {
+    failedData.computeIfAbsent(eventId, k -> Collections.synchronizedList(new ArrayList<>())).add(dataId);
+  }
+
+  @Override
+  public History.Checkpoint readCheckpoint(UUID taskId) throws CrudlException {
+    return checkpoints.get(taskId);
+  }
+
+  @Override
+  public void storeCheckpoint(UUID taskId, History.Checkpoint checkpoint) throws CrudlException {
+    if (checkpoint != null) {
+      checkpoints.put(taskId, checkpoint);
+    } else {
+      checkpoints.remove(taskId);
+    }
+  }
+
+  @Override
+  public UUID create(History.Event data) throws CrudlException {
+    UUID uuid = data.getUuid() != null? data.getUuid(): UUID.randomUUID();
+    events.put(uuid, data);
+    return uuid;
+  }
+
+  @Override
+  public boolean delete(UUID id) throws CrudlException {
+    return events.remove(id) != null;
+  }
+
+  @Override
+  public History.Event read(UUID id) throws CrudlException {
+    return events.get(id);
+  }
+
+  @Override
+  public boolean update(UUID id, History.Event data) throws CrudlException {
+    return events.put(id, data) != null;
+  }
+
+  @Override
+  public Collection<Map.Entry<UUID, History.Event>> list() throws CrudlException {
+    return new ArrayList<>(events.entrySet());
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.engine.managers.LedgerManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory ledger manager.
+ */
+public class MemoryLedgerManager implements LedgerManager {
+  private final Map<String, Map<String, Date>> ledgers = new ConcurrentHashMap<>();
+
+  @Override
+  public List<String> list(UUID taskId, String destination) throws CrudlException {
+    Map<String, Date> ledger = ledgers.get(key(taskId, destination));
+    return ledger != null? new ArrayList<>(ledger.keySet()): null;
+  }
+
+  @Override
+  public void seed(UUID taskId, String destination, Collection<String> ids) throws CrudlException {
+    Map<String, Date> ledger = new ConcurrentHashMap<>();
+    Date now = new Date();
+    ids.forEach(id -> ledger.put(id, now));
+    ledgers.put(key(taskId, destination), ledger);
+  }
+
+  @Override
+  public void record(UUID taskId, String destination, String id, Date published) throws CrudlException {
+    ledgers.computeIfAbsent(key(taskId, destination), k -> new ConcurrentHashMap<>()).put(id, published);
+  }
+
+  @Override
+  public void remove(UUID taskId, String destination, String id) throws CrudlException {
+    Map<String, Date> ledger = ledgers.get(key(taskId, destination));
+    if (ledger != null) {
+      ledger.remove(id);
+    }
+  }
+
+  @Override
+  public void purge(UUID taskId) throws CrudlException {
+    ledgers.keySet().removeIf(key -> key.startsWith(taskId + "\n"));
+  }
+
+  private static String key(UUID taskId, String destination) {
+    return String.format("%s\n%s", taskId, destination);
+  }
+}
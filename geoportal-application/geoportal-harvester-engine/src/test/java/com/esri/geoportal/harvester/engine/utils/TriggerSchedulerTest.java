@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.TriggerInstance;
+import com.esri.geoportal.harvester.api.defs.TaskDefinition;
+import com.esri.geoportal.harvester.api.defs.TriggerDefinition;
+import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
+import com.esri.geoportal.harvester.engine.triggers.PeriodTrigger;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Trigger scheduler test.
+ * <p>
+ * Scheduler is driven by a virtual clock advanced by the test, thus timeouts
+ * are checked to expire exactly within the expected tick regardless of the
+ * speed of the machine. Ten thousand period triggers scheduled a day ahead 
+ * are checked to share the ticker and the worker threads, and to keep the heap 
+ * used per trigger bounded.
+ */
+public class TriggerSchedulerTest {
+  private static final int TRIGGER_COUNT = 10000;
+  private static final long TICK = 100;
+  private static final long MAX_HEAP_PER_TRIGGER = 2048;
+  
+  private final AtomicLong clock = new AtomicLong();
+  
+  @Test
+  public void testTenThousandTriggers() throws Exception {
+    TriggerScheduler scheduler = new TriggerScheduler(TriggerScheduler.DEFAULT_TICK, TriggerScheduler.DEFAULT_THREADS);
+    PeriodTrigger trigger = new PeriodTrigger(scheduler);
+    try {
+      int threads = threadCount();
+      long heap = usedHeap();
+      List<TriggerInstance> instances = new ArrayList<>(TRIGGER_COUNT);
+      for (int i = 0; i < TRIGGER_COUNT; i++) {
+        TriggerInstance instance = trigger.createInstance(periodDefinition("P1D"));
+        instance.activate(new LastHarvestContext(new Date()));
+        instances.add(instance);
+      }
+      int newThreads = threadCount() - threads;
+      long newHeap = usedHeap() - heap;
+      System.out.println(String.format("%d period triggers activated: %d new threads, %d bytes of heap per trigger", 
+              TRIGGER_COUNT, newThreads, newHeap / TRIGGER_COUNT));
+      
+      assertEquals(TRIGGER_COUNT, scheduler.getPendingCount());
+      assertTrue("Triggers should share the ticker and the worker threads", newThreads <= 1 + TriggerScheduler.DEFAULT_THREADS);
+      assertTrue("Heap used per trigger should be bounded", newHeap <= MAX_HEAP_PER_TRIGGER * TRIGGER_COUNT);
+      
+      trigger.close();
+      assertEquals("Deactivated triggers should leave the wheel", 0, scheduler.getPendingCount());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+  
+  @Test
+  public void testInvalidPeriod() throws Exception {
+    TriggerScheduler scheduler = new TriggerScheduler(TICK, 8, 1, TriggerPolicy.NONE, clock::get);
+    PeriodTrigger trigger = new PeriodTrigger(scheduler);
+    try {
+      TriggerInstance instance = trigger.createInstance(periodDefinition("daily"));
+      try {
+        instance.activate(new LastHarvestContext(new Date()));
+        fail("Invalid period should be rejected");
+      } catch (InvalidDefinitionException ex) {
+        // expected
+      }
+      assertEquals("Invalid trigger should not be scheduled", 0, scheduler.getPendingCount());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+  
+  @Test
+  public void testExpiresWithinTick() throws Exception {
+    TriggerScheduler scheduler = new TriggerScheduler(TICK, 8, 1, TriggerPolicy.NONE, clock::get);
+    try {
+      long[] delays = {0, 250, 700, 1300};
+      CountDownLatch fired = new CountDownLatch(delays.length);
+      List<TriggerScheduler.Timeout> timeouts = new ArrayList<>();
+      for (long delay: delays) {
+        timeouts.add(scheduler.schedule(fired::countDown, delay, TimeUnit.MILLISECONDS));
+      }
+      TriggerScheduler.Timeout cancelled = scheduler.schedule(() -> fail("Cancelled timeout fired"), 500, TimeUnit.MILLISECONDS);
+      assertTrue(cancelled.cancel());
+      
+      for (int i = 0; i < delays.length; i++) {
+        if (delays[i] > 0) {
+          advanceTo(scheduler, delays[i] - 1);
+          assertEquals(String.format("Timeout of %dms should not expire early", delays[i]), 
+                  TriggerScheduler.State.PENDING, timeouts.get(i).getState());
+        }
+        advanceTo(scheduler, (delays[i] / TICK + 1) * TICK);
+        assertEquals(String.format("Timeout of %dms should expire within a tick", delays[i]), 
+                TriggerScheduler.State.EXPIRED, timeouts.get(i).getState());
+      }
+      
+      assertTrue("All timeouts should fire", fired.await(10, TimeUnit.SECONDS));
+      assertEquals(TriggerScheduler.State.CANCELLED, cancelled.getState());
+      assertEquals(0, scheduler.getPendingCount());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+  
+  @Test
+  public void testExpiresAfterWheelRounds() throws Exception {
+    TriggerScheduler scheduler = new TriggerScheduler(TICK, 4, 1, TriggerPolicy.NONE, clock::get);
+    try {
+      TriggerScheduler.Timeout near = scheduler.schedule(() -> {}, 250, TimeUnit.MILLISECONDS);
+      TriggerScheduler.Timeout far = scheduler.schedule(() -> {}, 1250, TimeUnit.MILLISECONDS);
+      
+      advanceTo(scheduler, 300);
+      assertEquals(TriggerScheduler.State.EXPIRED, near.getState());
+      assertEquals("Timeout sharing the bucket should wait for its round", TriggerScheduler.State.PENDING, far.getState());
+      
+      advanceTo(scheduler, 1249);
+      assertEquals(TriggerScheduler.State.PENDING, far.getState());
+      advanceTo(scheduler, 1300);
+      assertEquals(TriggerScheduler.State.EXPIRED, far.getState());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+  
+  @Test
+  public void testStartCap() throws Exception {
+    TriggerScheduler scheduler = new TriggerScheduler(TICK, 8, 1, new TriggerPolicy(0, false, 2), clock::get);
+    try {
+      assertEquals(0, scheduler.reserveStart());
+      advanceTo(scheduler, 1000);
+      assertEquals(0, scheduler.reserveStart());
+      assertEquals("Third start within a minute should wait for the first one to leave the window", 
+              TimeUnit.MINUTES.toMillis(1) - 1000, scheduler.reserveStart());
+      
+      advanceTo(scheduler, TimeUnit.MINUTES.toMillis(1));
+      assertEquals(0, scheduler.reserveStart());
+      assertEquals(1000, scheduler.reserveStart());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+  
+  private void advanceTo(TriggerScheduler scheduler, long millis) {
+    clock.set(TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis)));
+    scheduler.advance();
+  }
+  
+  private static int threadCount() {
+    return ManagementFactory.getThreadMXBean().getThreadCount();
+  }
+  
+  private static long usedHeap() throws InterruptedException {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(50);
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+  
+  private static TriggerDefinition periodDefinition(String period) {
+    TriggerDefinition definition = new TriggerDefinition();
+    definition.setType(PeriodTrigger.TYPE);
+    HashMap<String, String> properties = new HashMap<>();
+    properties.put(PeriodTrigger.T_PERIOD, period);
+    definition.setProperties(properties);
+    definition.setTaskDefinition(new TaskDefinition());
+    return definition;
+  }
+  
+  private static class LastHarvestContext implements TriggerInstance.Context {
+    private final Date lastHarvest;
+
+    public LastHarvestContext(Date lastHarvest) {
+      this.lastHarvest = lastHarvest;
+    }
+
+    @Override
+    public ProcessInstance execute(TaskDefinition taskDefinition) {
+      throw new UnsupportedOperationException("Not expected to fire.");
+    }
+
+    @Override
+    public Date lastHarvest() {
+      return lastHarvest;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.beans;
+
+import com.esri.geoportal.harvester.engine.managers.FingerprintManager;
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Fingerprint manager bean.
+ */
+@Service
+public class FingerprintManagerBean implements FingerprintManager {
+  private static final Logger LOG = LoggerFactory.getLogger(FingerprintManagerBean.class);
+
+  @Autowired
+  private DataSource dataSource;
+
+  /**
+   * Initializes bean.
+   */
+  @PostConstruct
+  public void init() {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement(
+                    "CREATE TABLE IF NOT EXISTS FINGERPRINTS ( taskid varchar(38) NOT NULL, destination varchar(64) NOT NULL, dataid varchar(1024) NOT NULL, fingerprint varchar(64) NOT NULL, PRIMARY KEY (taskid, destination, dataid) ) ;");
+        ) {
+      st.execute();
+      LOG.info("FingerprintManagerBean initialized.");
+    } catch (SQLException ex) {
+      LOG.info("Error initializing fingerprint database", ex);
+    }
+  }
+  
+  /**
+   * Destroys bean.
+   */
+  @PreDestroy
+  public void destroy() {
+    LOG.info(String.format("FingerprintManagerBean destroyed."));
+  }
+
+  @Override
+  public String read(UUID taskId, String destination, String dataId) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("SELECT fingerprint FROM FINGERPRINTS WHERE taskid = ? AND destination = ? AND dataid = ?");
+        ) {
+      st.setString(1, taskId.toString());
+      st.setString(2, destination);
+      st.setString(3, dataId);
+      ResultSet rs = st.executeQuery();
+      return rs.next()? rs.getString(1): null;
+    } catch (SQLException ex) {
+      throw new CrudlException("Error reading fingerprint", ex);
+    }
+  }
+
+  @Override
+  public void store(UUID taskId, String destination, String dataId, String fingerprint) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("MERGE INTO FINGERPRINTS (taskid,destination,dataid,fingerprint) KEY (taskid,destination,dataid) VALUES (?,?,?,?)");
+        ) {
+      st.setString(1, taskId.toString());
+      st.setString(2, destination);
+      st.setString(3, dataId);
+      st.setString(4, fingerprint);
+      st.executeUpdate();
+    } catch (SQLException ex) {
+      throw new CrudlException("Error storing fingerprint", ex);
+    }
+  }
+
+  @Override
+  public void remove(UUID taskId, String destination, String dataId) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("DELETE FROM FINGERPRINTS WHERE taskid = ? AND destination = ? AND dataid = ?");
+        ) {
+      st.setString(1, taskId.toString());
+      st.setString(2, destination);
+      st.setString(3, dataId);
+      st.executeUpdate();
+    } catch (SQLException ex) {
+      throw new CrudlException("Error removing fingerprint", ex);
+    }
+  }
+
+  @Override
+  public void purge(UUID taskId) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("DELETE FROM FINGERPRINTS WHERE taskid = ?");
+        ) {
+      st.setString(1, taskId.toString());
+      st.executeUpdate();
+    } catch (SQLException ex) {
+      throw new CrudlException("Error purging fingerprints", ex);
+    }
+  }
+}
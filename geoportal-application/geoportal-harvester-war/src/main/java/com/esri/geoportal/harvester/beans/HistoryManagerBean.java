@@ -66,10 +66,12 @@ public class HistoryManagerBean implements HistoryManager {
             Connection connection = dataSource.getConnection();
             PreparedStatement st = connection.prepareStatement(
                     "CREATE TABLE IF NOT EXISTS EVENTS ( id varchar(38) PRIMARY KEY, taskid varchar(38) NOT NULL, started TIMESTAMP NOT NULL, completed TIMESTAMP NOT NULL, report CLOB ) ;"
-                  + "CREATE INDEX IF NOT EXISTS EVENTS_TASKID_IDX ON EVENTS(taskid);");
+                  + "CREATE INDEX IF NOT EXISTS EVENTS_TASKID_IDX ON EVENTS(taskid);"
+                  + "ALTER TABLE EVENTS ADD COLUMN IF NOT EXISTS retry BOOLEAN DEFAULT FALSE;");
         ) {
       st.execute();
       initFailedDataTable();
+      initCheckpointsTable();
       LOG.info("HistoryManagerBean initialized.");
     } catch (SQLException ex) {
       LOG.info("Error initializing history database", ex);
@@ -90,6 +92,18 @@ public class HistoryManagerBean implements HistoryManager {
     }
   }
   
+  private void initCheckpointsTable() {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement(
+                    "CREATE TABLE IF NOT EXISTS CHECKPOINTS ( taskid varchar(38) PRIMARY KEY, checkpoint CLOB ) ;");
+        ) {
+      st.execute();
+    } catch (SQLException ex) {
+      LOG.info("Error initializing history database", ex);
+    }
+  }
+  
   /**
    * Destroys bean.
    */
@@ -103,7 +117,7 @@ public class HistoryManagerBean implements HistoryManager {
     UUID id = UUID.randomUUID();
     try (
             Connection connection = dataSource.getConnection();
-            PreparedStatement st = connection.prepareStatement("INSERT INTO EVENTS (taskid,started,completed,report,id) VALUES (?,?,?,?,?)");
+            PreparedStatement st = connection.prepareStatement("INSERT INTO EVENTS (taskid,started,completed,report,id,retry) VALUES (?,?,?,?,?,?)");
             Reader reportReader = new StringReader(serialize(data.getReport()));
         ) {
       st.setString(1, data.getTaskId().toString());
@@ -111,6 +125,7 @@ public class HistoryManagerBean implements HistoryManager {
       st.setTimestamp(3, new Timestamp(data.getEndTimestamp().getTime()));
       st.setClob(4, reportReader);
       st.setString(5, data.getUuid().toString());
+      st.setBoolean(6, data.isRetry());
       st.executeUpdate();
     } catch (IOException|SQLException ex) {
       throw new CrudlException("Error creating history event", ex);
@@ -136,7 +151,7 @@ public class HistoryManagerBean implements HistoryManager {
   public History.Event read(UUID id) throws CrudlException {
     try (
             Connection connection = dataSource.getConnection();
-            PreparedStatement st = connection.prepareStatement("SELECT taskid,started,completed,report,id FROM EVENTS WHERE ID = ?");
+            PreparedStatement st = connection.prepareStatement("SELECT taskid,started,completed,report,id,retry FROM EVENTS WHERE ID = ?");
         ) {
       st.setString(1, id.toString());
       ResultSet rs = st.executeQuery();
@@ -148,6 +163,7 @@ public class HistoryManagerBean implements HistoryManager {
           event.setEndTimestamp(new Date(rs.getTimestamp(3).getTime()));
           event.setReport(deserialize(reportReader, History.Report.class));
           event.setUuid(UUID.fromString(rs.getString(5)));
+          event.setRetry(rs.getBoolean(6));
           return event;
         }
       }
@@ -163,7 +179,7 @@ public class HistoryManagerBean implements HistoryManager {
     HashMap<UUID, History.Event> map = new HashMap<>();
     try (
             Connection connection = dataSource.getConnection();
-            PreparedStatement st = connection.prepareStatement("SELECT taskid,started,completed,report,id FROM EVENTS");
+            PreparedStatement st = connection.prepareStatement("SELECT taskid,started,completed,report,id,retry FROM EVENTS");
         ) {
       ResultSet rs = st.executeQuery();
       while (rs.next()) {
@@ -174,6 +190,7 @@ public class HistoryManagerBean implements HistoryManager {
           event.setEndTimestamp(new Date(rs.getTimestamp(3).getTime()));
           event.setReport(deserialize(reportReader, History.Report.class));
           event.setUuid(UUID.fromString(rs.getString(5)));
+          event.setRetry(rs.getBoolean(6));
           map.put(event.getUuid(), event);
         }
       }
@@ -187,14 +204,15 @@ public class HistoryManagerBean implements HistoryManager {
   public boolean update(UUID id, History.Event data) throws CrudlException {
     try (
             Connection connection = dataSource.getConnection();
-            PreparedStatement st = connection.prepareStatement("UPDATE EVENTS SET (taskid = ?, started = ?, completed = ?, report = ?) WHERE ID = ?");
+            PreparedStatement st = connection.prepareStatement("UPDATE EVENTS SET taskid = ?, started = ?, completed = ?, report = ?, retry = ? WHERE ID = ?");
             Reader reportReader = new StringReader(serialize(data.getReport()));
         ) {
       st.setString(1, data.getTaskId().toString());
       st.setTimestamp(2, new Timestamp(data.getStartTimestamp().getTime()));
       st.setTimestamp(3, new Timestamp(data.getEndTimestamp().getTime()));
       st.setClob(4, reportReader);
-      st.setString(5, id.toString());
+      st.setBoolean(5, data.isRetry());
+      st.setString(6, id.toString());
       return st.executeUpdate()>0;
     } catch (IOException|SQLException ex) {
       throw new CrudlException("Error updating history event", ex);
@@ -206,7 +224,7 @@ public class HistoryManagerBean implements HistoryManager {
     History history = new History();
     try (
             Connection connection = dataSource.getConnection();
-            PreparedStatement st = connection.prepareStatement("SELECT taskid,started,completed,report,id FROM EVENTS WHERE taskid = ?");
+            PreparedStatement st = connection.prepareStatement("SELECT taskid,started,completed,report,id,retry FROM EVENTS WHERE taskid = ?");
         ) {
       st.setString(1, taskid.toString());
       ResultSet rs = st.executeQuery();
@@ -218,6 +236,7 @@ public class HistoryManagerBean implements HistoryManager {
           event.setEndTimestamp(new Date(rs.getTimestamp(3).getTime()));
           event.setReport(deserialize(reportReader, History.Report.class));
           event.setUuid(UUID.fromString(rs.getString(5)));
+          event.setRetry(rs.getBoolean(6));
           history.add(event);
         }
       }
@@ -242,6 +261,7 @@ public class HistoryManagerBean implements HistoryManager {
     } catch (SQLException ex) {
       throw new CrudlException("Error selecting broker definition", ex);
     }
+    storeCheckpoint(taskid, null);
   }
   
   @Override
@@ -277,6 +297,46 @@ public class HistoryManagerBean implements HistoryManager {
     }
   }
   
+  @Override
+  public History.Checkpoint readCheckpoint(UUID taskId) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("SELECT checkpoint FROM CHECKPOINTS WHERE taskid = ?");
+        ) {
+      st.setString(1, taskId.toString());
+      ResultSet rs = st.executeQuery();
+      if (rs.next()) {
+        try (Reader checkpointReader = rs.getClob(1).getCharacterStream();) {
+          return deserialize(checkpointReader, History.Checkpoint.class);
+        }
+      }
+    } catch (IOException|SQLException ex) {
+      throw new CrudlException("Error reading checkpoint", ex);
+    }
+    return null;
+  }
+  
+  @Override
+  public void storeCheckpoint(UUID taskId, History.Checkpoint checkpoint) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement del = connection.prepareStatement("DELETE FROM CHECKPOINTS WHERE taskid = ?");
+            PreparedStatement ins = connection.prepareStatement("INSERT INTO CHECKPOINTS (taskid,checkpoint) VALUES (?,?)");
+        ) {
+      del.setString(1, taskId.toString());
+      del.executeUpdate();
+      if (checkpoint != null) {
+        try (Reader checkpointReader = new StringReader(serialize(checkpoint));) {
+          ins.setString(1, taskId.toString());
+          ins.setClob(2, checkpointReader);
+          ins.executeUpdate();
+        }
+      }
+    } catch (IOException|SQLException ex) {
+      throw new CrudlException("Error storing checkpoint", ex);
+    }
+  }
+  
   private boolean deleteFailedData(UUID eventId) throws CrudlException {
     try (
             Connection connection = dataSource.getConnection();
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.beans;
+
+import com.esri.geoportal.harvester.engine.managers.LeaseManager;
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Lease manager bean.
+ */
+@Service
+public class LeaseManagerBean implements LeaseManager {
+  private static final Logger LOG = LoggerFactory.getLogger(LeaseManagerBean.class);
+  private static final String INTEGRITY_VIOLATION = "23";
+
+  @Autowired
+  private DataSource dataSource;
+
+  /**
+   * Initializes bean.
+   */
+  @PostConstruct
+  public void init() {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement(
+                    "CREATE TABLE IF NOT EXISTS LEASES ( leasekey varchar(256) PRIMARY KEY, owner varchar(256) NOT NULL, expires TIMESTAMP NOT NULL ) ;");
+        ) {
+      st.execute();
+      LOG.info("LeaseManagerBean initialized.");
+    } catch (SQLException ex) {
+      LOG.info("Error initializing lease database", ex);
+    }
+  }
+  
+  /**
+   * Destroys bean.
+   */
+  @PreDestroy
+  public void destroy() {
+    LOG.info(String.format("LeaseManagerBean destroyed."));
+  }
+
+  @Override
+  public boolean acquire(String key, String owner, long duration) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement update = connection.prepareStatement("UPDATE LEASES SET owner = ?, expires = DATEADD('MILLISECOND', ?, CURRENT_TIMESTAMP) WHERE leasekey = ? AND (owner = ? OR expires < CURRENT_TIMESTAMP)");
+            PreparedStatement insert = connection.prepareStatement("INSERT INTO LEASES (leasekey,owner,expires) VALUES (?,?,DATEADD('MILLISECOND', ?, CURRENT_TIMESTAMP))");
+        ) {
+      update.setString(1, owner);
+      update.setLong(2, duration);
+      update.setString(3, key);
+      update.setString(4, owner);
+      if (update.executeUpdate() > 0) {
+        return true;
+      }
+      insert.setString(1, key);
+      insert.setString(2, owner);
+      insert.setLong(3, duration);
+      try {
+        return insert.executeUpdate() > 0;
+      } catch (SQLException ex) {
+        // another owner has just inserted the very same lease
+        if (ex.getSQLState()!=null && ex.getSQLState().startsWith(INTEGRITY_VIOLATION)) {
+          return false;
+        }
+        throw ex;
+      }
+    } catch (SQLException ex) {
+      throw new CrudlException("Error acquiring lease", ex);
+    }
+  }
+
+  @Override
+  public boolean renew(String key, String owner, long duration) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("UPDATE LEASES SET expires = DATEADD('MILLISECOND', ?, CURRENT_TIMESTAMP) WHERE leasekey = ? AND owner = ?");
+        ) {
+      st.setLong(1, duration);
+      st.setString(2, key);
+      st.setString(3, owner);
+      return st.executeUpdate() > 0;
+    } catch (SQLException ex) {
+      throw new CrudlException("Error renewing lease", ex);
+    }
+  }
+
+  @Override
+  public void release(String key, String owner) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("DELETE FROM LEASES WHERE leasekey = ? AND owner = ?");
+        ) {
+      st.setString(1, key);
+      st.setString(2, owner);
+      st.executeUpdate();
+    } catch (SQLException ex) {
+      throw new CrudlException("Error releasing lease", ex);
+    }
+  }
+
+  @Override
+  public int count(String prefix) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("SELECT COUNT(*) FROM LEASES WHERE leasekey LIKE ? ESCAPE '\\' AND expires >= CURRENT_TIMESTAMP");
+        ) {
+      st.setString(1, prefix.replaceAll("([\\\\%_])", "\\\\$1") + "%");
+      ResultSet rs = st.executeQuery();
+      return rs.next()? rs.getInt(1): 0;
+    } catch (SQLException ex) {
+      throw new CrudlException("Error counting leases", ex);
+    }
+  }
+}
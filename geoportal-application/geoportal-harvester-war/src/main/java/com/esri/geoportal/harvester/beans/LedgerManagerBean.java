@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.beans;
+
+import com.esri.geoportal.harvester.engine.managers.LedgerManager;
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Ledger manager bean.
+ */
+@Service
+public class LedgerManagerBean implements LedgerManager {
+  private static final Logger LOG = LoggerFactory.getLogger(LedgerManagerBean.class);
+  private static final int BATCH_SIZE = 1000;
+
+  @Autowired
+  private DataSource dataSource;
+
+  /**
+   * Initializes bean.
+   */
+  @PostConstruct
+  public void init() {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st1 = connection.prepareStatement(
+                    "CREATE TABLE IF NOT EXISTS LEDGERS ( taskid varchar(38) NOT NULL, destination varchar(64) NOT NULL, seeded TIMESTAMP NOT NULL, PRIMARY KEY (taskid, destination) ) ;");
+            PreparedStatement st2 = connection.prepareStatement(
+                    "CREATE TABLE IF NOT EXISTS LEDGER ( taskid varchar(38) NOT NULL, destination varchar(64) NOT NULL, dataid varchar(1024) NOT NULL, published TIMESTAMP NOT NULL, PRIMARY KEY (taskid, destination, dataid) ) ;");
+        ) {
+      st1.execute();
+      st2.execute();
+      LOG.info("LedgerManagerBean initialized.");
+    } catch (SQLException ex) {
+      LOG.info("Error initializing ledger database", ex);
+    }
+  }
+  
+  /**
+   * Destroys bean.
+   */
+  @PreDestroy
+  public void destroy() {
+    LOG.info(String.format("LedgerManagerBean destroyed."));
+  }
+
+  @Override
+  public List<String> list(UUID taskId, String destination) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement seeded = connection.prepareStatement("SELECT seeded FROM LEDGERS WHERE taskid = ? AND destination = ?");
+            PreparedStatement st = connection.prepareStatement("SELECT dataid FROM LEDGER WHERE taskid = ? AND destination = ?");
+        ) {
+      seeded.setString(1, taskId.toString());
+      seeded.setString(2, destination);
+      if (!seeded.executeQuery().next()) {
+        return null;
+      }
+      st.setString(1, taskId.toString());
+      st.setString(2, destination);
+      ResultSet rs = st.executeQuery();
+      ArrayList<String> ids = new ArrayList<>();
+      while (rs.next()) {
+        ids.add(rs.getString(1));
+      }
+      return ids;
+    } catch (SQLException ex) {
+      throw new CrudlException("Error listing ledger", ex);
+    }
+  }
+
+  @Override
+  public void seed(UUID taskId, String destination, Collection<String> ids) throws CrudlException {
+    try (Connection connection = dataSource.getConnection()) {
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try (
+              PreparedStatement clear = connection.prepareStatement("DELETE FROM LEDGER WHERE taskid = ? AND destination = ?");
+              PreparedStatement insert = connection.prepareStatement("MERGE INTO LEDGER (taskid,destination,dataid,published) KEY (taskid,destination,dataid) VALUES (?,?,?,?)");
+              PreparedStatement seeded = connection.prepareStatement("MERGE INTO LEDGERS (taskid,destination,seeded) KEY (taskid,destination) VALUES (?,?,?)");
+          ) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        clear.setString(1, taskId.toString());
+        clear.setString(2, destination);
+        clear.executeUpdate();
+        int count = 0;
+        for (String id: ids) {
+          insert.setString(1, taskId.toString());
+          insert.setString(2, destination);
+          insert.setString(3, id);
+          insert.setTimestamp(4, now);
+          insert.addBatch();
+          if (++count % BATCH_SIZE == 0) {
+            insert.executeBatch();
+          }
+        }
+        if (count % BATCH_SIZE != 0) {
+          insert.executeBatch();
+        }
+        seeded.setString(1, taskId.toString());
+        seeded.setString(2, destination);
+        seeded.setTimestamp(3, now);
+        seeded.executeUpdate();
+        connection.commit();
+      } catch (SQLException ex) {
+        connection.rollback();
+        throw ex;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    } catch (SQLException ex) {
+      throw new CrudlException("Error seeding ledger", ex);
+    }
+  }
+
+  @Override
+  public void record(UUID taskId, String destination, String id, Date published) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("MERGE INTO LEDGER (taskid,destination,dataid,published) KEY (taskid,destination,dataid) VALUES (?,?,?,?)");
+        ) {
+      st.setString(1, taskId.toString());
+      st.setString(2, destination);
+      st.setString(3, id);
+      st.setTimestamp(4, new Timestamp(published.getTime()));
+      st.executeUpdate();
+    } catch (SQLException ex) {
+      throw new CrudlException("Error recording publication", ex);
+    }
+  }
+
+  @Override
+  public void remove(UUID taskId, String destination, String id) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("DELETE FROM LEDGER WHERE taskid = ? AND destination = ? AND dataid = ?");
+        ) {
+      st.setString(1, taskId.toString());
+      st.setString(2, destination);
+      st.setString(3, id);
+      st.executeUpdate();
+    } catch (SQLException ex) {
+      throw new CrudlException("Error removing publication", ex);
+    }
+  }
+
+  @Override
+  public void purge(UUID taskId) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st1 = connection.prepareStatement("DELETE FROM LEDGER WHERE taskid = ?");
+            PreparedStatement st2 = connection.prepareStatement("DELETE FROM LEDGERS WHERE taskid = ?");
+        ) {
+      st1.setString(1, taskId.toString());
+      st1.executeUpdate();
+      st2.setString(1, taskId.toString());
+      st2.executeUpdate();
+    } catch (SQLException ex) {
+      throw new CrudlException("Error purging ledger", ex);
+    }
+  }
+}
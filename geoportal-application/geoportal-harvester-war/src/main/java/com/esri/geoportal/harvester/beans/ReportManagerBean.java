@@ -59,7 +59,7 @@ public class ReportManagerBean implements ReportManager {
   @Override
   public ReportBuilder createReportBuilder(UUID uuid, ProcessInstance processInstance) {
     ReportLogger reportLogger = new ReportLogger();
-    ReportStatistics reportStatistics = new ReportStatistics() {
+    ReportStatistics reportStatistics = new ReportStatistics(processInstance) {
       @Override
       public void completed(ProcessInstance process) {
         super.completed(process);
@@ -78,6 +78,7 @@ import org.springframework.web.multipart.MultipartFile;
  * GET /rest/harvester/tasks/{taskId}/history     - gets task harvesting history
  *
  * POST /rest/harvester/tasks/{taskId}/execute    - executes immediatelly a task by task id
+ * POST /rest/harvester/tasks/{taskId}/failed/{eventId}/execute - executes a task by task id only for the records failed during the event
  * POST /rest/harvester/tasks/{taskId}/schedule   - schedule a task by task id (trigger definition in the request body)
  * POST /rest/harvester/tasks/execute             - executes a task (task definition in the request body)
  * POST /rest/harvester/tasks/schedule            - schedules a task (trigger instance definition in the request body)
@@ -382,9 +383,48 @@ public class TaskController {
       // make iterator context
       SimpleIteratorContext iteratorContext = new SimpleIteratorContext();
       iteratorContext.setLastHarvest(incremental && lastEvent != null ? lastEvent.getStartTimestamp() : null);
+      
+      // resume interrupted harvest
+      History.Checkpoint checkpoint = engine.getTasksService().getCheckpoint(taskId);
+      if (checkpoint != null) {
+        iteratorContext.setLastHarvest(checkpoint.getLastHarvestDate());
+        iteratorContext.setCheckpoint(checkpoint.getPosition());
+      }
 
       ProcessReference ref = engine.getExecutionService().execute(taskDefinition, iteratorContext);
-      ref.getProcess().addListener(new HistoryManagerAdaptor(taskId, ref.getProcess(), historyManager));
+      ref.getProcess().addListener(new HistoryManagerAdaptor(taskId, ref.getProcess(), historyManager, iteratorContext));
+      ref.getProcess().init();
+      ref.getProcess().begin();
+      return new ResponseEntity<>(new ProcessResponse(
+              ref.getProcessId(), 
+              taskDefinition, 
+              ref.getProcess().getStatus()), HttpStatus.OK);
+    } catch (InvalidDefinitionException ex) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    } catch (DataProcessorException ex) {
+      return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
+  /**
+   * Executes task by id only for the records which failed to be published
+   * during the given history event.
+   *
+   * @param taskId task id
+   * @param eventId history event id
+   * @return process info
+   */
+  @RequestMapping(value = "/rest/harvester/tasks/{taskId}/failed/{eventId}/execute", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<ProcessResponse> executeFailed(@PathVariable UUID taskId, @PathVariable UUID eventId) {
+    try {
+      LOG.debug(formatForLog("POST /rest/harvester/tasks/%s/failed/%s/execute", taskId, eventId));
+      TaskDefinition taskDefinition = engine.getTasksService().readTaskDefinition(taskId);
+      if (taskDefinition == null) {
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+      }
+
+      ProcessReference ref = engine.getExecutionService().executeFailed(taskDefinition, eventId);
+      ref.getProcess().addListener(HistoryManagerAdaptor.forRetry(taskId, ref.getProcess(), historyManager));
       ref.getProcess().init();
       ref.getProcess().begin();
       return new ResponseEntity<>(new ProcessResponse(
@@ -394,6 +434,7 @@ public class TaskController {
     } catch (InvalidDefinitionException ex) {
       return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     } catch (DataProcessorException ex) {
+      LOG.error(formatForLog("Error executing failed records of: %s", eventId), ex);
       return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
     }
   }
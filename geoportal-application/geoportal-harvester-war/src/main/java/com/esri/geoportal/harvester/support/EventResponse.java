@@ -29,6 +29,8 @@ public final class EventResponse {
   private final long acquired;
   private final long created;
   private final long updated;
+  private final long unchanged;
+  private final long deleted;
   private final long failed;
   private final Long failedToHarvest;
   private final Long failedToPublish;
@@ -41,6 +43,8 @@ public final class EventResponse {
    * @param acquired number of acquired records
    * @param created number of newly created records
    * @param updated number of updated records
+   * @param unchanged number of records unchanged since the last publication
+   * @param deleted number of records deleted because deleted at the source
    * @param failed number of failed records
    * @param failedToHarvest number of records failed to harvest
    * @param failedToPublish number of records failed to publish
@@ -49,7 +53,7 @@ public final class EventResponse {
           UUID uuid, 
           Date startTimestamp, 
           Date endtTimestamp, 
-          long acquired, long created, long updated, long failed,
+          long acquired, long created, long updated, long unchanged, long deleted, long failed,
           Long failedToHarvest, Long failedToPublish) {
     this.uuid = uuid;
     this.startTimestamp = startTimestamp;
@@ -57,6 +61,8 @@ public final class EventResponse {
     this.acquired = acquired;
     this.created = created;
     this.updated = updated;
+    this.unchanged = unchanged;
+    this.deleted = deleted;
     this.failed = failed;
     this.failedToHarvest = failedToHarvest;
     this.failedToPublish = failedToPublish;
@@ -74,6 +80,8 @@ public final class EventResponse {
             event.getReport()!=null? event.getReport().acquired: 0, 
             event.getReport()!=null? event.getReport().created: 0, 
             event.getReport()!=null? event.getReport().updated: 0, 
+            event.getReport()!=null? event.getReport().unchanged: 0, 
+            event.getReport()!=null? event.getReport().deleted: 0, 
             event.getReport()!=null? event.getReport().failed: 0,
             event.getReport()!=null? event.getReport().failedToHarvest: null,
             event.getReport()!=null? event.getReport().failedToPublish: null);
@@ -127,6 +135,22 @@ public final class EventResponse {
     return updated;
   }
 
+  /**
+   * Gets number of records unchanged since the last publication.
+   * @return number of unchanged records
+   */
+  public long getUnchanged() {
+    return unchanged;
+  }
+
+  /**
+   * Gets number of records deleted because deleted at the source.
+   * @return number of deleted records
+   */
+  public long getDeleted() {
+    return deleted;
+  }
+
   /**
    * Gets number of failed records.
    * @return number of failed records
@@ -48,6 +48,11 @@ public class ReportDispatcher implements ReportBuilder {
     builders.forEach(b->b.acquire(process, dataReference));
   }
 
+  @Override
+  public void total(ProcessInstance process, long total) {
+    builders.forEach(b->b.total(process, total));
+  }
+
   @Override
   public void completed(ProcessInstance process) {
     builders.forEach(b->b.completed(process));
@@ -58,6 +63,16 @@ public class ReportDispatcher implements ReportBuilder {
     builders.forEach(b->b.success(process, dataReference));
   }
 
+  @Override
+  public void unchanged(ProcessInstance process, DataReference dataReference) {
+    builders.forEach(b->b.unchanged(process, dataReference));
+  }
+
+  @Override
+  public void deleted(ProcessInstance process, DataReference dataReference) {
+    builders.forEach(b->b.deleted(process, dataReference));
+  }
+
   @Override
   public void error(ProcessInstance process, DataInputException ex) {
     builders.forEach(b->b.error(process, ex));
@@ -19,28 +19,62 @@ import com.esri.geoportal.harvester.engine.utils.Statistics;
 import com.esri.geoportal.harvester.api.ex.DataOutputException;
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.base.ContentStore;
 import com.esri.geoportal.harvester.api.ex.DataInputException;
+import com.esri.geoportal.harvester.engine.utils.HarvestTicket;
+import com.esri.geoportal.harvester.engine.utils.InFlightGauge;
+import com.esri.geoportal.harvester.engine.utils.RateMeter;
 import com.esri.geoportal.harvester.engine.utils.ReportBuilder;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Report statistics.
+ * <p>
+ * Counters are striped, thus statistics might be updated by many workers at 
+ * once and read at any time while the process is still running.
  */
 public class ReportStatistics extends ProgressLogger implements ReportBuilder, Statistics {
   private final Logger LOG = LoggerFactory.getLogger(ReportStatistics.class);
   
-  private Date startDate;
-  private Date endDate;
+  private volatile Date startDate;
+  private volatile Date endDate;
+  private volatile Long total;
   
-  private long acquired;
-  private long succeeded;
-  private long harvestFailed;
-  private long publishFailed;
+  private final RateMeter acquired = new RateMeter();
+  private final RateMeter succeeded = new RateMeter();
+  private final RateMeter failed = new RateMeter();
+  private final LongAdder unchanged = new LongAdder();
+  private final LongAdder deleted = new LongAdder();
+  private final LongAdder harvestFailed = new LongAdder();
+  private final LongAdder publishFailed = new LongAdder();
   
-  private boolean failure;
+  private volatile boolean failure;
+  
+  private final ContentStore contentStore;
+  private final InFlightGauge inFlight;
+  private final HarvestTicket ticket;
+
+  /**
+   * Creates instance of the statistics.
+   */
+  public ReportStatistics() {
+    this(null);
+  }
+
+  /**
+   * Creates instance of the statistics.
+   * @param process process owning content store, in-flight gauge and harvest
+   * ticket or <code>null</code> if none
+   */
+  public ReportStatistics(ProcessInstance process) {
+    this.contentStore = ContentStore.of(process);
+    this.inFlight = InFlightGauge.of(process);
+    this.ticket = HarvestTicket.of(process);
+  }
   
   @Override
   public Date getStartDate() {
@@ -54,17 +88,27 @@ public class ReportStatistics extends ProgressLogger implements ReportBuilder, S
 
   @Override
   public long getSucceeded() {
-    return succeeded;
+    return succeeded.getCount();
+  }
+
+  @Override
+  public long getUnchanged() {
+    return unchanged.sum();
+  }
+
+  @Override
+  public long getDeleted() {
+    return deleted.sum();
   }
 
   @Override
   public long getHarvestFailed() {
-    return harvestFailed;
+    return harvestFailed.sum();
   }
 
   @Override
   public long getPublishFailed() {
-    return publishFailed;
+    return publishFailed.sum();
   }
 
   @Override
@@ -72,6 +116,80 @@ public class ReportStatistics extends ProgressLogger implements ReportBuilder, S
     return failure;
   }
 
+  @Override
+  public Long getTotal() {
+    return total;
+  }
+
+  @Override
+  public double getThroughput() {
+    return acquired.getMeanRate();
+  }
+
+  @Override
+  public double getAcquiredRate() {
+    return acquired.getOneMinuteRate();
+  }
+
+  @Override
+  public double getPublishedRate() {
+    return succeeded.getOneMinuteRate();
+  }
+
+  @Override
+  public double getFailedRate() {
+    return failed.getOneMinuteRate();
+  }
+
+  @Override
+  public Long getEstimatedTimeRemaining() {
+    Long totalCount = total;
+    if (totalCount == null) {
+      return null;
+    }
+    long remaining = totalCount - acquired.getCount();
+    if (remaining <= 0) {
+      return 0L;
+    }
+    double rate = acquired.getOneMinuteRate();
+    return rate > 0? Math.round(remaining / rate): null;
+  }
+
+  @Override
+  public long getContentMemoryHighWaterMark() {
+    return contentStore.getMemoryHighWaterMark();
+  }
+
+  @Override
+  public long getContentDiskHighWaterMark() {
+    return contentStore.getDiskHighWaterMark();
+  }
+
+  @Override
+  public long getInFlightBytes() {
+    return inFlight.getCurrent();
+  }
+
+  @Override
+  public long getInFlightBytesPeak() {
+    return inFlight.getPeak();
+  }
+
+  @Override
+  public long getSlotGrants() {
+    return ticket.getGrants();
+  }
+
+  @Override
+  public long getSlotWaitTime() {
+    return ticket.getWaitTime();
+  }
+
+  @Override
+  public long getSlotMaxWait() {
+    return ticket.getMaxWait();
+  }
+
   @Override
   public void started(ProcessInstance process) {
     startDate = Calendar.getInstance().getTime();
@@ -80,36 +198,53 @@ public class ReportStatistics extends ProgressLogger implements ReportBuilder, S
 
   @Override
   public void acquire(ProcessInstance process, DataReference dataReference) {
-    acquired++;
+    acquired.mark();
     super.acquire(process, dataReference);
   }
 
+  @Override
+  public void total(ProcessInstance process, long total) {
+    this.total = total;
+  }
+
   @Override
   public void completed(ProcessInstance process) {
     endDate = Calendar.getInstance().getTime();
-    LOG.info(String.format("Harvesting of %s completed at %s. No. succeded: %d, no. failed: %d", process, endDate, succeeded, harvestFailed+publishFailed));
+    LOG.info(String.format("Harvesting of %s completed at %s. No. succeded: %d, no. unchanged: %d, no. deleted: %d, no. failed: %d, throughput: %.2f/s", process, endDate, getSucceeded(), getUnchanged(), getDeleted(), getHarvestFailed()+getPublishFailed(), getThroughput()));
   }
 
   @Override
   public long getAcquired() {
-    return acquired;
+    return acquired.getCount();
   }
 
   @Override
   public void success(ProcessInstance process, DataReference dataReference) {
-    ++succeeded;
+    succeeded.mark();
     super.success(process, dataReference);
   }
 
+  @Override
+  public void unchanged(ProcessInstance process, DataReference dataReference) {
+    unchanged.increment();
+  }
+
+  @Override
+  public void deleted(ProcessInstance process, DataReference dataReference) {
+    deleted.increment();
+  }
+
   @Override
   public void error(ProcessInstance process, DataInputException ex) {
-    ++harvestFailed;
+    harvestFailed.increment();
+    failed.mark();
     super.error(process, ex);
   }
 
   @Override
   public void error(ProcessInstance process, DataOutputException ex) {
-    ++publishFailed;
+    publishFailed.increment();
+    failed.mark();
   }
 
   @Override
@@ -119,6 +254,6 @@ public class ReportStatistics extends ProgressLogger implements ReportBuilder, S
   
   @Override
   public String toString() {
-    return String.format("STATISTICS :: start: %s, end: %s, succeeded: %d, harvested failed: %d, published failed: %d, failure: %b", startDate, endDate, succeeded, harvestFailed, publishFailed, failure);
+    return String.format("STATISTICS :: start: %s, end: %s, total: %s, succeeded: %d, unchanged: %d, deleted: %d, harvested failed: %d, published failed: %d, failure: %b, acquired rate: %.2f/s, published rate: %.2f/s, failed rate: %.2f/s, content memory max: %d, content disk max: %d, in flight: %d (max %d), slots granted: %d, slot wait: %dms (max %dms)", startDate, endDate, total, getSucceeded(), getUnchanged(), getDeleted(), getHarvestFailed(), getPublishFailed(), failure, getAcquiredRate(), getPublishedRate(), getFailedRate(), getContentMemoryHighWaterMark(), getContentDiskHighWaterMark(), getInFlightBytes(), getInFlightBytesPeak(), getSlotGrants(), getSlotWaitTime(), getSlotMaxWait());
   }
 }
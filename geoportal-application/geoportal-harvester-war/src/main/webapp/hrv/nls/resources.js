@@ -102,7 +102,10 @@ define({
         acquired: "Acquired",
         created: "Created",
         updated: "Updated",
-        failed: "Failed (in/out)"
+        unchanged: "Unchanged",
+        failed: "Failed (in/out)",
+        retry: "Retry failed records",
+        retryStarted: "Retry of the failed records has been started."
       },
       scheduler: {
         type: "Type",
@@ -136,6 +139,7 @@ define({
       caption: "Processes",
       cancel: "cancel",
       min: "min",
+      eta: "ETA",
       purge: "Purge",
       errors: {
         loading: "Error loading processes",
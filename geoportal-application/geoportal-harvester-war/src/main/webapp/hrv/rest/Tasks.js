@@ -63,6 +63,10 @@ define(["dojo/_base/declare",
         return "rest/harvester/tasks/"+id+"/export";
       },
       
+      executeFailed: function(taskId, eventId) {
+        return xhr.post("rest/harvester/tasks/"+taskId+"/failed/"+eventId+"/execute",{handleAs: "json", headers: {"Content-Type": "application/json"}});
+      },
+      
       getFailedDocuments: function(eventId) {
         return xhr.get("rest/harvester/tasks/failed/"+eventId, {handleAs: "json"});
       },
@@ -58,26 +58,28 @@ define(["dojo/_base/declare",
             lang.hitch(this,function(result){
               html.set(this.statusNode, result.status);
               domClass.remove(this.statusNode,"h-status-submitted");
+              domClass.remove(this.statusNode,"h-status-waiting");
               domClass.remove(this.statusNode,"h-status-working");
               domClass.remove(this.statusNode,"h-status-aborting");
               domClass.remove(this.statusNode,"h-status-completed");
               domClass.add(this.statusNode,"h-status-"+result.status);
-              domStyle.set(this.cancelNode,"display",result.status==="working"? "inline": "none");
+              domStyle.set(this.cancelNode,"display",result.status==="working" || result.status==="waiting"? "inline": "none");
               domStyle.set(this.progressNode,"display",result.status==="working"? "inline": "none");
               if (result.status==="working" && result.statistics) {
-                var now = new Date();
                 if (this.data.taskDefinition.source.type !== "SINK") {
-                  var start = new Date(result.statistics.startDate);
-                  var duration = (now-start)>0? (now-start)/1000/60: 0;
-                  var velocity = result.statistics.acquired>0 && duration>0? Math.round(result.statistics.acquired/duration): null;
-                  var progress = ""+result.statistics.acquired + (velocity? " ("+velocity+"/"+this.i18n.processes.min+")": "");
+                  var velocity = result.statistics.acquiredRate>0? Math.round(result.statistics.acquiredRate*60): null;
+                  var eta = result.statistics.estimatedTimeRemaining!=null? this._formatDuration(result.statistics.estimatedTimeRemaining): null;
+                  var progress = ""+result.statistics.acquired 
+                          + (result.statistics.total!=null? "/"+result.statistics.total: "")
+                          + (velocity? " ("+velocity+"/"+this.i18n.processes.min+")": "")
+                          + (eta? " "+this.i18n.processes.eta+" "+eta: "");
                   html.set(this.progressNode, progress);
                 } else {
                   var progress = ""+result.statistics.acquired;
                   html.set(this.progressNode, progress);
                 }
               }
-              if (result.status==="working" || result.status==="aborting") {
+              if (result.status==="working" || result.status==="waiting" || result.status==="aborting") {
                 this.timerHandler = setTimeout(update,2000);
               }
             }),
@@ -86,7 +88,7 @@ define(["dojo/_base/declare",
             })
         );
         });
-        if (this.data.status==="working") {
+        if (this.data.status==="working" || this.data.status==="waiting") {
           domStyle.set(this.cancelNode,"display","inline");
         }
         if (this.data.status!=="completed") {
@@ -94,6 +96,13 @@ define(["dojo/_base/declare",
         }
       },
       
+      _formatDuration: function(seconds) {
+        var h = Math.floor(seconds/3600);
+        var m = Math.floor((seconds%3600)/60);
+        var s = seconds%60;
+        return (h>0? h+":"+(m<10? "0": ""): "") + m + ":" + (s<10? "0": "") + s;
+      },
+      
       _onCancel: function(evt) {
         ProcessesREST.abort(this.data.uuid).then(
             lang.hitch(this,this._onCanceled),
@@ -62,14 +62,26 @@ define(["dojo/_base/declare",
       _onEventClicked: function(evt) {
         this._empty();
         TasksREST.getFailedDocuments(evt.data.uuid).then(lang.hitch(this, function(failedDocuments) { 
-          this._handleFailedDocuments(failedDocuments); 
+          this._handleFailedDocuments(evt.data.uuid, failedDocuments); 
         }), lang.hitch(this, function(error){
           console.debug(error);
           topic.publish("msg", new Error(this.i18n.tasks.errors.accessFialed));
         }));
       },
       
-      _handleFailedDocuments: function(failedDocuments) {
+      _handleFailedDocuments: function(eventId, failedDocuments) {
+        if (failedDocuments && failedDocuments.length > 0) {
+          var retry = domConstruct.create("div", {}, this.failedNode);
+          var retryLink = domConstruct.create("a", {innerHTML: this.i18n.tasks.events.retry, href: "#"}, retry);
+          this.handles.push(on(retryLink, "click", lang.hitch(this, function(evt){
+            TasksREST.executeFailed(this.data.uuid, eventId).then(lang.hitch(this, function(response){
+              topic.publish("msg", this.i18n.tasks.events.retryStarted);
+            }), lang.hitch(this, function(error){
+              console.debug(error);
+              topic.publish("msg", new Error(this.i18n.tasks.errors.execute));
+            }));
+          })));
+        }
         if (failedDocuments) {
           array.forEach(failedDocuments, lang.hitch(this,function(recordId) {
             var span = domConstruct.create("div", {}, this.failedNode);
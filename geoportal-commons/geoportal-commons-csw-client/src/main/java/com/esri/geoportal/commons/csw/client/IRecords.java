@@ -22,4 +22,11 @@ import java.util.List;
  */
 public interface IRecords extends List<IRecord> {
   
+  /**
+   * Gets number of records matched by the query.
+   * @return number of records matched or <code>null</code> if not reported by the server
+   */
+  default Long getNumberOfRecordsMatched() {
+    return null;
+  }
 }
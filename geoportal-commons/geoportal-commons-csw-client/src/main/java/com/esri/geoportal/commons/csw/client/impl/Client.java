@@ -37,9 +37,7 @@ import java.net.URLEncoder;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.xml.XMLConstants;
@@ -298,7 +296,7 @@ public class Client implements IClient {
    * Reads record from the stream
    *
    * @param contentStream content stream
-   * @return list of records
+   * @return records
    * @throws IOException if reading records fails
    * @throws TransformerConfigurationException if creating transformer fails
    * @throws TransformerException if creating transformer fails
@@ -306,8 +304,8 @@ public class Client implements IClient {
    * @throws SAXException if unable to parse content
    * @throws XPathExpressionException if invalid XPath
    */
-  private List<IRecord> readRecords(InputStream contentStream) throws IOException, TransformerConfigurationException, TransformerException, ParserConfigurationException, SAXException, XPathExpressionException {
-    ArrayList<IRecord> records = new ArrayList<>();
+  private Records readRecords(InputStream contentStream) throws IOException, TransformerConfigurationException, TransformerException, ParserConfigurationException, SAXException, XPathExpressionException {
+    Records records = new Records();
 
     // create transformer
     Templates template = TemplatesManager.getInstance().getTemplate(profile.getResponsexslt());
@@ -336,6 +334,11 @@ public class Client implements IClient {
       XPathFactory xPathfactory = XPathFactory.newInstance();
       XPath xpath = xPathfactory.newXPath();
 
+      String maxRecords = StringUtils.trimToEmpty((String) xpath.evaluate("/Records/@maxRecords", resultDom, XPathConstants.STRING));
+      if (maxRecords.matches("\\d+")) {
+        records.setNumberOfRecordsMatched(Long.parseLong(maxRecords));
+      }
+
       NodeList recordNodeList = (NodeList) xpath.evaluate("/Records/Record", resultDom, XPathConstants.NODESET);
       for (int i = 0; i < recordNodeList.getLength(); i++) {
         Node recordNode = recordNodeList.item(i);
@@ -475,9 +478,7 @@ public class Client implements IClient {
   private IRecords readRecordsFromStream(InputStream inputStream) throws Exception {
     String response = IOUtils.toString(inputStream, "UTF-8");
     try (ByteArrayInputStream contentInputStream = new ByteArrayInputStream(response.getBytes("UTF-8"));) {
-      Records records = new Records();
-      records.addAll(readRecords(contentInputStream));
-      return records;
+      return readRecords(contentInputStream);
     }
   }
   
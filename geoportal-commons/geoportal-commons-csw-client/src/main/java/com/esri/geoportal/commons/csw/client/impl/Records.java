@@ -23,4 +23,18 @@ import java.util.ArrayList;
  * Records implementation.
  */
 public class Records extends ArrayList<IRecord> implements IRecords {
+  private Long numberOfRecordsMatched;
+
+  @Override
+  public Long getNumberOfRecordsMatched() {
+    return numberOfRecordsMatched;
+  }
+
+  /**
+   * Sets number of records matched by the query.
+   * @param numberOfRecordsMatched number of records matched or <code>null</code> if unknown
+   */
+  public void setNumberOfRecordsMatched(Long numberOfRecordsMatched) {
+    this.numberOfRecordsMatched = numberOfRecordsMatched;
+  }
 }
@@ -437,6 +437,18 @@ public class Client implements Closeable {
     return queryIds("src_source_uri_s", src_source_uri_s, 200);
   }
 
+  /**
+   * Query items by src_uri_s.
+   *
+   * @param src_uri_s source URI of the record
+   * @return list of ids
+   * @throws IOException if reading response fails
+   * @throws URISyntaxException if URL has invalid syntax
+   */
+  public List<String> queryBySourceUri(String src_uri_s) throws IOException, URISyntaxException {
+    return queryIds(src_uri_s);
+  }
+
   /**
    * Deletes record by id.
    *
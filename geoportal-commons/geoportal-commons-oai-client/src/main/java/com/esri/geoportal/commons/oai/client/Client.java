@@ -42,6 +42,7 @@ import javax.xml.xpath.XPathFactory;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -60,6 +61,7 @@ public class Client implements Closeable {
 
   private static final SimpleDateFormat DF = new SimpleDateFormat("yyyy-MM-dd");
   private static final Logger LOG = LoggerFactory.getLogger(Client.class);
+  private static final int MAX_RETRY_AFTER_ATTEMPTS = 5;
 
   private final CloseableHttpClient httpClient;
   private final URL url;
@@ -101,26 +103,18 @@ public class Client implements Closeable {
    * @throws XPathExpressionException if error parsing response
    */
   public ListIdsResponse listIds(String resumptionToken, Date since) throws IOException, URISyntaxException, ParserConfigurationException, SAXException, XPathExpressionException {
+    return listIds(resumptionToken, since, 0);
+  }
+
+  private ListIdsResponse listIds(String resumptionToken, Date since, int attempt) throws IOException, URISyntaxException, ParserConfigurationException, SAXException, XPathExpressionException {
     HttpGet request = new HttpGet(listIdsUri(resumptionToken, since));
     try (CloseableHttpResponse httpResponse = httpClient.execute(request); InputStream contentStream = httpResponse.getEntity().getContent();) {
       String reasonMessage = httpResponse.getStatusLine().getReasonPhrase();
       String responseContent = IOUtils.toString(contentStream, "UTF-8");
       LOG.trace(String.format("RESPONSE: %s, %s", responseContent, reasonMessage));
       
-      if (httpResponse.getStatusLine().getStatusCode()==429 || httpResponse.getStatusLine().getStatusCode()==503) {
-        Date retryAfter = getRetryAfter(httpResponse);
-        if (retryAfter!=null) {
-          long delay = retryAfter.getTime()-System.currentTimeMillis();
-          if (delay>0) {
-            LOG.debug(String.format("Harvestiong suspended for %d milliseconds.", delay));
-            try {
-              Thread.sleep(delay);
-            } catch (InterruptedException ex) {
-              // ignore
-            }
-          }
-          return listIds(resumptionToken, since);
-        }
+      if (attempt < MAX_RETRY_AFTER_ATTEMPTS && awaitRetryAfter(httpResponse)) {
+        return listIds(resumptionToken, since, attempt + 1);
       }
 
       if (httpResponse.getStatusLine().getStatusCode() >= 400) {
@@ -140,13 +134,14 @@ public class Client implements Closeable {
 
       ListIdsResponse response = new ListIdsResponse();
       if (listIdentifiersNode != null) {
-        NodeList headerNodes = (NodeList) xPath.evaluate("header[not(@status=\"deleted\")]", listIdentifiersNode, XPathConstants.NODESET);
+        NodeList headerNodes = (NodeList) xPath.evaluate("header", listIdentifiersNode, XPathConstants.NODESET);
         if (headerNodes != null) {
           ArrayList<Header> headers = new ArrayList<>();
           for (int i = 0; i < headerNodes.getLength(); i++) {
             Header header = new Header();
             header.identifier = (String) xPath.evaluate("identifier", headerNodes.item(i), XPathConstants.STRING);
             header.datestamp = (String) xPath.evaluate("datestamp", headerNodes.item(i), XPathConstants.STRING);
+            header.deleted = "deleted".equals(xPath.evaluate("@status", headerNodes.item(i), XPathConstants.STRING));
             headers.add(header);
           }
           response.headers = headers.toArray(new Header[headers.size()]);
@@ -173,26 +168,18 @@ public class Client implements Closeable {
    * @throws TransformerException if error parsing response
    */
   public String readRecord(String id) throws IOException, URISyntaxException, ParserConfigurationException, SAXException, XPathExpressionException, TransformerException {
+    return readRecord(id, 0);
+  }
+
+  private String readRecord(String id, int attempt) throws IOException, URISyntaxException, ParserConfigurationException, SAXException, XPathExpressionException, TransformerException {
     HttpGet request = new HttpGet(recordUri(id));
     try (CloseableHttpResponse httpResponse = httpClient.execute(request); InputStream contentStream = httpResponse.getEntity().getContent();) {
       String reasonMessage = httpResponse.getStatusLine().getReasonPhrase();
       String responseContent = IOUtils.toString(contentStream, "UTF-8");
       LOG.trace(String.format("RESPONSE: %s, %s", responseContent, reasonMessage));
       
-      if (httpResponse.getStatusLine().getStatusCode()==429 || httpResponse.getStatusLine().getStatusCode()==503) {
-        Date retryAfter = getRetryAfter(httpResponse);
-        if (retryAfter!=null) {
-          long delay = retryAfter.getTime()-System.currentTimeMillis();
-          if (delay>0) {
-            LOG.debug(String.format("Harvestiong suspended for %d milliseconds.", delay));
-            try {
-              Thread.sleep(delay);
-            } catch (InterruptedException ex) {
-              // ignore
-            }
-          }
-          return readRecord(id);
-        }
+      if (attempt < MAX_RETRY_AFTER_ATTEMPTS && awaitRetryAfter(httpResponse)) {
+        return readRecord(id, attempt + 1);
       }
 
       if (httpResponse.getStatusLine().getStatusCode() >= 400) {
@@ -261,6 +248,33 @@ public class Client implements Closeable {
     return metadataDocument;
   }
 
+  /**
+   * Waits as requested by Retry-After header of 429 or 503 response. Host 
+   * budget of the HTTP client backs off the host as well, thus waiting here
+   * ends no later than the budget lets the next request in.
+   * @param response response
+   * @return <code>true</code> if request should be retried
+   * @throws InterruptedIOException if waiting has been interrupted
+   */
+  private boolean awaitRetryAfter(HttpResponse response) throws InterruptedIOException {
+    int status = response.getStatusLine().getStatusCode();
+    Date retryAfter = status==429 || status==503? getRetryAfter(response): null;
+    if (retryAfter==null) {
+      return false;
+    }
+    long delay = retryAfter.getTime()-System.currentTimeMillis();
+    if (delay>0) {
+      LOG.debug(String.format("Harvesting suspended for %d milliseconds.", delay));
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(String.format("Interrupted waiting for %s", url));
+      }
+    }
+    return true;
+  }
+
   private Date getRetryAfter(HttpResponse response) {
     org.apache.http.Header retryAfterHeader = response.getFirstHeader("Retry-After");
     if (retryAfterHeader != null) {
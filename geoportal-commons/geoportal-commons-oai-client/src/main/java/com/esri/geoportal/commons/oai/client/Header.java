@@ -21,4 +21,6 @@ package com.esri.geoportal.commons.oai.client;
 public class Header {
   public String identifier;
   public String datestamp;
+  /** record deleted from the repository */
+  public boolean deleted;
 }
@@ -20,18 +20,27 @@ import com.esri.geoportal.commons.robots.Bots;
 import static com.esri.geoportal.commons.robots.BotsUtils.requestAccess;
 import java.io.Closeable;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpRequestWrapper;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
@@ -42,6 +51,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Bots http client.
+ * <p>
+ * Obeys robots.txt if bots are provided, and keeps each request within the
+ * budget of the target host (see {@link HostBudgets}), reporting responses and
+ * timeouts back to the budget.
  */
 public class BotsHttpClient extends CloseableHttpClient {
   private static final Logger LOG = LoggerFactory.getLogger(BotsHttpClient.class);
@@ -78,7 +91,8 @@ public class BotsHttpClient extends CloseableHttpClient {
     HttpRequestWrapper wrap = HttpRequestWrapper.wrap(request);
     adviseRobotsTxt(wrap.getURI());
     wrap.setURI(applyPHP(wrap.getURI()));
-    return client.execute(wrap);
+    HostBudget budget = enterHost(null, wrap.getURI());
+    return track(budget, () -> client.execute(wrap));
   }
 
   @Override
@@ -86,7 +100,8 @@ public class BotsHttpClient extends CloseableHttpClient {
     HttpRequestWrapper wrap = HttpRequestWrapper.wrap(request);
     adviseRobotsTxt(wrap.getURI());
     wrap.setURI(applyPHP(wrap.getURI()));
-    return client.execute(wrap, context);
+    HostBudget budget = enterHost(null, wrap.getURI());
+    return track(budget, () -> client.execute(wrap, context));
   }
 
   @Override
@@ -94,7 +109,8 @@ public class BotsHttpClient extends CloseableHttpClient {
     HttpRequestWrapper wrap = HttpRequestWrapper.wrap(request, target);
     adviseRobotsTxt(wrap.getURI());
     wrap.setURI(applyPHP(wrap.getURI()));
-    return client.execute(wrap);
+    HostBudget budget = enterHost(target, wrap.getURI());
+    return track(budget, () -> client.execute(wrap));
   }
 
   @Override
@@ -102,7 +118,8 @@ public class BotsHttpClient extends CloseableHttpClient {
     HttpRequestWrapper wrap = HttpRequestWrapper.wrap(request, target);
     adviseRobotsTxt(wrap.getURI());
     wrap.setURI(applyPHP(wrap.getURI()));
-    return client.execute(wrap, context);
+    HostBudget budget = enterHost(target, wrap.getURI());
+    return track(budget, () -> client.execute(wrap, context));
   }
 
   @Override
@@ -110,7 +127,19 @@ public class BotsHttpClient extends CloseableHttpClient {
     HttpRequestWrapper wrap = HttpRequestWrapper.wrap(request);
     adviseRobotsTxt(wrap.getURI());
     wrap.setURI(applyPHP(wrap.getURI()));
-    return client.execute(wrap, responseHandler);
+    HostBudget budget = enterHost(null, wrap.getURI());
+    long start = System.nanoTime();
+    try {
+      return client.execute(wrap, response -> {
+        reportResponse(budget, start, response);
+        return responseHandler.handleResponse(response);
+      });
+    } catch (IOException ex) {
+      reportError(budget, ex);
+      throw ex;
+    } finally {
+      budget.leave();
+    }
   }
 
   @Override
@@ -118,7 +147,19 @@ public class BotsHttpClient extends CloseableHttpClient {
     HttpRequestWrapper wrap = HttpRequestWrapper.wrap(request);
     adviseRobotsTxt(wrap.getURI());
     wrap.setURI(applyPHP(wrap.getURI()));
-    return client.execute(wrap, responseHandler, context);
+    HostBudget budget = enterHost(null, wrap.getURI());
+    long start = System.nanoTime();
+    try {
+      return client.execute(wrap, response -> {
+        reportResponse(budget, start, response);
+        return responseHandler.handleResponse(response);
+      }, context);
+    } catch (IOException ex) {
+      reportError(budget, ex);
+      throw ex;
+    } finally {
+      budget.leave();
+    }
   }
 
   @Override
@@ -126,7 +167,19 @@ public class BotsHttpClient extends CloseableHttpClient {
     HttpRequestWrapper wrap = HttpRequestWrapper.wrap(request,target);
     adviseRobotsTxt(wrap.getURI());
     wrap.setURI(applyPHP(wrap.getURI()));
-    return client.execute(wrap, responseHandler);
+    HostBudget budget = enterHost(target, wrap.getURI());
+    long start = System.nanoTime();
+    try {
+      return client.execute(wrap, response -> {
+        reportResponse(budget, start, response);
+        return responseHandler.handleResponse(response);
+      });
+    } catch (IOException ex) {
+      reportError(budget, ex);
+      throw ex;
+    } finally {
+      budget.leave();
+    }
   }
 
   @Override
@@ -134,7 +187,19 @@ public class BotsHttpClient extends CloseableHttpClient {
     HttpRequestWrapper wrap = HttpRequestWrapper.wrap(request,target);
     adviseRobotsTxt(wrap.getURI());
     wrap.setURI(applyPHP(wrap.getURI()));
-    return client.execute(wrap, responseHandler, context);
+    HostBudget budget = enterHost(target, wrap.getURI());
+    long start = System.nanoTime();
+    try {
+      return client.execute(wrap, response -> {
+        reportResponse(budget, start, response);
+        return responseHandler.handleResponse(response);
+      }, context);
+    } catch (IOException ex) {
+      reportError(budget, ex);
+      throw ex;
+    } finally {
+      budget.leave();
+    }
   }
 
   @Override
@@ -144,6 +209,77 @@ public class BotsHttpClient extends CloseableHttpClient {
     }
   }
   
+  private HostBudget enterHost(HttpHost target, URI u) throws IOException {
+    HostBudget budget = HostBudgets.getInstance().getBudget(target != null? target.getHostName(): u.getHost());
+    budget.enter();
+    return budget;
+  }
+
+  /**
+   * Executes request within host budget. The budget is left once the response
+   * is closed.
+   */
+  private CloseableHttpResponse track(HostBudget budget, Request request) throws IOException {
+    CloseableHttpResponse response;
+    long start = System.nanoTime();
+    try {
+      response = request.execute();
+    } catch (IOException ex) {
+      reportError(budget, ex);
+      budget.leave();
+      throw ex;
+    } catch (RuntimeException ex) {
+      budget.leave();
+      throw ex;
+    }
+    reportResponse(budget, start, response);
+    AtomicBoolean left = new AtomicBoolean();
+    return (CloseableHttpResponse) Proxy.newProxyInstance(
+            CloseableHttpResponse.class.getClassLoader(),
+            new Class<?>[]{CloseableHttpResponse.class},
+            (proxy, method, args) -> {
+              if (method.getName().equals("close") && method.getParameterCount() == 0 && left.compareAndSet(false, true)) {
+                try {
+                  response.close();
+                } finally {
+                  budget.leave();
+                }
+                return null;
+              }
+              try {
+                return method.invoke(response, args);
+              } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+              }
+            });
+  }
+
+  private void reportResponse(HostBudget budget, long start, HttpResponse response) {
+    budget.onResponse(response.getStatusLine().getStatusCode(), System.nanoTime() - start, getRetryAfter(response));
+  }
+
+  private void reportError(HostBudget budget, IOException ex) {
+    if (ex instanceof SocketTimeoutException || ex instanceof ConnectTimeoutException) {
+      budget.onTimeout();
+    }
+  }
+
+  private Long getRetryAfter(HttpResponse response) {
+    Header retryAfterHeader = response.getFirstHeader("Retry-After");
+    if (retryAfterHeader != null) {
+      Date date = DateUtils.parseDate(retryAfterHeader.getValue());
+      if (date != null) {
+        return date.getTime();
+      }
+      try {
+        return System.currentTimeMillis() + 1000L * Long.parseLong(retryAfterHeader.getValue().trim());
+      } catch (NumberFormatException ex) {
+        LOG.debug(String.format("Invalid Retry-After: %s", retryAfterHeader.getValue()));
+      }
+    }
+    return null;
+  }
+
   private Long resolveThrottleDelay() {
     return bots!=null && bots.getCrawlDelay()!=null? 1000L*bots.getCrawlDelay(): null;
   }
@@ -235,6 +371,13 @@ public class BotsHttpClient extends CloseableHttpClient {
     return null;
   }
   
+  /**
+   * Request.
+   */
+  private interface Request {
+    CloseableHttpResponse execute() throws IOException;
+  }
+
   /**
    * Protocol-host-port
    */
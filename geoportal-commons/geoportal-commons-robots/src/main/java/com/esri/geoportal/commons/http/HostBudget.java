@@ -0,0 +1,352 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.commons.http;
+
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Request budget of a single host.
+ * <p>
+ * Limits number of requests sent to the host at the same time and the rate at
+ * which new requests are started. The budget is shared by all the clients
+ * talking to the same host, regardless of the task they belong to.
+ * <p>
+ * If adaptive, the budget follows additive-increase/multiplicative-decrease
+ * pattern: every healthy response raises the concurrency limit by a fraction
+ * (about one more request per round trip), while HTTP 429 or 503, a timeout, 
+ * or 95th percentile of the latency rising well above its baseline halves it.
+ * Once down to a single request at a time, the budget starts pacing requests 
+ * instead, halving and additively raising the rate the same way. Configured 
+ * maximums are never exceeded. Retry-After sent with 429 or 503 pauses all the
+ * requests to the host until the given time.
+ */
+public final class HostBudget {
+  /** concurrency ceiling of an adaptive budget without configured maximum */
+  public static final int ADAPTIVE_CEILING = 16;
+  
+  private static final double INITIAL_LIMIT = 2;
+  private static final double DECREASE_FACTOR = 0.5;
+  private static final double MIN_RATE = 0.1;
+  private static final double LATENCY_FACTOR = 2;
+  private static final int LATENCY_WINDOW = 64;
+  private static final long MIN_COOL_DOWN = TimeUnit.MILLISECONDS.toNanos(100);
+  
+  private final String host;
+  private final int maxConcurrent;
+  private final double maxRate;
+  private final boolean adaptive;
+  private final LongSupplier clock;
+  
+  // guarded by this
+  private int active;
+  private double limit;
+  private double pacedRate;
+  private long nextStart;
+  private long pausedUntil;
+  private long lastStart;
+  private double startInterval;
+  private long lastDecrease;
+  private long lastCongestion;
+  private final long[] latencies = new long[LATENCY_WINDOW];
+  private int latencyCount;
+  private long p95;
+  private long baseline;
+  private double meanLatency;
+
+  /**
+   * Creates instance of the budget.
+   * @param host host name
+   * @param maxConcurrent maximum number of concurrent requests; 0 for no limit
+   * @param maxRate maximum number of requests started per second; 0 for no limit
+   */
+  public HostBudget(String host, int maxConcurrent, double maxRate) {
+    this(host, maxConcurrent, maxRate, false);
+  }
+
+  /**
+   * Creates instance of the budget.
+   * @param host host name
+   * @param maxConcurrent maximum number of concurrent requests; 0 for no limit,
+   * or {@link #ADAPTIVE_CEILING} if adaptive
+   * @param maxRate maximum number of requests started per second; 0 for no limit
+   * @param adaptive <code>true</code> to adapt the limits to the responses
+   */
+  public HostBudget(String host, int maxConcurrent, double maxRate, boolean adaptive) {
+    this(host, maxConcurrent, maxRate, adaptive, System::nanoTime);
+  }
+
+  /**
+   * Creates instance of the budget.
+   * @param host host name
+   * @param maxConcurrent maximum number of concurrent requests; 0 for no limit,
+   * or {@link #ADAPTIVE_CEILING} if adaptive
+   * @param maxRate maximum number of requests started per second; 0 for no limit
+   * @param adaptive <code>true</code> to adapt the limits to the responses
+   * @param clock clock providing current time in nanoseconds
+   */
+  /*package*/ HostBudget(String host, int maxConcurrent, double maxRate, boolean adaptive, LongSupplier clock) {
+    this.host = host;
+    this.maxConcurrent = Math.max(0, maxConcurrent);
+    this.maxRate = Math.max(0, maxRate);
+    this.adaptive = adaptive;
+    this.clock = clock;
+    this.limit = adaptive? Math.min(INITIAL_LIMIT, getCeiling()): getCeiling();
+    this.lastDecrease = clock.getAsLong() - MIN_COOL_DOWN;
+    this.lastCongestion = clock.getAsLong() - MIN_COOL_DOWN;
+  }
+
+  /**
+   * Gets host name.
+   * @return host name
+   */
+  public String getHost() {
+    return host;
+  }
+
+  /**
+   * Gets maximum number of concurrent requests.
+   * @return maximum number of concurrent requests; 0 for no limit
+   */
+  public int getMaxConcurrent() {
+    return maxConcurrent;
+  }
+
+  /**
+   * Gets maximum request rate.
+   * @return maximum number of requests started per second; 0 for no limit
+   */
+  public double getMaxRate() {
+    return maxRate;
+  }
+
+  /**
+   * Checks if budget is adaptive.
+   * @return <code>true</code> if budget adapts the limits to the responses
+   */
+  public boolean isAdaptive() {
+    return adaptive;
+  }
+
+  /**
+   * Gets number of requests currently in progress.
+   * @return number of requests in progress
+   */
+  public synchronized int getActive() {
+    return active;
+  }
+
+  /**
+   * Gets current concurrency limit.
+   * @return current maximum number of concurrent requests; 0 for no limit
+   */
+  public synchronized int getLimit() {
+    return limit > 0? (int) limit: 0;
+  }
+
+  /**
+   * Gets current rate limit.
+   * @return current maximum number of requests started per second; 0 for no limit
+   */
+  public synchronized double getRate() {
+    return effectiveRate();
+  }
+
+  /**
+   * Enters the host. Blocks until both a concurrency slot and a rate slot are
+   * available. Each successful call has to be paired with {@link #leave()}.
+   * @throws InterruptedIOException if waiting has been interrupted
+   */
+  public void enter() throws InterruptedIOException {
+    long delay = acquire();
+    try {
+      if (delay > 0) {
+        TimeUnit.NANOSECONDS.sleep(delay);
+      }
+    } catch (InterruptedException ex) {
+      leave();
+      Thread.currentThread().interrupt();
+      throw interrupted(ex);
+    }
+  }
+
+  /**
+   * Takes a concurrency slot and reserves start of the request. Blocks until
+   * a concurrency slot is available.
+   * @return time in nanoseconds until the request may start
+   * @throws InterruptedIOException if waiting has been interrupted
+   */
+  /*package*/ synchronized long acquire() throws InterruptedIOException {
+    try {
+      while (limit > 0 && active >= (int) limit) {
+        wait();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw interrupted(ex);
+    }
+    active++;
+    return reserveStart();
+  }
+
+  /**
+   * Leaves the host.
+   */
+  public synchronized void leave() {
+    active--;
+    notifyAll();
+  }
+
+  /**
+   * Reports response received from the host.
+   * @param status HTTP status code
+   * @param latency time in nanoseconds until the response has been received
+   * @param retryAfter time in milliseconds (epoch) given by Retry-After header
+   * or <code>null</code> if none
+   */
+  public synchronized void onResponse(int status, long latency, Long retryAfter) {
+    if (status == 429 || status == 503) {
+      if (retryAfter != null) {
+        long pause = TimeUnit.MILLISECONDS.toNanos(retryAfter - System.currentTimeMillis());
+        pausedUntil = Math.max(pausedUntil, clock.getAsLong() + pause);
+      }
+      decrease();
+    } else if (adaptive) {
+      if (recordLatency(latency)) {
+        decrease();
+      } else {
+        increase();
+      }
+    }
+  }
+
+  /**
+   * Reports request timed out.
+   */
+  public synchronized void onTimeout() {
+    decrease();
+  }
+
+  private void increase() {
+    if (clock.getAsLong() - lastCongestion < coolDown()) {
+      // responses to the requests sent before the congestion are still coming
+      return;
+    }
+    if (pacedRate > 0) {
+      pacedRate += 1 / pacedRate;
+      if (meanLatency > 0 && pacedRate > 2 * TimeUnit.SECONDS.toNanos(1) / meanLatency) {
+        // pacing no longer slows down a single request at a time
+        pacedRate = 0;
+      }
+    } else {
+      limit = Math.min(getCeiling(), limit + 1 / limit);
+      notifyAll();
+    }
+  }
+
+  private void decrease() {
+    if (!adaptive) {
+      return;
+    }
+    long now = clock.getAsLong();
+    lastCongestion = now;
+    if (now - lastDecrease < coolDown()) {
+      return;
+    }
+    lastDecrease = now;
+    if (limit * DECREASE_FACTOR >= 2) {
+      limit *= DECREASE_FACTOR;
+    } else {
+      // down to a single request at a time; slow down starts as well
+      limit = 1;
+      double current = pacedRate > 0? pacedRate: observedRate();
+      pacedRate = Math.max(MIN_RATE, current * DECREASE_FACTOR);
+    }
+  }
+
+  /**
+   * Records latency.
+   * @return <code>true</code> if 95th percentile of the latency has risen well
+   * above its baseline
+   */
+  private boolean recordLatency(long latency) {
+    meanLatency = meanLatency > 0? 0.9 * meanLatency + 0.1 * latency: latency;
+    latencies[latencyCount++ % LATENCY_WINDOW] = latency;
+    if (latencyCount % (LATENCY_WINDOW / 4) != 0 || latencyCount < LATENCY_WINDOW) {
+      return false;
+    }
+    long[] sorted = latencies.clone();
+    Arrays.sort(sorted);
+    p95 = sorted[(int) (LATENCY_WINDOW * 0.95) - 1];
+    if (baseline == 0 || p95 < baseline) {
+      baseline = p95;
+      return false;
+    }
+    // baseline slowly follows the latency, thus permanently slower responses
+    // are accepted eventually
+    baseline += (p95 - baseline) / 20;
+    return p95 > LATENCY_FACTOR * baseline;
+  }
+
+  private long coolDown() {
+    return Math.max(MIN_COOL_DOWN, p95);
+  }
+
+  private double observedRate() {
+    return startInterval > 0? Math.max(MIN_RATE, TimeUnit.SECONDS.toNanos(1) / startInterval): 1;
+  }
+
+  private double effectiveRate() {
+    if (maxRate > 0 && pacedRate > 0) {
+      return Math.min(maxRate, pacedRate);
+    }
+    return maxRate > 0? maxRate: pacedRate;
+  }
+
+  private int getCeiling() {
+    return maxConcurrent > 0? maxConcurrent: adaptive? ADAPTIVE_CEILING: 0;
+  }
+
+  private long reserveStart() {
+    long now = clock.getAsLong();
+    double rate = effectiveRate();
+    long start = Math.max(now, pausedUntil);
+    if (rate > 0) {
+      start = Math.max(start, nextStart);
+      nextStart = start + (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+    }
+    if (lastStart > 0) {
+      double interval = Math.max(0, start - lastStart);
+      startInterval = startInterval > 0? 0.9 * startInterval + 0.1 * interval: interval;
+    }
+    lastStart = start;
+    return start - now;
+  }
+
+  private InterruptedIOException interrupted(InterruptedException ex) {
+    InterruptedIOException iex = new InterruptedIOException(String.format("Interrupted waiting for host: %s", host));
+    iex.initCause(ex);
+    return iex;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("HOST BUDGET :: host: %s, concurrent: %d, rate: %s%s", host, maxConcurrent, maxRate, 
+            adaptive? String.format(", adaptive limit: %d, adaptive rate: %.2f", getLimit(), pacedRate): "");
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.commons.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of host budgets.
+ * <p>
+ * Single registry shared by all the HTTP traffic of the process. Limits are
+ * configured with a specification string listing host patterns with their
+ * limits: <code>pattern=concurrency[:rate]</code>, separated by commas, for
+ * example: <code>*=8, *.usgs.gov=2:5, data.gov=4:0.5</code>. Pattern may use
+ * <code>*</code> as a wildcard; the first matching pattern wins. Concurrency
+ * is a maximum number of requests in progress, rate is a maximum number of
+ * requests started per second; 0 means no limit. Hosts not matching any
+ * pattern are not limited.
+ * <p>
+ * If adaptive, budgets adapt their limits to the responses of the host, 
+ * keeping the configured limits as the ceilings (see {@link HostBudget}).
+ */
+public final class HostBudgets {
+  private static final Logger LOG = LoggerFactory.getLogger(HostBudgets.class);
+  private static final HostBudgets instance = new HostBudgets();
+
+  private final ConcurrentHashMap<String, HostBudget> budgets = new ConcurrentHashMap<>();
+  private volatile List<Rule> rules = Collections.emptyList();
+  private volatile boolean adaptive;
+
+  /**
+   * Gets singleton instance.
+   * @return instance (never <code>null</code>)
+   */
+  public static HostBudgets getInstance() {
+    return instance;
+  }
+
+  /**
+   * Configures singleton instance.
+   * @param spec limits specification
+   * @return instance (never <code>null</code>)
+   * @throws IllegalArgumentException if specification is invalid
+   */
+  public static HostBudgets configure(String spec) {
+    return configure(spec, false);
+  }
+
+  /**
+   * Configures singleton instance.
+   * @param spec limits specification
+   * @param adaptive <code>true</code> to adapt limits to the responses
+   * @return instance (never <code>null</code>)
+   * @throws IllegalArgumentException if specification is invalid
+   */
+  public static HostBudgets configure(String spec, boolean adaptive) {
+    instance.adaptive = adaptive;
+    instance.setSpecification(spec);
+    return instance;
+  }
+
+  private HostBudgets() {}
+
+  /**
+   * Sets limits specification. Budgets created so far are discarded; requests
+   * already in progress finish within the old limits.
+   * @param spec limits specification
+   * @throws IllegalArgumentException if specification is invalid
+   */
+  public void setSpecification(String spec) {
+    List<Rule> parsed = parse(spec);
+    rules = parsed;
+    budgets.clear();
+    LOG.info(String.format("Host budgets: %s%s", parsed, adaptive? " (adaptive)": ""));
+  }
+
+  /**
+   * Gets budget of the host.
+   * @param host host name
+   * @return host budget (never <code>null</code>)
+   */
+  public HostBudget getBudget(String host) {
+    String key = StringUtils.trimToEmpty(host).toLowerCase(Locale.ROOT);
+    return budgets.computeIfAbsent(key, this::createBudget);
+  }
+
+  private HostBudget createBudget(String host) {
+    for (Rule rule: rules) {
+      if (rule.pattern.matcher(host).matches()) {
+        return new HostBudget(host, rule.maxConcurrent, rule.maxRate, adaptive);
+      }
+    }
+    return new HostBudget(host, 0, 0, adaptive);
+  }
+
+  private static List<Rule> parse(String spec) {
+    ArrayList<Rule> parsed = new ArrayList<>();
+    for (String entry: StringUtils.split(StringUtils.trimToEmpty(spec), ",;")) {
+      entry = entry.trim();
+      if (entry.isEmpty()) {
+        continue;
+      }
+      String[] patternLimits = entry.split("=", 2);
+      String[] limits = patternLimits.length == 2? patternLimits[1].split(":", 2): null;
+      if (limits == null || patternLimits[0].trim().isEmpty()) {
+        throw new IllegalArgumentException(String.format("Invalid host budget: %s", entry));
+      }
+      try {
+        int maxConcurrent = Integer.parseInt(limits[0].trim());
+        double maxRate = limits.length > 1? Double.parseDouble(limits[1].trim()): 0;
+        if (maxConcurrent < 0 || maxRate < 0) {
+          throw new IllegalArgumentException(String.format("Invalid host budget: %s", entry));
+        }
+        parsed.add(new Rule(patternLimits[0].trim(), maxConcurrent, maxRate));
+      } catch (NumberFormatException ex) {
+        throw new IllegalArgumentException(String.format("Invalid host budget: %s", entry), ex);
+      }
+    }
+    return Collections.unmodifiableList(parsed);
+  }
+
+  /**
+   * Host pattern with its limits.
+   */
+  private static final class Rule {
+    private final String spec;
+    private final Pattern pattern;
+    private final int maxConcurrent;
+    private final double maxRate;
+
+    public Rule(String spec, int maxConcurrent, double maxRate) {
+      this.spec = spec;
+      this.pattern = Pattern.compile(toRegex(spec.toLowerCase(Locale.ROOT)));
+      this.maxConcurrent = maxConcurrent;
+      this.maxRate = maxRate;
+    }
+
+    private static String toRegex(String glob) {
+      String[] parts = glob.split("\\*", -1);
+      StringBuilder sb = new StringBuilder(Pattern.quote(parts[0]));
+      for (int i = 1; i < parts.length; i++) {
+        sb.append(".*").append(Pattern.quote(parts[i]));
+      }
+      return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s=%d:%s", spec, maxConcurrent, maxRate);
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.commons.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.mockserver.integration.ClientAndServer;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+/**
+ * Host budget test.
+ * <p>
+ * Budgets run on a virtual clock. A simulated host accepts at most 20 
+ * requests per second, responds within 10ms, and responds with HTTP 429 above 
+ * that rate. A client keeps sending requests to the host for a simulated 
+ * minute through a fixed budget and through an adaptive budget.
+ * <p>
+ * {@link #testMockServer()} repeats it coarsely in real time against a mock
+ * server, with eight threads sending requests through the HTTP client.
+ */
+public class HostBudgetTest {
+  private static final int SERVER_RATE = 20;
+  private static final long SERVER_LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long DURATION = TimeUnit.MINUTES.toNanos(1);
+  private static final int PORT = 5000;
+  private static final int THREADS = 8;
+  private static final long SERVER_DURATION = 3000;
+  
+  private final AtomicLong clock = new AtomicLong();
+  private int accepted;
+  private int rejected;
+  
+  @Test
+  public void testFixedBudgetKeepsHittingLimit() throws Exception {
+    HostBudget budget = new HostBudget("example.com", 8, 0, false, clock::get);
+    simulate(budget);
+    
+    assertTrue("Fixed budget should keep hitting the server limit", rejected > accepted);
+    assertEquals("Fixed budget should not change its limit", 8, budget.getLimit());
+  }
+  
+  @Test
+  public void testAdaptiveBudgetBacksOff() throws Exception {
+    HostBudget budget = new HostBudget("example.com", 8, 0, true, clock::get);
+    simulate(budget);
+    
+    assertTrue("Adaptive budget should back off below the server limit", rejected * 4 < accepted);
+    assertTrue("Adaptive budget should keep most of the server capacity", accepted >= SERVER_RATE * TimeUnit.NANOSECONDS.toSeconds(DURATION) / 2);
+    assertTrue("Adaptive budget should not exceed its ceiling", budget.getLimit() <= 8);
+  }
+  
+  @Test
+  public void testIncreaseUpToCeiling() throws Exception {
+    HostBudget budget = new HostBudget("example.com", 8, 0, true, clock::get);
+    assertEquals("Adaptive budget should start low", 2, budget.getLimit());
+    
+    for (int i = 0; i < 1000; i++) {
+      respond(budget, 200);
+    }
+    
+    assertEquals("Healthy responses should raise the limit up to the ceiling", 8, budget.getLimit());
+  }
+  
+  @Test
+  public void testDecreaseOncePerCoolDown() throws Exception {
+    HostBudget budget = new HostBudget("example.com", 8, 0, true, clock::get);
+    for (int i = 0; i < 1000; i++) {
+      respond(budget, 200);
+    }
+    
+    budget.onResponse(429, SERVER_LATENCY, null);
+    assertEquals(4, budget.getLimit());
+    budget.onResponse(429, SERVER_LATENCY, null);
+    assertEquals("Responses within the cool-down should not decrease again", 4, budget.getLimit());
+    
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    budget.onResponse(429, SERVER_LATENCY, null);
+    assertEquals(2, budget.getLimit());
+    assertEquals("Budget should not pace while concurrent", 0, budget.getRate(), 0);
+    
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    budget.onResponse(429, SERVER_LATENCY, null);
+    assertEquals(1, budget.getLimit());
+    assertTrue("Budget should pace once down to a single request", budget.getRate() > 0);
+  }
+  
+  @Test
+  public void testRetryAfterPausesHost() throws Exception {
+    HostBudget budget = new HostBudget("example.com", 2, 0, true, clock::get);
+    long retryAfter = TimeUnit.MINUTES.toMillis(1);
+    budget.onResponse(503, SERVER_LATENCY, System.currentTimeMillis() + retryAfter);
+    
+    long delay = budget.acquire();
+    budget.leave();
+    
+    assertTrue("Request should wait until Retry-After", delay > TimeUnit.MILLISECONDS.toNanos(retryAfter) - TimeUnit.SECONDS.toNanos(10));
+    assertTrue(delay <= TimeUnit.MILLISECONDS.toNanos(retryAfter));
+    assertEquals("Concurrency should be cut back", 1, budget.getLimit());
+  }
+  
+  @Test
+  public void testMockServer() throws Exception {
+    ClientAndServer server = ClientAndServer.startClientAndServer(PORT);
+    try {
+      long interval = TimeUnit.SECONDS.toNanos(1) / SERVER_RATE;
+      long[] next = {System.nanoTime()};
+      server.when(request().withMethod("GET").withPath("/data")).respond(request -> {
+        synchronized (next) {
+          long now = System.nanoTime();
+          if (next[0] > now) {
+            return response().withStatusCode(429).withBody("slow down");
+          }
+          next[0] = Math.max(next[0], now - interval) + interval;
+          return response().withStatusCode(200).withBody("ok");
+        }
+      });
+      
+      HostBudgets.configure("localhost=8", false);
+      int[] fixed = run();
+      HostBudgets.configure("localhost=8", true);
+      int[] adaptive = run();
+      System.out.println(String.format("Server limited to %d requests per second, %d seconds: fixed budget - %d accepted, %d rejected; adaptive budget - %d accepted, %d rejected", 
+              SERVER_RATE, TimeUnit.MILLISECONDS.toSeconds(SERVER_DURATION), fixed[0], fixed[1], adaptive[0], adaptive[1]));
+      
+      assertTrue("Fixed budget should hit the server limit", fixed[1] > 0);
+      assertTrue("Adaptive budget should back off below the server limit", adaptive[1] < adaptive[0]);
+    } finally {
+      HostBudgets.configure("");
+      server.stop();
+    }
+  }
+  
+  /**
+   * Sends requests to the mock server from several threads.
+   * @return number of accepted and rejected requests
+   */
+  private int[] run() throws Exception {
+    AtomicBoolean stop = new AtomicBoolean();
+    AtomicInteger ok = new AtomicInteger();
+    AtomicInteger tooMany = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try (CloseableHttpClient client = new BotsHttpClient(HttpClientBuilder.create().setMaxConnPerRoute(THREADS).build(), null)) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        futures.add(executor.submit(() -> {
+          while (!stop.get()) {
+            try (CloseableHttpResponse response = client.execute(new HttpGet(String.format("http://localhost:%d/data", PORT)))) {
+              (response.getStatusLine().getStatusCode() == 429? tooMany: ok).incrementAndGet();
+              EntityUtils.consume(response.getEntity());
+            }
+          }
+          return null;
+        }));
+      }
+      Thread.sleep(SERVER_DURATION);
+      stop.set(true);
+      for (Future<?> future: futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return new int[] {ok.get(), tooMany.get()};
+  }
+  
+  /**
+   * Sends requests one after another to the simulated host.
+   * @param budget budget
+   */
+  private void simulate(HostBudget budget) throws Exception {
+    long interval = TimeUnit.SECONDS.toNanos(1) / SERVER_RATE;
+    long next = 0;
+    while (clock.get() < DURATION) {
+      clock.addAndGet(budget.acquire());
+      long now = clock.get();
+      boolean accept = next <= now;
+      if (accept) {
+        next = Math.max(next, now - interval) + interval;
+        accepted++;
+      } else {
+        rejected++;
+      }
+      clock.addAndGet(SERVER_LATENCY);
+      budget.onResponse(accept? 200: 429, SERVER_LATENCY, null);
+      budget.leave();
+    }
+  }
+  
+  private void respond(HostBudget budget, int status) throws Exception {
+    clock.addAndGet(budget.acquire());
+    clock.addAndGet(SERVER_LATENCY);
+    budget.onResponse(status, SERVER_LATENCY, null);
+    budget.leave();
+  }
+}
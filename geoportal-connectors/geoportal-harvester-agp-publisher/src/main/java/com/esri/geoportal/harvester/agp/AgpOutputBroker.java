@@ -23,6 +23,7 @@ import com.esri.geoportal.commons.agp.client.ItemEntry;
 import com.esri.geoportal.commons.agp.client.ItemResponse;
 import com.esri.geoportal.commons.constants.ItemType;
 import com.esri.geoportal.commons.agp.client.QueryResponse;
+import com.esri.geoportal.commons.http.BotsHttpClient;
 import com.esri.geoportal.commons.constants.MimeType;
 import com.esri.geoportal.commons.doc.DocUtils;
 import com.esri.geoportal.commons.meta.ArrayAttribute;
@@ -31,7 +32,9 @@ import com.esri.geoportal.commons.meta.MapAttribute;
 import com.esri.geoportal.commons.meta.MetaAnalyzer;
 import com.esri.geoportal.commons.meta.MetaException;
 import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
 import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
+import com.esri.geoportal.harvester.api.base.PublicationLedger;
 import com.esri.geoportal.commons.meta.util.WKAConstants;
 import com.esri.geoportal.commons.pdf.PdfUtils;
 import com.esri.geoportal.commons.utils.SimpleCredentials;
@@ -57,10 +60,11 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.xml.parsers.DocumentBuilder;
@@ -93,9 +97,10 @@ import org.xml.sax.SAXException;
   private final String geometryServiceUrl;
   private CloseableHttpClient httpClient;
   private AgpClient client;
-  private String token;
-  private final Set<String> existing = new HashSet<>();
+  private volatile String token;
+  private final Set<String> existing = ConcurrentHashMap.newKeySet();
   private volatile boolean preventCleanup;
+  private volatile PublicationLedger ledger;
 
   /**
    * Creates instance of the broker.
@@ -120,8 +125,10 @@ import org.xml.sax.SAXException;
 
       byte[] content    = null;
 
-      if (ref.getContent(MimeType.APPLICATION_PDF) != null) {
-        content = PdfUtils.generateMetadataXML(ref.getContent(MimeType.APPLICATION_PDF), ref.getSourceUri().getPath(), ref.getSourceUri().toASCIIString(), geometryServiceUrl); 
+      if (ref.getContentType().contains(MimeType.APPLICATION_PDF)) {
+        try (InputStream pdf = ref.getContentStream(MimeType.APPLICATION_PDF)) {
+          content = pdf != null? PdfUtils.generateMetadataXML(pdf, ref.getSourceUri().getPath(), ref.getSourceUri().toASCIIString(), geometryServiceUrl): null;
+        }
         
       } else if (ref.getContent(MimeType.APPLICATION_XML, MimeType.TEXT_XML) != null) {        	
         content = ref.getContent(MimeType.APPLICATION_XML, MimeType.TEXT_XML);
@@ -132,8 +139,9 @@ import org.xml.sax.SAXException;
                   .filter(t->!Arrays.stream(toBeSkipped).anyMatch(s->s==t))
                   .collect(Collectors.toSet());
           if (!types.isEmpty()) {
-            byte[]         rawContent = ref.getContent(types.toArray(new MimeType[types.size()]));
-            content = rawContent!=null ? DocUtils.generateMetadataXML(rawContent, new File(ref.getId()).getName()) : null;
+            try (InputStream rawContent = ref.getContentStream(types.toArray(new MimeType[types.size()]))) {
+              content = rawContent!=null ? DocUtils.generateMetadataXML(rawContent, new File(ref.getId()).getName()) : null;
+            }
           }
       }
         
@@ -239,6 +247,9 @@ import org.xml.sax.SAXException;
           }
 
           client.share(definition.getCredentials().getUserName(), definition.getFolderId(), response.id, true, true, null, token);
+          if (ledger != null) {
+            ledger.record(response.id);
+          }
 
           return PublishingStatus.CREATED;
 
@@ -270,6 +281,9 @@ import org.xml.sax.SAXException;
           }
 
           existing.remove(itemEntry.id);
+          if (ledger != null) {
+            ledger.record(itemEntry.id);
+          }
 
           return PublishingStatus.UPDATED;
         } else {
@@ -287,6 +301,31 @@ import org.xml.sax.SAXException;
       }
     }
   }
+
+  @Override
+  public PublishingStatus delete(DataReference ref) throws DataOutputException {
+    try {
+      if (token == null) {
+        token = generateToken();
+      }
+      ItemEntry itemEntry = searchForItem(URLEncoder.encode(ref.getSourceUri().toASCIIString(), "UTF-8"));
+      if (itemEntry == null) {
+        return PublishingStatus.SKIPPED;
+      }
+      DeleteResponse response = deleteItem(itemEntry.id, itemEntry.owner, itemEntry.ownerFolder);
+      if (response != null && response.error != null) {
+        throw new DataOutputException(this, ref.getId(), response.error.message);
+      }
+      existing.remove(itemEntry.id);
+      if (ledger != null) {
+        ledger.remove(itemEntry.id);
+      }
+      return PublishingStatus.DELETED;
+    } catch (IOException | URISyntaxException ex) {
+      throw new DataOutputException(this, ref.getId(), String.format("Error deleting data: %s", ref), ex);
+    }
+  }
+
   private ItemType createItemType(String resourceUrl) {
     
     resourceUrl = StringUtils.trimToEmpty(resourceUrl);
@@ -506,8 +545,12 @@ import org.xml.sax.SAXException;
   @Override
   public void initialize(InitContext context) throws DataProcessorException {
     definition.override(context.getParams());
-    this.httpClient = HttpClientBuilder.create().useSystemProperties().build();
+    this.httpClient = new BotsHttpClient(HttpClientBuilder.create().useSystemProperties().build(), null);
     this.client = new AgpClient(httpClient, definition.getHostUrl(), definition.getCredentials(), definition.getMaxRedirects());
+    this.ledger = PublicationLedger.of(context);
+    AbortSignal abortSignal = AbortSignal.of(context);
+    abortSignal.onAbort(() -> preventCleanup = true);
+    abortSignal.closeOnAbort(httpClient);
 
     if (!context.canCleanup()) {
       preventCleanup = true;
@@ -520,14 +563,13 @@ import org.xml.sax.SAXException;
         }
       });
       try {
-        String src_source_uri_s = URLEncoder.encode(context.getTask().getDataSource().getBrokerUri().toASCIIString(), "UTF-8");
-        QueryResponse search = client.search(String.format("typekeywords:%s", String.format("src_source_uri_s=%s", src_source_uri_s)), 0, 0, generateToken(1));
-        while (search != null && search.results != null && search.results.length > 0) {
-          existing.addAll(Arrays.asList(search.results).stream().map(i -> i.id).collect(Collectors.toList()));
-          if (search.nextStart > 0) {
-            search = client.search(String.format("typekeywords:%s", String.format("src_source_uri_s=%s", src_source_uri_s)), 0, search.nextStart, generateToken(1));
-          } else {
-            break;
+        Collection<String> recorded = ledger != null? ledger.list(): null;
+        if (recorded != null) {
+          existing.addAll(recorded);
+        } else {
+          collectExisting(context);
+          if (ledger != null) {
+            ledger.seed(existing);
           }
         }
       } catch (URISyntaxException | IOException ex) {
@@ -557,6 +599,23 @@ import org.xml.sax.SAXException;
     }
   }
 
+  /**
+   * Collects ids of the items published from the source.
+   * @param context init context
+   */
+  private void collectExisting(InitContext context) throws URISyntaxException, IOException {
+    String src_source_uri_s = URLEncoder.encode(context.getTask().getDataSource().getBrokerUri().toASCIIString(), "UTF-8");
+    QueryResponse search = client.search(String.format("typekeywords:%s", String.format("src_source_uri_s=%s", src_source_uri_s)), 0, 0, generateToken(1));
+    while (search != null && search.results != null && search.results.length > 0) {
+      existing.addAll(Arrays.asList(search.results).stream().map(i -> i.id).collect(Collectors.toList()));
+      if (search.nextStart > 0) {
+        search = client.search(String.format("typekeywords:%s", String.format("src_source_uri_s=%s", src_source_uri_s)), 0, search.nextStart, generateToken(1));
+      } else {
+        break;
+      }
+    }
+  }
+
   @Override
   public void terminate() {
     try {
@@ -564,7 +623,12 @@ import org.xml.sax.SAXException;
         token = generateToken();
         for (String id : existing) {
           ItemEntry item = client.readItem(id, token);
-          deleteItem(item.id, item.owner, item.ownerFolder);
+          if (item != null) {
+            deleteItem(item.id, item.owner, item.ownerFolder);
+          }
+          if (ledger != null) {
+            ledger.remove(id);
+          }
         }
       }
       if (client!=null) {
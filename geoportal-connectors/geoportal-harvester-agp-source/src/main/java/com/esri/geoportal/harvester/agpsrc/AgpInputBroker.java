@@ -29,6 +29,7 @@ import com.esri.geoportal.commons.meta.MetaBuilder;
 import com.esri.geoportal.commons.meta.MetaException;
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.harvester.api.Initializable.InitContext;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
 import com.esri.geoportal.harvester.api.base.SimpleDataReference;
 import com.esri.geoportal.commons.meta.util.WKAConstants;
 import com.esri.geoportal.commons.robots.Bots;
@@ -138,8 +139,9 @@ import com.esri.geoportal.harvester.api.defs.TaskDefinition;
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
     CloseableHttpClient httpclient = HttpClientBuilder.create().useSystemProperties().build();
+    AbortSignal.of(context).closeOnAbort(httpclient);
     if (context.getTask().getTaskDefinition().isIgnoreRobotsTxt()) {
-      client = new AgpClient(httpclient, definition.getHostUrl(),definition.getCredentials(), definition.getMaxRedirects());
+      client = new AgpClient(new BotsHttpClient(httpclient, null), definition.getHostUrl(),definition.getCredentials(), definition.getMaxRedirects());
     } else {
       Bots bots = BotsUtils.readBots(definition.getBotsConfig(), httpclient, definition.getHostUrl());
       client = new AgpClient(new BotsHttpClient(httpclient,bots), definition.getHostUrl(), definition.getCredentials(), definition.getMaxRedirects());
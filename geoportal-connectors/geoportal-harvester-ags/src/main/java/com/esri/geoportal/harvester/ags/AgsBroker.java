@@ -32,6 +32,7 @@ import com.esri.geoportal.commons.meta.MetaException;
 import com.esri.geoportal.commons.meta.MapAttribute;
 import com.esri.geoportal.commons.meta.StringAttribute;
 import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
 import com.esri.geoportal.harvester.api.base.SimpleDataReference;
 import com.esri.geoportal.commons.meta.util.WKAConstants;
 import com.esri.geoportal.commons.robots.Bots;
@@ -109,8 +110,9 @@ import java.net.URL;
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
     CloseableHttpClient httpclient = HttpClientBuilder.create().useSystemProperties().build();
+    AbortSignal.of(context).closeOnAbort(httpclient);
     if (context.getTask().getTaskDefinition().isIgnoreRobotsTxt()) {
-      client = new AgsClient(httpclient, definition.getHostUrl());
+      client = new AgsClient(new BotsHttpClient(httpclient, null), definition.getHostUrl());
     } else {
       Bots bots = BotsUtils.readBots(definition.getBotsConfig(), httpclient, definition.getHostUrl());
       client = new AgsClient(new BotsHttpClient(httpclient, bots), definition.getHostUrl());
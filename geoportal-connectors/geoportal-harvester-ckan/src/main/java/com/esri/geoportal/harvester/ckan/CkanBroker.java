@@ -41,6 +41,8 @@ import com.esri.geoportal.commons.ckan.client.Pkg;
 import com.esri.geoportal.commons.ckan.client.Response;
 import com.esri.geoportal.commons.utils.SimpleCredentials;
 import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
+import com.esri.geoportal.harvester.api.base.LazyDataReference;
 import com.esri.geoportal.harvester.api.base.SimpleDataReference;
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.ex.DataInputException;
@@ -118,8 +120,9 @@ public class CkanBroker implements InputBroker {
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
     CloseableHttpClient http = HttpClientBuilder.create().useSystemProperties().build();
+    AbortSignal.of(context).closeOnAbort(http);
     if (context.getTask().getTaskDefinition().isIgnoreRobotsTxt()) {
-      httpClient = http;
+      httpClient = new BotsHttpClient(http, null);
     } else {
       Bots bots = BotsUtils.readBots(definition.getBotsConfig(), http, definition.getHostUrl());
       httpClient = new BotsHttpClient(http, bots);
@@ -308,6 +311,24 @@ public class CkanBroker implements InputBroker {
     return ref;
   }
 
+  /**
+   * Creates lazy reference. Content is created upon the first request for it,
+   * thus datasets rejected by the filters never cost fetching their metadata.
+   * @param dataSet data set
+   * @return lazy data reference
+   * @throws URISyntaxException if broker URI is invalid
+   */
+  private DataReference createLazyReference(Dataset dataSet) throws URISyntaxException {
+    String id = firstNonBlank(dataSet.id);
+    return new LazyDataReference(getBrokerUri(), definition.getEntityDefinition().getLabel(), id, parseIsoDate(dataSet.metadata_modified), URI.create(escapeUri(id)), td.getSource().getRef(), td.getRef(), () -> {
+      try {
+        return createReference(dataSet);
+      } catch (URISyntaxException | UnsupportedEncodingException | IllegalArgumentException | JsonProcessingException ex) {
+        throw new DataInputException(CkanBroker.this, String.format("Error reading data from: %s", id), ex);
+      }
+    });
+  }
+
   private interface DatasetProvider {
     public List<Dataset> get() throws IOException, URISyntaxException;
   }
@@ -324,16 +345,30 @@ public class CkanBroker implements InputBroker {
 
     private final int limit = 10;
     private int offset = 0;
+    private Integer pageOffset;   // offset of the current page or null if not paging
     private boolean lastPage;
+    private Long total;
 
     public CkanIterator(IteratorContext iteratorContext) {
       this.iteratorContext = iteratorContext;
+      if (iteratorContext.getCheckpoint() != null) {
+        try {
+          offset = Math.max(0, Integer.parseInt(iteratorContext.getCheckpoint()));
+          LOG.info(String.format("Resuming harvest of %s from offset: %d", CkanBroker.this, offset));
+        } catch (NumberFormatException ex) {
+          LOG.warn(String.format("Invalid checkpoint: %s; harvesting %s from the beginning.", iteratorContext.getCheckpoint(), CkanBroker.this));
+        }
+      }
     }
 
     private void listPackages() throws IOException, URISyntaxException {
       try {
         Response response = client.listPackages(limit, offset);
 
+        if (total == null && response != null && response.result != null && response.result.count != null) {
+          total = Math.max(0, response.result.count - offset);
+        }
+
         if (response != null && response.result != null && response.result.results != null && !response.result.results.isEmpty()) {
           List<DatasetProvider> providers = response.result.results.stream().map((Dataset ds) -> new DatasetProvider() {
             public List<Dataset> get() { 
@@ -341,6 +376,7 @@ public class CkanBroker implements InputBroker {
             }
           }).collect(Collectors.toList());
           providerIter = providers.iterator();
+          pageOffset = offset;
           offset += limit;
         } else {
           lastPage = true;
@@ -348,9 +384,11 @@ public class CkanBroker implements InputBroker {
         
       } catch (IOException ex) {
         lastPage = true;
+        pageOffset = null;
         ListResponse response = client.listPackages();
         
         if (response != null && response.result!=null) {
+          total = (long) response.result.length;
           ArrayList<DatasetProvider> list = new ArrayList<>();
           for (String id: response.result) {
             list.add(new DatasetProvider() {
@@ -401,12 +439,22 @@ public class CkanBroker implements InputBroker {
       try {
 
         Dataset dataSet = dataIter.next();
-        return createReference(dataSet);
+        return createLazyReference(dataSet);
 
-      } catch (URISyntaxException | UnsupportedEncodingException | IllegalArgumentException | JsonProcessingException ex) {
+      } catch (URISyntaxException | IllegalArgumentException ex) {
         throw new DataInputException(CkanBroker.this, String.format("Error reading data from: %s", this), ex);
       }
     }
+
+    @Override
+    public String getCheckpoint() {
+      return pageOffset != null? pageOffset.toString(): null;
+    }
+
+    @Override
+    public Long getTotal() {
+      return total;
+    }
   }
 
   /**
@@ -22,6 +22,7 @@ import com.esri.geoportal.commons.csw.client.impl.Client;
 import com.esri.geoportal.commons.http.BotsHttpClient;
 import com.esri.geoportal.commons.robots.Bots;
 import com.esri.geoportal.commons.robots.BotsUtils;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
 import com.esri.geoportal.harvester.api.ex.DataInputException;
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.harvester.api.specs.InputBroker;
@@ -74,8 +75,9 @@ import org.slf4j.LoggerFactory;
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
     httpclient = HttpClientBuilder.create().useSystemProperties().build();
+    AbortSignal.of(context).closeOnAbort(httpclient);
     if (context.getTask().getTaskDefinition().isIgnoreRobotsTxt()) {
-      client = new Client(httpclient, definition.getHostUrl(), definition.getProfile(), definition.getCredentials());
+      client = new Client(new BotsHttpClient(httpclient, null), definition.getHostUrl(), definition.getProfile(), definition.getCredentials());
     } else {
       Bots bots = BotsUtils.readBots(definition.getBotsConfig(), httpclient, definition.getHostUrl());
       client = new Client(new BotsHttpClient(httpclient,bots), definition.getHostUrl(), definition.getProfile(), definition.getCredentials());
@@ -144,6 +146,7 @@ import org.slf4j.LoggerFactory;
    */
   private class CswIterator implements InputBroker.Iterator {
     private final IteratorContext iteratorContext;
+    private Long total;
 
     /**
      * Creates instance of the iterator.
@@ -151,6 +154,14 @@ import org.slf4j.LoggerFactory;
      */
     public CswIterator(IteratorContext iteratorContext) {
       this.iteratorContext = iteratorContext;
+      if (iteratorContext.getCheckpoint()!=null) {
+        try {
+          start = Math.max(1, Integer.parseInt(iteratorContext.getCheckpoint()));
+          LOG.info(String.format("Resuming harvest of %s from record: %d", CswBroker.this, start));
+        } catch (NumberFormatException ex) {
+          LOG.warn(String.format("Invalid checkpoint: %s; harvesting %s from the beginning.", iteratorContext.getCheckpoint(), CswBroker.this));
+        }
+      }
     }
     
     
@@ -163,6 +174,9 @@ import org.slf4j.LoggerFactory;
 
         if (recs==null) {
           IRecords r = client.findRecords(start, PAGE_SIZE, iteratorContext.getLastHarvestDate(), null, definition.getSearchText());
+          if (total==null && r.getNumberOfRecordsMatched()!=null) {
+            total = Math.max(0, r.getNumberOfRecordsMatched() - (start - 1));
+          }
           if (r.isEmpty()) {
             noMore = true;
           } else {
@@ -199,6 +213,16 @@ import org.slf4j.LoggerFactory;
       nextRecord=null;
       return readContent(rec.getId(), rec.getLastModifiedDate());
     }
+
+    @Override
+    public String getCheckpoint() {
+      return Integer.toString(start);
+    }
+
+    @Override
+    public Long getTotal() {
+      return total;
+    }
   }
   
 }
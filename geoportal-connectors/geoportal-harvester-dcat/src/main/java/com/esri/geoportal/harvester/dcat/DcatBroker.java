@@ -38,6 +38,7 @@ import com.esri.geoportal.commons.robots.BotsUtils;
 import com.esri.geoportal.commons.utils.SimpleCredentials;
 import com.esri.geoportal.commons.utils.UriUtils;
 import com.esri.geoportal.commons.utils.XmlUtils;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.ex.DataInputException;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
@@ -118,8 +119,9 @@ import org.w3c.dom.Document;
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
     CloseableHttpClient http = HttpClientBuilder.create().useSystemProperties().build();
+    AbortSignal.of(context).closeOnAbort(http);
     if (context.getTask().getTaskDefinition().isIgnoreRobotsTxt()) {
-      httpClient = http;
+      httpClient = new BotsHttpClient(http, null);
     } else {
       Bots bots = BotsUtils.readBots(definition.getBotsConfig(), http, definition.getHostUrl());
       httpClient = new BotsHttpClient(http, bots);
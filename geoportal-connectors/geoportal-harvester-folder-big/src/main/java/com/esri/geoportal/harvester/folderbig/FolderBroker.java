@@ -19,7 +19,9 @@ import com.esri.geoportal.commons.constants.MimeType;
 import com.esri.geoportal.commons.constants.MimeTypeUtils;
 import com.esri.geoportal.commons.utils.SimpleCredentials;
 import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
 import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
+import com.esri.geoportal.harvester.api.base.PublicationLedger;
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.defs.PublishingStatus;
 import com.esri.geoportal.harvester.api.ex.DataException;
@@ -32,15 +34,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashSet;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static com.esri.geoportal.harvester.folderbig.PathUtil.splitPath;
@@ -53,8 +58,9 @@ import static com.esri.geoportal.harvester.folderbig.PathUtil.splitPath;
   private final static Logger LOG = LoggerFactory.getLogger(FolderBroker.class);
   private final FolderConnector connector;
   private final FolderBrokerDefinitionAdaptor definition;
-  private final Set<String> existing = new HashSet<>();
+  private final Set<String> existing = ConcurrentHashMap.newKeySet();
   private volatile boolean preventCleanup;
+  private volatile PublicationLedger ledger;
   private volatile boolean splitFolders = true;
   private volatile Integer splitSize = 1000;
   private volatile boolean resetCount = true;
@@ -81,14 +87,27 @@ import static com.esri.geoportal.harvester.folderbig.PathUtil.splitPath;
       String sspRoot = StringUtils.defaultIfEmpty(ssp.getHost(), ssp.getPath());
       Path brokerRootFolder = definition.getRootFolder().toPath().toRealPath().resolve(sspRoot);
       Files.createDirectories(brokerRootFolder);
-      if (definition.getCleanup()) {
+      ledger = PublicationLedger.of(context);
+      AbortSignal.of(context).onAbort(() -> preventCleanup = true);
+      if (!context.canCleanup()) {
+        preventCleanup = true;
+      }
+      if (definition.getCleanup() && !preventCleanup) {
         context.addListener(new BaseProcessInstanceListener() {
           @Override
           public void onError(DataException ex) {
             preventCleanup = true;
           }
         });
-        fetchExisting(brokerRootFolder);
+        Collection<String> recorded = ledger!=null? ledger.list(): null;
+        if (recorded!=null) {
+          existing.addAll(recorded);
+        } else {
+          fetchExisting(brokerRootFolder);
+          if (ledger!=null) {
+            ledger.seed(existing);
+          }
+        }
       }
     } catch (IOException|URISyntaxException ex) {
       throw new DataProcessorException(String.format("Error initializing broker."), ex);
@@ -113,7 +132,10 @@ import static com.esri.geoportal.harvester.folderbig.PathUtil.splitPath;
       for (String f: existing) {
         if (Thread.currentThread().isInterrupted()) break;
         try {
-          Files.delete(Paths.get(f));
+          Files.deleteIfExists(Paths.get(f));
+          if (ledger!=null) {
+            ledger.remove(f);
+          }
         } catch (IOException ex) {
           LOG.warn(String.format("Error deleting file: %s", f), ex);
         }
@@ -145,9 +167,12 @@ import static com.esri.geoportal.harvester.folderbig.PathUtil.splitPath;
           boolean created = !Files.exists(f);
 
           Files.createDirectories(f.getParent());
-          try (OutputStream output = Files.newOutputStream(f)) {
-            output.write(ref.getContent(ct));
+          try (InputStream input = ref.getContentStream(ct)) {
+            Files.copy(input, f, StandardCopyOption.REPLACE_EXISTING);
             existing.remove(f.toRealPath().toString());
+            if (ledger!=null) {
+              ledger.record(f.toRealPath().toString());
+            }
             //return created ? PublishingStatus.CREATED : PublishingStatus.UPDATED;
           } catch (Exception ex) {
             throw new DataOutputException(this, String.format("Error publishing data: %s", ref), ex.getMessage());
@@ -164,11 +189,90 @@ import static com.esri.geoportal.harvester.folderbig.PathUtil.splitPath;
   }
   }
 
+  @Override
+  public PublishingStatus delete(DataReference ref) throws DataOutputException {
+    try {
+      List<Path> files = findFiles(ref);
+      for (Path f: files) {
+        String key = f.toRealPath().toString();
+        Files.deleteIfExists(f);
+        existing.remove(key);
+        if (ledger!=null) {
+          ledger.remove(key);
+        }
+      }
+      return !files.isEmpty()? PublishingStatus.DELETED: PublishingStatus.SKIPPED;
+    } catch (IOException ex) {
+      throw new DataOutputException(this, ref.getId(), String.format("Error deleting data: %s", ref), ex);
+    }
+  }
+
   @Override
   public String toString() {
     return String.format("FOLDER [%s]", definition.getRootFolder());
   }
   
+  /**
+   * Finds files the record has been published to. Split folder the record 
+   * landed in is not known, thus each split folder is examined; tombstone has
+   * no content, thus every known extension is considered.
+   * @param ref data reference
+   * @return list of existing files
+   * @throws IOException if finding files fails
+   */
+  private List<Path> findFiles(DataReference ref) throws IOException {
+    URI ssp = URI.create(ref.getBrokerUri().getSchemeSpecificPart());
+    String sspRoot = StringUtils.defaultIfEmpty(ssp.getHost(), ssp.getPath());
+    Path folderName = definition.getRootFolder().toPath().toRealPath().resolve(sspRoot);
+
+    String baseName = PathUtil.sanitizeFileName(ref.getId());
+    if (ref.getSourceUri().getPath() != null) {
+      List<String> subFolder = splitPath(ref.getSourceUri().getPath().replaceAll("/[a-zA-Z]:/|/$", ""));
+      if (!subFolder.isEmpty() && subFolder.get(0).equals(sspRoot)) {
+        subFolder.remove(0);
+      }
+      if (subFolder.isEmpty()) {
+        return new ArrayList<>();
+      }
+      for (int i = 0; i < subFolder.size() - 1; i++){
+        folderName = Paths.get(folderName.toString(), subFolder.get(i));
+      }
+      baseName = subFolder.get(subFolder.size() - 1);
+    }
+    
+    List<String> fileNames = new ArrayList<>();
+    if (baseName.contains(".")) {
+      fileNames.add(baseName);
+    } else {
+      for (MimeType ct: MimeType.values()) {
+        String extension = MimeTypeUtils.findExtensions(ct).stream().findFirst().orElse(null);
+        if (extension != null) {
+          fileNames.add(baseName + "." + extension);
+        }
+      }
+    }
+    
+    List<Path> folders = new ArrayList<>();
+    if (definition.getSplitFolders()) {
+      if (Files.isDirectory(folderName)) {
+        folders.addAll(Files.list(folderName).filter(Files::isDirectory).collect(Collectors.toList()));
+      }
+    } else {
+      folders.add(folderName);
+    }
+    
+    List<Path> files = new ArrayList<>();
+    for (Path folder: folders) {
+      for (String fileName: fileNames) {
+        Path f = folder.resolve(fileName);
+        if (Files.isRegularFile(f) && !files.contains(f)) {
+          files.add(f);
+        }
+      }
+    }
+    return files;
+  }
+  
   private Path generateFileName(URI brokerUri, URI sourceUri, String id, String extension) throws IOException {
     id = PathUtil.sanitizeFileName(id);
     URI ssp = URI.create(brokerUri.getSchemeSpecificPart());
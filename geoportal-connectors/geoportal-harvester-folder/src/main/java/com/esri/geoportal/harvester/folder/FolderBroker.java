@@ -20,7 +20,9 @@ import com.esri.geoportal.commons.constants.MimeTypeUtils;
 import com.esri.geoportal.commons.utils.SimpleCredentials;
 import com.esri.geoportal.harvester.api.ex.DataOutputException;
 import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
 import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
+import com.esri.geoportal.harvester.api.base.PublicationLedger;
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.defs.PublishingStatus;
 import com.esri.geoportal.harvester.api.ex.DataException;
@@ -28,7 +30,7 @@ import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.specs.OutputBroker;
 import com.esri.geoportal.harvester.api.specs.OutputConnector;
 import java.util.List;
-import java.io.OutputStream;
+import java.io.InputStream;
 import java.net.URI;
 import static com.esri.geoportal.harvester.folder.PathUtil.splitPath;
 import java.io.IOException;
@@ -36,8 +38,11 @@ import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashSet;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -51,8 +56,9 @@ import org.slf4j.LoggerFactory;
   private final static Logger LOG = LoggerFactory.getLogger(FolderBroker.class);
   private final FolderConnector connector;
   private final FolderBrokerDefinitionAdaptor definition;
-  private final Set<String> existing = new HashSet<>();
+  private final Set<String> existing = ConcurrentHashMap.newKeySet();
   private volatile boolean preventCleanup;
+  private volatile PublicationLedger ledger;
 
   /**
    * Creates instance of the broker.
@@ -77,6 +83,8 @@ import org.slf4j.LoggerFactory;
       String sspRoot = StringUtils.defaultIfEmpty(ssp.getHost(), ssp.getPath());
       Path brokerRootFolder = definition.getRootFolder().toPath().toRealPath().resolve(sspRoot);
       Files.createDirectories(brokerRootFolder);
+      ledger = PublicationLedger.of(context);
+      AbortSignal.of(context).onAbort(() -> preventCleanup = true);
       if (!context.canCleanup()) {
         preventCleanup = true;
       }
@@ -87,7 +95,15 @@ import org.slf4j.LoggerFactory;
             preventCleanup = true;
           }
         });
-        fetchExisting(brokerRootFolder);
+        Collection<String> recorded = ledger!=null? ledger.list(): null;
+        if (recorded!=null) {
+          existing.addAll(recorded);
+        } else {
+          fetchExisting(brokerRootFolder);
+          if (ledger!=null) {
+            ledger.seed(existing);
+          }
+        }
       }
     } catch (IOException|URISyntaxException ex) {
       throw new DataProcessorException(String.format("Error initializing broker."), ex);
@@ -112,7 +128,10 @@ import org.slf4j.LoggerFactory;
       for (String f: existing) {
         if (Thread.currentThread().isInterrupted()) break;
         try {
-          Files.delete(Paths.get(f));
+          Files.deleteIfExists(Paths.get(f));
+          if (ledger!=null) {
+            ledger.remove(f);
+          }
         } catch (IOException ex) {
           LOG.warn(String.format("Error deleting file: %s", f), ex);
         }
@@ -135,9 +154,12 @@ import org.slf4j.LoggerFactory;
           Path f = generateFileName(ref.getBrokerUri(), ref.getSourceUri(), ref.getId(), extension);
           boolean created = !Files.exists(f);
           Files.createDirectories(f.getParent());
-          try (OutputStream output = Files.newOutputStream(f)) {
-            output.write(ref.getContent(ct));
+          try (InputStream input = ref.getContentStream(ct)) {
+            Files.copy(input, f, StandardCopyOption.REPLACE_EXISTING);
             existing.remove(f.toRealPath().toString());
+            if (ledger!=null) {
+              ledger.record(f.toRealPath().toString());
+            }
             //return created ? PublishingStatus.CREATED : PublishingStatus.UPDATED;
           } catch (Exception ex) {
             if (!Thread.currentThread().isInterrupted()) {
@@ -152,6 +174,27 @@ import org.slf4j.LoggerFactory;
     }
   }
 
+  @Override
+  public PublishingStatus delete(DataReference ref) throws DataOutputException {
+    try {
+      boolean deleted = false;
+      for (Path f: generateFileNames(ref)) {
+        if (Files.isRegularFile(f)) {
+          String key = f.toRealPath().toString();
+          Files.deleteIfExists(f);
+          existing.remove(key);
+          if (ledger!=null) {
+            ledger.remove(key);
+          }
+          deleted = true;
+        }
+      }
+      return deleted? PublishingStatus.DELETED: PublishingStatus.SKIPPED;
+    } catch (IOException ex) {
+      throw new DataOutputException(this, ref.getId(), String.format("Error deleting data: %s", ref), ex);
+    }
+  }
+
   @Override
   public boolean hasAccess(SimpleCredentials creds) {
     return true;
@@ -190,6 +233,24 @@ import org.slf4j.LoggerFactory;
     return fileName;
   }
   
+  /**
+   * Generates names of all the files the record could have been published to.
+   * Tombstone has no content, thus every known extension is considered.
+   * @param ref data reference
+   * @return set of file names
+   * @throws IOException if generating file names fails
+   */
+  private Set<Path> generateFileNames(DataReference ref) throws IOException {
+    Set<Path> fileNames = new LinkedHashSet<>();
+    for (MimeType ct: MimeType.values()) {
+      String extension = MimeTypeUtils.findExtensions(ct).stream().findFirst().orElse(null);
+      if (extension!=null) {
+        fileNames.add(generateFileName(ref.getBrokerUri(), ref.getSourceUri(), ref.getId(), extension));
+      }
+    }
+    return fileNames;
+  }
+  
   private static String sanitizeFileName(String fileName) {
     return fileName.replaceAll("[/\\?%*:|\"<>]", "_");
   }
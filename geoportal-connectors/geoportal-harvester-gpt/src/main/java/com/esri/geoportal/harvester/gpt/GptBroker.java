@@ -18,13 +18,14 @@ package com.esri.geoportal.harvester.gpt;
 import com.esri.geoportal.commons.utils.SimpleCredentials;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -37,9 +38,12 @@ import com.esri.geoportal.commons.doc.DocUtils;
 import com.esri.geoportal.commons.gpt.client.Client;
 import com.esri.geoportal.commons.gpt.client.PublishRequest;
 import com.esri.geoportal.commons.gpt.client.PublishResponse;
+import com.esri.geoportal.commons.http.BotsHttpClient;
 import com.esri.geoportal.commons.pdf.PdfUtils;
 import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
 import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
+import com.esri.geoportal.harvester.api.base.PublicationLedger;
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.defs.PublishingStatus;
 import com.esri.geoportal.harvester.api.ex.DataException;
@@ -48,7 +52,9 @@ import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.specs.OutputBroker;
 import com.esri.geoportal.harvester.api.specs.OutputConnector;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import org.apache.http.impl.client.HttpClientBuilder;
 
 /**
  * GPT broker.
@@ -60,9 +66,10 @@ import java.util.stream.Collectors;
   private final static String SBOM = generateSBOM();
   private final GptConnector connector;
   private final GptBrokerDefinitionAdaptor definition;
-  private final Set<String> existing = new HashSet<>();
+  private final Set<String> existing = ConcurrentHashMap.newKeySet();
   private Client client;
   private volatile boolean preventCleanup;
+  private volatile PublicationLedger ledger;
   private final String geometryServiceUrl;
 
   private static String generateSBOM() {
@@ -91,7 +98,11 @@ import java.util.stream.Collectors;
   public void initialize(InitContext context) throws DataProcessorException {
     definition.override(context.getParams());
     try {
-      client = new Client(definition.getHostUrl(), definition.getCredentials(), definition.getIndex());
+      client = new Client(new BotsHttpClient(HttpClientBuilder.create().useSystemProperties().build(), null), definition.getHostUrl(), definition.getCredentials(), definition.getIndex());
+      ledger = PublicationLedger.of(context);
+      AbortSignal abortSignal = AbortSignal.of(context);
+      abortSignal.onAbort(() -> preventCleanup = true);
+      abortSignal.closeOnAbort(client);
 
       if (!context.canCleanup()) {
         preventCleanup = true;
@@ -105,8 +116,16 @@ import java.util.stream.Collectors;
             }
           }
         });
-        List<String> existingIds = client.queryBySource(context.getTask().getDataSource().getBrokerUri().toASCIIString());
-        existing.addAll(existingIds);
+        Collection<String> recordedIds = ledger!=null? ledger.list(): null;
+        if (recordedIds!=null) {
+          existing.addAll(recordedIds);
+        } else {
+          List<String> existingIds = client.queryBySource(context.getTask().getDataSource().getBrokerUri().toASCIIString());
+          existing.addAll(existingIds);
+          if (ledger!=null) {
+            ledger.seed(existingIds);
+          }
+        }
       }
     } catch (IOException | URISyntaxException ex) {
       throw new DataProcessorException(String.format("Error getting published records for: %s", client), ex);
@@ -119,6 +138,9 @@ import java.util.stream.Collectors;
       if (client != null && definition.getCleanup() && !preventCleanup) {
         for (String id : existing) {
           client.delete(id);
+          if (ledger!=null) {
+            ledger.remove(id);
+          }
         }
         LOG.info(String.format("%d records has been removed during cleanup.", existing.size()));
       }
@@ -159,8 +181,10 @@ import java.util.stream.Collectors;
     	  
         byte[] content    = null;
         
-        if (ref.getContent(MimeType.APPLICATION_PDF) != null && definition.isTranslatePdf()) {
-        	content = PdfUtils.generateMetadataXML(ref.getContent(MimeType.APPLICATION_PDF), ref.getSourceUri().getPath(), ref.getSourceUri().toASCIIString(), geometryServiceUrl); 
+        if (ref.getContentType().contains(MimeType.APPLICATION_PDF) && definition.isTranslatePdf()) {
+          try (InputStream pdf = ref.getContentStream(MimeType.APPLICATION_PDF)) {
+            content = pdf != null? PdfUtils.generateMetadataXML(pdf, ref.getSourceUri().getPath(), ref.getSourceUri().toASCIIString(), geometryServiceUrl): null;
+          }
         
         } else if (ref.getContent(MimeType.APPLICATION_XML, MimeType.TEXT_XML) != null) {        	
         	content = ref.getContent(MimeType.APPLICATION_XML, MimeType.TEXT_XML);
@@ -171,8 +195,9 @@ import java.util.stream.Collectors;
                     .filter(t->!Arrays.stream(toBeSkipped).anyMatch(s->s==t))
                     .collect(Collectors.toSet());
             if (!types.isEmpty()) {
-              byte[]         rawContent = ref.getContent(types.toArray(new MimeType[types.size()]));
-              content = rawContent!=null ? DocUtils.generateMetadataXML(rawContent, new File(ref.getId()).getName()) : null;
+              try (InputStream rawContent = ref.getContentStream(types.toArray(new MimeType[types.size()]))) {
+                content = rawContent!=null ? DocUtils.generateMetadataXML(rawContent, new File(ref.getId()).getName()) : null;
+              }
             }
         }
 
@@ -208,12 +233,32 @@ import java.util.stream.Collectors;
         };
       }
       existing.remove(response.getId());
+      if (ledger!=null) {
+        ledger.record(response.getId());
+      }
       return response.getStatus().equalsIgnoreCase("created") ? PublishingStatus.CREATED : PublishingStatus.UPDATED;
     } catch (IOException | URISyntaxException ex) {
       throw new DataOutputException(this, ref.getId(), String.format("Error publishing data: %s", ref), ex);
     }
   }
 
+  @Override
+  public PublishingStatus delete(DataReference ref) throws DataOutputException {
+    try {
+      List<String> ids = client.queryBySourceUri(ref.getSourceUri().toASCIIString());
+      for (String id: ids) {
+        client.delete(id);
+        existing.remove(id);
+        if (ledger!=null) {
+          ledger.remove(id);
+        }
+      }
+      return !ids.isEmpty()? PublishingStatus.DELETED: PublishingStatus.SKIPPED;
+    } catch (IOException | URISyntaxException ex) {
+      throw new DataOutputException(this, ref.getId(), String.format("Error deleting data: %s", ref), ex);
+    }
+  }
+
   @Override
   public OutputConnector getConnector() {
     return connector;
@@ -24,6 +24,8 @@ import com.esri.geoportal.commons.robots.BotsUtils;
 import com.esri.geoportal.commons.utils.SimpleCredentials;
 import com.esri.geoportal.harvester.api.DataContent;
 import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
+import com.esri.geoportal.harvester.api.base.LazyDataReference;
 import com.esri.geoportal.harvester.api.base.SimpleDataReference;
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.defs.TaskDefinition;
@@ -65,8 +67,9 @@ class GptBroker implements InputBroker {
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
     CloseableHttpClient httpClient = HttpClientBuilder.create().useSystemProperties().build();
+    AbortSignal.of(context).closeOnAbort(httpClient);
     if (context.getTask().getTaskDefinition().isIgnoreRobotsTxt()) {
-      client = new Client(httpClient, definition.getHostUrl(), definition.getCredentials(), definition.getIndex());
+      client = new Client(new BotsHttpClient(httpClient, null), definition.getHostUrl(), definition.getCredentials(), definition.getIndex());
     } else {
       Bots bots = BotsUtils.readBots(definition.getBotsConfig(), httpClient, definition.getHostUrl());
       client = new Client(new BotsHttpClient(httpClient, bots), definition.getHostUrl(), definition.getCredentials(), definition.getIndex());
@@ -191,7 +194,7 @@ class GptBroker implements InputBroker {
       String id = iter.next();
       try {
         EntryRef entryRef = client.readItem(id);
-        return readContent(id, entryRef.getLastModified(), entryRef.getSourceUri());
+        return new LazyDataReference(getBrokerUri(), getEntityDefinition().getLabel(), id, entryRef.getLastModified(), entryRef.getSourceUri(), td.getSource().getRef(), td.getRef(), () -> readContent(id, entryRef.getLastModified(), entryRef.getSourceUri()));
       } catch (URISyntaxException | IOException ex) {
         throw new DataInputException(GptBroker.this, String.format("Error iterating through Geoportal Server 2.0 records."), ex);
       }
@@ -26,13 +26,16 @@ import com.esri.geoportal.commons.utils.SimpleCredentials;
 import com.esri.geoportal.harvester.api.DataContent;
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.harvester.api.Initializable;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
 import com.esri.geoportal.harvester.api.base.SimpleDataReference;
+import com.esri.geoportal.harvester.api.base.Tombstone;
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.defs.TaskDefinition;
 import com.esri.geoportal.harvester.api.ex.DataInputException;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.specs.InputBroker;
 import com.esri.geoportal.harvester.api.specs.InputConnector;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.slf4j.Logger;
@@ -80,8 +83,9 @@ import java.util.Date;
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
     CloseableHttpClient http = HttpClientBuilder.create().useSystemProperties().build();
+    AbortSignal.of(context).closeOnAbort(http);
     if (context.getTask().getTaskDefinition().isIgnoreRobotsTxt()) {
-      httpClient = http;
+      httpClient = new BotsHttpClient(http, null);
     } else {
       Bots bots = BotsUtils.readBots(definition.getBotsConfig(), http, definition.getHostUrl());
       httpClient = new BotsHttpClient(http, bots);
@@ -157,10 +161,14 @@ import java.util.Date;
 
     private java.util.Iterator<Header> idIter;
     private String resumptionToken;
+    private String pageToken;     // resumption token of the current page
+    private boolean resuming;
     private boolean lastCall = false; // no resumption token
 
     public OaiIterator(InputBroker.IteratorContext iteratorContext) {
       this.iteratorContext = iteratorContext;
+      this.resumptionToken = iteratorContext.getCheckpoint();
+      this.resuming = resumptionToken != null;
     }
 
     @Override
@@ -173,7 +181,19 @@ import java.util.Date;
           return false;
         }
 
-        ListIdsResponse listIds = client.listIds(resumptionToken, iteratorContext.getLastHarvestDate());
+        pageToken = resumptionToken;
+        ListIdsResponse listIds;
+        try {
+          listIds = client.listIds(resumptionToken, iteratorContext.getLastHarvestDate());
+        } catch (HttpResponseException ex) {
+          if (!resuming) {
+            throw ex;
+          }
+          LOG.warn(String.format("Unable to resume harvest of %s; harvesting from the beginning.", OaiBroker.this), ex);
+          pageToken = null;
+          listIds = client.listIds(null, iteratorContext.getLastHarvestDate());
+        }
+        resuming = false;
         resumptionToken = listIds.resumptionToken;
         if (listIds.resumptionToken == null || listIds.resumptionToken.isEmpty()) {
           lastCall = true;
@@ -203,9 +223,24 @@ import java.util.Date;
       }
 
       Header header = idIter.next();
+      if (header.deleted) {
+        try {
+          return new Tombstone(getBrokerUri(), definition.getEntityDefinition().getLabel(), header.identifier, parseIsoDate(header.datestamp), URI.create(header.identifier), td.getSource().getRef(), td.getRef());
+        } catch (URISyntaxException ex) {
+          throw new DataInputException(OaiBroker.this, String.format("Error reading data from: %s", this), ex);
+        }
+      }
       return readContent(header.identifier, parseIsoDate(header.datestamp));
     }
 
+    @Override
+    public String getCheckpoint() {
+      if (idIter != null && !idIter.hasNext() && !lastCall) {
+        return resumptionToken;
+      }
+      return pageToken;
+    }
+
   }
 
   /**
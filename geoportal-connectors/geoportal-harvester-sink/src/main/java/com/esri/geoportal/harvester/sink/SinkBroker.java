@@ -18,6 +18,7 @@ package com.esri.geoportal.harvester.sink;
 import com.esri.geoportal.commons.utils.SimpleCredentials;
 import com.esri.geoportal.harvester.api.DataContent;
 import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.ContentStore;
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.defs.TaskDefinition;
 import com.esri.geoportal.harvester.api.ex.DataInputException;
@@ -52,6 +53,7 @@ import org.slf4j.LoggerFactory;
   private final LinkedList<SinkFile> files = new LinkedList<>();
   
   TaskDefinition td;
+  ContentStore contentStore = ContentStore.HEAP;
   private Path dropPath;
   private WatchService watchService;
   private Thread watchThread;
@@ -72,6 +74,7 @@ import org.slf4j.LoggerFactory;
     context.preventCleanup();
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
+    contentStore = ContentStore.of(context);
     dropPath = Paths.get(definition.getRootFolder().getAbsolutePath());
     try {
       watchService = FileSystems.getDefault().newWatchService();
@@ -27,8 +27,11 @@ import com.esri.geoportal.harvester.api.specs.InputConnector;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * UNC broker.
@@ -36,9 +39,6 @@ import java.util.LinkedList;
 /*package*/ class UncBroker implements InputBroker {
   private final UncConnector connector;
   private final UncBrokerDefinitionAdaptor definition;
-
-  private LinkedList<UncFolder> subFolders;
-  private LinkedList<UncFile> files;
   
   TaskDefinition td;
   
@@ -84,6 +84,32 @@ import java.util.LinkedList;
     return new UncIterator(iteratorContext);
   }
 
+  /**
+   * Gets partitions. The first partition are the files of the root folder,
+   * each other partition is a subfolder of the root folder with all its
+   * content. Partition is the path of the folder.
+   * @param iteratorContext iterator context
+   * @return list of partitions
+   * @throws DataInputException if error reading root folder
+   */
+  @Override
+  public List<String> partitions(IteratorContext iteratorContext) throws DataInputException {
+    try {
+      Path rootFolder = getRootFolder();
+      UncFolderContent content = new UncFolder(this, rootFolder, definition.getPattern(), iteratorContext.getLastHarvestDate()).readContent();
+      List<String> partitions = new ArrayList<>();
+      partitions.add(rootFolder.toString());
+      content.getSubFolders().forEach(f->partitions.add(f.getFolder().toString()));
+      return partitions;
+    } catch (IOException|URISyntaxException ex) {
+      throw new DataInputException(this, "Error reading partitions.", ex);
+    }
+  }
+  
+  private Path getRootFolder() {
+    return Paths.get(definition.getRootFolder().getAbsolutePath());
+  }
+
   @Override
   public boolean hasAccess(SimpleCredentials creds) {
     return true;
@@ -109,6 +135,9 @@ import java.util.LinkedList;
    */
   private class UncIterator implements InputBroker.Iterator {
     private final IteratorContext iteratorContext;
+    private LinkedList<UncFolder> subFolders;
+    private LinkedList<UncFile> files;
+    private boolean rootFolderOnly;
 
     /**
      * Creates instance of the iterator.
@@ -116,6 +145,15 @@ import java.util.LinkedList;
      */
     public UncIterator(IteratorContext iteratorContext) {
       this.iteratorContext = iteratorContext;
+      if (iteratorContext.getPartition()!=null) {
+        Path folder = Paths.get(iteratorContext.getPartition());
+        if (folder.equals(getRootFolder())) {
+          rootFolderOnly = true;
+        } else {
+          subFolders = new LinkedList<>();
+          subFolders.add(new UncFolder(UncBroker.this, folder, definition.getPattern(), iteratorContext.getLastHarvestDate()));
+        }
+      }
     }
     
     
@@ -136,8 +174,8 @@ import java.util.LinkedList;
         }
 
         if (subFolders==null) {
-          UncFolderContent content = new UncFolder(UncBroker.this, Paths.get(definition.getRootFolder().getAbsolutePath()), definition.getPattern(), iteratorContext.getLastHarvestDate()).readContent();
-          subFolders = new LinkedList<>(content.getSubFolders());
+          UncFolderContent content = new UncFolder(UncBroker.this, getRootFolder(), definition.getPattern(), iteratorContext.getLastHarvestDate()).readContent();
+          subFolders = rootFolderOnly? new LinkedList<>(): new LinkedList<>(content.getSubFolders());
           files = new LinkedList<>(content.getFiles());
           return hasNext();
         }
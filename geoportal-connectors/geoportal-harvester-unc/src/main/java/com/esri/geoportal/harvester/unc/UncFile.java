@@ -19,12 +19,10 @@ import com.esri.geoportal.harvester.api.base.SimpleDataReference;
 import com.esri.geoportal.commons.constants.MimeType;
 import com.esri.geoportal.commons.constants.MimeTypeUtils;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Date;
-import org.apache.commons.io.IOUtils;
 
 /**
  * UNC file.
@@ -45,6 +43,9 @@ import org.apache.commons.io.IOUtils;
 
   /**
    * Reads content.
+   * <p>
+   * Content is not loaded into memory; it is streamed from the file each time
+   * requested.
    * @return content reference
    * @throws IOException if reading content fails
    * @throws URISyntaxException if file url is an invalid URI
@@ -52,11 +53,9 @@ import org.apache.commons.io.IOUtils;
   public SimpleDataReference readContent() throws IOException, URISyntaxException {
     Date lastModifiedDate = readLastModifiedDate();
     MimeType contentType = readContentType();
-    try (InputStream input = Files.newInputStream(file)) {
-      SimpleDataReference ref = new SimpleDataReference(broker.getBrokerUri(), broker.getEntityDefinition().getLabel(), file.toAbsolutePath().toString(), lastModifiedDate, file.toUri(), broker.td.getSource().getRef(), broker.td.getRef());
-      ref.addContext(contentType, IOUtils.toByteArray(input));
-      return ref;
-    }
+    SimpleDataReference ref = new SimpleDataReference(broker.getBrokerUri(), broker.getEntityDefinition().getLabel(), file.toAbsolutePath().toString(), lastModifiedDate, file.toUri(), broker.td.getSource().getRef(), broker.td.getRef());
+    ref.addContext(contentType, file.toFile());
+    return ref;
   }
 
   /**
@@ -60,6 +60,14 @@ import org.slf4j.LoggerFactory;
     this.since = since;
   }
 
+  /**
+   * Gets folder.
+   * @return folder
+   */
+  public Path getFolder() {
+    return folder;
+  }
+
   /**
    * Reads content of the folder.
    * @return content
@@ -15,13 +15,17 @@
  */
 package com.esri.geoportal.harvester.waf;
 
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
 import com.esri.geoportal.commons.http.BotsHttpClient;
 import com.esri.geoportal.commons.robots.Bots;
 import com.esri.geoportal.commons.robots.BotsUtils;
 import com.esri.geoportal.commons.utils.SimpleCredentials;
 import com.esri.geoportal.harvester.api.DataContent;
+import com.esri.geoportal.harvester.api.base.AbortSignal;
 import com.esri.geoportal.harvester.api.ex.DataInputException;
 import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.ContentStore;
+import com.esri.geoportal.harvester.api.base.SourceUriFilter;
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.defs.TaskDefinition;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
@@ -32,10 +36,11 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
-import org.apache.http.client.HttpResponseException;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.slf4j.Logger;
@@ -48,12 +53,10 @@ import org.slf4j.LoggerFactory;
   private static final Logger LOG = LoggerFactory.getLogger(WafBroker.class);
   private final WafConnector connector;
   private final WafBrokerDefinitionAdaptor definition;
-  private final Set<URL> visited = new HashSet<>();
   
   private CloseableHttpClient httpClient;
-  private LinkedList<WafFolder> subFolders;
-  private LinkedList<WafFile> files;
   TaskDefinition td;
+  ContentStore contentStore = ContentStore.HEAP;
 
   
   /**
@@ -70,9 +73,11 @@ import org.slf4j.LoggerFactory;
   public void initialize(InitContext context) throws DataProcessorException {
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
+    contentStore = ContentStore.of(context);
     CloseableHttpClient client = HttpClientBuilder.create().useSystemProperties().build();
+    AbortSignal.of(context).closeOnAbort(client);
     if (context.getTask().getTaskDefinition().isIgnoreRobotsTxt()) {
-      httpClient = client;
+      httpClient = new BotsHttpClient(client, null);
     } else {
       Bots bots = BotsUtils.readBots(definition.getBotsConfig(), client, definition.getHostUrl());
       httpClient = new BotsHttpClient(client,bots);
@@ -100,6 +105,53 @@ import org.slf4j.LoggerFactory;
     return new WafIterator(iteratorContext);
   }
 
+  /**
+   * Gets partitions. The first partition are the files of the start folder,
+   * each other partition is a subfolder of the start folder with all its
+   * content. Partition is the URL of the folder.
+   * @param iteratorContext iterator context
+   * @return list of partitions
+   * @throws DataInputException if error reading start folder
+   */
+  @Override
+  public List<String> partitions(IteratorContext iteratorContext) throws DataInputException {
+    try {
+      SourceUriFilter uriFilter = SourceUriFilter.of(iteratorContext);
+      URL startUrl = getStartUrl();
+      WafFolderContent content = new WafFolder(this, startUrl, definition.getPattern(), definition.getCredentials()).readContent(httpClient);
+      List<String> partitions = new ArrayList<>();
+      partitions.add(startUrl.toExternalForm());
+      content.getSubFolders().stream()
+              .filter(f -> mayContainAccepted(uriFilter, f))
+              .map(f -> f.getFolderUrl().toExternalForm())
+              .filter(p -> !partitions.contains(p))
+              .forEach(partitions::add);
+      return partitions;
+    } catch (IOException|URISyntaxException ex) {
+      throw new DataInputException(this, "Error reading partitions.", ex);
+    }
+  }
+  
+  private URL getStartUrl() throws MalformedURLException {
+    return new URL(definition.getHostUrl().toExternalForm().replaceAll("/$", "")+"/");
+  }
+
+  /**
+   * Checks if folder may contain any file accepted by the source URI filter.
+   * Only files within the folder are listed by the folder, thus folder URL is
+   * a prefix of URL of every file found there.
+   * @param uriFilter source URI filter
+   * @param folder folder
+   * @return <code>true</code> if folder has to be visited
+   */
+  private boolean mayContainAccepted(SourceUriFilter uriFilter, WafFolder folder) {
+    try {
+      return uriFilter.mayAcceptBelow(folder.getFolderUrl().toURI().toASCIIString());
+    } catch (URISyntaxException ex) {
+      return true;
+    }
+  }
+
   @Override
   public String toString() {
     return String.format("WAF [%s]", definition.getHostUrl());
@@ -139,14 +191,50 @@ import org.slf4j.LoggerFactory;
    */
   private class WafIterator implements InputBroker.Iterator {
     private final IteratorContext iteratorContext;
+    private final SourceUriFilter uriFilter;
+    private final Set<URL> visited = new HashSet<>();
+    private LinkedList<WafFolder> subFolders;
+    private LinkedList<WafFile> files;
+    private WafFolder currentFolder;
+    private boolean startFolderOnly;
     private DataReference nextFile;
+    private String checkpoint;
 
     /**
      * Creates instance of the iterator.
      * @param iteratorContext iterator context
      */
-    public WafIterator(IteratorContext iteratorContext) {
+    public WafIterator(IteratorContext iteratorContext) throws DataInputException {
       this.iteratorContext = iteratorContext;
+      this.uriFilter = SourceUriFilter.of(iteratorContext);
+      if (iteratorContext.getPartition()!=null) {
+        partition(iteratorContext.getPartition());
+      }
+      if (iteratorContext.getCheckpoint()!=null) {
+        resume(iteratorContext.getCheckpoint());
+      }
+    }
+    
+    /**
+     * Limits iteration to the partition.
+     * @param partition partition
+     * @throws DataInputException if invalid partition
+     */
+    private void partition(String partition) throws DataInputException {
+      try {
+        URL startUrl = getStartUrl();
+        URL folderUrl = new URL(partition);
+        if (folderUrl.equals(startUrl)) {
+          startFolderOnly = true;
+        } else {
+          visited.add(startUrl);
+          subFolders = new LinkedList<>();
+          subFolders.add(new WafFolder(WafBroker.this, folderUrl, definition.getPattern(), definition.getCredentials()));
+          files = new LinkedList<>();
+        }
+      } catch (MalformedURLException ex) {
+        throw new DataInputException(WafBroker.this, String.format("Invalid partition: %s", partition), ex);
+      }
     }
     
     
@@ -155,30 +243,39 @@ import org.slf4j.LoggerFactory;
 
       try {
         if (files!=null && !files.isEmpty()) {
-          nextFile = readContent();
-          if (nextFile==null || nextFile.getContent(nextFile.getContentType().stream().findFirst().orElse(null))==null) {
-            nextFile = null;
+          WafFile file = files.poll();
+          if (!uriFilter.accepts(file.getFileUrl().toURI().toASCIIString())) {
             return hasNext();
           }
+          nextFile = file.createReference(httpClient, iteratorContext.getLastHarvestDate());
           return true;
         }
 
         if (subFolders!=null && !subFolders.isEmpty()) {
+          checkpoint = null;
           WafFolder subFolder = subFolders.poll();
           if (visited.contains(subFolder.getFolderUrl())) {
             return hasNext();
           }
           visited.add(subFolder.getFolderUrl());
+          currentFolder = subFolder;
           WafFolderContent content = subFolder.readContent(httpClient);
-          content.getSubFolders().forEach(f->subFolders.offer(f));
+          if (!startFolderOnly) {
+            content.getSubFolders().stream().filter(f->mayContainAccepted(uriFilter, f)).forEach(f->subFolders.offer(f));
+          }
           files = new LinkedList<>(content.getFiles());
           return hasNext();
         }
 
         if (subFolders==null) {
-          URL startUrl = new URL(definition.getHostUrl().toExternalForm().replaceAll("/$", "")+"/");
-          WafFolderContent content = new WafFolder(WafBroker.this, startUrl, definition.getPattern(), definition.getCredentials()).readContent(httpClient);
-          subFolders = new LinkedList<>(content.getSubFolders());
+          checkpoint = null;
+          currentFolder = new WafFolder(WafBroker.this, getStartUrl(), definition.getPattern(), definition.getCredentials());
+          visited.add(currentFolder.getFolderUrl());
+          WafFolderContent content = currentFolder.readContent(httpClient);
+          subFolders = new LinkedList<>();
+          if (!startFolderOnly) {
+            content.getSubFolders().stream().filter(f->mayContainAccepted(uriFilter, f)).forEach(f->subFolders.offer(f));
+          }
           files = new LinkedList<>(content.getFiles());
           return hasNext();
         }
@@ -188,6 +285,36 @@ import org.slf4j.LoggerFactory;
         throw new DataInputException(WafBroker.this, "Error reading data.", ex);
       }
     }
+    
+    @Override
+    public List<EntityDefinition> getHonouredFilters() {
+      return uriFilter.getDefinitions();
+    }
+
+    /**
+     * Gets checkpoint.
+     * <p>
+     * Checkpoint lists URL's of the folders yet to be read, starting with the
+     * folder being currently read. Upon resume, the current folder is read
+     * again from the beginning. Folders already visited are not listed; 
+     * folders reachable again through links from the pending ones are read 
+     * again. Checkpoint changes only when the next folder is entered, thus 
+     * it is built once per folder rather than once per record.
+     * @return checkpoint or <code>null</code> if nothing read yet
+     */
+    @Override
+    public String getCheckpoint() {
+      if (currentFolder==null) {
+        return null;
+      }
+      if (checkpoint==null) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(currentFolder.getFolderUrl().toExternalForm()).append("\n");
+        subFolders.forEach(f->sb.append(f.getFolderUrl().toExternalForm()).append("\n"));
+        checkpoint = sb.toString();
+      }
+      return checkpoint;
+    }
 
     @Override
     public DataReference next() throws DataInputException {
@@ -199,15 +326,24 @@ import org.slf4j.LoggerFactory;
       return result;
     }
     
-    private DataReference readContent() throws IOException, URISyntaxException {
-      WafFile file = files.poll();
+    private void resume(String checkpoint) {
+      LinkedList<WafFolder> pending = new LinkedList<>();
       try {
-        return file.readContent(httpClient, iteratorContext.getLastHarvestDate());
-      } catch (HttpResponseException ex) {
-        if (ex.getStatusCode()!=403 && ex.getStatusCode()!=404) {
-          throw ex;
+        for (String line: checkpoint.split("\n")) {
+          if (line.isEmpty()) {
+            // checkpoints of the previous versions list visited folders after an empty line
+            break;
+          }
+          pending.add(new WafFolder(WafBroker.this, new URL(line), definition.getPattern(), definition.getCredentials()));
         }
-        return null;
+      } catch (MalformedURLException ex) {
+        LOG.warn(formatForLog("Invalid checkpoint; harvesting from the beginning: %s", definition.getHostUrl()), ex);
+        return;
+      }
+      if (!pending.isEmpty()) {
+        LOG.info(formatForLog("Resuming WAF harvest from folder: %s", pending.getFirst()));
+        subFolders = pending;
+        files = new LinkedList<>();
       }
     }
   }
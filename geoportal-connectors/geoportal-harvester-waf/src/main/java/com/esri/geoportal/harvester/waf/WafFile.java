@@ -23,7 +23,10 @@ import com.esri.geoportal.commons.meta.util.WKAConstants;
 import static com.esri.geoportal.commons.utils.Constants.DEFAULT_REQUEST_CONFIG;
 import static com.esri.geoportal.commons.utils.HttpClientContextBuilder.createHttpClientContext;
 import com.esri.geoportal.commons.utils.SimpleCredentials;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.LazyDataReference;
 import com.esri.geoportal.harvester.api.base.SimpleDataReference;
+import com.esri.geoportal.harvester.api.ex.DataInputException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -32,7 +35,6 @@ import java.net.URL;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Date;
-import org.apache.commons.io.IOUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpResponseException;
@@ -63,6 +65,42 @@ import org.apache.http.impl.client.CloseableHttpClient;
     this.creds = creds;
   }
 
+  /**
+   * Creates lazy reference. Content is downloaded upon the first request for
+   * it, thus files rejected by the filters are never downloaded. Files which 
+   * are forbidden, missing or not modified since the given date have no content.
+   * @param httpClient HTTP client
+   * @param since since date
+   * @return lazy data reference
+   * @throws URISyntaxException if file url is an invalid URI
+   */
+  public DataReference createReference(CloseableHttpClient httpClient, Date since) throws URISyntaxException {
+    LazyDataReference ref = new LazyDataReference(broker.getBrokerUri(), broker.getEntityDefinition().getLabel(), fileUrl.toExternalForm(), null, fileUrl.toURI(), broker.td.getSource().getRef(), broker.td.getRef(), () -> loadContent(httpClient, since));
+    ref.getAttributesMap().put(WKAConstants.WKA_RESOURCE_URL, fileUrl.toURI());
+    return ref;
+  }
+
+  /**
+   * Loads content.
+   * @param httpClient HTTP client
+   * @param since since date
+   * @return content reference or <code>null</code> if no content
+   * @throws DataInputException if reading content fails
+   */
+  private DataReference loadContent(CloseableHttpClient httpClient, Date since) throws DataInputException {
+    try {
+      SimpleDataReference ref = readContent(httpClient, since);
+      return ref.getContentLength(ref.getContentType().toArray(new MimeType[0])) >= 0? ref: null;
+    } catch (HttpResponseException ex) {
+      if (ex.getStatusCode()==403 || ex.getStatusCode()==404) {
+        return null;
+      }
+      throw new DataInputException(broker, String.format("Error reading data from: %s", fileUrl), ex);
+    } catch (IOException|URISyntaxException ex) {
+      throw new DataInputException(broker, String.format("Error reading data from: %s", fileUrl), ex);
+    }
+  }
+
   /**
    * Reads content.
    * @param httpClient HTTP client
@@ -85,7 +123,7 @@ import org.apache.http.impl.client.CloseableHttpClient;
       MimeType contentType = readContentType(httpResponse);
       boolean readBody = since==null || lastModifiedDate==null || lastModifiedDate.getTime()>=since.getTime();
       SimpleDataReference ref = new SimpleDataReference(broker.getBrokerUri(), broker.getEntityDefinition().getLabel(), fileUrl.toExternalForm(), lastModifiedDate, fileUrl.toURI(), broker.td.getSource().getRef(), broker.td.getRef());
-      ref.addContext(contentType, readBody? IOUtils.toByteArray(input): null);
+      ref.addContext(contentType, readBody? broker.contentStore.store(input): null);
 
       // Adding in resource map attributes for saving to AGP...
       ref.getAttributesMap().put(WKAConstants.WKA_RESOURCE_URL, fileUrl.toURI());